@@ -0,0 +1,39 @@
+package com.bd.polygon;
+
+import android.graphics.Bitmap;
+
+/**
+ * 基于 Bitmap 的像素源
+ * <p>
+ * Reads one row segment per call through {@link Bitmap#getPixels}, which only reads the pixel memory,
+ * so the worker threads of {@link PixelMaskEngine} may call it at the same time. The bitmap must not
+ * be modified or recycled while an extraction runs.
+ *
+ * @author agent
+ */
+final class BitmapPixelSource implements PixelSource {
+
+    private Bitmap mBitmap;
+
+    BitmapPixelSource() {
+    }
+
+    void setBitmap(Bitmap bitmap) {
+        mBitmap = bitmap;
+    }
+
+    @Override
+    public int getWidth() {
+        return mBitmap.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return mBitmap.getHeight();
+    }
+
+    @Override
+    public void getRow(int x, int y, int width, int[] out) {
+        mBitmap.getPixels(out, 0, width, x, y, width, 1);
+    }
+}
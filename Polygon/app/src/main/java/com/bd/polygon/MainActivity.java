@@ -4,20 +4,101 @@ import android.app.Activity;
 import android.app.AlertDialog;
 import android.content.DialogInterface;
 import android.os.Bundle;
+import android.util.Log;
 import android.view.View;
 
+import java.io.File;
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class MainActivity extends Activity {
 
+    private static final String TAG = MainActivity.class.getName();
+
     private PolygonView mPv;
 
+    // 提交时复用的标签栅格; 重叠的窗口各自保留共有的栅格, 每次提交前恢复为 MODE_BITMASK,
+    // 窗口多于 32 个时 toLabelGrid 改用 MODE_OWNER, 重叠部分归后面的窗口
+    private final LabelGrid mLabelGrid = new LabelGrid(LabelGrid.MODE_BITMASK);
+
+    // 提交给设备的掩码编码, 缓冲复用
+    private final CellMaskEncoder mEncoder = new CellMaskEncoder(CellMaskEncoder.FORMAT_PACKED_BITS,
+            ByteOrder.LITTLE_ENDIAN, CellMaskEncoder.ORDER_ROW_MAJOR);
+    private ByteBuffer mWireBuffer = ByteBuffer.allocateDirect(0);
+
+    // 调试版提交时统计每个窗口下的图像像素
+    private final PixelMaskEngine mPixelEngine = new PixelMaskEngine();
+    private PixelStats[] mPixelStats = new PixelStats[0];
+
+    // 提交时统计每个窗口的栅格在图像上的亮度, 积分图在后台计算并按位图缓存
+    private final ZoneLuminance mZoneLuminance = new ZoneLuminance();
+    private final ZoneLuminance.Callback mZoneLuminanceLogger = new ZoneLuminance.Callback() {
+        @Override
+        public void onZoneLuminance(RegionStats[] stats, int count) {
+            if (BuildConfig.DEBUG) {
+                for (int i = 0; i < count; i++) {
+                    Log.d(TAG, i + ": " + stats[i]);
+                }
+            }
+        }
+    };
+
+    // 进程被杀后用来恢复窗口的文件
+    private File mStateFile;
+
+    // 在后台按顺序保存快照, 不阻塞 UI 线程
+    private final ExecutorService mSaveExecutor = Executors.newSingleThreadExecutor();
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
         mPv = (PolygonView) findViewById(R.id.polygonView);
 
+        //横屏，宽高交换; 与提交时的栅格一致
+        int width = getWindowManager().getDefaultDisplay().getWidth();
+        int height = getWindowManager().getDefaultDisplay().getHeight();
+        mPv.setGridPreview(22, 18, height / 22, width / 18);
+
+        mStateFile = new File(getFilesDir(), "polygons.bin");
+        // 旋转等配置变化由 PolygonView 自己的 onSaveInstanceState 恢复
+        if (null == savedInstanceState && mStateFile.exists()) {
+            try {
+                mPv.restoreState(mStateFile);
+            } catch (IOException e) {
+                Log.w(TAG, "Cannot restore " + mStateFile, e);
+            }
+        }
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        // 先写临时文件再重命名, 写到一半进程被杀也不会破坏上一次保存的文件
+        final EditorSnapshot snapshot = mPv.snapshot();
+        final File file = mStateFile;
+        mSaveExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    PolygonCodec.write(snapshot, file);
+                } catch (IOException e) {
+                    Log.w(TAG, "Cannot save " + file, e);
+                }
+            }
+        });
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mPixelEngine.shutdown();
+        mZoneLuminance.shutdown();
+        // 已经提交的保存会执行完
+        mSaveExecutor.shutdown();
     }
 
     public void onCancel(View v) {
@@ -64,9 +145,37 @@ public class MainActivity extends Activity {
         //横屏，宽高交换
         int width = getWindowManager().getDefaultDisplay().getWidth();
         int height = getWindowManager().getDefaultDisplay().getHeight();
-        mPv.toMatrix(0,22,height/22,width/18);
-        mPv.toMatrix(1,22,height/22,width/18);
-        mPv.toMatrix(2,22,height/22,width/18);
-        mPv.toMatrix(3,22,height/22,width/18);
+        mLabelGrid.setMode(LabelGrid.MODE_BITMASK);
+        mPv.toLabelGrid(22, 18, height / 22, width / 18, mLabelGrid);
+        if (BuildConfig.DEBUG) {
+            for (int i = 0; i < mLabelGrid.getPolygonCount(); i++) {
+                Log.d(TAG, mLabelGrid.mask(i).toString());
+            }
+        }
+
+        int size = mLabelGrid.getPolygonCount() * mEncoder.maxEncodedSize(22, 18);
+        if (mWireBuffer.capacity() < size) {
+            mWireBuffer = ByteBuffer.allocateDirect(size);
+        }
+        mWireBuffer.clear();
+        mEncoder.encode(mLabelGrid, mWireBuffer);
+        mWireBuffer.flip();
+        if (BuildConfig.DEBUG) {
+            Log.d(TAG, "encoded " + mLabelGrid.getPolygonCount() + " masks, " + mWireBuffer.remaining() + " bytes");
+        }
+
+        mPv.computeZoneLuminance(mZoneLuminance, mLabelGrid, height / 22, width / 18, mZoneLuminanceLogger);
+
+        // 像素统计只用于日志, 要在 UI 线程读一遍整张位图, 发布版不做
+        if (BuildConfig.DEBUG) {
+            if (mPixelStats.length < mLabelGrid.getPolygonCount()) {
+                mPixelStats = new PixelStats[mLabelGrid.getPolygonCount()];
+            }
+            if (mPv.computePixelStats(mPixelEngine, mPixelStats)) {
+                for (int i = 0; i < mLabelGrid.getPolygonCount(); i++) {
+                    Log.d(TAG, i + ": " + mPixelStats[i]);
+                }
+            }
+        }
     }
 }
@@ -88,4 +88,40 @@ public class PaintUtil {
 
         return paint;
     }
+
+    /**
+     * Creates the Paint object for outlining windows that overlap another window.
+     */
+    public static Paint newOverlapPaint(@NonNull Resources resources) {
+
+        final Paint paint = new Paint();
+        paint.setStyle(Paint.Style.STROKE);
+        paint.setStrokeWidth(resources.getDimension(R.dimen.border_thickness));
+        paint.setColor(resources.getColor(R.color.overlap));
+
+        return paint;
+    }
+
+    /**
+     * Creates the Paint object for filling the grid cells covered by the active window.
+     */
+    public static Paint newGridPreviewPaint(@NonNull Resources resources) {
+
+        final Paint paint = new Paint();
+        paint.setStyle(Paint.Style.FILL);
+        paint.setColor(resources.getColor(R.color.grid_preview));
+
+        return paint;
+    }
+
+    /**
+     * Creates the Paint object for the activity heat overlay, the color is set per cell.
+     */
+    public static Paint newHeatmapPaint() {
+
+        final Paint paint = new Paint();
+        paint.setStyle(Paint.Style.FILL);
+
+        return paint;
+    }
 }
@@ -0,0 +1,48 @@
+package com.bd.polygon;
+
+import android.graphics.Path;
+
+/**
+ * 多边形轮廓路径缓存
+ * <p>
+ * {@link Polygon} lives in the Android free core module, so the {@link Path} used for drawing is
+ * cached here instead. The cache is attached through {@link Polygon#setTag(Object)} and rebuilt only
+ * when {@link Polygon#getVersion()} changes.
+ *
+ * @author agent
+ */
+final class PolygonPath {
+
+    private final Path mPath = new Path();
+    private int mVersion = -1;
+
+    private PolygonPath() {
+    }
+
+    /**
+     * 闭合的轮廓路径, 顶点变化后才重建. 返回的是缓存, 不要修改.
+     */
+    static Path get(Polygon polygon) {
+        PolygonPath cache;
+        if (polygon.getTag() instanceof PolygonPath) {
+            cache = (PolygonPath) polygon.getTag();
+        } else {
+            cache = new PolygonPath();
+            polygon.setTag(cache);
+        }
+        if (cache.mVersion != polygon.getVersion()) {
+            Path path = cache.mPath;
+            path.rewind();
+            int size = polygon.size();
+            if (size > 0) {
+                path.moveTo(polygon.getX(0), polygon.getY(0));
+                for (int i = 1; i < size; i++) {
+                    path.lineTo(polygon.getX(i), polygon.getY(i));
+                }
+                path.close();
+            }
+            cache.mVersion = polygon.getVersion();
+        }
+        return cache.mPath;
+    }
+}
@@ -16,24 +16,37 @@ package com.bd.polygon;
 import android.content.Context;
 import android.content.res.Resources;
 import android.content.res.TypedArray;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.Point;
+import android.graphics.Rect;
 import android.graphics.RectF;
+import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.util.SparseIntArray;
+import android.view.Choreographer;
 import android.view.MotionEvent;
 import android.widget.ImageView;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * Custom view that provides cropping capabilities to an image.
@@ -58,6 +71,12 @@ public class PolygonView extends ImageView {
     // The Paint used to darken the surrounding areas outside the crop area.
     private Paint mSurroundingAreaOverlayPaint;
 
+    // The Paint used to outline windows that overlap another window.
+    private Paint mOverlapPaint;
+
+    // The Paint used to fill the grid cells covered by the active window.
+    private Paint mGridPreviewPaint;
+
 
     // Length of one side of the corner handle.
     private float mCornerLength;
@@ -68,7 +87,20 @@ public class PolygonView extends ImageView {
 
 
     private int mGuidelinesMode = 1;
-    private float mRadius;
+
+    // 顶点 / 中心点的命中半径 (px), 由 dp 换算
+    private float mVertexRadius;
+    private float mCenterRadius;
+
+    // 部分刷新用的区域, 避免每次触摸都重绘整个 View
+    private final Rect mDirtyRect = new Rect();
+    private final Rect mTmpRect = new Rect();
+    private final Rect mClipRect = new Rect();
+    private final int[] mCircleBounds = new int[4];
+
+    // 顶点与区域的命中索引, 在触摸开始和结束时同步
+    private PolygonIndex mIndex;
+    private boolean mIndexStale = true;
 
     // Constructors ////////////////////////////////////////////////////////////////////////////////
 
@@ -90,16 +122,26 @@ public class PolygonView extends ImageView {
     private void init(@NonNull Context context, @Nullable AttributeSet attrs) {
 
         final TypedArray typedArray = context.obtainStyledAttributes(attrs, R.styleable.PolygonView, 0, 0);
+        final Resources resources = context.getResources();
+
         mGuidelinesMode = typedArray.getInteger(R.styleable.PolygonView_guidelines, 1);
         int shapeValue = typedArray.getInteger(R.styleable.PolygonView_shape, 0);
         mShape = Shape.getType(shapeValue);
+        mPolygonNumLimit = typedArray.getInteger(R.styleable.PolygonView_polygonLimit, mPolygonNumLimit);
+        mVertexRadius = typedArray.getDimension(R.styleable.PolygonView_vertexRadius, resources.getDimension(R.dimen.target_radius));
+        mCenterRadius = typedArray.getDimension(R.styleable.PolygonView_centerRadius, resources.getDimension(R.dimen.center_radius));
+        mOverlapPolicy = OverlapPolicy.values()[typedArray.getInteger(R.styleable.PolygonView_overlapPolicy, 0)];
+        mLargeScale = typedArray.getBoolean(R.styleable.PolygonView_largeScale, false);
+        mIdleLayerEnabled = typedArray.getBoolean(R.styleable.PolygonView_idleLayer, true);
         typedArray.recycle();
 
-        final Resources resources = context.getResources();
+        mIndex = new PolygonIndex(Math.max(1, (int) (mVertexRadius * 2)), Math.max(1, (int) (mCenterRadius * 4)));
 
         mBorderPaint = PaintUtil.newBorderPaint(resources);
         mGuidelinePaint = PaintUtil.newGuidelinePaint(resources);
         mSurroundingAreaOverlayPaint = PaintUtil.newSurroundingAreaOverlayPaint(resources);
+        mOverlapPaint = PaintUtil.newOverlapPaint(resources);
+        mGridPreviewPaint = PaintUtil.newGridPreviewPaint(resources);
 //        mCornerPaint = PaintUtil.newCornerPaint(resources);
         mCornerPaint = PaintUtil.newCircleCornerPaint(resources);
         mCornerLength = resources.getDimension(R.dimen.corner_length);
@@ -111,59 +153,348 @@ public class PolygonView extends ImageView {
     protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
         super.onLayout(changed, left, top, right, bottom);
         mBitmapRect = getBitmapRect();
-        initCropWindow(mBitmapRect);
-    }
-
-    // shape == circle 模式，圆心暂未控制，后期优化的时候，需要修复！
-    float mCenterX = 0;
-    float mCenterY = 0;
-
-    public void setCenterX(float centerX) {
-        this.mCenterX = centerX;
-    }
-
-    public void setCenterY(float centerY) {
-        this.mCenterY = centerY;
+        mIndex.setBounds(getWidth(), getHeight());
+        // 每次布局都会调用, 只在第一次创建窗口, 否则旋转、重新布局会清空已有的窗口
+        if (null != mPendingState) {
+            applyEditorState(mPendingState);
+            mPendingState = null;
+        } else if (null == mPolygons) {
+            initCropWindow(mBitmapRect);
+        }
     }
 
     @Override
     protected void onDraw(Canvas canvas) {
-        super.onDraw(canvas);
-        if (Shape.RECT == mShape) {
-            drawPolygon(canvas);
+        if (!mMetricsEnabled) {
+            drawContent(canvas);
+            return;
+        }
+        long start = System.nanoTime();
+        drawContent(canvas);
+        mMetrics.record(PolygonMetrics.DRAW, System.nanoTime() - start);
+    }
 
-        } else if (Shape.CIRCLE == mShape) {
-            if (null != mCurrentActivePolygon) {
-                for (int polygonIndex = 0; polygonIndex < mPolygons.size(); polygonIndex++) {
+    private void drawContent(Canvas canvas) {
+        super.onDraw(canvas);
+        if (!canvas.getClipBounds(mClipRect)) {
+            return;
+        }
+        drawHeatmap(canvas);
+        drawGridPreview(canvas);
+        if (drawWithIdleLayer(canvas)) {
+            return;
+        }
+        if (Shape.CIRCLE == mShape) {
+            for (int polygonIndex = 0; polygonIndex < mPolygons.size(); polygonIndex++) {
+                if (2 == mPolygons.get(polygonIndex).size() && isVisible(mPolygons.get(polygonIndex))) {
                     drawCircle(canvas, mPolygons.get(polygonIndex));
                 }
-
             }
 
-        } else if (Shape.OCTAGON == mShape) {
+        } else {
             drawPolygon(canvas);
         }
     }
 
     private void drawPolygon(Canvas canvas) {
         if ((null != mCurrentActivePolygon) && (0 != mCurrentActivePolygon.size())) {
+            boolean flag = OverlapPolicy.FLAG == mOverlapPolicy;
+            if (flag) {
+                mOverlaps.update(mPolygons);
+            }
+            if (mLargeScale) {
+                drawBatched(canvas, flag);
+                return;
+            }
             for (int polygonIndex = 0; polygonIndex < mPolygons.size(); polygonIndex++) {
-                if (0 != mPolygons.get(polygonIndex).getPoints().size()) {
+                if (0 != mPolygons.get(polygonIndex).size() && isVisible(mPolygons.get(polygonIndex))) {
                     drawPolygons(canvas, mPolygons.get(polygonIndex));
+                    if (flag && mOverlaps.hasOverlap(polygonIndex)) {
+                        canvas.drawPath(PolygonPath.get(mPolygons.get(polygonIndex)), mOverlapPaint);
+                    }
+                }
+            }
+        }
+    }
+
+    // 大量窗口时: 用区域索引找出与裁剪区域相交的窗口, 同色窗口合并为一个 Path 绘制, 只给当前窗口画顶点
+    private void drawBatched(Canvas canvas, boolean flag) {
+        syncIndex();
+        int outset = getDrawOutset();
+        mIndex.queryZones(mClipRect.left - outset, mClipRect.top - outset,
+                mClipRect.right + outset, mClipRect.bottom + outset, mVisibleZones);
+        drawBatchedZones(canvas, flag);
+        if (mVisibleZones.get(mCurrentActiveIndex)) {
+            mCornerPaint.setColor(mCurrentActivePolygon.getCornerColor());
+            for (int i = 0; i < mCurrentActivePolygon.size(); i++) {
+                drawCircleCorners(canvas, mCurrentActivePolygon.getX(i), mCurrentActivePolygon.getY(i), mCornerPaint);
+            }
+        }
+    }
+
+    // 画出 mVisibleZones 中的窗口: 同色合批填充, 以及重叠标记
+    private void drawBatchedZones(Canvas canvas, boolean flag) {
+        mBatchIndex.clear();
+        int batchCount = 0;
+        for (int i = mVisibleZones.nextSetBit(0); i >= 0; i = mVisibleZones.nextSetBit(i + 1)) {
+            Polygon polygon = mPolygons.get(i);
+            if (0 == polygon.size()) {
+                continue;
+            }
+            int batch = mBatchIndex.get(polygon.getPanelColor(), -1);
+            if (-1 == batch) {
+                batch = batchCount++;
+                ensureBatches(batchCount);
+                mBatchIndex.put(polygon.getPanelColor(), batch);
+                mBatchColors[batch] = polygon.getPanelColor();
+                mBatchPaths[batch].rewind();
+            }
+            mBatchPaths[batch].addPath(PolygonPath.get(polygon));
+        }
+        mBorderPaint.setStyle(Paint.Style.FILL_AND_STROKE);
+        mBorderPaint.setAntiAlias(false);
+        for (int batch = 0; batch < batchCount; batch++) {
+            mBorderPaint.setColor(mBatchColors[batch]);
+            canvas.drawPath(mBatchPaths[batch], mBorderPaint);
+        }
+        if (flag) {
+            for (int i = mVisibleZones.nextSetBit(0); i >= 0; i = mVisibleZones.nextSetBit(i + 1)) {
+                if (mOverlaps.hasOverlap(i)) {
+                    canvas.drawPath(PolygonPath.get(mPolygons.get(i)), mOverlapPaint);
+                }
+            }
+        }
+    }
+
+    // 非当前窗口的缓存图层; 以及生成图层时每个窗口的对象、版本、填充色、顶点色和重叠标记, 任何一项变化时重画
+    private boolean mIdleLayerEnabled = true;
+    private Bitmap mIdleLayer;
+    private Canvas mIdleCanvas;
+    private int mIdleLayerActive = -2;
+    private Shape mIdleLayerShape;
+    private boolean mIdleLayerLargeScale;
+    private Polygon[] mIdleLayerPolygons = new Polygon[0];
+    private int[] mIdleLayerStamps = new int[0];
+
+    /**
+     * 把当前窗口以外的所有窗口画在一张与 View 同样大小的图层上, 只在它们变化时重画;
+     * 每帧只需贴上图层再画当前窗口, 拖动时的绘制开销与窗口个数无关. 当前窗口总是画在最上面.
+     * 图层占用 宽 x 高 x 4 字节, 分配失败时自动关闭.
+     */
+    public void setIdleLayerEnabled(boolean enabled) {
+        mIdleLayerEnabled = enabled;
+        if (!enabled) {
+            releaseIdleLayer();
+        }
+        invalidate();
+    }
+
+    public boolean isIdleLayerEnabled() {
+        return mIdleLayerEnabled;
+    }
+
+    /**
+     * @return 是否已经用图层画完所有窗口; false 时按原来的方式逐个绘制
+     */
+    private boolean drawWithIdleLayer(Canvas canvas) {
+        if (!mIdleLayerEnabled || null == mPolygons || getWidth() <= 0 || getHeight() <= 0) {
+            return false;
+        }
+        boolean hasActive = null != mCurrentActivePolygon && 0 != mCurrentActivePolygon.size();
+        if (Shape.CIRCLE != mShape && !hasActive) {
+            // 与逐个绘制一致: 没有当前窗口时不画
+            return true;
+        }
+        if (!ensureIdleLayer()) {
+            return false;
+        }
+        boolean flag = Shape.CIRCLE != mShape && OverlapPolicy.FLAG == mOverlapPolicy;
+        if (flag) {
+            mOverlaps.update(mPolygons);
+        }
+        int active = hasActive ? mCurrentActiveIndex : -1;
+        if (isIdleLayerStale(active, flag)) {
+            renderIdleLayer(active, flag);
+        }
+        canvas.drawBitmap(mIdleLayer, 0, 0, null);
+
+        if (!hasActive || !isVisible(mCurrentActivePolygon)) {
+            return true;
+        }
+        if (Shape.CIRCLE == mShape) {
+            if (2 == mCurrentActivePolygon.size()) {
+                drawCircle(canvas, mCurrentActivePolygon);
+            }
+        } else {
+            drawPolygons(canvas, mCurrentActivePolygon);
+            if (flag && mOverlaps.hasOverlap(mCurrentActiveIndex)) {
+                canvas.drawPath(PolygonPath.get(mCurrentActivePolygon), mOverlapPaint);
+            }
+        }
+        return true;
+    }
+
+    private boolean ensureIdleLayer() {
+        int width = getWidth();
+        int height = getHeight();
+        if (null != mIdleLayer && mIdleLayer.getWidth() == width && mIdleLayer.getHeight() == height) {
+            return true;
+        }
+        releaseIdleLayer();
+        try {
+            mIdleLayer = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        } catch (OutOfMemoryError e) {
+            Log.w(TAG, "Cannot allocate a " + width + "x" + height + " idle layer, drawing every window", e);
+            mIdleLayerEnabled = false;
+            return false;
+        }
+        mIdleCanvas = new Canvas(mIdleLayer);
+        return true;
+    }
+
+    private void releaseIdleLayer() {
+        if (null != mIdleLayer) {
+            mIdleLayer.recycle();
+            mIdleLayer = null;
+            mIdleCanvas = null;
+        }
+        mIdleLayerActive = -2;
+    }
+
+    // 只比较整数, 不绘制; 同时记录新的状态
+    private boolean isIdleLayerStale(int active, boolean flag) {
+        boolean stale = active != mIdleLayerActive || mShape != mIdleLayerShape || mLargeScale != mIdleLayerLargeScale;
+        mIdleLayerActive = active;
+        mIdleLayerShape = mShape;
+        mIdleLayerLargeScale = mLargeScale;
+        int count = mPolygons.size();
+        if (mIdleLayerPolygons.length != count) {
+            mIdleLayerPolygons = new Polygon[count];
+            mIdleLayerStamps = new int[count * 4];
+            stale = true;
+        }
+        for (int i = 0; i < count; i++) {
+            if (i == active) {
+                continue;
+            }
+            Polygon polygon = mPolygons.get(i);
+            int s = i * 4;
+            int overlap = flag && mOverlaps.hasOverlap(i) ? 1 : 0;
+            if (mIdleLayerPolygons[i] != polygon || mIdleLayerStamps[s] != polygon.getVersion()
+                    || mIdleLayerStamps[s + 1] != polygon.getPanelColor() || mIdleLayerStamps[s + 2] != polygon.getCornerColor()
+                    || mIdleLayerStamps[s + 3] != overlap) {
+                mIdleLayerPolygons[i] = polygon;
+                mIdleLayerStamps[s] = polygon.getVersion();
+                mIdleLayerStamps[s + 1] = polygon.getPanelColor();
+                mIdleLayerStamps[s + 2] = polygon.getCornerColor();
+                mIdleLayerStamps[s + 3] = overlap;
+                stale = true;
+            }
+        }
+        return stale;
+    }
+
+    private void renderIdleLayer(int active, boolean flag) {
+        mIdleLayer.eraseColor(Color.TRANSPARENT);
+        Canvas canvas = mIdleCanvas;
+        int count = mPolygons.size();
+        if (Shape.CIRCLE == mShape) {
+            for (int i = 0; i < count; i++) {
+                if (i != active && 2 == mPolygons.get(i).size()) {
+                    drawCircle(canvas, mPolygons.get(i));
+                }
+            }
+        } else if (mLargeScale) {
+            mVisibleZones.clear();
+            mVisibleZones.set(0, count);
+            if (active >= 0) {
+                mVisibleZones.clear(active);
+            }
+            drawBatchedZones(canvas, flag);
+        } else {
+            for (int i = 0; i < count; i++) {
+                Polygon polygon = mPolygons.get(i);
+                if (i == active || 0 == polygon.size()) {
+                    continue;
+                }
+                drawPolygons(canvas, polygon);
+                if (flag && mOverlaps.hasOverlap(i)) {
+                    canvas.drawPath(PolygonPath.get(polygon), mOverlapPaint);
                 }
             }
         }
     }
 
+    private void ensureBatches(int count) {
+        if (mBatchPaths.length >= count) {
+            return;
+        }
+        int size = Math.max(count, mBatchPaths.length * 2);
+        Path[] paths = new Path[size];
+        System.arraycopy(mBatchPaths, 0, paths, 0, mBatchPaths.length);
+        for (int i = mBatchPaths.length; i < size; i++) {
+            paths[i] = new Path();
+        }
+        mBatchPaths = paths;
+        int[] colors = new int[size];
+        System.arraycopy(mBatchColors, 0, colors, 0, mBatchColors.length);
+        mBatchColors = colors;
+    }
+
+    // 只绘制与本次裁剪区域相交的多边形
+    private boolean isVisible(Polygon polygon) {
+        getDrawBounds(polygon, mTmpRect);
+        return Rect.intersects(mClipRect, mTmpRect);
+    }
+
+    // 绘制区域: 外接矩形加上顶点圆点半径和描边宽度
+    private void getDrawBounds(Polygon polygon, Rect out) {
+        if (0 == polygon.size()) {
+            out.setEmpty();
+            return;
+        }
+        if (Shape.CIRCLE == mShape) {
+            DiscRasterizer.getBounds(polygon, mCircleBounds);
+            out.set(mCircleBounds[0], mCircleBounds[1], mCircleBounds[2], mCircleBounds[3]);
+        } else {
+            int[] bounds = polygon.getBounds();
+            out.set(bounds[0], bounds[1], bounds[2], bounds[3]);
+        }
+        int outset = getDrawOutset();
+        out.inset(-outset, -outset);
+    }
+
+    // 外接矩形之外的绘制范围: 顶点圆点半径和描边宽度
+    private int getDrawOutset() {
+        return (int) Math.ceil(mCornerLength / 2 + mBorderPaint.getStrokeWidth()) + 1;
+    }
+
+    // 修改前调用, 记录旧的绘制区域
+    private void beginDirty(Polygon polygon) {
+        getDrawBounds(polygon, mDirtyRect);
+    }
+
+    // 修改后调用, 只刷新新旧区域的并集
+    private void invalidateDirty(Polygon polygon) {
+        getDrawBounds(polygon, mTmpRect);
+        mDirtyRect.union(mTmpRect);
+        if (!mDirtyRect.isEmpty()) {
+            invalidate(mDirtyRect);
+            markInvalidated();
+        }
+    }
+
+    // CIRCLE 模式下每个圆是两个点: 0 为圆心, 1 为圆上的半径控制点
     private void drawCircle(Canvas canvas, Polygon polygon) {
-        mCenterX = mCenterX == 0 ? (mBitmapRect.left + mBitmapRect.right) / 2 : mCenterX;
-        mCenterY = mCenterY == 0 ? (mBitmapRect.top + mBitmapRect.bottom) / 2 : mCenterY;
-        Point point = polygon.getPoint(0);
-        mRadius = MathUtil.calculateDistance(mCenterX, mCenterY, point.x, point.y);
-        drawCircle(canvas, mCenterX, mCenterY, mRadius, mSurroundingAreaOverlayPaint);//darkenedSurroundingArea
-        drawCircle(canvas, mCenterX, mCenterY, mRadius, mBorderPaint);// Border
-        drawCircleGuideLines(canvas, mCenterX, mCenterY, mRadius, mRadius / 3);
-        drawCircleCorners(canvas, point.x, point.y, mCornerPaint);
+        int centerX = polygon.getX(0);
+        int centerY = polygon.getY(0);
+        int pointX = polygon.getX(1);
+        int pointY = polygon.getY(1);
+        float radius = (float) Math.sqrt(DiscRasterizer.radiusSquared(polygon));
+        drawCircle(canvas, centerX, centerY, radius, mSurroundingAreaOverlayPaint);//darkenedSurroundingArea
+        drawCircle(canvas, centerX, centerY, radius, mBorderPaint);// Border
+        drawCircleGuideLines(canvas, centerX, centerY, radius, radius / 3);
+        drawCircleCorners(canvas, pointX, pointY, mCornerPaint);
     }
 
     private void drawPolygons(Canvas canvas, Polygon polygon) {
@@ -172,39 +503,34 @@ public class PolygonView extends ImageView {
         mBorderPaint.setColor(polygon.getPanelColor());
         drawPlines(canvas, polygon, mBorderPaint);
         mCornerPaint.setColor(polygon.getCornerColor());
-        for (Point pt :
-                polygon.getPoints()) {
-            drawCircleCorners(canvas, pt.x, pt.y, mCornerPaint);
+        for (int i = 0; i < polygon.size(); i++) {
+            drawCircleCorners(canvas, polygon.getX(i), polygon.getY(i), mCornerPaint);
         }
     }
 
     private void drawPlines(Canvas canvas, Polygon polygon, Paint mBorderPaint) {
-        Path path = new Path();
-        path.moveTo(polygon.getPoint(0).x, polygon.getPoint(0).y);
-        for (int i = 1; i < polygon.getPoints().size(); i++) {
-            path.lineTo(polygon.getPoint(i).x, polygon.getPoint(i).y);
-        }
-        path.close();
-        canvas.drawPath(path, mBorderPaint);
+        canvas.drawPath(PolygonPath.get(polygon), mBorderPaint);
     }
 
 
     private void drawCircleGuideLines(Canvas canvas, float centerX, float centerY, float radius, float distance) {
         double chord = MathUtil.calculateChord(radius, distance);
-        Point rightPoint = new Point((int) (centerX + distance), (int) centerY);
-        Point leftPoint = new Point((int) (centerX - distance), (int) centerY);
-        Point topPoint = new Point((int) centerX, (int) (centerY - distance));
-        Point bottomPoint = new Point((int) centerX, (int) (centerY + distance));
+        final int rightX = (int) (centerX + distance);
+        final int leftX = (int) (centerX - distance);
+        final int topY = (int) (centerY - distance);
+        final int bottomY = (int) (centerY + distance);
+        final int x = (int) centerX;
+        final int y = (int) centerY;
 
-        canvas.drawLine(leftPoint.x, leftPoint.y, leftPoint.x, (float) (leftPoint.y - chord / 2), mGuidelinePaint);
-        canvas.drawLine(leftPoint.x, leftPoint.y, leftPoint.x, (float) (leftPoint.y + chord / 2), mGuidelinePaint);
-        canvas.drawLine(rightPoint.x, rightPoint.y, rightPoint.x, (float) (rightPoint.y - chord / 2), mGuidelinePaint);
-        canvas.drawLine(rightPoint.x, rightPoint.y, rightPoint.x, (float) (rightPoint.y + chord / 2), mGuidelinePaint);
+        canvas.drawLine(leftX, y, leftX, (float) (y - chord / 2), mGuidelinePaint);
+        canvas.drawLine(leftX, y, leftX, (float) (y + chord / 2), mGuidelinePaint);
+        canvas.drawLine(rightX, y, rightX, (float) (y - chord / 2), mGuidelinePaint);
+        canvas.drawLine(rightX, y, rightX, (float) (y + chord / 2), mGuidelinePaint);
 
-        canvas.drawLine(topPoint.x, topPoint.y, (float) (topPoint.x - chord / 2), topPoint.y, mGuidelinePaint);
-        canvas.drawLine(topPoint.x, topPoint.y, (float) (topPoint.x + chord / 2), topPoint.y, mGuidelinePaint);
-        canvas.drawLine(bottomPoint.x, bottomPoint.y, (float) (bottomPoint.x - chord / 2), bottomPoint.y, mGuidelinePaint);
-        canvas.drawLine(bottomPoint.x, bottomPoint.y, (float) (bottomPoint.x + chord / 2), bottomPoint.y, mGuidelinePaint);
+        canvas.drawLine(x, topY, (float) (x - chord / 2), topY, mGuidelinePaint);
+        canvas.drawLine(x, topY, (float) (x + chord / 2), topY, mGuidelinePaint);
+        canvas.drawLine(x, bottomY, (float) (x - chord / 2), bottomY, mGuidelinePaint);
+        canvas.drawLine(x, bottomY, (float) (x + chord / 2), bottomY, mGuidelinePaint);
 
 
     }
@@ -237,38 +563,76 @@ public class PolygonView extends ImageView {
     int startX = 0;
     int startY = 0;
 
-    Point mDragPoint;
-    Point mCenterPoint;
+    // 正在拖动的顶点下标, -1 表示没有
+    int mDragIndex = -1;
+    boolean mCenterAttracted;
 
     Polygon mCurrentActivePolygon;
+    int mCurrentActiveIndex = -1;
+
+    // 设置当前编辑的多边形, index 为 -1 时清空
+    private Polygon activate(int index) {
+        mCurrentActiveIndex = index;
+        mCurrentActivePolygon = -1 == index ? null : mPolygons.get(index);
+        return mCurrentActivePolygon;
+    }
+
+    // 手势过程中只有当前多边形会变化, 其余修改通过 mIndexStale 标记
+    private void syncIndex() {
+        if (mIndexStale) {
+            mIndex.syncAll(mPolygons);
+            mIndexStale = false;
+        } else if (-1 != mCurrentActiveIndex) {
+            mIndex.sync(mCurrentActiveIndex, mCurrentActivePolygon);
+        }
+    }
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
+        if (!mMetricsEnabled) {
+            return handleTouchEvent(event);
+        }
+        long start = System.nanoTime();
+        mInvalidateNanos = 0;
+        boolean handled = handleTouchEvent(event);
+        if (0 != mInvalidateNanos) {
+            mMetrics.record(PolygonMetrics.TOUCH_TO_INVALIDATE, mInvalidateNanos - start);
+        }
+        return handled;
+    }
+
+    private boolean handleTouchEvent(MotionEvent event) {
         // If this View is not enabled, don't allow for touch interactions.
         if (!isEnabled()) {
             return false;
         }
         switch (event.getAction()) {
             case MotionEvent.ACTION_DOWN:
+                cancelTouchFrame();
+                mTouchSamples.clear();
                 lastX = startX = (int) event.getX();
                 lastY = startY = (int) event.getY();
-                if (Shape.RECT == mShape) {
-                    onPolygonActionDown();
-
-                } else if (Shape.CIRCLE == mShape) {
+                long start = mMetricsEnabled ? System.nanoTime() : 0;
+                syncIndex();
+                if (Shape.CIRCLE == mShape) {
                     onCircleActionDown();
 
-                } else if (Shape.OCTAGON == mShape) {
+                } else {
                     onPolygonActionDown();
 
                 }
+                if (mMetricsEnabled) {
+                    mMetrics.record(PolygonMetrics.HIT_TEST, System.nanoTime() - start);
+                }
                 return true;
 
             case MotionEvent.ACTION_UP:
             case MotionEvent.ACTION_CANCEL:
                 getParent().requestDisallowInterceptTouchEvent(false);
+                // 抬起前把还没处理的移动应用到真实位置, 同时撤销预测
+                flushTouchSamples();
                 if (null != mCurrentActivePolygon) {
-                    if (Shape.OCTAGON == mShape) {
+                    if (Shape.CIRCLE != mShape) {
                         int endX = (int) event.getX();
                         int endY = (int) event.getY();
                         if (Polygon.State.INIT == mCurrentActivePolygon.getState()) {
@@ -279,29 +643,12 @@ public class PolygonView extends ImageView {
 
                     }
                 }
+                syncIndex();
                 return true;
 
             case MotionEvent.ACTION_MOVE:
-                if (Shape.RECT == mShape) {
-                    //onActionMove(event.getX(), event.getY());
-                    onPolygonActionMove(event);
-                } else if (Shape.CIRCLE == mShape) {
-                    if (null != mCurrentActivePolygon && mCurrentActivePolygon.getPoints().size() > 0) {
-                        if (50 > (Math.max(Math.abs(event.getX() - mCurrentActivePolygon.getPoint(0).x), Math.abs(event.getY() - mCurrentActivePolygon.getPoint(0).y)))) {
-                            mCurrentActivePolygon.setPoint(0, new Point((int) event.getX(), (int) event.getY()));
-                            invalidate();
-                        } else if (100 > Math.max(Math.abs(event.getX() - mCenterX), Math.abs(event.getY() - mCenterY))) {
-                            mCurrentActivePolygon.setPoint(0, new Point((mCurrentActivePolygon.getPoint(0).x + (int) (event.getX() - mCenterX)), mCurrentActivePolygon.getPoint(0).y + (int) (event.getY() - mCenterY)));
-                            setCenterX(event.getX());
-                            setCenterY(event.getY());
-                            invalidate();
-                        }
-                    }
-
-                } else if (Shape.OCTAGON == mShape) {
-                    onPolygonActionMove(event);
-
-                }
+                // 只缓存采样, 每帧统一处理一次
+                queueTouchSamples(event);
                 getParent().requestDisallowInterceptTouchEvent(true);
                 return true;
 
@@ -311,45 +658,115 @@ public class PolygonView extends ImageView {
     }
 
     private void onCircleActionDown() {
-        mCenterX = mCenterX == 0 ? (mBitmapRect.left + mBitmapRect.right) / 2 : mCenterX;
-        mCenterY = mCenterY == 0 ? (mBitmapRect.top + mBitmapRect.bottom) / 2 : mCenterY;
-        //第一步判断是否在编辑点 --- 拉伸
-        //第二步判断是否在中心点 --- 移动
-        //第三步为创建新的多边形
-        if (null != (mDragPoint = attractPoint(startX, startY))) {
+        //第一步判断是否在半径控制点 --- 拉伸
+        //第二步判断是否在圆心或圆内 --- 移动
+        //第三步为创建新的圆, 圆心为按下的位置
+        if (-1 != (mDragIndex = attractCircleRim(startX, startY))) {
             mCurrentActivePolygon.setState(Polygon.State.DRAG);
-        } else if (null != (mCenterPoint = attractCircleCenter(startX, startY))) {
+        } else if (mCenterAttracted = attractCircle(startX, startY)) {
             mCurrentActivePolygon.setState(Polygon.State.MOVE);
-        } else if (null != (mCurrentActivePolygon = getUnActivedPolygon())) {
+        } else if (null != activate(getUnActivedIndex())) {
             mCurrentActivePolygon.setState(Polygon.State.INIT);
-            ;
+            beginDirty(mCurrentActivePolygon);
+            mCurrentActivePolygon.clear();
+            mCurrentActivePolygon.addPoint(startX, startY).addPoint(startX, startY);
+            invalidateDirty(mCurrentActivePolygon);
         } else {
-            // Toast.makeText(getContext(), "最多只允许创建" + POLYGON_NUM_LIMIT + "个窗口", Toast.LENGTH_LONG).show();
+            // Toast.makeText(getContext(), "最多只允许创建" + mPolygonNumLimit + "个窗口", Toast.LENGTH_LONG).show();
+
+        }
+    }
 
+    private void onActionMove(float x, float y) {
+        if (Shape.CIRCLE == mShape) {
+            onCircleActionMove(x, y);
+        } else {
+            onPolygonActionMove((int) x, (int) y);
         }
     }
 
-    private void onPolygonActionMove(MotionEvent event) {
+    private void onCircleActionMove(float x, float y) {
+        if (null == mCurrentActivePolygon || 2 != mCurrentActivePolygon.size()) {
+            return;
+        }
+        Polygon.State state = mCurrentActivePolygon.getState();
+        if (Polygon.State.INIT == state || (Polygon.State.DRAG == state && -1 != mDragIndex)) {
+            // 新建或拉伸: 只移动半径控制点
+            beginDirty(mCurrentActivePolygon);
+            mCurrentActivePolygon.setPoint(1, (int) x, (int) y);
+            invalidateDirty(mCurrentActivePolygon);
+        } else if (Polygon.State.MOVE == state && mCenterAttracted) {
+            int endX = (int) x;
+            int endY = (int) y;
+            update(endX - lastX, endY - lastY);
+            lastX = endX;
+            lastY = endY;
+        }
+    }
+
+    private void onPolygonActionMove(int endX, int endY) {
+        if (OverlapPolicy.ALLOW == mOverlapPolicy || null == mCurrentActivePolygon) {
+            movePolygon(endX, endY);
+            return;
+        }
+        int index = mCurrentActiveIndex;
+        Polygon polygon = mCurrentActivePolygon;
+        mOverlaps.update(mPolygons);
+        mOverlaps.getOverlaps(index, mOverlapsBefore);
+        if (OverlapPolicy.FLAG == mOverlapPolicy) {
+            movePolygon(endX, endY);
+            mOverlaps.update(mPolygons);
+            mOverlaps.getOverlaps(index, mOverlapsAfter);
+            // 重叠状态改变的其他窗口也要重绘
+            mOverlapsAfter.xor(mOverlapsBefore);
+            for (int i = mOverlapsAfter.nextSetBit(0); i >= 0; i = mOverlapsAfter.nextSetBit(i + 1)) {
+                getDrawBounds(mPolygons.get(i), mTmpRect);
+                invalidate(mTmpRect);
+            }
+            return;
+        }
+        if (mUndoXs.length < polygon.size()) {
+            mUndoXs = new int[polygon.size()];
+            mUndoYs = new int[polygon.size()];
+        }
+        int count = polygon.copyPoints(mUndoXs, mUndoYs);
+        int undoLastX = lastX;
+        int undoLastY = lastY;
+        movePolygon(endX, endY);
+        mOverlaps.update(mPolygons);
+        mOverlaps.getOverlaps(index, mOverlapsAfter);
+        mOverlapsAfter.andNot(mOverlapsBefore);
+        if (!mOverlapsAfter.isEmpty()) {
+            // 产生了新的重叠, 退回移动前的位置; 已有的重叠不阻止, 否则重叠的窗口无法再拖开
+            beginDirty(polygon);
+            polygon.setPoints(mUndoXs, mUndoYs, count);
+            invalidateDirty(polygon);
+            lastX = undoLastX;
+            lastY = undoLastY;
+            mOverlaps.update(mPolygons);
+        }
+    }
+
+    private void movePolygon(int endX, int endY) {
         if (null != mCurrentActivePolygon) {
-            int endX = (int) event.getX();
-            int endY = (int) event.getY();
             if (Polygon.State.INIT == mCurrentActivePolygon.getState()) {
                 int dX = endX - startX;
                 int dY = endY - startY;
                 init(startX, startY, dX, dY);
-            } else if (Polygon.State.DRAG == mCurrentActivePolygon.getState() && null != mDragPoint) {
+            } else if (Polygon.State.DRAG == mCurrentActivePolygon.getState() && -1 != mDragIndex) {
 
 
+                beginDirty(mCurrentActivePolygon);
                 if (Shape.RECT == mShape) {
 
-                    int dX = endX - mDragPoint.x;
-                    int dY = endY - mDragPoint.y;
+                    int index = mDragIndex;
+                    int dX = endX - mCurrentActivePolygon.getX(index);
+                    int dY = endY - mCurrentActivePolygon.getY(index);
 
-                    int index = mCurrentActivePolygon.indexOf(mDragPoint);
                     int preIndex = mCurrentActivePolygon.preview(index);
                     int nextIndex = mCurrentActivePolygon.next(index);
 
-                    if (mCurrentActivePolygon.getPoint(preIndex).x == mDragPoint.x) {
+                    if (mCurrentActivePolygon.getX(preIndex) == mCurrentActivePolygon.getX(index)) {
                         mCurrentActivePolygon.updatePoint(preIndex, dX, 0);
                         mCurrentActivePolygon.updatePoint(nextIndex, 0, dY);
                     } else {
@@ -357,16 +774,15 @@ public class PolygonView extends ImageView {
                         mCurrentActivePolygon.updatePoint(nextIndex, dX, 0);
                     }
 
-                    mDragPoint.set(endX, endY);
-                    invalidate();
+                    mCurrentActivePolygon.setPoint(index, endX, endY);
 
-                } else if (Shape.OCTAGON == mShape) {
-                    mDragPoint.set(endX, endY);
-                    invalidate();
+                } else {
+                    mCurrentActivePolygon.setPoint(mDragIndex, endX, endY);
                 }
+                invalidateDirty(mCurrentActivePolygon);
 
 
-            } else if (Polygon.State.MOVE == mCurrentActivePolygon.getState() && null != mCenterPoint) {
+            } else if (Polygon.State.MOVE == mCurrentActivePolygon.getState() && mCenterAttracted) {
                 int dX = endX - lastX;
                 int dY = endY - lastY;
                 update(dX, dY);
@@ -381,55 +797,47 @@ public class PolygonView extends ImageView {
         //第一步判断是否在编辑点 --- 拉伸
         //第二步判断是否在中心点 --- 移动
         //第三步为创建新的多边形
-        if (null != (mDragPoint = attractPoint(startX, startY))) {
+        if (-1 != (mDragIndex = attractPointIndex(startX, startY))) {
             mCurrentActivePolygon.setState(Polygon.State.DRAG);
-        } else if (null != (mCenterPoint = attractCenter(startX, startY))) {
+        } else if (mCenterAttracted = attractCenter(startX, startY)) {
             mCurrentActivePolygon.setState(Polygon.State.MOVE);
-        } else if (null != (mCurrentActivePolygon = getUnActivedPolygon())) {
+        } else if (null != activate(getUnActivedIndex())) {
             mCurrentActivePolygon.setState(Polygon.State.INIT);
             ;
         } else {
-            // Toast.makeText(getContext(), "最多只允许创建" + POLYGON_NUM_LIMIT + "个窗口", Toast.LENGTH_LONG).show();
+            // Toast.makeText(getContext(), "最多只允许创建" + mPolygonNumLimit + "个窗口", Toast.LENGTH_LONG).show();
 
         }
     }
 
-    private Polygon getUnActivedPolygon() {
+    private int getUnActivedIndex() {
         for (int polygonIndex = 0; polygonIndex < mPolygons.size(); polygonIndex++) {
             if (Polygon.State.UN_INIT == mPolygons.get(polygonIndex).getState()) {
-                return mPolygons.get(polygonIndex);
+                return polygonIndex;
             }
         }
-        return null;
+        return -1;
     }
 
     int lastX;
     int lastY;
 
     private void update(int dX, int dY) {
+        beginDirty(mCurrentActivePolygon);
         mCurrentActivePolygon.updatePoints(dX, dY);
-        invalidate();
+        invalidateDirty(mCurrentActivePolygon);
     }
 
 
+    // 按形状的模板把拖出的矩形换成顶点, 任意顶点数同一条路径
     private void init(int startX, int startY, int dX, int dY) {
-        if (Shape.RECT == mShape) {
-            mCurrentActivePolygon.setPoint(0, new Point(startX, startY));
-            mCurrentActivePolygon.setPoint(1, new Point(startX, startY + dY));
-            mCurrentActivePolygon.setPoint(2, new Point(startX + dX, startY + dY));
-            mCurrentActivePolygon.setPoint(3, new Point(startX + dX, startY));
-        } else if (Shape.OCTAGON == mShape) {
-            mCurrentActivePolygon.setPoint(0, new Point(startX, startY));
-            mCurrentActivePolygon.setPoint(1, new Point(startX, startY + dY / 2));
-            mCurrentActivePolygon.setPoint(2, new Point(startX, startY + dY));
-            mCurrentActivePolygon.setPoint(3, new Point(startX + dX / 2, startY + dY));
-            mCurrentActivePolygon.setPoint(4, new Point(startX + dX, startY + dY));
-            mCurrentActivePolygon.setPoint(5, new Point(startX + dX, startY + dY / 2));
-            mCurrentActivePolygon.setPoint(6, new Point(startX + dX, startY));
-            mCurrentActivePolygon.setPoint(7, new Point(startX + dX / 2, startY));
+        PolygonTemplate template = mShape.getTemplate();
+        if (null == template) {
+            return;
         }
-
-        invalidate();
+        beginDirty(mCurrentActivePolygon);
+        template.apply(mCurrentActivePolygon, startX, startY, dX, dY);
+        invalidateDirty(mCurrentActivePolygon);
     }
 
     //四个都初始化后需要手动调用 invalidate 刷新
@@ -437,59 +845,70 @@ public class PolygonView extends ImageView {
         if (Shape.RECT == mShape) {
             polygon.setState(Polygon.State.INIT);
             for (int i = 0; i < 4; i++) {
-                polygon.setPoint(i, srcPoints.get(i));
+                polygon.setPoint(i, srcPoints.get(i).x, srcPoints.get(i).y);
             }
+            mIndexStale = true;
         }
     }
 
-    private Point attractCenter(int x, int y) {
+    private boolean attractCenter(int x, int y) {
+        boolean hit = false;
         if (Shape.RECT == mShape) {
-            for (int polygonIndex = 0; polygonIndex < mPolygons.size(); polygonIndex++) {
-                Point ap = MathUtil.averagePolygon(mPolygons.get(polygonIndex).getPoints());
-                if (null != ap) {
-                    if (Math.abs(mPolygons.get(polygonIndex).getPoint(0).x - mPolygons.get(polygonIndex).getPoint(2).x) / 2 > Math.abs(x - ap.x) && Math.abs(mPolygons.get(polygonIndex).getPoint(0).y - mPolygons.get(polygonIndex).getPoint(2).y) / 2 > Math.abs(y - ap.y)) {
-                        mCurrentActivePolygon = mPolygons.get(polygonIndex);
-                        return ap;
-                    }
-                }
-            }
-        } else if (Shape.OCTAGON == mShape) {
+            hit = mIndex.hitBounds(mPolygons, x, y);
+        } else {
+            hit = mIndex.hitCenter(mPolygons, x, y, (int) mCenterRadius);
+        }
+        if (hit) {
+            activate(mIndex.getHitPolygon());
+        }
+        return hit;
+    }
 
-            for (int polygonIndex = 0; polygonIndex < mPolygons.size(); polygonIndex++) {
-                Point ap = MathUtil.averagePolygon(mPolygons.get(polygonIndex).getPoints());
-                if (null != ap) {
-                    if (100 > (Math.max(Math.abs(x - ap.x), Math.abs(y - ap.y)))) {
-                        mCurrentActivePolygon = mPolygons.get(polygonIndex);
-                        return ap;
-                    }
-                }
+    /**
+     * @return 命中半径控制点时返回 1 并设置 mCurrentActivePolygon, 否则返回 -1. 后绘制的圆优先
+     */
+    private int attractCircleRim(int x, int y) {
+        for (int i = mPolygons.size() - 1; i >= 0; i--) {
+            Polygon circle = mPolygons.get(i);
+            if (2 == circle.size()
+                    && mVertexRadius > Math.max(Math.abs(x - circle.getX(1)), Math.abs(y - circle.getY(1)))) {
+                activate(i);
+                return 1;
             }
         }
-
-        return null;
+        return -1;
     }
 
-    private Point attractCircleCenter(int x, int y) {
-        for (int polygonIndex = 0; polygonIndex < mPolygons.size(); polygonIndex++) {
-            if (100 > (Math.max(Math.abs(x - mCenterX), Math.abs(y - mCenterY)))) {
-                mCurrentActivePolygon = mPolygons.get(polygonIndex);
-                return new Point((int) mCenterX, (int) mCenterY);
+    // 落在圆心附近或圆内, 每个圆一次距离比较
+    private boolean attractCircle(int x, int y) {
+        for (int i = mPolygons.size() - 1; i >= 0; i--) {
+            Polygon circle = mPolygons.get(i);
+            if (2 == circle.size()
+                    && (mCenterRadius > Math.max(Math.abs(x - circle.getX(0)), Math.abs(y - circle.getY(0)))
+                    || DiscRasterizer.contains(circle.getX(0), circle.getY(0), DiscRasterizer.radiusSquared(circle), x, y))) {
+                activate(i);
+                return true;
             }
         }
-        return null;
+        return false;
     }
 
 
     public Point attractPoint(int x, int y) {
-        for (int polygonIndex = 0; polygonIndex < mPolygons.size(); polygonIndex++) {
-            for (int i = 0; i < mPolygons.get(polygonIndex).size(); i++) {
-                if (50 > (Math.max(Math.abs(x - mPolygons.get(polygonIndex).getPoint(i).x), Math.abs(y - mPolygons.get(polygonIndex).getPoint(i).y)))) {
-                    mCurrentActivePolygon = mPolygons.get(polygonIndex);
-                    return mPolygons.get(polygonIndex).getPoint(i);
-                }
-            }
+        int index = attractPointIndex(x, y);
+        return -1 == index ? null : new Point(mCurrentActivePolygon.getX(index), mCurrentActivePolygon.getY(index));
+    }
+
+    /**
+     * @return 命中顶点的下标, 同时设置 mCurrentActivePolygon; 未命中返回 -1
+     */
+    private int attractPointIndex(int x, int y) {
+        syncIndex();
+        if (mIndex.hitVertex(x, y, (int) mVertexRadius)) {
+            activate(mIndex.getHitPolygon());
+            return mIndex.getHitVertex();
         }
-        return null;
+        return -1;
     }
 
     private RectF getBitmapRect() {
@@ -526,65 +945,999 @@ public class PolygonView extends ImageView {
 
 
     private void initCropWindow(@NonNull RectF bitmapRect) {
-        if (Shape.RECT == mShape) {
-            //initRect(bitmapRect);
-            initPolygons(bitmapRect);
-        } else if (Shape.CIRCLE == mShape) {
-            //initRect(bitmapRect);
+        if (Shape.CIRCLE == mShape) {
             initCircle(bitmapRect);
-        } else if (Shape.OCTAGON == mShape) {
-            //initRect(bitmapRect);
+        } else {
             initPolygons(bitmapRect);
         }
     }
 
     List<Polygon> mPolygons;
 
-    private int POLYGON_NUM_LIMIT = 4;
+    private int mPolygonNumLimit = 4;
+
+    private int mPanelColors[] = {Color.parseColor("#7Fd82525"), Color.parseColor("#7F40b23a"), Color.parseColor("#7F04b0e8"), Color.parseColor("#7Fc4a602")};
+    private int mCornerColors[] = {Color.parseColor("#d82525"), Color.parseColor("#40b23a"), Color.parseColor("#04b0e8"), Color.parseColor("#c4a602")};
 
-    private int panelColors[] = {Color.parseColor("#7Fd82525"), Color.parseColor("#7F40b23a"), Color.parseColor("#7F04b0e8"), Color.parseColor("#7Fc4a602")};
-    private int cornerColors[] = {Color.parseColor("#d82525"), Color.parseColor("#40b23a"), Color.parseColor("#04b0e8"), Color.parseColor("#c4a602")};
+    // 大量窗口模式: 配色由 mPalette 生成, 绘制时按颜色合批并用区域索引裁剪
+    private boolean mLargeScale;
+    private Palette mPalette = new Palette();
+    private final BitSet mVisibleZones = new BitSet();
+    private final SparseIntArray mBatchIndex = new SparseIntArray();
+    private Path[] mBatchPaths = new Path[0];
+    private int[] mBatchColors = new int[0];
 
+    public int getPolygonNumLimit() {
+        return mPolygonNumLimit;
+    }
+
+    /**
+     * 设置可创建的窗口个数, 已有窗口保留到新的个数为止.
+     */
+    public void setPolygonNumLimit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must not be negative: " + limit);
+        }
+        mPolygonNumLimit = limit;
+        if (null != mPolygons) {
+            while (mPolygons.size() > limit) {
+                mPolygons.remove(mPolygons.size() - 1);
+            }
+            for (int i = mPolygons.size(); i < limit; i++) {
+                mPolygons.add(newPolygon(i));
+            }
+            if (mCurrentActiveIndex >= limit) {
+                activate(-1);
+            }
+            mIndexStale = true;
+            invalidate();
+        }
+    }
+
+    /**
+     * 设置窗口的填充色与顶点颜色, 窗口数多于颜色数时循环使用. 只影响之后创建的窗口.
+     */
+    public void setPolygonColors(@NonNull int[] panelColors, @NonNull int[] cornerColors) {
+        if (0 == panelColors.length || 0 == cornerColors.length) {
+            throw new IllegalArgumentException("colors must not be empty");
+        }
+        mPanelColors = panelColors.clone();
+        mCornerColors = cornerColors.clone();
+    }
+
+    /**
+     * 上万个窗口时使用: 新窗口的颜色由 {@link Palette} 生成, 绘制时用区域索引裁掉刷新区域之外的窗口,
+     * 同色的窗口合并为一个 Path 一次绘制, 只给当前窗口画顶点. CIRCLE 不受影响.
+     * 配合 {@link #setPolygonNumLimit(int)} 使用.
+     */
+    public void setLargeScaleMode(boolean enabled) {
+        mLargeScale = enabled;
+        invalidate();
+    }
+
+    public boolean isLargeScaleMode() {
+        return mLargeScale;
+    }
+
+    /**
+     * 大量窗口模式下新窗口使用的配色, 颜色越少合批越多.
+     */
+    public void setPalette(@NonNull Palette palette) {
+        mPalette = palette;
+    }
+
+    private Polygon newPolygon(int index) {
+        if (mLargeScale) {
+            Polygon polygon = new Polygon(mPalette.getPanelColor(index), mPalette.getCornerColor(index));
+            applyLiveGrid(polygon);
+            return polygon;
+        }
+        Polygon polygon = new Polygon(mPanelColors[index % mPanelColors.length], mCornerColors[index % mCornerColors.length]);
+        applyLiveGrid(polygon);
+        return polygon;
+    }
 
     private void initPolygons(@NonNull RectF bitmapRect) {
         mPolygons = new ArrayList<Polygon>();
-        for (int i = 0; i < POLYGON_NUM_LIMIT; i++) {
-            mPolygons.add(new Polygon(panelColors[i], cornerColors[i]));
+        for (int i = 0; i < mPolygonNumLimit; i++) {
+            mPolygons.add(newPolygon(i));
         }
+        activate(-1);
+        mIndex.clear();
+        mIndexStale = true;
     }
 
     public void reset() {
-        for (int i = 0; i < POLYGON_NUM_LIMIT; i++) {
+        for (int i = 0; i < mPolygons.size(); i++) {
             mPolygons.get(i).clear();
             mPolygons.get(i).setState(Polygon.State.UN_INIT);
         }
+        mIndexStale = true;
         invalidate();
     }
 
+    // 圆在按下时创建, 这里只准备空的窗口
     private void initCircle(@NonNull RectF bitmapRect) {
         mPolygons = new ArrayList<Polygon>();
-        for (int i = 0; i < POLYGON_NUM_LIMIT; i++) {
-            mPolygons.add(new Polygon());
-            mPolygons.get(i).addPoint(new Point(600, 400));
+        for (int i = 0; i < mPolygonNumLimit; i++) {
+            mPolygons.add(newPolygon(i));
         }
+        activate(-1);
+        mIndex.clear();
+        mIndexStale = true;
     }
 
+    // 栅格化器与结果缓存, 只在 UI 线程使用
+    private final GridRasterizer mRasterizer = new GridRasterizer();
+    private final BitSet mMatrixCells = new BitSet();
+
     /**
      * @param polygonIndex: 多边形下标
      * @param M:            水平栅格数
      * @param m:            x 比值
      * @param n             y 比值
-     * @return
+     * @return 升序的栅格下标
      */
     public List<Integer> toMatrix(int polygonIndex, int M, int m, int n) {
-        if (polygonIndex > mPolygons.size() - 1) {
+        if (!toMatrix(polygonIndex, M, m, n, mMatrixCells)) {
             return null;
         }
-        List<Integer> ret = mPolygons.get(polygonIndex).getDirtyRectGrid(M, m, n);
-        if (null != ret) {
-            Collections.sort(ret);
-            Log.e(TAG, ret.toString());
+        List<Integer> ret = new ArrayList<Integer>(mMatrixCells.cardinality());
+        for (int i = mMatrixCells.nextSetBit(0); i >= 0; i = mMatrixCells.nextSetBit(i + 1)) {
+            ret.add(i);
         }
         return ret;
     }
+
+    /**
+     * 不装箱的版本, 结果写入可复用的 {@link BitSet}.
+     *
+     * @param polygonIndex: 多边形下标
+     * @param M:            水平栅格数
+     * @param m:            x 比值
+     * @param n             y 比值
+     * @param out           覆盖的栅格, 下标为 col + row * M
+     * @return 下标越界时返回 false
+     */
+    public boolean toMatrix(int polygonIndex, int M, int m, int n, BitSet out) {
+        if (polygonIndex > mPolygons.size() - 1) {
+            return false;
+        }
+        long start = mMetricsEnabled ? System.nanoTime() : 0;
+        if (Shape.CIRCLE == mShape) {
+            out.clear();
+            DiscRasterizer.rasterize(mPolygons.get(polygonIndex), M, Integer.MAX_VALUE, m, n, out);
+        } else {
+            mPolygons.get(polygonIndex).getDirtyRectGrid(mRasterizer, M, m, n, out);
+        }
+        if (mMetricsEnabled) {
+            mMetrics.record(PolygonMetrics.RASTERIZE, System.nanoTime() - start);
+        }
+        return true;
+    }
+
+    /**
+     * 一次栅格化所有多边形, 写入同一张标签栅格; 用 {@link LabelGrid#mask(int)} 取出单个窗口.
+     *
+     * @param M:   水平栅格数
+     * @param N:   垂直栅格数
+     * @param m:   x 比值
+     * @param n    y 比值
+     * @param out  复用的标签栅格, 使用它当前的模式; 窗口多于 {@link LabelGrid#MAX_BITMASK_POLYGONS} 个时
+     *             {@link LabelGrid#MODE_BITMASK} 改为 {@link LabelGrid#MODE_OWNER}, 用 {@link LabelGrid#getMode()} 查看
+     */
+    public void toLabelGrid(int M, int N, int m, int n, LabelGrid out) {
+        long start = mMetricsEnabled ? System.nanoTime() : 0;
+        int mode = out.getMode();
+        if (LabelGrid.MODE_BITMASK == mode && mPolygons.size() > LabelGrid.MAX_BITMASK_POLYGONS) {
+            mode = LabelGrid.MODE_OWNER;
+        }
+        out.reset(M, N, mode);
+        for (int polygonIndex = 0; polygonIndex < mPolygons.size(); polygonIndex++) {
+            out.beginPolygon(polygonIndex);
+            if (Shape.CIRCLE == mShape) {
+                DiscRasterizer.rasterize(mPolygons.get(polygonIndex), M, N, m, n, out);
+            } else {
+                mPolygons.get(polygonIndex).rasterize(mRasterizer, M, N, m, n, out);
+            }
+        }
+        out.endPolygons(mPolygons.size());
+        if (mMetricsEnabled) {
+            mMetrics.record(PolygonMetrics.RASTERIZE, System.nanoTime() - start);
+        }
+    }
+
+    // 实时栅格参数 M, N, m, n; mLiveGrid[0] == 0 表示关闭
+    private final int[] mLiveGrid = new int[4];
+
+    /**
+     * 让每个多边形在拖动时增量维护自己的栅格掩码, 用 {@link #getLiveGridMask(int)} 读取.
+     *
+     * @param M: 水平栅格数
+     * @param N: 垂直栅格数
+     * @param m: x 比值
+     * @param n  y 比值
+     */
+    public void setLiveGrid(int M, int N, int m, int n) {
+        mLiveGrid[0] = M;
+        mLiveGrid[1] = N;
+        mLiveGrid[2] = m;
+        mLiveGrid[3] = n;
+        if (null != mPolygons) {
+            for (int i = 0; i < mPolygons.size(); i++) {
+                applyLiveGrid(mPolygons.get(i));
+            }
+        }
+    }
+
+    public void clearLiveGrid() {
+        mLiveGrid[0] = 0;
+        if (null != mPolygons) {
+            for (int i = 0; i < mPolygons.size(); i++) {
+                mPolygons.get(i).disableGridMask();
+            }
+        }
+    }
+
+    /**
+     * @return 多边形当前覆盖的栅格, 下标为 col + row * M; 返回的是内部对象, 不要修改.
+     * 没有调用 {@link #setLiveGrid} 或下标越界时返回 null
+     */
+    public BitSet getLiveGridMask(int polygonIndex) {
+        if (null == mPolygons || polygonIndex < 0 || polygonIndex > mPolygons.size() - 1) {
+            return null;
+        }
+        long start = mMetricsEnabled ? System.nanoTime() : 0;
+        BitSet mask;
+        if (Shape.CIRCLE == mShape) {
+            // 圆每行只有一个区间, 直接重新栅格化
+            if (0 == mLiveGrid[0]) {
+                return null;
+            }
+            mask = mCircleMask;
+            mask.clear();
+            DiscRasterizer.rasterize(mPolygons.get(polygonIndex), mLiveGrid[0], mLiveGrid[1], mLiveGrid[2], mLiveGrid[3], mask);
+        } else {
+            mask = mPolygons.get(polygonIndex).getGridMask();
+        }
+        if (mMetricsEnabled) {
+            mMetrics.record(PolygonMetrics.RASTERIZE, System.nanoTime() - start);
+        }
+        return mask;
+    }
+
+    private final BitSet mCircleMask = new BitSet();
+
+    // 预览栅格参数 M, N, m, n; mGridPreview[0] == 0 表示关闭
+    private final int[] mGridPreview = new int[4];
+    private GridPreviewScheduler mPreviewScheduler;
+    private ExecutorService mPreviewExecutor;
+    private final BitSet mPreviewCells = new BitSet();
+
+    /**
+     * 拖动时在后台线程计算当前窗口覆盖的栅格, 并把最近一次完成的结果画在窗口下面.
+     * 每个窗口最多一个任务在运行, 新的顶点版本到来时旧的任务被取消.
+     *
+     * @param M: 水平栅格数
+     * @param N: 垂直栅格数
+     * @param m: x 比值
+     * @param n  y 比值
+     */
+    public void setGridPreview(int M, int N, int m, int n) {
+        mGridPreview[0] = M;
+        mGridPreview[1] = N;
+        mGridPreview[2] = m;
+        mGridPreview[3] = n;
+        if (null != mPreviewScheduler) {
+            mPreviewScheduler.setGrid(M, N, m, n);
+        }
+        invalidate();
+    }
+
+    public void clearGridPreview() {
+        mGridPreview[0] = 0;
+        releaseGridPreview();
+        invalidate();
+    }
+
+    private GridPreviewScheduler getPreviewScheduler() {
+        if (null == mPreviewScheduler) {
+            // 只预览当前窗口, 一个线程就够了
+            mPreviewExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull Runnable r) {
+                    Thread thread = new Thread(r, "GridPreview");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            mPreviewScheduler = new GridPreviewScheduler(mPreviewExecutor, new GridPreviewScheduler.Listener() {
+                @Override
+                public void onPreviewReady(int polygonIndex) {
+                    postInvalidate();
+                }
+            });
+            mPreviewScheduler.setGrid(mGridPreview[0], mGridPreview[1], mGridPreview[2], mGridPreview[3]);
+        }
+        return mPreviewScheduler;
+    }
+
+    private void releaseGridPreview() {
+        if (null != mPreviewScheduler) {
+            mPreviewScheduler.cancelAll();
+            mPreviewExecutor.shutdown();
+            mPreviewScheduler = null;
+            mPreviewExecutor = null;
+        }
+    }
+
+    // 每帧提交当前窗口的快照, 没有变化时不会重新计算; 画出已经完成的结果, 同一行相邻的栅格合并为一个矩形
+    private void drawGridPreview(Canvas canvas) {
+        if (0 == mGridPreview[0] || null == mCurrentActivePolygon || 0 == mCurrentActivePolygon.size()) {
+            return;
+        }
+        GridPreviewScheduler scheduler = getPreviewScheduler();
+        scheduler.request(mCurrentActiveIndex, mShape, mCurrentActivePolygon.snapshot());
+        if (scheduler.copyMask(mCurrentActiveIndex, mPreviewCells) < 0) {
+            return;
+        }
+        int M = mGridPreview[0];
+        int m = mGridPreview[2];
+        int n = mGridPreview[3];
+        int cell = mPreviewCells.nextSetBit(0);
+        while (cell >= 0) {
+            int row = cell / M;
+            int end = Math.min(mPreviewCells.nextClearBit(cell), (row + 1) * M);
+            canvas.drawRect((cell - row * M) * m, row * n, (end - row * M) * m, (row + 1) * n, mGridPreviewPaint);
+            cell = mPreviewCells.nextSetBit(end);
+        }
+    }
+
+    // 活动热度: 累计器与栅格大小 m, n; mHeatmap == null 表示关闭
+    private ActivityHeatmap mHeatmap;
+    private int mHeatmapCellWidth;
+    private int mHeatmapCellHeight;
+    private float[] mHeatValues = new float[0];
+    // 按 0 - 255 的热度查表: 由蓝到红, 越热越不透明
+    private int[] mHeatColors;
+    private Paint mHeatmapPaint;
+
+    /**
+     * 把活动热度画在所有窗口下面, 方便按实际活动的位置划定窗口.
+     * 每次绘制时从 heatmap 复制数值并按最大值归一化; 样本由其他线程加入时, 加入后调用 {@link #postInvalidate()}.
+     *
+     * @param heatmap: 为 null 时关闭
+     * @param m:       x 比值
+     * @param n:       y 比值
+     */
+    public void setHeatmap(@Nullable ActivityHeatmap heatmap, int m, int n) {
+        if (null != heatmap && (m <= 0 || n <= 0)) {
+            throw new IllegalArgumentException("Invalid cell " + m + "x" + n);
+        }
+        mHeatmap = heatmap;
+        mHeatmapCellWidth = m;
+        mHeatmapCellHeight = n;
+        if (null != heatmap && null == mHeatColors) {
+            mHeatColors = new int[256];
+            for (int level = 0; level < 256; level++) {
+                mHeatColors[level] = Palette.hsvToArgb(0x20 + level * 0x80 / 255, 240f * (255 - level) / 255, 1f, 1f);
+            }
+            mHeatmapPaint = PaintUtil.newHeatmapPaint();
+        }
+        invalidate();
+    }
+
+    // 跳过没有活动的栅格, 只画与裁剪区域相交的行列
+    private void drawHeatmap(Canvas canvas) {
+        ActivityHeatmap heatmap = mHeatmap;
+        if (null == heatmap) {
+            return;
+        }
+        int M = heatmap.getColumns();
+        int N = heatmap.getRows();
+        if (mHeatValues.length < M * N) {
+            mHeatValues = new float[M * N];
+        }
+        float max = heatmap.copyValues(mHeatValues);
+        if (!(max > 0)) {
+            return;
+        }
+        int m = mHeatmapCellWidth;
+        int n = mHeatmapCellHeight;
+        int fromCol = Math.max(0, mClipRect.left / m);
+        int toCol = Math.min(M, (mClipRect.right + m - 1) / m);
+        int fromRow = Math.max(0, mClipRect.top / n);
+        int toRow = Math.min(N, (mClipRect.bottom + n - 1) / n);
+        for (int row = fromRow; row < toRow; row++) {
+            for (int col = fromCol; col < toCol; col++) {
+                int level = (int) (mHeatValues[col + row * M] * 255 / max);
+                if (level <= 0) {
+                    continue;
+                }
+                mHeatmapPaint.setColor(mHeatColors[Math.min(255, level)]);
+                canvas.drawRect(col * m, row * n, (col + 1) * m, (row + 1) * n, mHeatmapPaint);
+            }
+        }
+    }
+
+    private void applyLiveGrid(Polygon polygon) {
+        if (mLiveGrid[0] > 0 && Shape.CIRCLE != mShape) {
+            polygon.enableGridMask(mLiveGrid[0], mLiveGrid[1], mLiveGrid[2], mLiveGrid[3]);
+        }
+    }
+
+    /**
+     * 窗口之间重叠时的处理方式, 只检测多边形模式下的拖动, 不检测 CIRCLE.
+     */
+    public enum OverlapPolicy {
+        // 不检测
+        ALLOW,
+        // 重叠的窗口描红边
+        FLAG,
+        // 拖动时不允许产生新的重叠
+        BLOCK
+    }
+
+    // 重叠检测, 拖动时只重新检测当前窗口
+    private final OverlapDetector mOverlaps = new OverlapDetector();
+    private OverlapPolicy mOverlapPolicy = OverlapPolicy.ALLOW;
+    private final BitSet mOverlapsBefore = new BitSet();
+    private final BitSet mOverlapsAfter = new BitSet();
+    // BLOCK 时用来退回的顶点
+    private int[] mUndoXs = new int[8];
+    private int[] mUndoYs = new int[8];
+
+    public void setOverlapPolicy(@NonNull OverlapPolicy policy) {
+        if (mOverlapPolicy != policy) {
+            mOverlapPolicy = policy;
+            mOverlaps.clear();
+            invalidate();
+        }
+    }
+
+    @NonNull
+    public OverlapPolicy getOverlapPolicy() {
+        return mOverlapPolicy;
+    }
+
+    /**
+     * 与重叠策略无关, 可随时调用; 只重新检测变化过的多边形.
+     *
+     * @return 多边形是否与其他多边形重叠
+     */
+    public boolean hasOverlap(int polygonIndex) {
+        if (null == mPolygons) {
+            return false;
+        }
+        mOverlaps.update(mPolygons);
+        return mOverlaps.hasOverlap(polygonIndex);
+    }
+
+    // 按多边形读取图像像素; 换算只在 UI 线程进行, 像素读取在 PixelMaskEngine 的线程中
+    private final Matrix mInverseMatrix = new Matrix();
+    private final BitmapPixelSource mPixelSource = new BitmapPixelSource();
+    private final List<Polygon> mBitmapPolygons = new ArrayList<Polygon>();
+    private float[] mMapPoints = new float[16];
+    private int[] mMapXs = new int[8];
+    private int[] mMapYs = new int[8];
+
+    /**
+     * 把多边形换算到位图像素坐标: 去掉 padding, 乘以图像矩阵的逆矩阵, 再按位图与 drawable 固有尺寸的比例缩放.
+     * 圆的圆心和圆上的点一起换算, 半径随之换算到位图像素; 两个方向缩放不同时按圆上那个点的方向取半径.
+     *
+     * @param out: 结果, 原有顶点被替换
+     * @return 没有位图、矩阵不可逆或下标越界时返回 false
+     */
+    public boolean toBitmapPolygon(int polygonIndex, @NonNull Polygon out) {
+        Bitmap bitmap = getBitmap();
+        if (null == bitmap || null == mPolygons || polygonIndex < 0 || polygonIndex > mPolygons.size() - 1) {
+            return false;
+        }
+        return toBitmapPolygon(mPolygons.get(polygonIndex), bitmap, out);
+    }
+
+    /**
+     * 并行统计每个多边形覆盖的位图像素 (个数、平均颜色、亮度直方图); 圆按圆盘统计.
+     *
+     * @param out: 与多边形一一对应, 长度不小于多边形个数; 为 null 的元素会被创建
+     * @return 没有位图或被中断时返回 false
+     */
+    public boolean computePixelStats(@NonNull PixelMaskEngine engine, @NonNull PixelStats[] out) {
+        Bitmap bitmap = getBitmap();
+        if (null == bitmap || null == mPolygons || !prepareBitmapPolygons(bitmap)) {
+            return false;
+        }
+        mPixelSource.setBitmap(bitmap);
+        try {
+            engine.computeStats(mPixelSource, mShape, mBitmapPolygons.subList(0, mPolygons.size()), out);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Log.w(TAG, "computePixelStats interrupted", e);
+            return false;
+        } finally {
+            mPixelSource.setBitmap(null);
+        }
+    }
+
+    /**
+     * 提取一个多边形覆盖的位图像素, 多边形外为透明; 圆按圆盘提取.
+     *
+     * @return 没有位图或下标越界时返回 false
+     */
+    public boolean extractPixels(@NonNull PixelMaskEngine engine, int polygonIndex, @NonNull MaskedPixels out) {
+        Bitmap bitmap = getBitmap();
+        if (null == bitmap || null == mPolygons || polygonIndex < 0 || polygonIndex > mPolygons.size() - 1) {
+            return false;
+        }
+        if (mBitmapPolygons.isEmpty()) {
+            mBitmapPolygons.add(new Polygon());
+        }
+        Polygon mapped = mBitmapPolygons.get(0);
+        if (!toBitmapPolygon(mPolygons.get(polygonIndex), bitmap, mapped)) {
+            return false;
+        }
+        mPixelSource.setBitmap(bitmap);
+        try {
+            engine.extract(mPixelSource, mShape, mapped, out);
+            return true;
+        } finally {
+            mPixelSource.setBitmap(null);
+        }
+    }
+
+    /**
+     * 每个窗口的栅格在位图上的亮度统计 (像素数、平均值、方差), 每个栅格只查四次积分图.
+     * 栅格与 {@link #toLabelGrid} 相同, 格线按图像矩阵换算到位图; 积分图在 luminance 的后台线程中计算,
+     * 位图没有变化时复用.
+     *
+     * @param zones:    {@link #toLabelGrid} 的结果, 调用时被复制
+     * @param m:        x 比值
+     * @param n         y 比值
+     * @param callback: 在后台线程回调
+     * @return 没有位图、图像矩阵有旋转或位图超过 {@link IntegralImage#MAX_PIXELS} 个像素时返回 false, 不会回调
+     */
+    public boolean computeZoneLuminance(@NonNull ZoneLuminance luminance, @NonNull LabelGrid zones, int m, int n,
+                                        @NonNull ZoneLuminance.Callback callback) {
+        Bitmap bitmap = getBitmap();
+        if (null == bitmap || !toBitmapGridEdges(bitmap, zones.getColumns(), zones.getRows(), m, n)) {
+            return false;
+        }
+        return luminance.submit(bitmap, zones, mEdgeXs, mEdgeYs, callback);
+    }
+
+    // 位图上的格线
+    private int[] mEdgeXs = new int[0];
+    private int[] mEdgeYs = new int[0];
+
+    // 与 toBitmapPolygon 的换算相同; 图像矩阵只有缩放和平移时, 换算后的 x 只取决于 x, y 同理
+    private boolean toBitmapGridEdges(Bitmap bitmap, int M, int N, int m, int n) {
+        Drawable drawable = getDrawable();
+        int intrinsicWidth = drawable.getIntrinsicWidth();
+        int intrinsicHeight = drawable.getIntrinsicHeight();
+        Matrix matrix = getImageMatrix();
+        if (intrinsicWidth <= 0 || intrinsicHeight <= 0 || !isScaleTranslate(matrix) || !matrix.invert(mInverseMatrix)) {
+            return false;
+        }
+        if (mEdgeXs.length != M + 1) {
+            mEdgeXs = new int[M + 1];
+        }
+        if (mEdgeYs.length != N + 1) {
+            mEdgeYs = new int[N + 1];
+        }
+        int count = Math.max(M, N) + 1;
+        if (mMapPoints.length < count * 2) {
+            mMapPoints = new float[count * 2];
+        }
+        for (int i = 0; i < count; i++) {
+            mMapPoints[2 * i] = Math.min(i, M) * m - getPaddingLeft();
+            mMapPoints[2 * i + 1] = Math.min(i, N) * n - getPaddingTop();
+        }
+        mInverseMatrix.mapPoints(mMapPoints, 0, mMapPoints, 0, count);
+        float scaleX = (float) bitmap.getWidth() / intrinsicWidth;
+        float scaleY = (float) bitmap.getHeight() / intrinsicHeight;
+        for (int i = 0; i <= M; i++) {
+            mEdgeXs[i] = Math.round(mMapPoints[2 * i] * scaleX);
+        }
+        for (int i = 0; i <= N; i++) {
+            mEdgeYs[i] = Math.round(mMapPoints[2 * i + 1] * scaleY);
+        }
+        return true;
+    }
+
+    private final float[] mMatrixValues = new float[9];
+
+    // 只有缩放和平移, 没有旋转与错切
+    private boolean isScaleTranslate(Matrix matrix) {
+        matrix.getValues(mMatrixValues);
+        return 0 == mMatrixValues[Matrix.MSKEW_X] && 0 == mMatrixValues[Matrix.MSKEW_Y];
+    }
+
+    @Nullable
+    private Bitmap getBitmap() {
+        Drawable drawable = getDrawable();
+        if (!(drawable instanceof BitmapDrawable)) {
+            return null;
+        }
+        Bitmap bitmap = ((BitmapDrawable) drawable).getBitmap();
+        return null == bitmap || bitmap.isRecycled() ? null : bitmap;
+    }
+
+    private boolean prepareBitmapPolygons(Bitmap bitmap) {
+        for (int i = 0; i < mPolygons.size(); i++) {
+            if (mBitmapPolygons.size() <= i) {
+                mBitmapPolygons.add(new Polygon());
+            }
+            if (!toBitmapPolygon(mPolygons.get(i), bitmap, mBitmapPolygons.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean toBitmapPolygon(Polygon polygon, Bitmap bitmap, Polygon out) {
+        Drawable drawable = getDrawable();
+        int intrinsicWidth = drawable.getIntrinsicWidth();
+        int intrinsicHeight = drawable.getIntrinsicHeight();
+        if (intrinsicWidth <= 0 || intrinsicHeight <= 0 || !getImageMatrix().invert(mInverseMatrix)) {
+            return false;
+        }
+        int count = polygon.size();
+        if (mMapXs.length < count) {
+            mMapXs = new int[count];
+            mMapYs = new int[count];
+            mMapPoints = new float[count * 2];
+        }
+        polygon.copyPoints(mMapXs, mMapYs);
+        for (int i = 0; i < count; i++) {
+            mMapPoints[2 * i] = mMapXs[i] - getPaddingLeft();
+            mMapPoints[2 * i + 1] = mMapYs[i] - getPaddingTop();
+        }
+        mInverseMatrix.mapPoints(mMapPoints, 0, mMapPoints, 0, count);
+        float scaleX = (float) bitmap.getWidth() / intrinsicWidth;
+        float scaleY = (float) bitmap.getHeight() / intrinsicHeight;
+        for (int i = 0; i < count; i++) {
+            mMapXs[i] = Math.round(mMapPoints[2 * i] * scaleX);
+            mMapYs[i] = Math.round(mMapPoints[2 * i + 1] * scaleY);
+        }
+        out.setPoints(mMapXs, mMapYs, count);
+        return true;
+    }
+
+    // 性能统计, 默认关闭; 关闭时热路径上不读时钟
+    private PolygonMetrics mMetrics = PolygonMetrics.NONE;
+    private boolean mMetricsEnabled;
+    // 本次触摸事件中最后一次请求刷新的时间
+    private long mInvalidateNanos;
+
+    /**
+     * 设置性能统计, 传 null 或 {@link PolygonMetrics#NONE} 关闭.
+     * 记录 onDraw、触摸到刷新、命中测试和栅格化的耗时, 例如使用 {@link HistogramMetrics}.
+     */
+    public void setMetrics(@Nullable PolygonMetrics metrics) {
+        mMetrics = null == metrics ? PolygonMetrics.NONE : metrics;
+        mMetricsEnabled = PolygonMetrics.NONE != mMetrics;
+    }
+
+    @NonNull
+    public PolygonMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * 读取一个指标的直方图.
+     *
+     * @param metric: {@link PolygonMetrics} 中的常量
+     * @return 当前的统计不是 {@link HistogramMetrics} 时返回 false
+     */
+    public boolean getMetricHistogram(int metric, @NonNull Histogram out) {
+        if (!(mMetrics instanceof HistogramMetrics)) {
+            return false;
+        }
+        ((HistogramMetrics) mMetrics).copyTo(metric, out);
+        return true;
+    }
+
+    private void markInvalidated() {
+        if (mMetricsEnabled) {
+            mInvalidateNanos = System.nanoTime();
+        }
+    }
+
+    // 触摸采样按帧合并: ACTION_MOVE 只写入环形缓冲, 下一帧 Choreographer 回调时处理最新位置
+    private static final int TOUCH_SAMPLE_CAPACITY = 64;
+    // 预测时最多向前推算的时间
+    private static final long MAX_PREDICTION_MILLIS = 16;
+
+    private final TouchSampleBuffer mTouchSamples = new TouchSampleBuffer(TOUCH_SAMPLE_CAPACITY);
+    private final float[] mPredicted = new float[2];
+    private boolean mTouchPrediction;
+    private boolean mTouchFrameScheduled;
+    // 有还没处理的采样
+    private boolean mTouchPending;
+    // 上一次处理的是预测位置
+    private boolean mPredictionApplied;
+    // 最早一个未处理采样的到达时间, 用于统计
+    private long mTouchPendingNanos;
+
+    private final Choreographer.FrameCallback mTouchFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mTouchFrameScheduled = false;
+            applyTouchSamples(frameTimeNanos / 1000000 + MAX_PREDICTION_MILLIS);
+        }
+    };
+
+    /**
+     * 拖动时按最近的速度预测手指位置, 降低感知延迟; 抬起时总会回到真实位置. 默认关闭.
+     */
+    public void setTouchPrediction(boolean enabled) {
+        mTouchPrediction = enabled;
+    }
+
+    public boolean isTouchPrediction() {
+        return mTouchPrediction;
+    }
+
+    private void queueTouchSamples(MotionEvent event) {
+        for (int i = 0; i < event.getHistorySize(); i++) {
+            mTouchSamples.add(event.getHistoricalX(i), event.getHistoricalY(i), event.getHistoricalEventTime(i));
+        }
+        mTouchSamples.add(event.getX(), event.getY(), event.getEventTime());
+        if (!mTouchPending && mMetricsEnabled) {
+            mTouchPendingNanos = System.nanoTime();
+        }
+        mTouchPending = true;
+        if (!mTouchFrameScheduled) {
+            mTouchFrameScheduled = true;
+            Choreographer.getInstance().postFrameCallback(mTouchFrameCallback);
+        }
+    }
+
+    /**
+     * @param targetTime: 预测的目标时间 (uptimeMillis)
+     */
+    private void applyTouchSamples(long targetTime) {
+        if (!mTouchPending || mTouchSamples.isEmpty()) {
+            return;
+        }
+        mTouchPending = false;
+        mInvalidateNanos = 0;
+        if (mTouchPrediction && mTouchSamples.predict(targetTime, MAX_PREDICTION_MILLIS, mPredicted)) {
+            mPredictionApplied = true;
+            onActionMove(mPredicted[0], mPredicted[1]);
+        } else {
+            mPredictionApplied = false;
+            onActionMove(mTouchSamples.getLatestX(), mTouchSamples.getLatestY());
+        }
+        if (mMetricsEnabled && 0 != mInvalidateNanos) {
+            mMetrics.record(PolygonMetrics.TOUCH_TO_INVALIDATE, mInvalidateNanos - mTouchPendingNanos);
+            mInvalidateNanos = 0;
+        }
+    }
+
+    private void flushTouchSamples() {
+        cancelTouchFrame();
+        if ((mTouchPending || mPredictionApplied) && !mTouchSamples.isEmpty()) {
+            mTouchPending = false;
+            mPredictionApplied = false;
+            onActionMove(mTouchSamples.getLatestX(), mTouchSamples.getLatestY());
+        }
+    }
+
+    private void cancelTouchFrame() {
+        if (mTouchFrameScheduled) {
+            mTouchFrameScheduled = false;
+            Choreographer.getInstance().removeFrameCallback(mTouchFrameCallback);
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        cancelTouchFrame();
+        mTouchPending = false;
+        // 重新显示时按需重新创建
+        releaseGridPreview();
+        releaseIdleLayer();
+        super.onDetachedFromWindow();
+    }
+
+    // 布局前收到的状态, 第一次布局时应用
+    private EditorState mPendingState;
+
+    /**
+     * 当前的形状和所有窗口. 多边形对象是共享的, 需要长期保存时立即编码.
+     */
+    @NonNull
+    public EditorState getEditorState() {
+        List<Polygon> polygons = null == mPolygons ? Collections.<Polygon>emptyList() : mPolygons;
+        return new EditorState(mShape, polygons);
+    }
+
+    /**
+     * 所有窗口的不可变快照, 可以交给后台线程栅格化、编码或保存, 不影响继续拖动.
+     * 没有变化的窗口复用上一次的快照, 只复制改动过的窗口. 只能在 UI 线程调用.
+     */
+    @NonNull
+    public EditorSnapshot snapshot() {
+        List<Polygon> polygons = null == mPolygons ? Collections.<Polygon>emptyList() : mPolygons;
+        return EditorSnapshot.of(mShape, polygons);
+    }
+
+    /**
+     * 替换所有窗口. 还没有布局时在第一次布局时应用.
+     */
+    public void setEditorState(@NonNull EditorState state) {
+        if (null == mPolygons) {
+            mPendingState = state;
+        } else {
+            applyEditorState(state);
+        }
+    }
+
+    /**
+     * 把已有的标签栅格转回窗口并替换所有窗口, 例如设备上保存的区域配置, 不必再手动画一遍.
+     * 窗口 i 对应 grid 的第 i 个窗口; 分成几块的窗口只保留面积最大的一块, 洞被填上.
+     * 当前为 {@link Shape#RECT} 或 {@link Shape#CIRCLE} 时, 轮廓都是轴对齐矩形则改为 {@link Shape#RECT},
+     * 否则改为可以单独拖动每个顶点的 {@link Shape#OCTAGON}: RECT 的拖动和命中测试只适用于 4 个顶点的轴对齐矩形.
+     *
+     * @param m:         x 比值
+     * @param n:         y 比值
+     * @param tolerance: 简化轮廓的容差 (px), 见 {@link MaskVectorizer#setTolerance(float)}
+     */
+    public void importLabelGrid(@NonNull LabelGrid grid, int m, int n, float tolerance) {
+        MaskVectorizer vectorizer = new MaskVectorizer();
+        vectorizer.setTolerance(tolerance);
+        List<Polygon> polygons = new ArrayList<Polygon>(grid.getPolygonCount());
+        List<Polygon> contours = new ArrayList<Polygon>();
+        int[] xs = new int[0];
+        int[] ys = new int[0];
+        boolean rectangles = true;
+        for (int i = 0; i < grid.getPolygonCount(); i++) {
+            Polygon polygon = newPolygon(i);
+            contours.clear();
+            if (vectorizer.vectorize(grid, i, m, n, contours) > 0) {
+                if (contours.size() > 1) {
+                    Log.w(TAG, "zone " + i + " has " + contours.size() + " parts, keeping the largest");
+                }
+                Polygon contour = contours.get(0);
+                if (xs.length < contour.size()) {
+                    xs = new int[contour.size()];
+                    ys = new int[contour.size()];
+                }
+                int count = contour.copyPoints(xs, ys);
+                rectangles &= isAxisAlignedRect(xs, ys, count);
+                polygon.setPoints(xs, ys, count);
+                polygon.setState(Polygon.State.INIT);
+            }
+            polygons.add(polygon);
+        }
+        Shape shape = mShape;
+        if (Shape.RECT == shape || Shape.CIRCLE == shape) {
+            shape = rectangles ? Shape.RECT : Shape.OCTAGON;
+        }
+        setEditorState(new EditorState(shape, polygons));
+    }
+
+    private static boolean isAxisAlignedRect(int[] xs, int[] ys, int count) {
+        if (4 != count) {
+            return false;
+        }
+        // 边交替为水平和竖直
+        boolean horizontal = ys[0] == ys[1];
+        for (int i = 0; i < 4; i++) {
+            int j = (i + 1) % 4;
+            if (horizontal ? ys[i] != ys[j] : xs[i] != xs[j]) {
+                return false;
+            }
+            horizontal = !horizontal;
+        }
+        return true;
+    }
+
+    /**
+     * 保存到文件, 格式见 {@link PolygonCodec}.
+     */
+    public void saveState(@NonNull File file) throws IOException {
+        PolygonCodec.write(snapshot(), file);
+    }
+
+    public void restoreState(@NonNull File file) throws IOException {
+        setEditorState(PolygonCodec.read(file));
+    }
+
+    private void applyEditorState(EditorState state) {
+        mShape = state.getShape();
+        mPolygons = state.getPolygons();
+        int active = -1;
+        for (int i = 0; i < mPolygons.size(); i++) {
+            Polygon polygon = mPolygons.get(i);
+            if (Shape.CIRCLE == mShape && 1 == polygon.size()) {
+                upgradeCircle(polygon, state);
+            }
+            applyLiveGrid(polygon);
+            // 保存时可能正在拖动
+            if (Polygon.State.MOVE == polygon.getState() || Polygon.State.DRAG == polygon.getState()) {
+                polygon.setState(Polygon.State.INIT);
+            }
+            if (polygon.size() > 0) {
+                active = i;
+            }
+        }
+        for (int i = mPolygons.size(); i < mPolygonNumLimit; i++) {
+            mPolygons.add(newPolygon(i));
+        }
+        mPolygonNumLimit = mPolygons.size();
+        // 只有存在当前窗口时才会绘制
+        activate(active);
+        mDragIndex = -1;
+        mCenterAttracted = false;
+        mIndex.clear();
+        mIndexStale = true;
+        invalidate();
+    }
+
+    // 旧版本的圆只保存了圆上的点, 圆心是共用的; 补上圆心, 没有保存圆心时用图片中心
+    private void upgradeCircle(Polygon polygon, EditorState state) {
+        int centerX = (int) (0 == state.getCenterX() ? (mBitmapRect.left + mBitmapRect.right) / 2 : state.getCenterX());
+        int centerY = (int) (0 == state.getCenterY() ? (mBitmapRect.top + mBitmapRect.bottom) / 2 : state.getCenterY());
+        int pointX = polygon.getX(0);
+        int pointY = polygon.getY(0);
+        polygon.clear();
+        polygon.addPoint(centerX, centerY).addPoint(pointX, pointY);
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        SavedState state = new SavedState(super.onSaveInstanceState());
+        state.mData = PolygonCodec.encode(snapshot());
+        return state;
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        SavedState savedState = (SavedState) state;
+        super.onRestoreInstanceState(savedState.getSuperState());
+        try {
+            setEditorState(PolygonCodec.decode(savedState.mData));
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot restore polygons", e);
+        }
+    }
+
+    static class SavedState extends BaseSavedState {
+
+        byte[] mData;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        private SavedState(Parcel in) {
+            super(in);
+            mData = in.createByteArray();
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeByteArray(mData);
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
 }
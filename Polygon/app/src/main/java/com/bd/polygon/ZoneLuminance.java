@@ -0,0 +1,124 @@
+package com.bd.polygon;
+
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 窗口亮度统计, 在后台线程计算
+ * <p>
+ * The {@link IntegralImage} takes about 12 bytes per pixel and a full pass over the bitmap, so it is
+ * built on a single background thread and kept for the last bitmap, keyed by the bitmap itself and
+ * its {@link Bitmap#getGenerationId() generationId}. Committing again over an unchanged image only
+ * costs the four lookups per cell.
+ * <p>
+ * Tasks come from {@link PolygonView#computeZoneLuminance}, which copies the zones and grid lines on
+ * the UI thread, so the caller may reuse them at once. The bitmap must not be recycled while a task
+ * runs. Bitmaps over {@link IntegralImage#MAX_PIXELS} are rejected up front rather than on the
+ * background thread, where the exception would take the process down.
+ *
+ * @author agent
+ */
+public final class ZoneLuminance {
+
+    public interface Callback {
+        /**
+         * 在后台线程调用.
+         *
+         * @param stats: 前 count 个与窗口一一对应, 下一次回调时被复用
+         */
+        void onZoneLuminance(RegionStats[] stats, int count);
+    }
+
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(@NonNull Runnable r) {
+            Thread thread = new Thread(r, "ZoneLuminance");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    // 以下只在后台线程访问
+    private final IntegralImage mImage = new IntegralImage();
+    private final BitmapPixelSource mSource = new BitmapPixelSource();
+    // 积分图对应的位图, 不阻止位图被回收
+    private WeakReference<Bitmap> mBitmap = new WeakReference<Bitmap>(null);
+    private int mGenerationId;
+    private RegionStats[] mStats = new RegionStats[0];
+
+    /**
+     * @param xEdges: 位图上 M + 1 条竖直格线, 见 {@link IntegralImage#addCellStats}
+     * @param yEdges: 位图上 N + 1 条水平格线
+     * @return 位图超过 {@link IntegralImage#MAX_PIXELS} 个像素时返回 false, 不会回调
+     */
+    boolean submit(@NonNull final Bitmap bitmap, @NonNull LabelGrid zones, @NonNull int[] xEdges, @NonNull int[] yEdges,
+                   @NonNull final Callback callback) {
+        if (!fits(bitmap)) {
+            return false;
+        }
+        final int columns = zones.getColumns();
+        final int[][] cells = new int[zones.getPolygonCount()][];
+        for (int i = 0; i < cells.length; i++) {
+            LabelGrid.Mask mask = zones.mask(i);
+            cells[i] = new int[mask.count()];
+            mask.copyTo(cells[i]);
+        }
+        final int[] xs = xEdges.clone();
+        final int[] ys = yEdges.clone();
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                // 位图可能在排队期间被回收或改变了尺寸
+                if (bitmap.isRecycled() || !fits(bitmap)) {
+                    return;
+                }
+                compute(bitmap, cells, columns, xs, ys);
+                callback.onZoneLuminance(mStats, cells.length);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * 已经提交的任务会执行完.
+     */
+    public void shutdown() {
+        mExecutor.shutdown();
+    }
+
+    private static boolean fits(Bitmap bitmap) {
+        return (long) bitmap.getWidth() * bitmap.getHeight() <= IntegralImage.MAX_PIXELS;
+    }
+
+    private void compute(Bitmap bitmap, int[][] cells, int columns, int[] xEdges, int[] yEdges) {
+        int generationId = bitmap.getGenerationId();
+        if (bitmap != mBitmap.get() || generationId != mGenerationId) {
+            mSource.setBitmap(bitmap);
+            try {
+                mImage.compute(mSource);
+            } finally {
+                mSource.setBitmap(null);
+            }
+            mBitmap = new WeakReference<Bitmap>(bitmap);
+            mGenerationId = generationId;
+        }
+        if (mStats.length < cells.length) {
+            mStats = new RegionStats[cells.length];
+        }
+        for (int i = 0; i < cells.length; i++) {
+            if (null == mStats[i]) {
+                mStats[i] = new RegionStats();
+            } else {
+                mStats[i].reset();
+            }
+            for (int cell : cells[i]) {
+                mImage.addCellStats(cell % columns, cell / columns, xEdges, yEdges, mStats[i]);
+            }
+        }
+    }
+}
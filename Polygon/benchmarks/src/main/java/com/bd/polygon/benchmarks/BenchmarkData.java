@@ -0,0 +1,65 @@
+package com.bd.polygon.benchmarks;
+
+import com.bd.polygon.Polygon;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 基准测试数据
+ * <p>
+ * Deterministic polygons for the benchmarks. Every polygon is star shaped around its center with
+ * increasing vertex angles, so it is simple for any vertex count.
+ *
+ * @author agent
+ */
+final class BenchmarkData {
+
+    // 模拟的画布大小 (px), 所有栅格尺寸都铺满它
+    static final int CANVAS_WIDTH = 4096;
+    static final int CANVAS_HEIGHT = 4096;
+
+    private BenchmarkData() {
+    }
+
+    static Polygon star(Random random, int vertexCount, int centerX, int centerY, int radius) {
+        Polygon polygon = new Polygon();
+        polygon.ensureCapacity(vertexCount);
+        for (int i = 0; i < vertexCount; i++) {
+            double angle = 2 * Math.PI * (i + 0.1 + 0.8 * random.nextDouble()) / vertexCount;
+            double r = (0.5 + 0.5 * random.nextDouble()) * radius;
+            polygon.addPoint((int) (centerX + r * Math.cos(angle)), (int) (centerY + r * Math.sin(angle)));
+        }
+        return polygon;
+    }
+
+    /**
+     * polygonCount 个大小相近的多边形, 均匀铺满画布.
+     */
+    static List<Polygon> scene(long seed, int polygonCount, int vertexCount) {
+        Random random = new Random(seed);
+        int perRow = (int) Math.ceil(Math.sqrt(polygonCount));
+        int cellWidth = CANVAS_WIDTH / perRow;
+        int cellHeight = CANVAS_HEIGHT / perRow;
+        int radius = Math.max(2, Math.min(cellWidth, cellHeight) * 3 / 4);
+        List<Polygon> polygons = new ArrayList<Polygon>(polygonCount);
+        for (int i = 0; i < polygonCount; i++) {
+            int centerX = (i % perRow) * cellWidth + cellWidth / 2;
+            int centerY = (i / perRow) * cellHeight + cellHeight / 2;
+            polygons.add(star(random, vertexCount, centerX, centerY, radius));
+        }
+        return polygons;
+    }
+
+    /**
+     * @param grid: "MxN", 例如 "22x18"
+     * @return M, N, m, n
+     */
+    static int[] parseGrid(String grid) {
+        int split = grid.indexOf('x');
+        int columns = Integer.parseInt(grid.substring(0, split));
+        int rows = Integer.parseInt(grid.substring(split + 1));
+        return new int[]{columns, rows, Math.max(1, CANVAS_WIDTH / columns), Math.max(1, CANVAS_HEIGHT / rows)};
+    }
+}
@@ -0,0 +1,94 @@
+package com.bd.polygon.benchmarks;
+
+import com.bd.polygon.Palette;
+import com.bd.polygon.Polygon;
+import com.bd.polygon.PolygonIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 大量窗口时每帧的裁剪与合批
+ * <p>
+ * The per frame CPU work of the large scale drawing mode, without the Canvas calls: finding the
+ * windows that intersect a refresh area through the zone index against testing every cached bounding
+ * box, and grouping the visible windows by palette color.
+ *
+ * @author agent
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CullingBenchmark {
+
+    @Param({"1024", "10000", "50000"})
+    public int polygonCount;
+
+    // 刷新区域的边长, 4096 为整个画布
+    @Param({"512", "4096"})
+    public int clipSize;
+
+    private List<Polygon> mPolygons;
+    private PolygonIndex mIndex;
+    private final BitSet mVisible = new BitSet();
+    private final Palette mPalette = new Palette();
+    private int[] mBatchSizes;
+
+    @Setup
+    public void setUp() {
+        mPolygons = BenchmarkData.scene(42, polygonCount, 6);
+        mIndex = new PolygonIndex(48, 96);
+        mIndex.setBounds(BenchmarkData.CANVAS_WIDTH, BenchmarkData.CANVAS_HEIGHT);
+        mIndex.syncAll(mPolygons);
+        mBatchSizes = new int[mPalette.getSize()];
+    }
+
+    @Benchmark
+    public int indexed() {
+        mIndex.queryZones(0, 0, clipSize, clipSize, mVisible);
+        return mVisible.cardinality();
+    }
+
+    @Benchmark
+    public int linear() {
+        int count = 0;
+        for (int i = 0; i < mPolygons.size(); i++) {
+            int[] bounds = mPolygons.get(i).getBounds();
+            if (bounds[0] <= clipSize && bounds[2] >= 0 && bounds[1] <= clipSize && bounds[3] >= 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int indexedAndBatched() {
+        mIndex.queryZones(0, 0, clipSize, clipSize, mVisible);
+        for (int i = 0; i < mBatchSizes.length; i++) {
+            mBatchSizes[i] = 0;
+        }
+        int batches = 0;
+        for (int i = mVisible.nextSetBit(0); i >= 0; i = mVisible.nextSetBit(i + 1)) {
+            if (0 == mBatchSizes[mPalette.getSlot(i)]++) {
+                batches++;
+            }
+        }
+        return batches;
+    }
+}
@@ -0,0 +1,84 @@
+package com.bd.polygon.benchmarks;
+
+import com.bd.polygon.MathUtil;
+import com.bd.polygon.Polygon;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个多边形的几何计算
+ * <p>
+ * Bounds, centroid and translation of one polygon, by vertex count.
+ *
+ * @author agent
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeometryBenchmark {
+
+    @Param({"4", "8", "64", "1024"})
+    public int vertexCount;
+
+    private Polygon mPolygon;
+    private int[] mXs;
+    private int[] mYs;
+    private final int[] mOut = new int[4];
+    private int mStep;
+
+    @Setup
+    public void setUp() {
+        mPolygon = BenchmarkData.star(new Random(42), vertexCount, 2048, 2048, 1500);
+        mXs = new int[vertexCount];
+        mYs = new int[vertexCount];
+        for (int i = 0; i < vertexCount; i++) {
+            mXs[i] = mPolygon.getX(i);
+            mYs[i] = mPolygon.getY(i);
+        }
+    }
+
+    @Benchmark
+    public int[] getRectPoints() {
+        return MathUtil.getRectPoints(mXs, mYs, vertexCount, mOut);
+    }
+
+    @Benchmark
+    public boolean averagePolygon() {
+        return MathUtil.averagePolygon(mXs, mYs, vertexCount, mOut);
+    }
+
+    /**
+     * 平移后读取外接矩形与中心, 即拖动一帧的几何开销.
+     */
+    @Benchmark
+    public int translate() {
+        // 来回移动, 坐标不会无限增长
+        int d = (mStep++ & 1) == 0 ? 3 : -3;
+        mPolygon.updatePoints(d, d);
+        return mPolygon.getBounds()[0] + mPolygon.getCenterX();
+    }
+
+    /**
+     * 版本号未变时的缓存命中.
+     */
+    @Benchmark
+    public int cachedBounds() {
+        return mPolygon.getBounds()[2] + mPolygon.getCenterY();
+    }
+}
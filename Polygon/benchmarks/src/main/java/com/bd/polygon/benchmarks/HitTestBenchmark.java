@@ -0,0 +1,137 @@
+package com.bd.polygon.benchmarks;
+
+import com.bd.polygon.Polygon;
+import com.bd.polygon.PolygonIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 触摸命中测试
+ * <p>
+ * The attractPoint / attractCenter style lookups of PolygonView: the {@link PolygonIndex} queries,
+ * a linear scan over every vertex as the baseline, and re-indexing a polygon after it was dragged.
+ *
+ * @author agent
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HitTestBenchmark {
+
+    private static final int RADIUS = 24;
+    private static final int QUERY_COUNT = 1024;
+
+    @Param({"4", "64", "1024", "10000"})
+    public int polygonCount;
+
+    @Param({"4", "8"})
+    public int vertexCount;
+
+    private List<Polygon> mPolygons;
+    private PolygonIndex mIndex;
+    private final int[] mQueryXs = new int[QUERY_COUNT];
+    private final int[] mQueryYs = new int[QUERY_COUNT];
+    private int mQuery;
+    private int mStep;
+
+    @Setup
+    public void setUp() {
+        mPolygons = BenchmarkData.scene(42, polygonCount, vertexCount);
+        mIndex = new PolygonIndex(2 * RADIUS, 4 * RADIUS);
+        mIndex.setBounds(BenchmarkData.CANVAS_WIDTH, BenchmarkData.CANVAS_HEIGHT);
+        mIndex.syncAll(mPolygons);
+
+        // 一半落在顶点附近, 一半随机
+        Random random = new Random(7);
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            if ((i & 1) == 0) {
+                Polygon polygon = mPolygons.get(random.nextInt(polygonCount));
+                int vertex = random.nextInt(vertexCount);
+                mQueryXs[i] = polygon.getX(vertex) + random.nextInt(RADIUS) - RADIUS / 2;
+                mQueryYs[i] = polygon.getY(vertex) + random.nextInt(RADIUS) - RADIUS / 2;
+            } else {
+                mQueryXs[i] = random.nextInt(BenchmarkData.CANVAS_WIDTH);
+                mQueryYs[i] = random.nextInt(BenchmarkData.CANVAS_HEIGHT);
+            }
+        }
+    }
+
+    private int nextQuery() {
+        mQuery = (mQuery + 1) & (QUERY_COUNT - 1);
+        return mQuery;
+    }
+
+    @Benchmark
+    public int indexedVertex() {
+        int q = nextQuery();
+        mIndex.hitVertex(mQueryXs[q], mQueryYs[q], RADIUS);
+        return mIndex.getHitVertex();
+    }
+
+    /**
+     * 改造前 attractPoint 的做法: 遍历所有多边形的所有顶点.
+     */
+    @Benchmark
+    public int linearVertex() {
+        int q = nextQuery();
+        int x = mQueryXs[q];
+        int y = mQueryYs[q];
+        int best = RADIUS;
+        int hit = -1;
+        for (int p = 0; p < mPolygons.size(); p++) {
+            Polygon polygon = mPolygons.get(p);
+            for (int i = 0; i < polygon.size(); i++) {
+                int d = Math.max(Math.abs(x - polygon.getX(i)), Math.abs(y - polygon.getY(i)));
+                if (d < best) {
+                    best = d;
+                    hit = i;
+                }
+            }
+        }
+        return hit;
+    }
+
+    @Benchmark
+    public int indexedBounds() {
+        int q = nextQuery();
+        mIndex.hitBounds(mPolygons, mQueryXs[q], mQueryYs[q]);
+        return mIndex.getHitPolygon();
+    }
+
+    @Benchmark
+    public int indexedCenter() {
+        int q = nextQuery();
+        mIndex.hitCenter(mPolygons, mQueryXs[q], mQueryYs[q], 2 * RADIUS);
+        return mIndex.getHitPolygon();
+    }
+
+    /**
+     * 拖动一个多边形后重新索引.
+     */
+    @Benchmark
+    public int translateAndSync() {
+        int polygonIndex = nextQuery() % polygonCount;
+        Polygon polygon = mPolygons.get(polygonIndex);
+        int d = (mStep++ & 1) == 0 ? 30 : -30;
+        polygon.updatePoints(d, d);
+        mIndex.sync(polygonIndex, polygon);
+        return polygon.getVersion();
+    }
+}
@@ -0,0 +1,82 @@
+package com.bd.polygon.benchmarks;
+
+import com.bd.polygon.GridRasterizer;
+import com.bd.polygon.LabelGrid;
+import com.bd.polygon.MotionDetector;
+import com.bd.polygon.Polygon;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每帧移动侦测的耗时
+ * <p>
+ * One {@link MotionDetector#process} call per invocation, alternating between two noisy frames so
+ * every cell changes. 30 fps leaves 33 ms per frame.
+ *
+ * @author agent
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MotionBenchmark {
+
+    @Param({"640x480", "1920x1080", "3840x2160"})
+    public String frame;
+
+    @Param({"22x18", "128x128"})
+    public String grid;
+
+    private int mWidth;
+    private int mHeight;
+    private final byte[][] mFrames = new byte[2][];
+    private int mNext;
+    private final MotionDetector mDetector = new MotionDetector();
+
+    @Setup
+    public void setUp() {
+        String[] size = frame.split("x");
+        mWidth = Integer.parseInt(size[0]);
+        mHeight = Integer.parseInt(size[1]);
+        Random random = new Random(11);
+        for (int i = 0; i < mFrames.length; i++) {
+            mFrames[i] = new byte[mWidth * mHeight];
+            random.nextBytes(mFrames[i]);
+        }
+
+        // 四个窗口, 与编辑器默认的窗口数一致
+        int[] g = BenchmarkData.parseGrid(grid);
+        List<Polygon> zones = BenchmarkData.scene(42, 4, 8);
+        LabelGrid labels = new LabelGrid();
+        labels.reset(g[0], g[1], LabelGrid.MODE_OWNER);
+        GridRasterizer rasterizer = new GridRasterizer();
+        for (int i = 0; i < zones.size(); i++) {
+            labels.beginPolygon(i);
+            zones.get(i).rasterize(rasterizer, g[0], g[1], g[2], g[3], labels);
+        }
+        labels.endPolygons(zones.size());
+        mDetector.setZones(labels);
+    }
+
+    @Benchmark
+    public boolean process() {
+        mNext ^= 1;
+        return mDetector.process(mFrames[mNext], mWidth, mHeight, mWidth);
+    }
+}
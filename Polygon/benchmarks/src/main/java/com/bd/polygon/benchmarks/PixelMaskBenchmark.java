@@ -0,0 +1,83 @@
+package com.bd.polygon.benchmarks;
+
+import com.bd.polygon.ArgbPixels;
+import com.bd.polygon.MaskedPixels;
+import com.bd.polygon.PixelMaskEngine;
+import com.bd.polygon.PixelStats;
+import com.bd.polygon.Polygon;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多边形像素统计与提取
+ * <p>
+ * A 4096 x 4096 (16 MP) frame with a scene of star polygons, single threaded against the pool.
+ *
+ * @author agent
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PixelMaskBenchmark {
+
+    @Param({"4", "16"})
+    public int polygonCount;
+
+    @Param({"1", "4"})
+    public int threadCount;
+
+    private ArgbPixels mImage;
+    private List<Polygon> mPolygons;
+    private PixelMaskEngine mEngine;
+    private PixelStats[] mStats;
+    private MaskedPixels[] mMasks;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        int[] pixels = new int[BenchmarkData.CANVAS_WIDTH * BenchmarkData.CANVAS_HEIGHT];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = random.nextInt();
+        }
+        mImage = new ArgbPixels(pixels, BenchmarkData.CANVAS_WIDTH, BenchmarkData.CANVAS_HEIGHT);
+        mPolygons = BenchmarkData.scene(42, polygonCount, 16);
+        mEngine = new PixelMaskEngine(threadCount);
+        mStats = new PixelStats[polygonCount];
+        mMasks = new MaskedPixels[polygonCount];
+    }
+
+    @TearDown
+    public void tearDown() {
+        mEngine.shutdown();
+    }
+
+    @Benchmark
+    public PixelStats[] stats() throws InterruptedException {
+        mEngine.computeStats(mImage, mPolygons, mStats);
+        return mStats;
+    }
+
+    @Benchmark
+    public MaskedPixels[] extract() throws InterruptedException {
+        mEngine.extract(mImage, mPolygons, mMasks);
+        return mMasks;
+    }
+}
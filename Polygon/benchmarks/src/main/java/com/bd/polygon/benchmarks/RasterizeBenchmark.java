@@ -0,0 +1,87 @@
+package com.bd.polygon.benchmarks;
+
+import com.bd.polygon.GridRasterizer;
+import com.bd.polygon.MathUtil;
+import com.bd.polygon.Polygon;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个多边形的栅格化
+ * <p>
+ * Bounding box grid ({@link MathUtil#getDirtyRectGrid}), exact scanline rasterization and the
+ * incremental mask after a single vertex drag, by vertex count and grid size.
+ *
+ * @author agent
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RasterizeBenchmark {
+
+    @Param({"4", "8", "64", "1024"})
+    public int vertexCount;
+
+    @Param({"22x18", "128x128", "1024x1024"})
+    public String grid;
+
+    private int mColumns;
+    private int mRows;
+    private int mCellWidth;
+    private int mCellHeight;
+
+    private Polygon mPolygon;
+    private Polygon mLivePolygon;
+    private final GridRasterizer mRasterizer = new GridRasterizer();
+    private final BitSet mCells = new BitSet();
+    private int mStep;
+
+    @Setup
+    public void setUp() {
+        int[] g = BenchmarkData.parseGrid(grid);
+        mColumns = g[0];
+        mRows = g[1];
+        mCellWidth = g[2];
+        mCellHeight = g[3];
+        mPolygon = BenchmarkData.star(new Random(42), vertexCount, 2048, 2048, 1500);
+        mLivePolygon = BenchmarkData.star(new Random(42), vertexCount, 2048, 2048, 1500);
+        mLivePolygon.enableGridMask(mColumns, mRows, mCellWidth, mCellHeight);
+        mLivePolygon.getGridMask();
+    }
+
+    @Benchmark
+    public List<Integer> boundsGrid() {
+        return MathUtil.getDirtyRectGrid(mColumns, mCellWidth, mCellHeight, mPolygon.getBounds());
+    }
+
+    @Benchmark
+    public BitSet scanline() {
+        mPolygon.getDirtyRectGrid(mRasterizer, mColumns, mCellWidth, mCellHeight, mCells);
+        return mCells;
+    }
+
+    @Benchmark
+    public BitSet dragOneVertex() {
+        int d = (mStep++ & 1) == 0 ? 17 : -17;
+        mLivePolygon.updatePoint(0, d, d);
+        return mLivePolygon.getGridMask();
+    }
+}
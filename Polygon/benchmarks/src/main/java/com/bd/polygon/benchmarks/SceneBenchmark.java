@@ -0,0 +1,85 @@
+package com.bd.polygon.benchmarks;
+
+import com.bd.polygon.GridRasterizer;
+import com.bd.polygon.LabelGrid;
+import com.bd.polygon.Polygon;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 提交时栅格化所有窗口
+ * <p>
+ * What a commit costs: one {@link LabelGrid} pass over every polygon, against the per polygon
+ * toMatrix approach, by polygon count and grid size.
+ *
+ * @author agent
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SceneBenchmark {
+
+    @Param({"4", "64", "1024", "10000"})
+    public int polygonCount;
+
+    @Param({"22x18", "128x128", "1024x1024"})
+    public String grid;
+
+    private int mColumns;
+    private int mRows;
+    private int mCellWidth;
+    private int mCellHeight;
+
+    private List<Polygon> mPolygons;
+    private final GridRasterizer mRasterizer = new GridRasterizer();
+    private final LabelGrid mLabelGrid = new LabelGrid();
+    private final BitSet mCells = new BitSet();
+
+    @Setup
+    public void setUp() {
+        int[] g = BenchmarkData.parseGrid(grid);
+        mColumns = g[0];
+        mRows = g[1];
+        mCellWidth = g[2];
+        mCellHeight = g[3];
+        mPolygons = BenchmarkData.scene(42, polygonCount, 8);
+    }
+
+    @Benchmark
+    public LabelGrid labelGrid() {
+        mLabelGrid.reset(mColumns, mRows, LabelGrid.MODE_OWNER);
+        for (int i = 0; i < mPolygons.size(); i++) {
+            mLabelGrid.beginPolygon(i);
+            mPolygons.get(i).rasterize(mRasterizer, mColumns, mRows, mCellWidth, mCellHeight, mLabelGrid);
+        }
+        mLabelGrid.endPolygons(mPolygons.size());
+        return mLabelGrid;
+    }
+
+    @Benchmark
+    public int perPolygonMasks() {
+        int cells = 0;
+        for (int i = 0; i < mPolygons.size(); i++) {
+            mPolygons.get(i).getDirtyRectGrid(mRasterizer, mColumns, mCellWidth, mCellHeight, mCells);
+            cells += mCells.cardinality();
+        }
+        return cells;
+    }
+}
@@ -0,0 +1,76 @@
+package com.bd.polygon.benchmarks;
+
+import com.bd.polygon.GridRasterizer;
+import com.bd.polygon.LabelGrid;
+import com.bd.polygon.MaskVectorizer;
+import com.bd.polygon.Polygon;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 标签栅格转回多边形的耗时
+ * <p>
+ * Traces every zone of a rasterized scene back into polygons, as when loading a stored
+ * configuration into the editor; should grow with the cell count, not with cells x zones.
+ *
+ * @author agent
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VectorizeBenchmark {
+
+    @Param({"22x18", "128x128", "512x512"})
+    public String grid;
+
+    @Param({"4", "64"})
+    public int zones;
+
+    @Param({"0", "8"})
+    public float tolerance;
+
+    private int[] mGrid;
+    private final LabelGrid mLabels = new LabelGrid();
+    private final MaskVectorizer mVectorizer = new MaskVectorizer();
+    private final List<Polygon> mOut = new ArrayList<Polygon>();
+
+    @Setup
+    public void setUp() {
+        mGrid = BenchmarkData.parseGrid(grid);
+        List<Polygon> scene = BenchmarkData.scene(42, zones, 8);
+        mLabels.reset(mGrid[0], mGrid[1], LabelGrid.MODE_OWNER);
+        GridRasterizer rasterizer = new GridRasterizer();
+        for (int i = 0; i < scene.size(); i++) {
+            mLabels.beginPolygon(i);
+            scene.get(i).rasterize(rasterizer, mGrid[0], mGrid[1], mGrid[2], mGrid[3], mLabels);
+        }
+        mLabels.endPolygons(scene.size());
+        mVectorizer.setTolerance(tolerance);
+    }
+
+    @Benchmark
+    public int vectorize() {
+        mOut.clear();
+        for (int i = 0; i < mLabels.getPolygonCount(); i++) {
+            mVectorizer.vectorize(mLabels, i, mGrid[2], mGrid[3], mOut);
+        }
+        return mOut.size();
+    }
+}
@@ -0,0 +1,193 @@
+package com.bd.polygon;
+
+import java.util.Arrays;
+
+/**
+ * 栅格活动热度累计
+ * <p>
+ * Accumulates streamed per cell activity samples of a M x N grid (for example
+ * {@link MotionDetector#copyCellDiffs(int[])} once per frame) into one value per cell, in one of two
+ * modes:
+ * <ul>
+ * <li>{@link #MODE_DECAY}: {@code value = value * decay + sample}, with the decay derived from a half
+ * life in samples. Old activity fades out smoothly, the value is bounded by
+ * {@code max sample / (1 - decay)}.</li>
+ * <li>{@link #MODE_WINDOW}: the exact sum of the last {@code window} samples, kept with a ring buffer
+ * of the samples and running sums, so adding a sample costs one subtraction and one addition per
+ * cell.</li>
+ * </ul>
+ * Memory is fixed when the mode is set and the cost of a sample is O(cells), however long it runs.
+ * <p>
+ * All methods are synchronized: samples may arrive on a camera thread while the UI thread reads the
+ * values with {@link #copyValues(float[])}.
+ *
+ * @author agent
+ */
+public class ActivityHeatmap {
+
+    public static final int MODE_DECAY = 0;
+    public static final int MODE_WINDOW = 1;
+
+    private final int mColumns;
+    private final int mRows;
+
+    private int mMode;
+    private long mSampleCount;
+
+    // MODE_DECAY
+    private float mDecay;
+    private final float[] mValues;
+
+    // MODE_WINDOW: 最近 mWindow 次的样本, 按样本存放, 每次 mColumns * mRows 个
+    private int mWindow;
+    private int[] mRing = new int[0];
+    private int mRingNext;
+    private long[] mSums = new long[0];
+
+    /**
+     * 默认为 {@link #MODE_DECAY}, 半衰期 30 个样本.
+     */
+    public ActivityHeatmap(int columns, int rows) {
+        if (columns <= 0 || rows <= 0) {
+            throw new IllegalArgumentException("Invalid grid " + columns + "x" + rows);
+        }
+        mColumns = columns;
+        mRows = rows;
+        mValues = new float[columns * rows];
+        setDecay(30);
+    }
+
+    /**
+     * 切换为 {@link #MODE_DECAY} 并清空.
+     *
+     * @param halfLife: 半衰期, 以样本个数计; 每个样本之后原有的值乘以 0.5^(1 / halfLife)
+     */
+    public synchronized void setDecay(float halfLife) {
+        if (!(halfLife > 0)) {
+            throw new IllegalArgumentException("halfLife must be positive: " + halfLife);
+        }
+        mMode = MODE_DECAY;
+        mDecay = (float) Math.pow(0.5, 1.0 / halfLife);
+        mRing = new int[0];
+        mSums = new long[0];
+        clear();
+    }
+
+    /**
+     * 切换为 {@link #MODE_WINDOW} 并清空, 占用 window * 栅格数个 int.
+     *
+     * @param window: 累计最近多少个样本
+     */
+    public synchronized void setWindow(int window) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("window must be positive: " + window);
+        }
+        int cells = mColumns * mRows;
+        if ((long) window * cells > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("window too large: " + window + " x " + cells + " cells");
+        }
+        mMode = MODE_WINDOW;
+        mWindow = window;
+        mRing = new int[window * cells];
+        mSums = new long[cells];
+        clear();
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(mValues, 0);
+        Arrays.fill(mRing, 0);
+        Arrays.fill(mSums, 0);
+        mRingNext = 0;
+        mSampleCount = 0;
+    }
+
+    /**
+     * 加入一次样本.
+     *
+     * @param samples: 每个栅格的活动量, 下标为 col + row * M, 长度不小于栅格数; 不能为负
+     */
+    public synchronized void add(int[] samples) {
+        int cells = mColumns * mRows;
+        if (samples.length < cells) {
+            throw new IllegalArgumentException("Need " + cells + " samples, got " + samples.length);
+        }
+        if (MODE_DECAY == mMode) {
+            float decay = mDecay;
+            for (int cell = 0; cell < cells; cell++) {
+                mValues[cell] = mValues[cell] * decay + samples[cell];
+            }
+        } else {
+            int base = mRingNext * cells;
+            for (int cell = 0; cell < cells; cell++) {
+                long sum = mSums[cell] + samples[cell] - mRing[base + cell];
+                mRing[base + cell] = samples[cell];
+                mSums[cell] = sum;
+                mValues[cell] = sum;
+            }
+            mRingNext = mRingNext + 1 == mWindow ? 0 : mRingNext + 1;
+        }
+        mSampleCount++;
+    }
+
+    /**
+     * 加入一次样本, active 中的栅格记 1, 其余记 0.
+     */
+    public synchronized void add(CellSet active) {
+        int cells = mColumns * mRows;
+        if (MODE_DECAY == mMode) {
+            float decay = mDecay;
+            for (int cell = 0; cell < cells; cell++) {
+                mValues[cell] = mValues[cell] * decay + (active.contains(cell) ? 1 : 0);
+            }
+        } else {
+            int base = mRingNext * cells;
+            for (int cell = 0; cell < cells; cell++) {
+                int sample = active.contains(cell) ? 1 : 0;
+                long sum = mSums[cell] + sample - mRing[base + cell];
+                mRing[base + cell] = sample;
+                mSums[cell] = sum;
+                mValues[cell] = sum;
+            }
+            mRingNext = mRingNext + 1 == mWindow ? 0 : mRingNext + 1;
+        }
+        mSampleCount++;
+    }
+
+    public int getColumns() {
+        return mColumns;
+    }
+
+    public int getRows() {
+        return mRows;
+    }
+
+    public synchronized int getMode() {
+        return mMode;
+    }
+
+    /**
+     * 自上次清空以来加入的样本数.
+     */
+    public synchronized long getSampleCount() {
+        return mSampleCount;
+    }
+
+    public synchronized float getValue(int cell) {
+        return mValues[cell];
+    }
+
+    /**
+     * 复制所有栅格的值, 长度至少为栅格数.
+     *
+     * @return 最大值, 用来归一化
+     */
+    public synchronized float copyValues(float[] out) {
+        float max = 0;
+        for (int cell = 0; cell < mValues.length; cell++) {
+            float value = mValues[cell];
+            out[cell] = value;
+            max = value > max ? value : max;
+        }
+        return max;
+    }
+}
@@ -0,0 +1,44 @@
+package com.bd.polygon;
+
+/**
+ * 基于 int[] 的 ARGB 图像
+ * <p>
+ * Rows are stored top to bottom with a stride of {@code width}, the layout of {@code Bitmap.getPixels}
+ * with a zero offset. The array is not copied.
+ *
+ * @author agent
+ */
+public class ArgbPixels implements PixelSource {
+
+    private final int[] mPixels;
+    private final int mWidth;
+    private final int mHeight;
+
+    public ArgbPixels(int[] pixels, int width, int height) {
+        if (width < 0 || height < 0 || pixels.length < (long) width * height) {
+            throw new IllegalArgumentException("Invalid size " + width + "x" + height + " for " + pixels.length + " pixels");
+        }
+        mPixels = pixels;
+        mWidth = width;
+        mHeight = height;
+    }
+
+    @Override
+    public int getWidth() {
+        return mWidth;
+    }
+
+    @Override
+    public int getHeight() {
+        return mHeight;
+    }
+
+    @Override
+    public void getRow(int x, int y, int width, int[] out) {
+        System.arraycopy(mPixels, x + y * mWidth, out, 0, width);
+    }
+
+    public int[] getPixels() {
+        return mPixels;
+    }
+}
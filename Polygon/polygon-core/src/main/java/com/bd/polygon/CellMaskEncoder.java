@@ -0,0 +1,196 @@
+package com.bd.polygon;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.BitSet;
+
+/**
+ * 栅格掩码的传输编码
+ * <p>
+ * Writes the cell mask of a polygon straight into a reusable {@link ByteBuffer}. Every mask is self
+ * describing, so several masks can follow each other and be read back with {@link CellMaskView}:
+ * <pre>
+ * byte  format     {@link #FORMAT_PACKED_BITS} / {@link #FORMAT_RUN_LENGTH}
+ * byte  flags      bit 0: column major, bit 1: big endian
+ * short columns, rows, label   (unsigned)
+ * int   payload length in bytes
+ * payload:
+ *   packed bits  ceil(cells / 32) ints, cell i of the traversal is bit (i &amp; 31) of int (i &gt;&gt; 5)
+ *   run length   unsigned shorts, alternating runs of empty / covered cells starting with empty;
+ *                a run longer than 65535 is written as 65535, 0, rest
+ * </pre>
+ * All multi byte fields use the encoder's byte order. Traversal is row by row ({@link #ORDER_ROW_MAJOR},
+ * the grid's own index) or column by column ({@link #ORDER_COLUMN_MAJOR}).
+ * <p>
+ * Not thread safe.
+ *
+ * @author agent
+ */
+public class CellMaskEncoder {
+
+    public static final int FORMAT_PACKED_BITS = 0;
+    public static final int FORMAT_RUN_LENGTH = 1;
+
+    public static final int ORDER_ROW_MAJOR = 0;
+    public static final int ORDER_COLUMN_MAJOR = 1;
+
+    static final int FLAG_COLUMN_MAJOR = 1;
+    static final int FLAG_BIG_ENDIAN = 2;
+
+    public static final int HEADER_SIZE = 1 + 1 + 2 + 2 + 2 + 4;
+
+    private static final int MAX_RUN = 0xFFFF;
+
+    private final int mFormat;
+    private final ByteOrder mByteOrder;
+    private final int mCellOrder;
+
+    private final BitSetCells mBitSetCells = new BitSetCells();
+
+    public CellMaskEncoder(int format, ByteOrder byteOrder, int cellOrder) {
+        if (FORMAT_PACKED_BITS != format && FORMAT_RUN_LENGTH != format) {
+            throw new IllegalArgumentException("Unknown format " + format);
+        }
+        if (ORDER_ROW_MAJOR != cellOrder && ORDER_COLUMN_MAJOR != cellOrder) {
+            throw new IllegalArgumentException("Unknown cell order " + cellOrder);
+        }
+        if (null == byteOrder) {
+            throw new IllegalArgumentException("byteOrder must not be null");
+        }
+        mFormat = format;
+        mByteOrder = byteOrder;
+        mCellOrder = cellOrder;
+    }
+
+    public int getFormat() {
+        return mFormat;
+    }
+
+    public ByteOrder getByteOrder() {
+        return mByteOrder;
+    }
+
+    public int getCellOrder() {
+        return mCellOrder;
+    }
+
+    /**
+     * 一个掩码最多占用的字节数, 用来分配缓冲.
+     */
+    public int maxEncodedSize(int columns, int rows) {
+        long cells = (long) columns * rows;
+        if (FORMAT_PACKED_BITS == mFormat) {
+            return (int) (HEADER_SIZE + 4 * ((cells + 31) / 32));
+        }
+        return (int) (HEADER_SIZE + 2 * (cells + 1 + 2 * (cells / MAX_RUN + 1)));
+    }
+
+    /**
+     * 写入 {@link LabelGrid} 中所有多边形的掩码, label 为多边形下标.
+     */
+    public void encode(LabelGrid grid, ByteBuffer out) {
+        for (int i = 0; i < grid.getPolygonCount(); i++) {
+            encode(grid.mask(i), grid.getColumns(), grid.getRows(), i, out);
+        }
+    }
+
+    /**
+     * @param cells 下标为 col + row * columns
+     */
+    public void encode(BitSet cells, int columns, int rows, int label, ByteBuffer out) {
+        mBitSetCells.mBits = cells;
+        try {
+            encode(mBitSetCells, columns, rows, label, out);
+        } finally {
+            mBitSetCells.mBits = null;
+        }
+    }
+
+    /**
+     * 从 out 的当前位置写入, out 的字节序会被设置为编码器的字节序.
+     *
+     * @param label: 调用方自定义, 例如多边形下标, 0 - 65535
+     * @throws java.nio.BufferOverflowException 剩余空间不足, 可用 {@link #maxEncodedSize} 预估
+     */
+    public void encode(CellSet cells, int columns, int rows, int label, ByteBuffer out) {
+        if (columns < 0 || columns > 0xFFFF || rows < 0 || rows > 0xFFFF || label < 0 || label > 0xFFFF) {
+            throw new IllegalArgumentException("Grid " + columns + "x" + rows + " or label " + label + " out of range");
+        }
+        out.order(mByteOrder);
+        int start = out.position();
+        out.put((byte) mFormat);
+        int flags = (ORDER_COLUMN_MAJOR == mCellOrder ? FLAG_COLUMN_MAJOR : 0)
+                | (ByteOrder.BIG_ENDIAN == mByteOrder ? FLAG_BIG_ENDIAN : 0);
+        out.put((byte) flags);
+        out.putShort((short) columns);
+        out.putShort((short) rows);
+        out.putShort((short) label);
+        int lengthPosition = out.position();
+        out.putInt(0);
+        if (FORMAT_PACKED_BITS == mFormat) {
+            encodePacked(cells, columns, rows, out);
+        } else {
+            encodeRuns(cells, columns, rows, out);
+        }
+        out.putInt(lengthPosition, out.position() - start - HEADER_SIZE);
+    }
+
+    private void encodePacked(CellSet cells, int columns, int rows, ByteBuffer out) {
+        int count = columns * rows;
+        int word = 0;
+        int bit = 0;
+        for (int t = 0; t < count; t++) {
+            if (cells.contains(cellAt(t, columns, rows))) {
+                word |= 1 << bit;
+            }
+            if (++bit == 32) {
+                out.putInt(word);
+                word = 0;
+                bit = 0;
+            }
+        }
+        if (bit > 0) {
+            out.putInt(word);
+        }
+    }
+
+    private void encodeRuns(CellSet cells, int columns, int rows, ByteBuffer out) {
+        int count = columns * rows;
+        boolean value = false;
+        int run = 0;
+        for (int t = 0; t < count; t++) {
+            if (cells.contains(cellAt(t, columns, rows)) != value) {
+                putRun(run, out);
+                value = !value;
+                run = 0;
+            }
+            run++;
+        }
+        putRun(run, out);
+    }
+
+    private static void putRun(int run, ByteBuffer out) {
+        while (run > MAX_RUN) {
+            out.putShort((short) MAX_RUN);
+            out.putShort((short) 0);
+            run -= MAX_RUN;
+        }
+        out.putShort((short) run);
+    }
+
+    private int cellAt(int t, int columns, int rows) {
+        if (ORDER_ROW_MAJOR == mCellOrder) {
+            return t;
+        }
+        return t / rows + (t % rows) * columns;
+    }
+
+    private static class BitSetCells implements CellSet {
+        BitSet mBits;
+
+        @Override
+        public boolean contains(int cell) {
+            return mBits.get(cell);
+        }
+    }
+}
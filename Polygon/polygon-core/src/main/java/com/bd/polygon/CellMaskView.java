@@ -0,0 +1,196 @@
+package com.bd.polygon;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.BitSet;
+
+/**
+ * 栅格掩码的零拷贝读取
+ * <p>
+ * Reads one mask written by {@link CellMaskEncoder} in place: {@link #wrap(ByteBuffer)} parses the fixed
+ * header and checks that run lengths add up to the grid, the payload is read directly from the buffer
+ * when queried. Cell indexes are always
+ * {@code col + row * columns}, whatever order the mask was written in.
+ * <p>
+ * The view can be reused for the next mask by calling {@link #wrap(ByteBuffer)} again.
+ *
+ * @author agent
+ */
+public class CellMaskView implements CellSet {
+
+    private ByteBuffer mBuffer;
+    private int mPayload;
+    private int mLength;
+    private int mFormat;
+    private boolean mColumnMajor;
+    private int mColumns;
+    private int mRows;
+    private int mLabel;
+
+    /**
+     * 读取 in 当前位置的掩码, in 的位置移动到下一个掩码; 数据不会被复制.
+     *
+     * @throws IllegalArgumentException 格式不认识或数据不完整
+     */
+    public CellMaskView wrap(ByteBuffer in) {
+        if (in.remaining() < CellMaskEncoder.HEADER_SIZE) {
+            throw new IllegalArgumentException("Truncated mask header");
+        }
+        int start = in.position();
+        int format = in.get(start);
+        int flags = in.get(start + 1);
+        if (CellMaskEncoder.FORMAT_PACKED_BITS != format && CellMaskEncoder.FORMAT_RUN_LENGTH != format) {
+            throw new IllegalArgumentException("Unknown format " + format);
+        }
+        ByteBuffer buffer = in.duplicate();
+        buffer.order((flags & CellMaskEncoder.FLAG_BIG_ENDIAN) != 0 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+        int columns = buffer.getShort(start + 2) & 0xFFFF;
+        int rows = buffer.getShort(start + 4) & 0xFFFF;
+        int label = buffer.getShort(start + 6) & 0xFFFF;
+        int length = buffer.getInt(start + 8);
+        if (length < 0 || length > in.remaining() - CellMaskEncoder.HEADER_SIZE) {
+            throw new IllegalArgumentException("Truncated mask payload");
+        }
+        if (CellMaskEncoder.FORMAT_PACKED_BITS == format && length < 4 * ((columns * rows + 31) / 32)) {
+            throw new IllegalArgumentException("Packed payload too short");
+        }
+        if (CellMaskEncoder.FORMAT_RUN_LENGTH == format) {
+            checkRuns(buffer, start + CellMaskEncoder.HEADER_SIZE, length, columns * rows);
+        }
+        mBuffer = buffer;
+        mFormat = format;
+        mColumnMajor = (flags & CellMaskEncoder.FLAG_COLUMN_MAJOR) != 0;
+        mColumns = columns;
+        mRows = rows;
+        mLabel = label;
+        mPayload = start + CellMaskEncoder.HEADER_SIZE;
+        mLength = length;
+        in.position(mPayload + length);
+        return this;
+    }
+
+    private static void checkRuns(ByteBuffer buffer, int payload, int length, int cells) {
+        if ((length & 1) != 0) {
+            throw new IllegalArgumentException("Odd run length payload: " + length + " bytes");
+        }
+        long total = 0;
+        for (int p = payload; p < payload + length; p += 2) {
+            total += buffer.getShort(p) & 0xFFFF;
+        }
+        if (total != cells) {
+            throw new IllegalArgumentException("Runs cover " + total + " of " + cells + " cells");
+        }
+    }
+
+    public int getFormat() {
+        return mFormat;
+    }
+
+    public int getColumns() {
+        return mColumns;
+    }
+
+    public int getRows() {
+        return mRows;
+    }
+
+    public int getLabel() {
+        return mLabel;
+    }
+
+    /**
+     * @param cell: col + row * columns
+     */
+    @Override
+    public boolean contains(int cell) {
+        int t = traversalIndex(cell);
+        if (CellMaskEncoder.FORMAT_PACKED_BITS == mFormat) {
+            return (mBuffer.getInt(mPayload + (t >>> 5) * 4) >>> (t & 31) & 1) != 0;
+        }
+        boolean value = false;
+        int end = 0;
+        for (int p = mPayload; p < mPayload + mLength; p += 2) {
+            end += mBuffer.getShort(p) & 0xFFFF;
+            if (t < end) {
+                return value;
+            }
+            value = !value;
+        }
+        return false;
+    }
+
+    public boolean contains(int col, int row) {
+        return contains(col + row * mColumns);
+    }
+
+    public int count() {
+        int count = 0;
+        if (CellMaskEncoder.FORMAT_PACKED_BITS == mFormat) {
+            int words = (mColumns * mRows + 31) / 32;
+            for (int i = 0; i < words; i++) {
+                count += Integer.bitCount(mBuffer.getInt(mPayload + i * 4));
+            }
+            return count;
+        }
+        boolean value = false;
+        for (int p = mPayload; p < mPayload + mLength; p += 2) {
+            if (value) {
+                count += mBuffer.getShort(p) & 0xFFFF;
+            }
+            value = !value;
+        }
+        return count;
+    }
+
+    /**
+     * @param out 调用前清空, 下标为 col + row * columns
+     */
+    public void copyTo(BitSet out) {
+        out.clear();
+        int cells = mColumns * mRows;
+        if (CellMaskEncoder.FORMAT_PACKED_BITS == mFormat) {
+            int words = (cells + 31) / 32;
+            for (int i = 0; i < words; i++) {
+                int word = mBuffer.getInt(mPayload + i * 4);
+                while (word != 0) {
+                    int t = i * 32 + Integer.numberOfTrailingZeros(word);
+                    if (t < cells) {
+                        out.set(cellAt(t));
+                    }
+                    word &= word - 1;
+                }
+            }
+            return;
+        }
+        boolean value = false;
+        int t = 0;
+        for (int p = mPayload; p < mPayload + mLength; p += 2) {
+            int run = mBuffer.getShort(p) & 0xFFFF;
+            if (value) {
+                if (mColumnMajor) {
+                    for (int i = t; i < t + run; i++) {
+                        out.set(cellAt(i));
+                    }
+                } else {
+                    out.set(t, t + run);
+                }
+            }
+            t += run;
+            value = !value;
+        }
+    }
+
+    private int traversalIndex(int cell) {
+        if (!mColumnMajor) {
+            return cell;
+        }
+        return cell / mColumns + (cell % mColumns) * mRows;
+    }
+
+    private int cellAt(int t) {
+        if (!mColumnMajor) {
+            return t;
+        }
+        return t / mRows + (t % mRows) * mColumns;
+    }
+}
@@ -0,0 +1,13 @@
+package com.bd.polygon;
+
+/**
+ * 栅格集合
+ * <p>
+ * Read access to a set of cells of a M x N grid, cell index is {@code col + row * M}.
+ *
+ * @author agent
+ */
+public interface CellSet {
+
+    boolean contains(int cell);
+}
@@ -0,0 +1,171 @@
+package com.bd.polygon;
+
+import java.util.BitSet;
+
+/**
+ * 圆 (实心圆盘) 的栅格化
+ * <p>
+ * A circle is stored as a two point {@link Polygon}: point 0 is the center, point 1 a point on the
+ * rim. The radius is therefore given exactly by its square, {@code dx * dx + dy * dy}, and every test
+ * here is done in integer arithmetic.
+ * <p>
+ * Cells follow the rule of {@link GridRasterizer}: a cell is covered when the open disc and the cell
+ * interior share a positive area. For each row band the widest chord is found at the y closest to the
+ * center, which gives the half width {@code w} with {@code w * w = r2 - dy * dy}; the column range
+ * is then one span per row, fixed up with exact {@code d * d < w * w} comparisons.
+ *
+ * @author agent
+ */
+public final class DiscRasterizer {
+
+    private DiscRasterizer() {
+    }
+
+    /**
+     * @return 半径的平方; 不是圆 (顶点数不为 2) 时为 0
+     */
+    public static long radiusSquared(ReadablePolygon circle) {
+        if (2 != circle.size()) {
+            return 0;
+        }
+        long dx = circle.getX(1) - circle.getX(0);
+        long dy = circle.getY(1) - circle.getY(0);
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * 点在圆内或圆上, 用于命中测试.
+     */
+    public static boolean contains(int centerX, int centerY, long radiusSquared, int x, int y) {
+        long dx = x - centerX;
+        long dy = y - centerY;
+        return dx * dx + dy * dy <= radiusSquared;
+    }
+
+    /**
+     * 外接矩形 left, top, right, bottom 写入 out, 向外取整.
+     */
+    public static void getBounds(ReadablePolygon circle, int[] out) {
+        if (2 != circle.size()) {
+            out[0] = out[1] = out[2] = out[3] = 0;
+            return;
+        }
+        int radius = (int) Math.ceil(Math.sqrt(radiusSquared(circle)));
+        out[0] = circle.getX(0) - radius;
+        out[1] = circle.getY(0) - radius;
+        out[2] = circle.getX(0) + radius;
+        out[3] = circle.getY(0) + radius;
+    }
+
+    /**
+     * 栅格化两点表示的圆, 不是圆时不输出.
+     *
+     * @param M:    水平栅格数
+     * @param rows: 垂直栅格数, {@link Integer#MAX_VALUE} 表示不限制
+     * @param m:    x 比值 (cell width in px)
+     * @param n     y 比值 (cell height in px)
+     */
+    public static void rasterize(ReadablePolygon circle, int M, int rows, int m, int n, GridRasterizer.SpanSink sink) {
+        if (2 == circle.size()) {
+            rasterize(circle.getX(0), circle.getY(0), radiusSquared(circle), M, rows, m, n, 0, 0, M - 1, rows - 1, sink);
+        }
+    }
+
+    /**
+     * Bits are added, {@code out} is not cleared. 下标为 col + row * M
+     */
+    public static void rasterize(ReadablePolygon circle, int M, int rows, int m, int n, BitSet out) {
+        rasterize(circle, M, rows, m, n, new BitSetSink(out, M));
+    }
+
+    /**
+     * 只输出 [fromCol, toCol] x [fromRow, toRow] (含) 范围内的栅格.
+     */
+    public static void rasterize(int centerX, int centerY, long radiusSquared, int M, int rows, int m, int n,
+                                 int fromCol, int fromRow, int toCol, int toRow, GridRasterizer.SpanSink sink) {
+        if (radiusSquared <= 0 || M <= 0 || rows <= 0 || m <= 0 || n <= 0) {
+            return;
+        }
+        fromCol = Math.max(fromCol, 0);
+        toCol = Math.min(toCol, M - 1);
+        if (fromCol > toCol) {
+            return;
+        }
+        long radius = ceilSqrt(radiusSquared);
+        int firstRow = (int) Math.max(Math.max(0, fromRow), floorDiv(centerY - radius, n));
+        int lastRow = (int) Math.min(Math.min(rows - 1, toRow), ceilDiv(centerY + radius, n) - 1);
+        for (int row = firstRow; row <= lastRow; row++) {
+            long top = (long) row * n;
+            long bottom = top + n;
+            // 本行离圆心最近的 y
+            long dy = centerY < top ? top - centerY : centerY > bottom ? centerY - bottom : 0;
+            long halfWidth2 = radiusSquared - dy * dy;
+            if (halfWidth2 <= 0) {
+                continue;
+            }
+            long halfWidth = (long) Math.sqrt(halfWidth2);
+            // 最右: col * m - cx < w
+            long right = floorDiv(centerX + halfWidth, m);
+            while (!lessThanHalfWidth(right * m - centerX, halfWidth2)) {
+                right--;
+            }
+            while (lessThanHalfWidth((right + 1) * m - centerX, halfWidth2)) {
+                right++;
+            }
+            // 最左: cx - (col + 1) * m < w
+            long left = floorDiv(centerX - halfWidth, m);
+            while (!lessThanHalfWidth(centerX - (left + 1) * m, halfWidth2)) {
+                left++;
+            }
+            while (lessThanHalfWidth(centerX - left * m, halfWidth2)) {
+                left--;
+            }
+            left = Math.max(left, fromCol);
+            right = Math.min(right, toCol);
+            if (left <= right) {
+                sink.span(row, (int) left, (int) right);
+            }
+        }
+    }
+
+    // d < w, w * w == halfWidth2
+    private static boolean lessThanHalfWidth(long d, long halfWidth2) {
+        return d < 0 || d * d < halfWidth2;
+    }
+
+    private static long ceilSqrt(long value) {
+        long root = (long) Math.sqrt(value);
+        while (root * root < value) {
+            root++;
+        }
+        while (root > 0 && (root - 1) * (root - 1) >= value) {
+            root--;
+        }
+        return root;
+    }
+
+    private static long floorDiv(long a, long b) {
+        long q = a / b;
+        return (a % b != 0 && (a < 0) != (b < 0)) ? q - 1 : q;
+    }
+
+    private static long ceilDiv(long a, long b) {
+        return -floorDiv(-a, b);
+    }
+
+    private static class BitSetSink implements GridRasterizer.SpanSink {
+        private final BitSet mOut;
+        private final int mColumns;
+
+        BitSetSink(BitSet out, int columns) {
+            mOut = out;
+            mColumns = columns;
+        }
+
+        @Override
+        public void span(int row, int fromCol, int toCol) {
+            int base = row * mColumns;
+            mOut.set(base + fromCol, base + toCol + 1);
+        }
+    }
+}
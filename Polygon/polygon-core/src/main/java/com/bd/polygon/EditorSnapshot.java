@@ -0,0 +1,113 @@
+package com.bd.polygon;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 所有窗口的不可变快照
+ * <p>
+ * The shape and one {@link PolygonSnapshot} per polygon, taken together on the editing thread so the
+ * zones are consistent with each other. Polygons that did not change since the previous snapshot share
+ * their snapshot object, so taking one while the user drags a single window copies only that window.
+ * <p>
+ * Nothing here is mutable: rasterization ({@link #toLabelGrid}), encoding and persistence
+ * ({@link PolygonCodec#write(EditorSnapshot, java.io.File)}) can run on any thread.
+ *
+ * @author agent
+ */
+public final class EditorSnapshot {
+
+    private final Shape mShape;
+    private final List<PolygonSnapshot> mPolygons;
+
+    public EditorSnapshot(Shape shape, List<PolygonSnapshot> polygons) {
+        if (null == shape || null == polygons) {
+            throw new IllegalArgumentException("shape and polygons must not be null");
+        }
+        mShape = shape;
+        mPolygons = Collections.unmodifiableList(new ArrayList<PolygonSnapshot>(polygons));
+    }
+
+    /**
+     * 对每个多边形调用 {@link Polygon#snapshot()}, 需要在修改多边形的线程调用.
+     */
+    public static EditorSnapshot of(Shape shape, List<Polygon> polygons) {
+        List<PolygonSnapshot> snapshots = new ArrayList<PolygonSnapshot>(polygons.size());
+        for (int i = 0; i < polygons.size(); i++) {
+            snapshots.add(polygons.get(i).snapshot());
+        }
+        return new EditorSnapshot(shape, snapshots);
+    }
+
+    public Shape getShape() {
+        return mShape;
+    }
+
+    /**
+     * @return 不可修改的列表
+     */
+    public List<PolygonSnapshot> getPolygons() {
+        return mPolygons;
+    }
+
+    public int getPolygonCount() {
+        return mPolygons.size();
+    }
+
+    public PolygonSnapshot getPolygon(int index) {
+        return mPolygons.get(index);
+    }
+
+    /**
+     * 两次快照之间没有任何窗口变化, 只比较引用, 不比较顶点.
+     */
+    public boolean isSameAs(EditorSnapshot other) {
+        if (this == other) {
+            return true;
+        }
+        if (null == other || mShape != other.mShape || mPolygons.size() != other.mPolygons.size()) {
+            return false;
+        }
+        for (int i = 0; i < mPolygons.size(); i++) {
+            if (mPolygons.get(i) != other.mPolygons.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 一次栅格化所有窗口, 与 PolygonView#toLabelGrid 的结果一致. 圆按 {@link DiscRasterizer} 栅格化.
+     *
+     * @param rasterizer: 调用线程自己的栅格化器
+     * @param M:          水平栅格数
+     * @param N:          垂直栅格数
+     * @param m:          x 比值
+     * @param n           y 比值
+     * @param out         复用的标签栅格, 使用它当前的模式
+     */
+    public void toLabelGrid(GridRasterizer rasterizer, int M, int N, int m, int n, LabelGrid out) {
+        out.reset(M, N, out.getMode());
+        for (int i = 0; i < mPolygons.size(); i++) {
+            out.beginPolygon(i);
+            if (Shape.CIRCLE == mShape) {
+                DiscRasterizer.rasterize(mPolygons.get(i), M, N, m, n, out);
+            } else {
+                mPolygons.get(i).rasterize(rasterizer, M, N, m, n, out);
+            }
+        }
+        out.endPolygons(mPolygons.size());
+    }
+
+    /**
+     * 还原为可编辑的状态, 每个多边形都是新的对象.
+     */
+    public EditorState toEditorState() {
+        List<Polygon> polygons = new ArrayList<Polygon>(mPolygons.size());
+        for (int i = 0; i < mPolygons.size(); i++) {
+            polygons.add(new Polygon(mPolygons.get(i)));
+        }
+        return new EditorState(mShape, polygons);
+    }
+}
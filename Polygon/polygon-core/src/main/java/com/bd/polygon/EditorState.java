@@ -0,0 +1,68 @@
+package com.bd.polygon;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 编辑器状态
+ * <p>
+ * Everything needed to bring the editor back: the shape and all polygons with their vertices, state
+ * and colors. Read and written by {@link PolygonCodec}.
+ * <p>
+ * Circles carry their own center (see {@link DiscRasterizer}); the center fields only hold the circle
+ * center shared by all circles in files written before that, and are 0 otherwise.
+ *
+ * @author agent
+ */
+public class EditorState {
+
+    private final Shape mShape;
+    private final float mCenterX;
+    private final float mCenterY;
+    private final List<Polygon> mPolygons;
+
+    public EditorState(Shape shape, List<Polygon> polygons) {
+        this(shape, 0, 0, polygons);
+    }
+
+    /**
+     * @param centerX: 旧版本共用的圆心
+     * @param centerY: 旧版本共用的圆心
+     */
+    public EditorState(Shape shape, float centerX, float centerY, List<Polygon> polygons) {
+        if (null == shape || null == polygons) {
+            throw new IllegalArgumentException("shape and polygons must not be null");
+        }
+        mShape = shape;
+        mCenterX = centerX;
+        mCenterY = centerY;
+        mPolygons = new ArrayList<Polygon>(polygons);
+    }
+
+    public Shape getShape() {
+        return mShape;
+    }
+
+    public float getCenterX() {
+        return mCenterX;
+    }
+
+    public float getCenterY() {
+        return mCenterY;
+    }
+
+    /**
+     * @return 多边形列表的拷贝, 多边形本身是共享的
+     */
+    public List<Polygon> getPolygons() {
+        return new ArrayList<Polygon>(mPolygons);
+    }
+
+    public int getPolygonCount() {
+        return mPolygons.size();
+    }
+
+    public Polygon getPolygon(int index) {
+        return mPolygons.get(index);
+    }
+}
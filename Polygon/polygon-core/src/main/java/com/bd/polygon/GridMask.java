@@ -0,0 +1,165 @@
+package com.bd.polygon;
+
+import java.util.BitSet;
+
+/**
+ * 增量维护的栅格掩码
+ * <p>
+ * Cell mask of one polygon on a fixed M x rows grid. The owner reports what changed
+ * ({@link #invalidateArea}, {@link #translate}, {@link #invalidateAll}) and the mask is brought up to
+ * date lazily by {@link #update}, which only re-rasterizes the cells inside the accumulated dirty area.
+ *
+ * @author agent
+ */
+public class GridMask {
+
+    private final int mColumns;
+    private final int mRows;
+    private final int mCellWidth;
+    private final int mCellHeight;
+
+    private final GridRasterizer mRasterizer = new GridRasterizer();
+    private BitSet mCells = new BitSet();
+    private BitSet mScratch = new BitSet();
+
+    // 需要整体重建
+    private boolean mFull = true;
+    // 待重建的栅格范围 (含), mDirtyFromCol > mDirtyToCol 表示没有
+    private int mDirtyFromCol;
+    private int mDirtyFromRow;
+    private int mDirtyToCol = -1;
+    private int mDirtyToRow = -1;
+
+    /**
+     * @param M:    水平栅格数
+     * @param rows: 垂直栅格数
+     * @param m:    x 比值
+     * @param n     y 比值
+     */
+    public GridMask(int M, int rows, int m, int n) {
+        if (M <= 0 || rows <= 0 || m <= 0 || n <= 0) {
+            throw new IllegalArgumentException("Invalid grid " + M + "x" + rows + ", cell " + m + "x" + n);
+        }
+        mColumns = M;
+        mRows = rows;
+        mCellWidth = m;
+        mCellHeight = n;
+    }
+
+    public int getColumns() {
+        return mColumns;
+    }
+
+    public int getRows() {
+        return mRows;
+    }
+
+    public int getCellWidth() {
+        return mCellWidth;
+    }
+
+    public int getCellHeight() {
+        return mCellHeight;
+    }
+
+    public void invalidateAll() {
+        mFull = true;
+    }
+
+    /**
+     * 标记 [left, right] x [top, bottom] (px) 内的栅格需要重建.
+     */
+    public void invalidateArea(int left, int top, int right, int bottom) {
+        if (mFull) {
+            return;
+        }
+        int fromCol = Math.max(0, GridRasterizer.floorDiv(left, mCellWidth));
+        int fromRow = Math.max(0, GridRasterizer.floorDiv(top, mCellHeight));
+        int toCol = Math.min(mColumns - 1, GridRasterizer.floorDiv(right, mCellWidth));
+        int toRow = Math.min(mRows - 1, GridRasterizer.floorDiv(bottom, mCellHeight));
+        if (fromCol > toCol || fromRow > toRow) {
+            return;
+        }
+        if (mDirtyFromCol > mDirtyToCol) {
+            mDirtyFromCol = fromCol;
+            mDirtyFromRow = fromRow;
+            mDirtyToCol = toCol;
+            mDirtyToRow = toRow;
+        } else {
+            mDirtyFromCol = Math.min(mDirtyFromCol, fromCol);
+            mDirtyFromRow = Math.min(mDirtyFromRow, fromRow);
+            mDirtyToCol = Math.max(mDirtyToCol, toCol);
+            mDirtyToRow = Math.max(mDirtyToRow, toRow);
+        }
+    }
+
+    /**
+     * 整体平移. 掩码是最新的、平移量是整数个栅格且平移前后都在栅格范围内时直接移动掩码,
+     * 否则标记为整体重建.
+     *
+     * @param bounds 平移前的外接矩形 left, top, right, bottom
+     */
+    public void translate(int dX, int dY, int[] bounds) {
+        if (mFull || mDirtyFromCol <= mDirtyToCol || dX % mCellWidth != 0 || dY % mCellHeight != 0
+                || !inside(bounds[0], bounds[1], bounds[2], bounds[3])
+                || !inside(bounds[0] + dX, bounds[1] + dY, bounds[2] + dX, bounds[3] + dY)) {
+            mFull = true;
+            return;
+        }
+        int shift = dX / mCellWidth + dY / mCellHeight * mColumns;
+        if (0 == shift) {
+            return;
+        }
+        mScratch.clear();
+        for (int i = mCells.nextSetBit(0); i >= 0; i = mCells.nextSetBit(i + 1)) {
+            mScratch.set(i + shift);
+        }
+        BitSet cells = mCells;
+        mCells = mScratch;
+        mScratch = cells;
+    }
+
+    private boolean inside(int left, int top, int right, int bottom) {
+        return left >= 0 && top >= 0 && right <= mColumns * mCellWidth && bottom <= mRows * mCellHeight;
+    }
+
+    /**
+     * 应用所有待处理的修改.
+     *
+     * @param bounds 当前外接矩形, count 为 0 时不使用
+     * @return 最新的掩码, 下标为 col + row * M; 返回的是内部对象, 不要修改
+     */
+    public BitSet update(int[] xs, int[] ys, int count, int[] bounds) {
+        if (mFull || count < 3) {
+            mCells.clear();
+            if (count >= 3) {
+                mRasterizer.rasterize(xs, ys, count, mColumns, mRows, mCellWidth, mCellHeight, mCells);
+            } else if (count > 0) {
+                mRasterizer.rasterizeBounds(bounds, mColumns, mRows, mCellWidth, mCellHeight, mCells);
+            }
+        } else if (mDirtyFromCol <= mDirtyToCol) {
+            for (int row = mDirtyFromRow; row <= mDirtyToRow; row++) {
+                mCells.clear(row * mColumns + mDirtyFromCol, row * mColumns + mDirtyToCol + 1);
+            }
+            mSink.mOut = mCells;
+            mRasterizer.rasterize(xs, ys, count, mColumns, mRows, mCellWidth, mCellHeight,
+                    mDirtyFromCol, mDirtyFromRow, mDirtyToCol, mDirtyToRow, mSink);
+            mSink.mOut = null;
+        }
+        mFull = false;
+        mDirtyToCol = -1;
+        mDirtyFromCol = 0;
+        return mCells;
+    }
+
+    private final CellSink mSink = new CellSink();
+
+    private class CellSink implements GridRasterizer.SpanSink {
+        BitSet mOut;
+
+        @Override
+        public void span(int row, int fromCol, int toCol) {
+            mOut.set(row * mColumns + fromCol, row * mColumns + toCol + 1);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.bd.polygon;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.Executor;
+
+/**
+ * 后台计算实时栅格预览
+ * <p>
+ * Rasterizes {@link PolygonSnapshot}s on an {@link Executor} so the editing thread never waits for a
+ * grid mask. Every polygon has one slot holding the latest requested snapshot, at most one running job
+ * and the latest completed mask:
+ * <ul>
+ * <li>a request made while a job of the same polygon is running only replaces the pending snapshot,
+ * so there is never more than one job in flight per polygon and intermediate versions are skipped;</li>
+ * <li>a running job whose snapshot has been replaced or cancelled gives up at the next span it is
+ * handed, so it costs at most one more row; its partial result is dropped and the job picks up the
+ * newest snapshot instead of returning to the executor;</li>
+ * <li>requesting the snapshot already requested is a no-op, so it is cheap to call on every frame.</li>
+ * </ul>
+ * The {@link Listener} is told on the worker thread when a new mask is ready; read it with
+ * {@link #copyMask(int, BitSet)} from any thread.
+ *
+ * @author agent
+ */
+public class GridPreviewScheduler {
+
+    public interface Listener {
+        /**
+         * 在工作线程调用, 不要在这里做耗时操作.
+         */
+        void onPreviewReady(int polygonIndex);
+    }
+
+    private final Executor mExecutor;
+    private final Listener mListener;
+
+    // 栅格参数 M, N, m, n
+    private final int[] mGrid = new int[4];
+
+    private Slot[] mSlots = new Slot[0];
+
+    public GridPreviewScheduler(Executor executor, Listener listener) {
+        if (null == executor || null == listener) {
+            throw new IllegalArgumentException("executor and listener must not be null");
+        }
+        mExecutor = executor;
+        mListener = listener;
+    }
+
+    /**
+     * 设置栅格, 参数变化时丢弃所有结果和未完成的任务.
+     *
+     * @param M: 水平栅格数
+     * @param N: 垂直栅格数
+     * @param m: x 比值
+     * @param n  y 比值
+     */
+    public synchronized void setGrid(int M, int N, int m, int n) {
+        if (M <= 0 || N <= 0 || m <= 0 || n <= 0) {
+            throw new IllegalArgumentException("Invalid grid " + M + "x" + N + ", cell " + m + "x" + n);
+        }
+        if (mGrid[0] == M && mGrid[1] == N && mGrid[2] == m && mGrid[3] == n) {
+            return;
+        }
+        mGrid[0] = M;
+        mGrid[1] = N;
+        mGrid[2] = m;
+        mGrid[3] = n;
+        cancelAll();
+    }
+
+    /**
+     * 请求计算 polygon 的栅格掩码; 同一个多边形已经有任务在运行时只替换待计算的快照.
+     *
+     * @param polygonIndex: 多边形下标
+     * @param shape:        为 {@link Shape#CIRCLE} 时按圆栅格化
+     */
+    public synchronized void request(int polygonIndex, Shape shape, PolygonSnapshot polygon) {
+        if (0 == mGrid[0]) {
+            throw new IllegalStateException("setGrid() has not been called");
+        }
+        Slot slot = slot(polygonIndex);
+        Request requested = slot.mRequested;
+        if (null != requested && requested.mPolygon == polygon && requested.mShape == shape) {
+            return;
+        }
+        slot.mRequested = new Request(shape, polygon, mGrid[0], mGrid[1], mGrid[2], mGrid[3]);
+        if (slot.mRunning) {
+            // 正在运行的任务会在结束后取走新的快照
+            slot.mStale = true;
+            return;
+        }
+        slot.mRunning = true;
+        try {
+            mExecutor.execute(slot);
+        } catch (RuntimeException e) {
+            slot.mRunning = false;
+            slot.mRequested = null;
+            throw e;
+        }
+    }
+
+    /**
+     * 取消未完成的任务并丢弃结果, 例如窗口被删除.
+     */
+    public synchronized void cancel(int polygonIndex) {
+        if (polygonIndex < mSlots.length && null != mSlots[polygonIndex]) {
+            Slot slot = mSlots[polygonIndex];
+            slot.mRequested = null;
+            slot.mStale = true;
+            slot.mResultRequest = null;
+            slot.mResult.clear();
+        }
+    }
+
+    public synchronized void cancelAll() {
+        for (int i = 0; i < mSlots.length; i++) {
+            cancel(i);
+        }
+    }
+
+    /**
+     * 最近一次完成的掩码, 下标为 col + row * M.
+     *
+     * @return 还没有结果时返回 -1 并清空 out, 否则返回结果对应的多边形版本号
+     */
+    public synchronized int copyMask(int polygonIndex, BitSet out) {
+        out.clear();
+        if (polygonIndex >= mSlots.length || null == mSlots[polygonIndex]
+                || null == mSlots[polygonIndex].mResultRequest) {
+            return -1;
+        }
+        Slot slot = mSlots[polygonIndex];
+        out.or(slot.mResult);
+        return slot.mResultRequest.mPolygon.getVersion();
+    }
+
+    /**
+     * 是否还有任务在运行或等待运行.
+     */
+    public synchronized boolean isBusy(int polygonIndex) {
+        return polygonIndex < mSlots.length && null != mSlots[polygonIndex] && mSlots[polygonIndex].mRunning;
+    }
+
+    private Slot slot(int polygonIndex) {
+        if (polygonIndex < 0) {
+            throw new IndexOutOfBoundsException("Invalid polygon " + polygonIndex);
+        }
+        if (polygonIndex >= mSlots.length) {
+            mSlots = Arrays.copyOf(mSlots, Math.max(polygonIndex + 1, mSlots.length * 2));
+        }
+        if (null == mSlots[polygonIndex]) {
+            mSlots[polygonIndex] = new Slot(polygonIndex);
+        }
+        return mSlots[polygonIndex];
+    }
+
+    /**
+     * 中止已过期的栅格化, 不带调用栈, 可以复用.
+     */
+    private static final class Superseded extends RuntimeException {
+        static final Superseded INSTANCE = new Superseded();
+
+        private Superseded() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final class Request {
+        final Shape mShape;
+        final PolygonSnapshot mPolygon;
+        final int mColumns;
+        final int mRows;
+        final int mCellWidth;
+        final int mCellHeight;
+
+        Request(Shape shape, PolygonSnapshot polygon, int columns, int rows, int cellWidth, int cellHeight) {
+            mShape = shape;
+            mPolygon = polygon;
+            mColumns = columns;
+            mRows = rows;
+            mCellWidth = cellWidth;
+            mCellHeight = cellHeight;
+        }
+    }
+
+    /**
+     * 一个多边形的任务, 同一时间最多在一个线程上运行, 所以栅格化器和缓冲可以复用.
+     */
+    private final class Slot implements Runnable, GridRasterizer.SpanSink {
+        final int mIndex;
+
+        // 以下由 GridPreviewScheduler.this 保护
+        Request mRequested;
+        Request mResultRequest;
+        BitSet mResult = new BitSet();
+        boolean mRunning;
+
+        // 只在运行的任务中使用
+        final GridRasterizer mRasterizer = new GridRasterizer();
+        BitSet mWorking = new BitSet();
+        Request mCurrent;
+        volatile boolean mStale;
+
+        Slot(int index) {
+            mIndex = index;
+        }
+
+        @Override
+        public void run() {
+            boolean finished = false;
+            try {
+                runPending();
+                finished = true;
+            } finally {
+                if (!finished) {
+                    // 异常退出时也要能接受新的请求
+                    synchronized (GridPreviewScheduler.this) {
+                        mRequested = null;
+                        mRunning = false;
+                    }
+                }
+            }
+        }
+
+        private void runPending() {
+            while (true) {
+                synchronized (GridPreviewScheduler.this) {
+                    if (null == mRequested || mRequested == mResultRequest) {
+                        mRunning = false;
+                        return;
+                    }
+                    mCurrent = mRequested;
+                    mStale = false;
+                }
+                mWorking.clear();
+                try {
+                    if (Shape.CIRCLE == mCurrent.mShape) {
+                        DiscRasterizer.rasterize(mCurrent.mPolygon, mCurrent.mColumns, mCurrent.mRows,
+                                mCurrent.mCellWidth, mCurrent.mCellHeight, this);
+                    } else {
+                        mCurrent.mPolygon.rasterize(mRasterizer, mCurrent.mColumns, mCurrent.mRows,
+                                mCurrent.mCellWidth, mCurrent.mCellHeight, this);
+                    }
+                } catch (Superseded e) {
+                    // 快照已被替换或取消, 直接取下一个
+                    continue;
+                }
+                boolean completed = false;
+                synchronized (GridPreviewScheduler.this) {
+                    if (mRequested == mCurrent) {
+                        BitSet result = mResult;
+                        mResult = mWorking;
+                        mWorking = result;
+                        mResultRequest = mCurrent;
+                        completed = true;
+                    }
+                }
+                if (completed) {
+                    mListener.onPreviewReady(mIndex);
+                }
+            }
+        }
+
+        @Override
+        public void span(int row, int fromCol, int toCol) {
+            if (mStale) {
+                // 栅格化器没有取消接口, 抛出以跳过剩下的行
+                throw Superseded.INSTANCE;
+            }
+            int base = row * mCurrent.mColumns;
+            mWorking.set(base + fromCol, base + toCol + 1);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.bd.polygon;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * 多边形栅格化（扫描线 + 边表，奇偶规则）
+ * <p>
+ * Marks every cell of a M x rows grid (cell size m x n px) that the polygon interior overlaps with a
+ * positive area. Cell index is {@code col + row * M}. Touching a cell only along its border does not
+ * mark it, so a polygon drawn exactly on grid lines covers exactly the enclosed cells.
+ * <p>
+ * Scratch buffers are kept between calls, an instance must not be shared between threads.
+ *
+ * @author agent
+ */
+public class GridRasterizer {
+
+    /**
+     * Receives the covered cells of one row as an inclusive column range.
+     * Spans of the same row never overlap and arrive with increasing columns.
+     */
+    public interface SpanSink {
+        void span(int row, int fromCol, int toCol);
+    }
+
+    // 边表: 上端点 y 较小
+    private double[] mTopX = new double[16];
+    private int[] mTopY = new int[16];
+    private double[] mBottomX = new double[16];
+    private int[] mBottomY = new int[16];
+    private long[] mSortKeys = new long[16];
+
+    // 活动边
+    private int[] mActive = new int[16];
+
+    // 当前行的交点 / 区间
+    private double[] mCrossings = new double[16];
+    private long[] mRanges = new long[16];
+
+    private final BitSetSink mBitSetSink = new BitSetSink();
+
+    /**
+     * Rasterizes the polygon into {@code out}. Bits are added, {@code out} is not cleared.
+     *
+     * @param M:    水平栅格数
+     * @param rows: 垂直栅格数, {@link Integer#MAX_VALUE} 表示不限制
+     * @param m:    x 比值 (cell width in px)
+     * @param n     y 比值 (cell height in px)
+     */
+    public void rasterize(int[] xs, int[] ys, int count, int M, int rows, int m, int n, BitSet out) {
+        mBitSetSink.mOut = out;
+        mBitSetSink.mColumns = M;
+        rasterize(xs, ys, count, M, rows, m, n, mBitSetSink);
+        mBitSetSink.mOut = null;
+    }
+
+    /**
+     * 外接矩形覆盖的栅格写入 {@code out}, 用于顶点不足三个的多边形 (如圆的编辑点).
+     * 退化为点/线时保留所在的栅格.
+     */
+    public void rasterizeBounds(int[] bounds, int M, int rows, int m, int n, BitSet out) {
+        mBitSetSink.mOut = out;
+        mBitSetSink.mColumns = M;
+        rasterizeBounds(bounds, M, rows, m, n, mBitSetSink);
+        mBitSetSink.mOut = null;
+    }
+
+    /**
+     * @param bounds: left, top, right, bottom
+     */
+    public void rasterizeBounds(int[] bounds, int M, int rows, int m, int n, SpanSink sink) {
+        if (M <= 0 || rows <= 0 || m <= 0 || n <= 0) {
+            return;
+        }
+        int fromCol = floorDiv(bounds[0], m);
+        int toCol = Math.max(fromCol, ceilDiv(bounds[2], m) - 1);
+        int fromRow = floorDiv(bounds[1], n);
+        int toRow = Math.max(fromRow, ceilDiv(bounds[3], n) - 1);
+        fromCol = Math.max(fromCol, 0);
+        toCol = Math.min(toCol, M - 1);
+        fromRow = Math.max(fromRow, 0);
+        toRow = Math.min(toRow, rows - 1);
+        if (fromCol > toCol) {
+            return;
+        }
+        for (int row = fromRow; row <= toRow; row++) {
+            sink.span(row, fromCol, toCol);
+        }
+    }
+
+    /**
+     * Rasterizes the polygon described by the first {@code count} entries of {@code xs}/{@code ys}
+     * and reports the covered cells row by row, top to bottom.
+     */
+    public void rasterize(int[] xs, int[] ys, int count, int M, int rows, int m, int n, SpanSink sink) {
+        rasterize(xs, ys, count, M, rows, m, n, 0, 0, M - 1, rows - 1, sink);
+    }
+
+    /**
+     * 只输出 [fromCol, toCol] x [fromRow, toRow] (含) 范围内的栅格, 用于局部重建.
+     */
+    public void rasterize(int[] xs, int[] ys, int count, int M, int rows, int m, int n,
+                          int fromCol, int fromRow, int toCol, int toRow, SpanSink sink) {
+        if (count < 3 || M <= 0 || rows <= 0 || m <= 0 || n <= 0) {
+            return;
+        }
+        fromCol = Math.max(fromCol, 0);
+        toCol = Math.min(toCol, M - 1);
+        if (fromCol > toCol) {
+            return;
+        }
+        int edgeCount = buildEdgeTable(xs, ys, count);
+
+        int minY = mTopY[(int) mSortKeys[0]];
+        int maxY = ys[0];
+        for (int i = 1; i < count; i++) {
+            maxY = maxY < ys[i] ? ys[i] : maxY;
+        }
+        int firstRow = Math.max(Math.max(0, fromRow), floorDiv(minY, n));
+        int lastRow = Math.min(Math.min(rows - 1, toRow), ceilDiv(maxY, n) - 1);
+
+        int next = 0;
+        int activeCount = 0;
+        for (int row = firstRow; row <= lastRow; row++) {
+            int top = Math.max(row * n, minY);
+            int bottom = Math.min((row + 1) * n, maxY);
+
+            // 加入上端点在本行之内的边, 移除已经结束的边
+            while (next < edgeCount && mTopY[(int) mSortKeys[next]] < bottom) {
+                mActive = ensure(mActive, activeCount + 1);
+                mActive[activeCount++] = (int) mSortKeys[next++];
+            }
+            int kept = 0;
+            for (int i = 0; i < activeCount; i++) {
+                int e = mActive[i];
+                if (mBottomY[e] > top) {
+                    mActive[kept++] = e;
+                }
+            }
+            activeCount = kept;
+
+            int rangeCount = 0;
+            // 1. 与本行有正长度交集的边 (水平边只在严格位于行内时计入)
+            for (int i = 0; i < activeCount; i++) {
+                int e = mActive[i];
+                double x0;
+                double x1;
+                if (mTopY[e] == mBottomY[e]) {
+                    if (mTopY[e] <= top || mTopY[e] >= bottom) {
+                        continue;
+                    }
+                    x0 = mTopX[e];
+                    x1 = mBottomX[e];
+                } else {
+                    int y0 = Math.max(top, mTopY[e]);
+                    int y1 = Math.min(bottom, mBottomY[e]);
+                    if (y0 >= y1) {
+                        continue;
+                    }
+                    x0 = xAt(e, y0);
+                    x1 = xAt(e, y1);
+                }
+                rangeCount = addRange(rangeCount, Math.min(x0, x1), Math.max(x0, x1), m, fromCol, toCol);
+            }
+            // 2. 行上沿向下延伸的内部区间, 行下沿向上延伸的内部区间
+            rangeCount = addSpans(rangeCount, activeCount, top, true, m, fromCol, toCol);
+            rangeCount = addSpans(rangeCount, activeCount, bottom, false, m, fromCol, toCol);
+
+            emitMerged(row, rangeCount, sink);
+        }
+    }
+
+    private int buildEdgeTable(int[] xs, int[] ys, int count) {
+        mTopX = ensure(mTopX, count);
+        mTopY = ensure(mTopY, count);
+        mBottomX = ensure(mBottomX, count);
+        mBottomY = ensure(mBottomY, count);
+        mSortKeys = ensure(mSortKeys, count);
+        for (int i = 0; i < count; i++) {
+            int j = i == count - 1 ? 0 : i + 1;
+            if (ys[i] <= ys[j]) {
+                mTopX[i] = xs[i];
+                mTopY[i] = ys[i];
+                mBottomX[i] = xs[j];
+                mBottomY[i] = ys[j];
+            } else {
+                mTopX[i] = xs[j];
+                mTopY[i] = ys[j];
+                mBottomX[i] = xs[i];
+                mBottomY[i] = ys[i];
+            }
+            // 高 32 位为上端点 y, 低 32 位为边下标, 排序后即为边表
+            mSortKeys[i] = ((long) mTopY[i] << 32) | i;
+        }
+        Arrays.sort(mSortKeys, 0, count);
+        return count;
+    }
+
+    private double xAt(int e, int y) {
+        if (y == mTopY[e]) {
+            return mTopX[e];
+        }
+        if (y == mBottomY[e]) {
+            return mBottomX[e];
+        }
+        return mTopX[e] + (mBottomX[e] - mTopX[e]) * (y - mTopY[e]) / (mBottomY[e] - mTopY[e]);
+    }
+
+    /**
+     * Even-odd spans on the scanline {@code y}. With {@code downward} the edges are taken as [top, bottom),
+     * which keeps the parts of the polygon lying below the line, otherwise as (top, bottom].
+     */
+    private int addSpans(int rangeCount, int activeCount, int y, boolean downward, int m, int minCol, int maxCol) {
+        int crossings = 0;
+        for (int i = 0; i < activeCount; i++) {
+            int e = mActive[i];
+            boolean hit = downward
+                    ? mTopY[e] <= y && y < mBottomY[e]
+                    : mTopY[e] < y && y <= mBottomY[e];
+            if (hit) {
+                mCrossings = ensure(mCrossings, crossings + 1);
+                mCrossings[crossings++] = xAt(e, y);
+            }
+        }
+        Arrays.sort(mCrossings, 0, crossings);
+        for (int i = 0; i + 1 < crossings; i += 2) {
+            rangeCount = addRange(rangeCount, mCrossings[i], mCrossings[i + 1], m, minCol, maxCol);
+        }
+        return rangeCount;
+    }
+
+    // [x0, x1] 转为列区间, 只落在格线上的零宽区间忽略
+    private int addRange(int rangeCount, double x0, double x1, int m, int minCol, int maxCol) {
+        int fromCol = (int) Math.floor(x0 / m);
+        int toCol = (int) Math.ceil(x1 / m) - 1;
+        if (toCol < fromCol) {
+            return rangeCount;
+        }
+        fromCol = Math.max(fromCol, minCol);
+        toCol = Math.min(toCol, maxCol);
+        if (fromCol > toCol) {
+            return rangeCount;
+        }
+        mRanges = ensure(mRanges, rangeCount + 1);
+        mRanges[rangeCount] = ((long) fromCol << 32) | toCol;
+        return rangeCount + 1;
+    }
+
+    private void emitMerged(int row, int rangeCount, SpanSink sink) {
+        if (rangeCount == 0) {
+            return;
+        }
+        Arrays.sort(mRanges, 0, rangeCount);
+        int from = (int) (mRanges[0] >>> 32);
+        int to = (int) mRanges[0];
+        for (int i = 1; i < rangeCount; i++) {
+            int f = (int) (mRanges[i] >>> 32);
+            int t = (int) mRanges[i];
+            if (f > to + 1) {
+                sink.span(row, from, to);
+                from = f;
+                to = t;
+            } else if (t > to) {
+                to = t;
+            }
+        }
+        sink.span(row, from, to);
+    }
+
+    static int floorDiv(int a, int b) {
+        int q = a / b;
+        return (a % b != 0 && (a < 0) != (b < 0)) ? q - 1 : q;
+    }
+
+    static int ceilDiv(int a, int b) {
+        return -floorDiv(-a, b);
+    }
+
+    private static int[] ensure(int[] array, int size) {
+        return array.length >= size ? array : Arrays.copyOf(array, Math.max(size, array.length * 2));
+    }
+
+    private static long[] ensure(long[] array, int size) {
+        return array.length >= size ? array : Arrays.copyOf(array, Math.max(size, array.length * 2));
+    }
+
+    private static double[] ensure(double[] array, int size) {
+        return array.length >= size ? array : Arrays.copyOf(array, Math.max(size, array.length * 2));
+    }
+
+    private static class BitSetSink implements SpanSink {
+        BitSet mOut;
+        int mColumns;
+
+        @Override
+        public void span(int row, int fromCol, int toCol) {
+            int base = row * mColumns;
+            mOut.set(base + fromCol, base + toCol + 1);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.bd.polygon;
+
+import java.util.Arrays;
+
+/**
+ * 固定内存的耗时直方图
+ * <p>
+ * Log-linear buckets: every power of two is split into 8 sub buckets, so a recorded value is known to
+ * within 12.5%. All buckets are allocated up front and {@link #record(long)} never allocates.
+ * <p>
+ * Not thread safe.
+ *
+ * @author agent
+ */
+public class Histogram {
+
+    private static final int SUB_BITS = 3;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKET_COUNT = (63 - SUB_BITS + 1) * SUB_COUNT;
+
+    private final long[] mBuckets = new long[BUCKET_COUNT];
+    private long mCount;
+    private long mSum;
+    private long mMin = Long.MAX_VALUE;
+    private long mMax;
+
+    /**
+     * @param value 负数按 0 处理
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        mBuckets[bucketOf(value)]++;
+        mCount++;
+        mSum += value;
+        mMin = value < mMin ? value : mMin;
+        mMax = value > mMax ? value : mMax;
+    }
+
+    public void reset() {
+        Arrays.fill(mBuckets, 0);
+        mCount = 0;
+        mSum = 0;
+        mMin = Long.MAX_VALUE;
+        mMax = 0;
+    }
+
+    public void copyFrom(Histogram other) {
+        System.arraycopy(other.mBuckets, 0, mBuckets, 0, BUCKET_COUNT);
+        mCount = other.mCount;
+        mSum = other.mSum;
+        mMin = other.mMin;
+        mMax = other.mMax;
+    }
+
+    public long getCount() {
+        return mCount;
+    }
+
+    /**
+     * @return 没有记录时为 0
+     */
+    public long getMin() {
+        return 0 == mCount ? 0 : mMin;
+    }
+
+    public long getMax() {
+        return mMax;
+    }
+
+    public double getMean() {
+        return 0 == mCount ? 0 : (double) mSum / mCount;
+    }
+
+    /**
+     * @param percentile: 0 - 100
+     * @return 不小于该百分位的值所在桶的上界, 不超过最大值; 没有记录时为 0
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (0 == mCount) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(Math.max(0, Math.min(100, percentile)) / 100 * mCount);
+        rank = Math.max(1, rank);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += mBuckets[i];
+            if (seen >= rank) {
+                return Math.min(mMax, Math.max(mMin, upperBound(i)));
+            }
+        }
+        return mMax;
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+        return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    static long lowerBound(int bucket) {
+        if (bucket < SUB_COUNT) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_COUNT + SUB_BITS - 1;
+        int sub = bucket % SUB_COUNT;
+        return (long) (SUB_COUNT + sub) << (exponent - SUB_BITS);
+    }
+
+    static long upperBound(int bucket) {
+        return bucket == BUCKET_COUNT - 1 ? Long.MAX_VALUE : lowerBound(bucket + 1) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + mCount + " mean=" + (long) getMean() + " p50=" + getValueAtPercentile(50)
+                + " p90=" + getValueAtPercentile(90) + " p99=" + getValueAtPercentile(99) + " max=" + mMax;
+    }
+}
@@ -0,0 +1,52 @@
+package com.bd.polygon;
+
+/**
+ * 按指标记录直方图的统计实现
+ * <p>
+ * Keeps one {@link Histogram} per metric of {@link PolygonMetrics}, allocated in the constructor.
+ * Recording and reading are synchronized, so rasterization on a worker thread may record too.
+ *
+ * @author agent
+ */
+public class HistogramMetrics implements PolygonMetrics {
+
+    private static final String[] NAMES = {"draw", "touchToInvalidate", "hitTest", "rasterize"};
+
+    private final Histogram[] mHistograms = new Histogram[METRIC_COUNT];
+
+    public HistogramMetrics() {
+        for (int i = 0; i < METRIC_COUNT; i++) {
+            mHistograms[i] = new Histogram();
+        }
+    }
+
+    @Override
+    public synchronized void record(int metric, long nanos) {
+        mHistograms[metric].record(nanos);
+    }
+
+    /**
+     * 复制一个指标的当前数据, 不影响后续记录.
+     */
+    public synchronized void copyTo(int metric, Histogram out) {
+        out.copyFrom(mHistograms[metric]);
+    }
+
+    public synchronized void reset() {
+        for (int i = 0; i < METRIC_COUNT; i++) {
+            mHistograms[i].reset();
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < METRIC_COUNT; i++) {
+            if (i > 0) {
+                builder.append('\n');
+            }
+            builder.append(NAMES[i]).append(": ").append(mHistograms[i]);
+        }
+        return builder.toString();
+    }
+}
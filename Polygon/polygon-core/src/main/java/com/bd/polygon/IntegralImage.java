@@ -0,0 +1,219 @@
+package com.bd.polygon;
+
+/**
+ * 亮度积分图 (summed-area table)
+ * <p>
+ * Built once per image or frame, after that the luminance sum, mean and variance of any axis
+ * aligned rectangle take four lookups, whatever its size. Rectangles are half open,
+ * {@code [left, right) x [top, bottom)} in image pixels, and are clamped to the image.
+ * <p>
+ * The table of sums is kept in wrapping {@code int}s: the difference of the four corners is exact
+ * modulo 2<sup>32</sup> and, with at most {@link #MAX_PIXELS} pixels, the true sum of a rectangle is
+ * below 2<sup>32</sup>, so it is read back unsigned. Sums of squares need a {@code long} table. Luminance of ARGB pixels follows
+ * {@link PixelStats}.
+ * <p>
+ * Buffers are reused while the image does not grow. Queries may run on several threads at once,
+ * {@code compute} must not overlap with them.
+ *
+ * @author agent
+ */
+public class IntegralImage {
+
+    // 255 * MAX_PIXELS < 2^32
+    public static final int MAX_PIXELS = 1 << 24;
+
+    private int mWidth;
+    private int mHeight;
+    // (width + 1) x (height + 1), 第 0 行与第 0 列为 0
+    private int[] mSums = new int[0];
+    private long[] mSquares = new long[0];
+    private int[] mRow = new int[0];
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    /**
+     * 从 ARGB 像素计算, 逐行读取.
+     */
+    public void compute(PixelSource source) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        prepare(width, height);
+        if (mRow.length < width) {
+            mRow = new int[width];
+        }
+        int[] row = mRow;
+        int stride = width + 1;
+        for (int y = 0; y < height; y++) {
+            source.getRow(0, y, width, row);
+            int above = y * stride;
+            int index = above + stride;
+            int sum = 0;
+            long squares = 0;
+            for (int x = 0; x < width; x++) {
+                int color = row[x];
+                int l = PixelStats.luminance((color >> 16) & 0xFF, (color >> 8) & 0xFF, color & 0xFF);
+                sum += l;
+                squares += l * l;
+                mSums[index + x + 1] = mSums[above + x + 1] + sum;
+                mSquares[index + x + 1] = mSquares[above + x + 1] + squares;
+            }
+        }
+    }
+
+    /**
+     * 从每像素一个字节的亮度计算, 例如摄像头的 Y 平面.
+     *
+     * @param rowStride: 相邻两行的字节间隔
+     */
+    public void compute(byte[] luma, int width, int height, int rowStride) {
+        if (width < 0 || height < 0 || rowStride < width
+                || (height > 0 && (long) (height - 1) * rowStride + width > luma.length)) {
+            throw new IllegalArgumentException("Invalid frame " + width + "x" + height + ", stride " + rowStride
+                    + ", " + luma.length + " bytes");
+        }
+        prepare(width, height);
+        int stride = width + 1;
+        for (int y = 0; y < height; y++) {
+            int offset = y * rowStride;
+            int above = y * stride;
+            int index = above + stride;
+            int sum = 0;
+            long squares = 0;
+            for (int x = 0; x < width; x++) {
+                int l = luma[offset + x] & 0xFF;
+                sum += l;
+                squares += l * l;
+                mSums[index + x + 1] = mSums[above + x + 1] + sum;
+                mSquares[index + x + 1] = mSquares[above + x + 1] + squares;
+            }
+        }
+    }
+
+    private void prepare(int width, int height) {
+        if ((long) width * height > MAX_PIXELS) {
+            throw new IllegalArgumentException("Image too large: " + width + "x" + height);
+        }
+        int size = (width + 1) * (height + 1);
+        if (mSums.length < size) {
+            mSums = new int[size];
+            mSquares = new long[size];
+        } else {
+            // 只有第 0 行需要清零, 第 0 列在下面清零, 其余都会被覆盖
+            for (int x = 0; x <= width; x++) {
+                mSums[x] = 0;
+                mSquares[x] = 0;
+            }
+            for (int y = 1; y <= height; y++) {
+                mSums[y * (width + 1)] = 0;
+                mSquares[y * (width + 1)] = 0;
+            }
+        }
+        mWidth = width;
+        mHeight = height;
+    }
+
+    /**
+     * 矩形内的亮度之和.
+     */
+    public long getSum(int left, int top, int right, int bottom) {
+        left = clamp(left, mWidth);
+        right = clamp(right, mWidth);
+        top = clamp(top, mHeight);
+        bottom = clamp(bottom, mHeight);
+        if (left >= right || top >= bottom) {
+            return 0;
+        }
+        int stride = mWidth + 1;
+        int sum = mSums[bottom * stride + right] - mSums[top * stride + right]
+                - mSums[bottom * stride + left] + mSums[top * stride + left];
+        return sum & 0xFFFFFFFFL;
+    }
+
+    public long getSumOfSquares(int left, int top, int right, int bottom) {
+        left = clamp(left, mWidth);
+        right = clamp(right, mWidth);
+        top = clamp(top, mHeight);
+        bottom = clamp(bottom, mHeight);
+        if (left >= right || top >= bottom) {
+            return 0;
+        }
+        int stride = mWidth + 1;
+        return mSquares[bottom * stride + right] - mSquares[top * stride + right]
+                - mSquares[bottom * stride + left] + mSquares[top * stride + left];
+    }
+
+    /**
+     * 矩形与图像相交部分的像素个数.
+     */
+    public long getArea(int left, int top, int right, int bottom) {
+        int width = clamp(right, mWidth) - clamp(left, mWidth);
+        int height = clamp(bottom, mHeight) - clamp(top, mHeight);
+        return width <= 0 || height <= 0 ? 0 : (long) width * height;
+    }
+
+    /**
+     * 矩形的统计累加到 out, out 不清空.
+     */
+    public void addStats(int left, int top, int right, int bottom, RegionStats out) {
+        out.add(getArea(left, top, right, bottom), getSum(left, top, right, bottom),
+                getSumOfSquares(left, top, right, bottom));
+    }
+
+    /**
+     * 外接矩形的统计累加到 out, 例如 {@link MathUtil#getRectPoints} 的结果.
+     * 与栅格化一致, 右边和下边不包含在内.
+     *
+     * @param bounds: left, top, right, bottom
+     */
+    public void addStats(int[] bounds, RegionStats out) {
+        addStats(bounds[0], bounds[1], bounds[2], bounds[3], out);
+    }
+
+    /**
+     * 一个栅格的统计累加到 out. 第 col 列为 [xEdges[col], xEdges[col + 1]), 行同理.
+     *
+     * @param xEdges: M + 1 条竖直格线在图像中的 x, 递增
+     * @param yEdges: N + 1 条水平格线在图像中的 y, 递增
+     */
+    public void addCellStats(int col, int row, int[] xEdges, int[] yEdges, RegionStats out) {
+        addStats(xEdges[col], yEdges[row], xEdges[col + 1], yEdges[row + 1], out);
+    }
+
+    /**
+     * 窗口内所有栅格的统计累加到 out, 每个栅格 O(1).
+     *
+     * @param zone:   栅格集合, 下标为 col + row * M, M 为 xEdges.length - 1
+     * @param xEdges: 见 {@link #addCellStats}
+     * @param yEdges: 见 {@link #addCellStats}
+     */
+    public void addZoneStats(CellSet zone, int[] xEdges, int[] yEdges, RegionStats out) {
+        int columns = xEdges.length - 1;
+        int rows = yEdges.length - 1;
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < columns; col++) {
+                if (zone.contains(col + row * columns)) {
+                    addCellStats(col, row, xEdges, yEdges, out);
+                }
+            }
+        }
+    }
+
+    /**
+     * 等宽格线: out[i] = round(origin + i * step).
+     */
+    public static void uniformEdges(float origin, float step, int[] out) {
+        for (int i = 0; i < out.length; i++) {
+            out[i] = Math.round(origin + i * step);
+        }
+    }
+
+    private static int clamp(int value, int max) {
+        return value < 0 ? 0 : value > max ? max : value;
+    }
+}
@@ -0,0 +1,270 @@
+package com.bd.polygon;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * 多窗口标签栅格
+ * <p>
+ * One int per cell of a M x N grid, filled by rasterizing every polygon once. Depending on the mode a
+ * cell holds either the owning polygon ({@link #MODE_OWNER}, index + 1, later polygons win, 0 is empty)
+ * or a bitmask of all polygons covering it ({@link #MODE_BITMASK}, at most {@link #MAX_BITMASK_POLYGONS}
+ * polygons).
+ * The row/column range of every polygon is recorded so {@link #mask(int)} only visits its own cells.
+ *
+ * @author agent
+ */
+public class LabelGrid implements GridRasterizer.SpanSink {
+
+    public static final int MODE_OWNER = 0;
+    public static final int MODE_BITMASK = 1;
+
+    // 每个栅格一个 int, 一位对应一个多边形
+    public static final int MAX_BITMASK_POLYGONS = 32;
+
+    private int mMode;
+    private int mColumns;
+    private int mRows;
+    private int[] mCells = new int[0];
+
+    // 每个多边形覆盖的行列范围: firstRow, lastRow, firstCol, lastCol; firstRow > lastRow 表示为空
+    private int[] mRanges = new int[0];
+    private int mPolygonCount;
+    private int mCurrent = -1;
+
+    public LabelGrid() {
+        this(MODE_OWNER);
+    }
+
+    public LabelGrid(int mode) {
+        setMode(mode);
+    }
+
+    /**
+     * 清空并设置栅格大小, 容量足够时不重新分配.
+     */
+    public void reset(int columns, int rows, int mode) {
+        setMode(mode);
+        mColumns = columns;
+        mRows = rows;
+        int size = columns * rows;
+        if (mCells.length < size) {
+            mCells = new int[size];
+        } else {
+            Arrays.fill(mCells, 0, size, 0);
+        }
+        mPolygonCount = 0;
+        mCurrent = -1;
+    }
+
+    /**
+     * 之后收到的 span 属于下标为 polygonIndex 的多边形.
+     */
+    public void beginPolygon(int polygonIndex) {
+        if (MODE_BITMASK == mMode && polygonIndex >= MAX_BITMASK_POLYGONS) {
+            throw new IllegalStateException("MODE_BITMASK supports at most " + MAX_BITMASK_POLYGONS
+                    + " polygons, got index " + polygonIndex);
+        }
+        if (mRanges.length < (polygonIndex + 1) * 4) {
+            mRanges = Arrays.copyOf(mRanges, Math.max((polygonIndex + 1) * 4, mRanges.length * 2));
+        }
+        int r = polygonIndex * 4;
+        mRanges[r] = Integer.MAX_VALUE;
+        mRanges[r + 1] = Integer.MIN_VALUE;
+        mRanges[r + 2] = Integer.MAX_VALUE;
+        mRanges[r + 3] = Integer.MIN_VALUE;
+        mCurrent = polygonIndex;
+        mPolygonCount = Math.max(mPolygonCount, polygonIndex + 1);
+    }
+
+    /**
+     * 所有多边形写入完毕.
+     */
+    public void endPolygons(int polygonCount) {
+        mPolygonCount = polygonCount;
+        mCurrent = -1;
+    }
+
+    @Override
+    public void span(int row, int fromCol, int toCol) {
+        if (mCurrent < 0 || row >= mRows) {
+            return;
+        }
+        int base = row * mColumns;
+        if (MODE_OWNER == mMode) {
+            Arrays.fill(mCells, base + fromCol, base + toCol + 1, mCurrent + 1);
+        } else {
+            int bit = 1 << mCurrent;
+            for (int i = base + fromCol; i <= base + toCol; i++) {
+                mCells[i] |= bit;
+            }
+        }
+        int r = mCurrent * 4;
+        mRanges[r] = Math.min(mRanges[r], row);
+        mRanges[r + 1] = Math.max(mRanges[r + 1], row);
+        mRanges[r + 2] = Math.min(mRanges[r + 2], fromCol);
+        mRanges[r + 3] = Math.max(mRanges[r + 3], toCol);
+    }
+
+    public int getMode() {
+        return mMode;
+    }
+
+    public void setMode(int mode) {
+        if (MODE_OWNER != mode && MODE_BITMASK != mode) {
+            throw new IllegalArgumentException("Unknown mode " + mode);
+        }
+        mMode = mode;
+    }
+
+    public int getColumns() {
+        return mColumns;
+    }
+
+    public int getRows() {
+        return mRows;
+    }
+
+    public int getPolygonCount() {
+        return mPolygonCount;
+    }
+
+    /**
+     * @return 原始标签值, 含义取决于模式
+     */
+    public int get(int cell) {
+        return mCells[cell];
+    }
+
+    public int get(int col, int row) {
+        return mCells[col + row * mColumns];
+    }
+
+    /**
+     * 下标为 cell 的栅格是否属于多边形 polygonIndex.
+     */
+    public boolean contains(int polygonIndex, int cell) {
+        if (MODE_OWNER == mMode) {
+            return mCells[cell] == polygonIndex + 1;
+        }
+        return polygonIndex < 32 && (mCells[cell] & (1 << polygonIndex)) != 0;
+    }
+
+    /**
+     * 单个窗口的视图, 不复制数据.
+     */
+    public Mask mask(int polygonIndex) {
+        if (polygonIndex < 0 || polygonIndex >= mPolygonCount) {
+            throw new IndexOutOfBoundsException("Invalid polygon " + polygonIndex + ", count is " + mPolygonCount);
+        }
+        return new Mask(polygonIndex);
+    }
+
+    public class Mask implements CellSet {
+
+        private final int mPolygon;
+
+        Mask(int polygon) {
+            mPolygon = polygon;
+        }
+
+        public int getPolygonIndex() {
+            return mPolygon;
+        }
+
+        @Override
+        public boolean contains(int cell) {
+            return LabelGrid.this.contains(mPolygon, cell);
+        }
+
+        public boolean isEmpty() {
+            return mRanges[mPolygon * 4] > mRanges[mPolygon * 4 + 1];
+        }
+
+        /**
+         * 包含所有栅格的最小行列范围 {fromCol, fromRow, toCol, toRow}, 都是闭区间.
+         *
+         * @return 没有栅格时返回 false, out 不变
+         */
+        public boolean getBounds(int[] out) {
+            if (isEmpty()) {
+                return false;
+            }
+            int r = mPolygon * 4;
+            out[0] = mRanges[r + 2];
+            out[1] = mRanges[r];
+            out[2] = mRanges[r + 3];
+            out[3] = mRanges[r + 1];
+            return true;
+        }
+
+        public int count() {
+            int count = 0;
+            int r = mPolygon * 4;
+            for (int row = mRanges[r]; row <= mRanges[r + 1]; row++) {
+                for (int col = mRanges[r + 2]; col <= mRanges[r + 3]; col++) {
+                    if (LabelGrid.this.contains(mPolygon, col + row * mColumns)) {
+                        count++;
+                    }
+                }
+            }
+            return count;
+        }
+
+        /**
+         * 升序写入栅格下标.
+         *
+         * @return 写入的个数; out 不够大时只写入前 out.length 个
+         */
+        public int copyTo(int[] out) {
+            int count = 0;
+            int r = mPolygon * 4;
+            for (int row = mRanges[r]; row <= mRanges[r + 1]; row++) {
+                for (int col = mRanges[r + 2]; col <= mRanges[r + 3]; col++) {
+                    int cell = col + row * mColumns;
+                    if (LabelGrid.this.contains(mPolygon, cell)) {
+                        if (count == out.length) {
+                            return count;
+                        }
+                        out[count++] = cell;
+                    }
+                }
+            }
+            return count;
+        }
+
+        /**
+         * @param out 调用前清空
+         */
+        public void copyTo(BitSet out) {
+            out.clear();
+            int r = mPolygon * 4;
+            for (int row = mRanges[r]; row <= mRanges[r + 1]; row++) {
+                for (int col = mRanges[r + 2]; col <= mRanges[r + 3]; col++) {
+                    int cell = col + row * mColumns;
+                    if (LabelGrid.this.contains(mPolygon, cell)) {
+                        out.set(cell);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder("[");
+            int r = mPolygon * 4;
+            for (int row = mRanges[r]; row <= mRanges[r + 1]; row++) {
+                for (int col = mRanges[r + 2]; col <= mRanges[r + 3]; col++) {
+                    int cell = col + row * mColumns;
+                    if (LabelGrid.this.contains(mPolygon, cell)) {
+                        if (builder.length() > 1) {
+                            builder.append(", ");
+                        }
+                        builder.append(cell);
+                    }
+                }
+            }
+            return builder.append(']').toString();
+        }
+    }
+}
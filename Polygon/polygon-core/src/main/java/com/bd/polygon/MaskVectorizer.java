@@ -0,0 +1,360 @@
+package com.bd.polygon;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 栅格掩码转回多边形
+ * <p>
+ * The inverse of {@link Polygon#getDirtyRectGrid}: traces the outline of a set of cells of a M x N
+ * grid with marching squares and returns it as {@link Polygon}s in view coordinates, lattice point
+ * {@code (col, row)} mapping to {@code (col * m, row * n)}.
+ * <p>
+ * Every cell side between a cell of the set and one outside it is a directed unit edge, oriented so
+ * the set is on its right; a lattice point then has one outgoing edge, or two where only diagonal
+ * cells are set, in which case the trace turns right so diagonal neighbours stay separate, as they
+ * are for the rasterizer. Each edge is visited once, so tracing is linear in the cells of the scanned
+ * range. Only corners are kept, and with a positive tolerance the corners of every outline are
+ * simplified with Douglas-Peucker, split at the corner farthest from the first one.
+ * <p>
+ * Outlines running clockwise on screen are outer boundaries; holes run the other way and are
+ * dropped, since a {@link Polygon} cannot describe them, so a traced zone covers its holes. With a
+ * tolerance of 0 rasterizing the result gives back exactly the traced cells plus those holes.
+ * <p>
+ * Buffers are reused between calls; not thread safe.
+ *
+ * @author agent
+ */
+public class MaskVectorizer {
+
+    // 边的方向, 屏幕坐标 y 向下
+    private static final int EAST = 1;
+    private static final int SOUTH = 2;
+    private static final int WEST = 4;
+    private static final int NORTH = 8;
+    // 只有对角两个栅格在集合内的格点
+    private static final int SADDLE = 16;
+
+    private float mTolerance;
+
+    // 格点的出边, 按扫描范围 (cols + 1) x (rows + 1) 存放
+    private byte[] mEdges = new byte[0];
+
+    // 一条轮廓的拐点, 格点坐标
+    private int[] mXs = new int[16];
+    private int[] mYs = new int[16];
+    private boolean[] mKeep = new boolean[16];
+    private int[] mStack = new int[32];
+
+    private final int[] mBounds = new int[4];
+
+    /**
+     * @param tolerance: Douglas-Peucker 的容差, 视图坐标 (px); 0 只去掉共线的点
+     */
+    public void setTolerance(float tolerance) {
+        if (!(tolerance >= 0)) {
+            throw new IllegalArgumentException("tolerance must not be negative: " + tolerance);
+        }
+        mTolerance = tolerance;
+    }
+
+    public float getTolerance() {
+        return mTolerance;
+    }
+
+    /**
+     * 追踪整个栅格.
+     *
+     * @param cells: 下标为 col + row * M
+     * @param M:     水平栅格数
+     * @param N:     垂直栅格数
+     * @param m:     x 比值
+     * @param n      y 比值
+     * @param out:   按面积从大到小追加每个连通区域的外轮廓, 顶点顺时针, 状态为 INIT
+     * @return 追加的多边形个数
+     */
+    public int vectorize(CellSet cells, int M, int N, int m, int n, List<Polygon> out) {
+        if (M <= 0 || N <= 0 || m <= 0 || n <= 0) {
+            throw new IllegalArgumentException("Invalid grid " + M + "x" + N + ", cell " + m + "x" + n);
+        }
+        return trace(cells, M, 0, 0, M - 1, N - 1, m, n, out);
+    }
+
+    /**
+     * 追踪标签栅格中的一个窗口, 只扫描它的行列范围.
+     *
+     * @param zone: 窗口下标
+     * @return 追加的多边形个数; 窗口没有栅格时为 0
+     */
+    public int vectorize(LabelGrid grid, int zone, int m, int n, List<Polygon> out) {
+        if (m <= 0 || n <= 0) {
+            throw new IllegalArgumentException("Invalid cell " + m + "x" + n);
+        }
+        LabelGrid.Mask mask = grid.mask(zone);
+        if (!mask.getBounds(mBounds)) {
+            return 0;
+        }
+        return trace(mask, grid.getColumns(), mBounds[0], mBounds[1], mBounds[2], mBounds[3], m, n, out);
+    }
+
+    private int trace(CellSet cells, int M, int fromCol, int fromRow, int toCol, int toRow, int m, int n,
+                      List<Polygon> out) {
+        int width = toCol - fromCol + 2;
+        int height = toRow - fromRow + 2;
+        int size = width * height;
+        if (mEdges.length < size) {
+            mEdges = new byte[size];
+        } else {
+            Arrays.fill(mEdges, 0, size, (byte) 0);
+        }
+        collectEdges(cells, M, fromCol, fromRow, toCol, toRow, width);
+
+        List<Polygon> traced = new ArrayList<Polygon>();
+        List<Long> areas = new ArrayList<Long>();
+        for (int start = 0; start < size; start++) {
+            while (0 != (mEdges[start] & 15)) {
+                int count = traceContour(start, width);
+                long area = area(count);
+                // 逆时针的是洞
+                if (area <= 0) {
+                    continue;
+                }
+                if (mTolerance > 0) {
+                    count = simplify(count, m, n);
+                }
+                int[] xs = new int[count];
+                int[] ys = new int[count];
+                for (int i = 0; i < count; i++) {
+                    xs[i] = (fromCol + mXs[i]) * m;
+                    ys[i] = (fromRow + mYs[i]) * n;
+                }
+                Polygon polygon = new Polygon(xs, ys, count);
+                polygon.setState(Polygon.State.INIT);
+                int index = traced.size();
+                while (index > 0 && areas.get(index - 1) < area) {
+                    index--;
+                }
+                traced.add(index, polygon);
+                areas.add(index, area);
+            }
+        }
+        out.addAll(traced);
+        return traced.size();
+    }
+
+    // 每个在集合内的栅格, 与集合外相邻的边按顺时针方向记为起点格点的出边
+    private void collectEdges(CellSet cells, int M, int fromCol, int fromRow, int toCol, int toRow, int width) {
+        byte[] edges = mEdges;
+        for (int row = fromRow; row <= toRow; row++) {
+            int base = (row - fromRow) * width - fromCol;
+            for (int col = fromCol; col <= toCol; col++) {
+                int cell = col + row * M;
+                if (!cells.contains(cell)) {
+                    continue;
+                }
+                int topLeft = base + col;
+                int bottomLeft = topLeft + width;
+                if (row == fromRow || !cells.contains(cell - M)) {
+                    edges[topLeft] |= EAST;
+                }
+                if (col == toCol || !cells.contains(cell + 1)) {
+                    edges[topLeft + 1] |= SOUTH;
+                }
+                if (row == toRow || !cells.contains(cell + M)) {
+                    edges[bottomLeft + 1] |= WEST;
+                }
+                if (col == fromCol || !cells.contains(cell - 1)) {
+                    edges[bottomLeft] |= NORTH;
+                }
+            }
+        }
+        // 两条出边的格点: 东 + 西 或 南 + 北, 即只有对角栅格在集合内
+        int size = width * (toRow - fromRow + 2);
+        for (int v = 0; v < size; v++) {
+            int bits = edges[v];
+            if ((EAST | WEST) == bits || (SOUTH | NORTH) == bits) {
+                edges[v] = (byte) (bits | SADDLE);
+            }
+        }
+    }
+
+    /**
+     * 从 start 出发沿出边走回 start, 用过的边被清除, 拐点写入 mXs / mYs.
+     * 扫描顺序中第一个还有出边的格点一定是拐点.
+     *
+     * @return 拐点个数
+     */
+    private int traceContour(int start, int width) {
+        byte[] edges = mEdges;
+        int x = start % width;
+        int y = start / width;
+        int v = start;
+        int direction = firstDirection(edges[v]);
+        int count = addCorner(0, x, y);
+        while (true) {
+            edges[v] &= ~direction;
+            switch (direction) {
+                case EAST:
+                    x++;
+                    v++;
+                    break;
+                case SOUTH:
+                    y++;
+                    v += width;
+                    break;
+                case WEST:
+                    x--;
+                    v--;
+                    break;
+                default:
+                    y--;
+                    v -= width;
+                    break;
+            }
+            int bits = edges[v];
+            int next = 0 != (bits & SADDLE) ? turnRight(direction) : bits & 15;
+            if (0 == next || 0 == (bits & next)) {
+                return count;
+            }
+            if (next != direction) {
+                count = addCorner(count, x, y);
+            }
+            direction = next;
+        }
+    }
+
+    private static int firstDirection(int bits) {
+        if (0 != (bits & EAST)) {
+            return EAST;
+        }
+        if (0 != (bits & SOUTH)) {
+            return SOUTH;
+        }
+        if (0 != (bits & WEST)) {
+            return WEST;
+        }
+        return NORTH;
+    }
+
+    // 屏幕坐标下右转: 东 -> 南 -> 西 -> 北 -> 东
+    private static int turnRight(int direction) {
+        return ((direction << 1) | (direction >> 3)) & 15;
+    }
+
+    private int addCorner(int count, int x, int y) {
+        if (count == mXs.length) {
+            mXs = Arrays.copyOf(mXs, count * 2);
+            mYs = Arrays.copyOf(mYs, count * 2);
+        }
+        mXs[count] = x;
+        mYs[count] = y;
+        return count + 1;
+    }
+
+    // 鞋带公式的两倍面积, y 向下时顺时针为正
+    private long area(int count) {
+        long sum = 0;
+        for (int i = 0, j = count - 1; i < count; j = i++) {
+            sum += (long) mXs[j] * mYs[i] - (long) mXs[i] * mYs[j];
+        }
+        return sum;
+    }
+
+    /**
+     * Douglas-Peucker, 以第 0 个拐点和离它最远的拐点把闭合轮廓分成两段, 按视图坐标计算距离.
+     * 结果少于 3 个点时保留原有拐点.
+     *
+     * @return 简化后的拐点个数, 结果按原顺序移到 mXs / mYs 前部
+     */
+    private int simplify(int count, int m, int n) {
+        if (count <= 3) {
+            return count;
+        }
+        if (mKeep.length < count) {
+            mKeep = new boolean[mXs.length];
+        }
+        Arrays.fill(mKeep, 0, count, false);
+        int far = 1;
+        long farDistance = -1;
+        for (int i = 1; i < count; i++) {
+            long dx = (long) (mXs[i] - mXs[0]) * m;
+            long dy = (long) (mYs[i] - mYs[0]) * n;
+            long distance = dx * dx + dy * dy;
+            if (distance > farDistance) {
+                farDistance = distance;
+                far = i;
+            }
+        }
+        mKeep[0] = true;
+        mKeep[far] = true;
+
+        // 第二段的终点 count 即第 0 个点
+        int top = 0;
+        top = push(top, 0, far);
+        top = push(top, far, count);
+        float tolerance = mTolerance;
+        while (top > 0) {
+            int to = mStack[--top];
+            int from = mStack[--top];
+            float ax = mXs[from] * (float) m;
+            float ay = mYs[from] * (float) n;
+            int end = to == count ? 0 : to;
+            float bx = mXs[end] * (float) m;
+            float by = mYs[end] * (float) n;
+            int split = -1;
+            float splitDistance = tolerance;
+            for (int i = from + 1; i < to; i++) {
+                float distance = distanceToSegment(mXs[i] * (float) m, mYs[i] * (float) n, ax, ay, bx, by);
+                if (distance > splitDistance) {
+                    splitDistance = distance;
+                    split = i;
+                }
+            }
+            if (split >= 0) {
+                mKeep[split] = true;
+                top = push(top, from, split);
+                top = push(top, split, to);
+            }
+        }
+
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (mKeep[i]) {
+                kept++;
+            }
+        }
+        if (kept < 3) {
+            return count;
+        }
+        int j = 0;
+        for (int i = 0; i < count; i++) {
+            if (mKeep[i]) {
+                mXs[j] = mXs[i];
+                mYs[j] = mYs[i];
+                j++;
+            }
+        }
+        return j;
+    }
+
+    private int push(int top, int from, int to) {
+        if (top + 2 > mStack.length) {
+            mStack = Arrays.copyOf(mStack, mStack.length * 2);
+        }
+        mStack[top] = from;
+        mStack[top + 1] = to;
+        return top + 2;
+    }
+
+    private static float distanceToSegment(float px, float py, float ax, float ay, float bx, float by) {
+        float dx = bx - ax;
+        float dy = by - ay;
+        float lengthSquared = dx * dx + dy * dy;
+        float t = 0 == lengthSquared ? 0 : ((px - ax) * dx + (py - ay) * dy) / lengthSquared;
+        t = Math.max(0, Math.min(1, t));
+        float ex = px - (ax + t * dx);
+        float ey = py - (ay + t * dy);
+        return (float) Math.sqrt(ex * ex + ey * ey);
+    }
+}
@@ -0,0 +1,82 @@
+package com.bd.polygon;
+
+import java.util.Arrays;
+
+/**
+ * 多边形外接矩形内的掩码像素
+ * <p>
+ * ARGB pixels of the polygon's bounding box clipped to the image, stride {@link #getWidth()}.
+ * Pixels outside the polygon are 0 (transparent). The array only grows, so one instance can be
+ * reused for every frame.
+ *
+ * @author agent
+ */
+public class MaskedPixels {
+
+    private int mLeft;
+    private int mTop;
+    private int mWidth;
+    private int mHeight;
+    private int mCount;
+    private int[] mPixels = new int[0];
+
+    void reset(int left, int top, int width, int height) {
+        mLeft = left;
+        mTop = top;
+        mWidth = width;
+        mHeight = height;
+        mCount = 0;
+        int size = width * height;
+        if (mPixels.length < size) {
+            mPixels = new int[size];
+        } else {
+            Arrays.fill(mPixels, 0, size, 0);
+        }
+    }
+
+    void copyRow(int[] row, int x, int y, int width) {
+        System.arraycopy(row, 0, mPixels, x - mLeft + (y - mTop) * mWidth, width);
+        mCount += width;
+    }
+
+    public int getLeft() {
+        return mLeft;
+    }
+
+    public int getTop() {
+        return mTop;
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    /**
+     * @return 多边形内的像素个数
+     */
+    public int getCount() {
+        return mCount;
+    }
+
+    /**
+     * @return 内部数组, 长度可能大于 width * height; 不要修改
+     */
+    public int[] getPixels() {
+        return mPixels;
+    }
+
+    /**
+     * @param x: 图像坐标
+     * @param y: 图像坐标
+     */
+    public int getPixel(int x, int y) {
+        if (x < mLeft || y < mTop || x >= mLeft + mWidth || y >= mTop + mHeight) {
+            return 0;
+        }
+        return mPixels[x - mLeft + (y - mTop) * mWidth];
+    }
+}
@@ -0,0 +1,88 @@
+package com.bd.polygon;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class MathUtil {
+
+    /**
+     * Calculates the distance between two points (x1, y1) and (x2, y2).
+     */
+    public static float calculateDistance(float x1, float y1, float x2, float y2) {
+
+        final float side1 = x2 - x1;
+        final float side2 = y2 - y1;
+
+        return (float) Math.sqrt(side1 * side1 + side2 * side2);
+    }
+
+    //弦长公式
+    public static double calculateChord(float radius, float distance) {
+
+        return 2 * Math.sqrt(radius * radius - distance * distance);
+    }
+
+    // 中心点坐标计算, 结果写入 out[0], out[1]
+    public static boolean averagePolygon(int[] xs, int[] ys, int count, int[] out) {
+        if (count == 0) {
+            return false;
+        }
+        long x = 0;
+        long y = 0;
+        for (int i = 0; i < count; i++) {
+            x += xs[i];
+            y += ys[i];
+        }
+        out[0] = (int) (x / count);
+        out[1] = (int) (y / count);
+        return true;
+    }
+
+    //得到最大最小矩形框坐标
+    public static int[] getRectPoints(int[] xs, int[] ys, int count) {
+        if (count == 0) {
+            return null;
+        }
+        return getRectPoints(xs, ys, count, new int[4]);
+    }
+
+    //得到最大最小矩形框坐标, 结果写入 result: left, top, right, bottom
+    public static int[] getRectPoints(int[] xs, int[] ys, int count, int[] result) {
+        result[0] = result[2] = xs[0];
+        result[1] = result[3] = ys[0];
+        for (int i = 1; i < count; i++) {
+            result[0] = result[0] > xs[i] ? xs[i] : result[0];
+            result[1] = result[1] > ys[i] ? ys[i] : result[1];
+            result[2] = result[2] < xs[i] ? xs[i] : result[2];
+            result[3] = result[3] < ys[i] ? ys[i] : result[3];
+        }
+        return result;
+    }
+
+    /**
+     * 外接矩形覆盖的栅格, 下标为 col + row * M (从 0 开始).
+     *
+     * @param M: 水平栅格数
+     * @param m: x 比值
+     * @param n  y 比值
+     * @return
+     */
+    public static List<Integer> getDirtyRectGrid(int M, int m, int n, int[] rect) {
+        if (null == rect)
+            return null;
+
+        List<Integer> ret = new ArrayList<Integer>();
+        int x1 = Math.max(0, GridRasterizer.floorDiv(rect[0], m));
+        int y1 = Math.max(0, GridRasterizer.floorDiv(rect[1], n));
+        // 退化为点/线时至少保留所在的栅格
+        int x2 = Math.min(M - 1, Math.max(GridRasterizer.floorDiv(rect[0], m), GridRasterizer.ceilDiv(rect[2], m) - 1));
+        int y2 = Math.max(GridRasterizer.floorDiv(rect[1], n), GridRasterizer.ceilDiv(rect[3], n) - 1);
+
+        for (int j = y1; j <= y2; j++) {
+            for (int i = x1; i <= x2; i++) {
+                ret.add(i + j * M);
+            }
+        }
+        return ret;
+    }
+}
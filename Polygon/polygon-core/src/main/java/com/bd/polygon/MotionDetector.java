@@ -0,0 +1,322 @@
+package com.bd.polygon;
+
+import java.util.Arrays;
+
+/**
+ * 按栅格与窗口的移动侦测
+ * <p>
+ * Streaming frame differencing on the committed zone grid. Every grayscale frame (for example the Y
+ * plane of a camera preview) is split into the same M x N cells as {@link LabelGrid}: column {@code c}
+ * covers {@code [c * width / M, (c + 1) * width / M)} and rows likewise, so the whole frame maps onto
+ * the grid whatever its resolution. The mean luminance of every cell is compared with the previous
+ * frame; a cell whose mean changed by at least the cell threshold is active, and a zone is active
+ * when at least the given fraction of its own cells is.
+ * <p>
+ * Zones are copied out of the label grid once by {@link #setZones(LabelGrid)}, as flat cell lists.
+ * Per frame the only work is one pass over the pixels into reused int buffers, then a pass over the
+ * cells and the zone lists; nothing is allocated while the frame size stays the same.
+ * <p>
+ * Not thread safe, feed frames from one thread.
+ *
+ * @author agent
+ */
+public class MotionDetector {
+
+    // 栅格平均亮度的变化量 (0 - 255)
+    public static final int DEFAULT_CELL_THRESHOLD = 12;
+    // 窗口内活动栅格的比例
+    public static final float DEFAULT_ZONE_FRACTION = 0.1f;
+
+    private int mCellThreshold = DEFAULT_CELL_THRESHOLD;
+    private float mZoneFraction = DEFAULT_ZONE_FRACTION;
+
+    private int mColumns;
+    private int mRows;
+
+    // 每个窗口的栅格下标, 窗口 z 为 mZoneCells[mZoneOffsets[z], mZoneOffsets[z + 1])
+    private int mZoneCount;
+    private int[] mZoneCells = new int[0];
+    private int[] mZoneOffsets = new int[1];
+
+    // 帧尺寸对应的栅格边界
+    private int mFrameWidth = -1;
+    private int mFrameHeight = -1;
+    private int[] mColumnEnds = new int[0];
+    private int[] mRowEnds = new int[0];
+    private int[] mCellAreas = new int[0];
+
+    private int[] mSums = new int[0];
+    private int[] mMeans = new int[0];
+    private int[] mPreviousMeans = new int[0];
+    private int[] mDiffs = new int[0];
+    private boolean mHasPrevious;
+    private long mFrameCount;
+
+    private float[] mZoneActivity = new float[0];
+    private float[] mZoneMeanDiffs = new float[0];
+    private boolean[] mZoneActive = new boolean[0];
+
+    /**
+     * @param cellThreshold: 栅格平均亮度变化至少为多少时算作活动, 1 - 255
+     * @param zoneFraction:  窗口内活动栅格的比例至少为多少时算作活动, (0, 1]
+     */
+    public void setThresholds(int cellThreshold, float zoneFraction) {
+        if (cellThreshold < 1 || cellThreshold > 255) {
+            throw new IllegalArgumentException("cellThreshold must be in [1, 255]: " + cellThreshold);
+        }
+        if (!(zoneFraction > 0 && zoneFraction <= 1)) {
+            throw new IllegalArgumentException("zoneFraction must be in (0, 1]: " + zoneFraction);
+        }
+        mCellThreshold = cellThreshold;
+        mZoneFraction = zoneFraction;
+    }
+
+    /**
+     * 使用 zones 的栅格大小与每个窗口的栅格. 栅格大小变化时丢弃上一帧.
+     */
+    public void setZones(LabelGrid zones) {
+        int columns = zones.getColumns();
+        int rows = zones.getRows();
+        if (columns <= 0 || rows <= 0) {
+            throw new IllegalArgumentException("Empty grid " + columns + "x" + rows);
+        }
+        if (columns != mColumns || rows != mRows) {
+            mColumns = columns;
+            mRows = rows;
+            int cells = columns * rows;
+            mSums = new int[cells];
+            mMeans = new int[cells];
+            mPreviousMeans = new int[cells];
+            mDiffs = new int[cells];
+            mCellAreas = new int[cells];
+            mFrameWidth = mFrameHeight = -1;
+            mHasPrevious = false;
+        }
+
+        mZoneCount = zones.getPolygonCount();
+        if (mZoneOffsets.length < mZoneCount + 1) {
+            mZoneOffsets = new int[mZoneCount + 1];
+            mZoneActivity = new float[mZoneCount];
+            mZoneMeanDiffs = new float[mZoneCount];
+            mZoneActive = new boolean[mZoneCount];
+        } else {
+            Arrays.fill(mZoneActivity, 0);
+            Arrays.fill(mZoneMeanDiffs, 0);
+            Arrays.fill(mZoneActive, false);
+        }
+        int total = 0;
+        for (int z = 0; z < mZoneCount; z++) {
+            mZoneOffsets[z] = total;
+            LabelGrid.Mask mask = zones.mask(z);
+            int count = mask.count();
+            if (mZoneCells.length < total + count) {
+                mZoneCells = Arrays.copyOf(mZoneCells, Math.max(total + count, mZoneCells.length * 2));
+            }
+            int[] cells = new int[count];
+            mask.copyTo(cells);
+            System.arraycopy(cells, 0, mZoneCells, total, count);
+            total += count;
+        }
+        mZoneOffsets[mZoneCount] = total;
+    }
+
+    /**
+     * 忘记上一帧, 例如摄像头切换或暂停之后.
+     */
+    public void reset() {
+        mHasPrevious = false;
+        Arrays.fill(mDiffs, 0);
+        Arrays.fill(mZoneActivity, 0);
+        Arrays.fill(mZoneMeanDiffs, 0);
+        Arrays.fill(mZoneActive, false);
+    }
+
+    /**
+     * 处理一帧灰度图.
+     *
+     * @param luma:      每像素一个字节的亮度, 按无符号读取
+     * @param width:     帧宽, 不小于栅格列数
+     * @param height:    帧高, 不小于栅格行数
+     * @param rowStride: 相邻两行的字节间隔
+     * @return 是否有窗口处于活动状态; 第一帧没有可比较的上一帧, 总是返回 false
+     */
+    public boolean process(byte[] luma, int width, int height, int rowStride) {
+        if (0 == mColumns) {
+            throw new IllegalStateException("setZones() has not been called");
+        }
+        if (width < mColumns || height < mRows || rowStride < width) {
+            throw new IllegalArgumentException("Invalid frame " + width + "x" + height + ", stride " + rowStride
+                    + " for a " + mColumns + "x" + mRows + " grid");
+        }
+        if ((long) (height - 1) * rowStride + width > luma.length) {
+            throw new IllegalArgumentException("Frame needs " + ((long) (height - 1) * rowStride + width)
+                    + " bytes, got " + luma.length);
+        }
+        if (width != mFrameWidth || height != mFrameHeight) {
+            setFrameSize(width, height);
+        }
+
+        accumulate(luma, rowStride);
+
+        int[] previous = mPreviousMeans;
+        mPreviousMeans = mMeans;
+        mMeans = previous;
+        int cells = mColumns * mRows;
+        for (int cell = 0; cell < cells; cell++) {
+            int area = mCellAreas[cell];
+            mMeans[cell] = (mSums[cell] + area / 2) / area;
+        }
+        mFrameCount++;
+        if (!mHasPrevious) {
+            mHasPrevious = true;
+            return false;
+        }
+        for (int cell = 0; cell < cells; cell++) {
+            mDiffs[cell] = Math.abs(mMeans[cell] - mPreviousMeans[cell]);
+        }
+        return evaluateZones();
+    }
+
+    // 按行累加每个栅格的亮度之和
+    private void accumulate(byte[] luma, int rowStride) {
+        int[] sums = mSums;
+        int[] columnEnds = mColumnEnds;
+        int columns = mColumns;
+        Arrays.fill(sums, 0, columns * mRows, 0);
+        int y = 0;
+        for (int row = 0; row < mRows; row++) {
+            int base = row * columns;
+            int rowEnd = mRowEnds[row];
+            for (; y < rowEnd; y++) {
+                int offset = y * rowStride;
+                int x = offset;
+                for (int col = 0; col < columns; col++) {
+                    int end = offset + columnEnds[col];
+                    int sum = 0;
+                    for (; x < end; x++) {
+                        sum += luma[x] & 0xFF;
+                    }
+                    sums[base + col] += sum;
+                }
+            }
+        }
+    }
+
+    private boolean evaluateZones() {
+        boolean any = false;
+        for (int z = 0; z < mZoneCount; z++) {
+            int from = mZoneOffsets[z];
+            int to = mZoneOffsets[z + 1];
+            int active = 0;
+            long diffSum = 0;
+            for (int i = from; i < to; i++) {
+                int diff = mDiffs[mZoneCells[i]];
+                diffSum += diff;
+                if (diff >= mCellThreshold) {
+                    active++;
+                }
+            }
+            int count = to - from;
+            mZoneActivity[z] = 0 == count ? 0 : (float) active / count;
+            mZoneMeanDiffs[z] = 0 == count ? 0 : (float) diffSum / count;
+            mZoneActive[z] = 0 != count && mZoneActivity[z] >= mZoneFraction;
+            any |= mZoneActive[z];
+        }
+        return any;
+    }
+
+    private void setFrameSize(int width, int height) {
+        mFrameWidth = width;
+        mFrameHeight = height;
+        if (mColumnEnds.length != mColumns) {
+            mColumnEnds = new int[mColumns];
+        }
+        if (mRowEnds.length != mRows) {
+            mRowEnds = new int[mRows];
+        }
+        for (int col = 0; col < mColumns; col++) {
+            mColumnEnds[col] = (int) ((long) (col + 1) * width / mColumns);
+        }
+        for (int row = 0; row < mRows; row++) {
+            mRowEnds[row] = (int) ((long) (row + 1) * height / mRows);
+        }
+        for (int row = 0; row < mRows; row++) {
+            int cellHeight = mRowEnds[row] - (0 == row ? 0 : mRowEnds[row - 1]);
+            for (int col = 0; col < mColumns; col++) {
+                int cellWidth = mColumnEnds[col] - (0 == col ? 0 : mColumnEnds[col - 1]);
+                mCellAreas[col + row * mColumns] = cellWidth * cellHeight;
+            }
+        }
+        // 栅格划分变了, 上一帧的平均值不能再比较
+        mHasPrevious = false;
+    }
+
+    public int getColumns() {
+        return mColumns;
+    }
+
+    public int getRows() {
+        return mRows;
+    }
+
+    public int getZoneCount() {
+        return mZoneCount;
+    }
+
+    /**
+     * 已处理的帧数.
+     */
+    public long getFrameCount() {
+        return mFrameCount;
+    }
+
+    /**
+     * 最近一帧栅格 cell 的平均亮度.
+     */
+    public int getCellMean(int cell) {
+        return mMeans[cell];
+    }
+
+    /**
+     * 栅格 cell 最近两帧平均亮度之差的绝对值.
+     */
+    public int getCellDiff(int cell) {
+        return mDiffs[cell];
+    }
+
+    /**
+     * 复制所有栅格的 {@link #getCellDiff(int)}, 例如交给 {@link ActivityHeatmap}.
+     *
+     * @param out: 长度至少为栅格数
+     */
+    public void copyCellDiffs(int[] out) {
+        System.arraycopy(mDiffs, 0, out, 0, mColumns * mRows);
+    }
+
+    /**
+     * 窗口内活动栅格的比例, 0 - 1.
+     */
+    public float getZoneActivity(int zone) {
+        checkZone(zone);
+        return mZoneActivity[zone];
+    }
+
+    /**
+     * 窗口内所有栅格亮度变化的平均值.
+     */
+    public float getZoneMeanDiff(int zone) {
+        checkZone(zone);
+        return mZoneMeanDiffs[zone];
+    }
+
+    public boolean isZoneActive(int zone) {
+        checkZone(zone);
+        return mZoneActive[zone];
+    }
+
+    private void checkZone(int zone) {
+        if (zone < 0 || zone >= mZoneCount) {
+            throw new IndexOutOfBoundsException("Invalid zone " + zone + ", count is " + mZoneCount);
+        }
+    }
+}
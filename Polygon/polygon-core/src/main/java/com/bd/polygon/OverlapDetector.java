@@ -0,0 +1,119 @@
+package com.bd.polygon;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * 多边形之间的重叠检测, 增量更新
+ * <p>
+ * Keeps, for every polygon, the set of polygons it overlaps (see {@link PolygonIntersector}).
+ * {@link #update(List)} only recomputes the polygons whose {@link Polygon#getVersion()} changed since
+ * the last call, so while one window is dragged each update costs one bounding box check per other
+ * polygon plus the exact test for the few whose boxes overlap.
+ * <p>
+ * Not thread safe, meant for the UI thread.
+ *
+ * @author agent
+ */
+public class OverlapDetector {
+
+    private final PolygonIntersector mIntersector = new PolygonIntersector();
+
+    // 与下标对应的多边形及上次检测时的版本, 用来发现变化
+    private final List<Polygon> mPolygons = new ArrayList<Polygon>();
+    private int[] mVersions = new int[0];
+    private final List<BitSet> mOverlaps = new ArrayList<BitSet>();
+    private final BitSet mDirty = new BitSet();
+
+    /**
+     * 重新检测变化过的多边形.
+     *
+     * @return 有多边形的重叠关系可能发生了变化
+     */
+    public boolean update(List<Polygon> polygons) {
+        int count = polygons.size();
+        if (mVersions.length < count) {
+            int[] versions = new int[Math.max(count, mVersions.length * 2)];
+            System.arraycopy(mVersions, 0, versions, 0, mVersions.length);
+            mVersions = versions;
+        }
+        mDirty.clear();
+        for (int i = 0; i < count; i++) {
+            Polygon polygon = polygons.get(i);
+            if (i >= mPolygons.size()) {
+                mPolygons.add(polygon);
+                mOverlaps.add(new BitSet());
+                mDirty.set(i);
+            } else if (mPolygons.get(i) != polygon || mVersions[i] != polygon.getVersion()) {
+                mPolygons.set(i, polygon);
+                mDirty.set(i);
+            }
+            mVersions[i] = polygon.getVersion();
+        }
+        // 多边形变少: 去掉多出来的, 以及其他多边形对它们的记录
+        boolean shrunk = mPolygons.size() > count;
+        while (mPolygons.size() > count) {
+            mPolygons.remove(mPolygons.size() - 1);
+            mOverlaps.remove(mOverlaps.size() - 1);
+        }
+        if (shrunk) {
+            for (int i = 0; i < count; i++) {
+                mOverlaps.get(i).clear(count, Integer.MAX_VALUE);
+            }
+        }
+        for (int i = mDirty.nextSetBit(0); i >= 0; i = mDirty.nextSetBit(i + 1)) {
+            updateRow(i, count);
+        }
+        return shrunk || !mDirty.isEmpty();
+    }
+
+    private void updateRow(int i, int count) {
+        Polygon polygon = mPolygons.get(i);
+        BitSet row = mOverlaps.get(i);
+        for (int j = 0; j < count; j++) {
+            if (j == i) {
+                continue;
+            }
+            // 两个都变化时只算一次
+            if (j < i && mDirty.get(j)) {
+                continue;
+            }
+            boolean overlap = mIntersector.intersects(polygon, mPolygons.get(j));
+            row.set(j, overlap);
+            mOverlaps.get(j).set(i, overlap);
+        }
+    }
+
+    /**
+     * @return 上次 {@link #update(List)} 时该多边形是否与其他多边形重叠
+     */
+    public boolean hasOverlap(int index) {
+        return index >= 0 && index < mOverlaps.size() && !mOverlaps.get(index).isEmpty();
+    }
+
+    public boolean hasAnyOverlap() {
+        for (int i = 0; i < mOverlaps.size(); i++) {
+            if (!mOverlaps.get(i).isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param out: 与该多边形重叠的多边形下标, 调用前清空
+     */
+    public void getOverlaps(int index, BitSet out) {
+        out.clear();
+        if (index >= 0 && index < mOverlaps.size()) {
+            out.or(mOverlaps.get(index));
+        }
+    }
+
+    public void clear() {
+        mPolygons.clear();
+        mOverlaps.clear();
+        mDirty.clear();
+    }
+}
@@ -0,0 +1,126 @@
+package com.bd.polygon;
+
+/**
+ * 按下标生成的窗口配色
+ * <p>
+ * A fixed number of colors generated procedurally instead of listed by hand, so any number of
+ * windows can be colored. Hues advance by the golden ratio of a full turn, which keeps neighbouring
+ * indices far apart on the color wheel; odd slots are slightly darker to separate the hues that come
+ * close again after many steps. Window {@code i} uses slot {@code i % size}, so at most {@code size}
+ * distinct fill colors exist and windows of one slot can be drawn as one batch.
+ *
+ * @author agent
+ */
+public final class Palette {
+
+    public static final int DEFAULT_SIZE = 64;
+
+    // 与原有配色一致: 填充半透明, 顶点不透明
+    public static final int DEFAULT_PANEL_ALPHA = 0x7F;
+
+    private static final double GOLDEN_RATIO = 0.6180339887498949;
+
+    private final int[] mPanelColors;
+    private final int[] mCornerColors;
+
+    public Palette() {
+        this(DEFAULT_SIZE, DEFAULT_PANEL_ALPHA);
+    }
+
+    /**
+     * @param size:       颜色个数
+     * @param panelAlpha: 填充色的透明度 0 - 255
+     */
+    public Palette(int size, int panelAlpha) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive: " + size);
+        }
+        if (panelAlpha < 0 || panelAlpha > 255) {
+            throw new IllegalArgumentException("panelAlpha must be in [0, 255]: " + panelAlpha);
+        }
+        mPanelColors = new int[size];
+        mCornerColors = new int[size];
+        for (int i = 0; i < size; i++) {
+            float hue = (float) ((i * GOLDEN_RATIO) % 1.0) * 360f;
+            float value = 0 == (i & 1) ? 0.9f : 0.72f;
+            mCornerColors[i] = hsvToArgb(255, hue, 0.8f, value);
+            mPanelColors[i] = (panelAlpha << 24) | (mCornerColors[i] & 0xFFFFFF);
+        }
+    }
+
+    public int getSize() {
+        return mPanelColors.length;
+    }
+
+    /**
+     * 下标为 index 的窗口使用的颜色槽位.
+     */
+    public int getSlot(int index) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("Invalid index " + index);
+        }
+        return index % mPanelColors.length;
+    }
+
+    public int getPanelColor(int index) {
+        return mPanelColors[getSlot(index)];
+    }
+
+    public int getCornerColor(int index) {
+        return mCornerColors[getSlot(index)];
+    }
+
+    /**
+     * @param hue:        [0, 360)
+     * @param saturation: [0, 1]
+     * @param value:      [0, 1]
+     */
+    public static int hsvToArgb(int alpha, float hue, float saturation, float value) {
+        float h = (hue % 360f + 360f) % 360f / 60f;
+        int sector = (int) h;
+        float f = h - sector;
+        float p = value * (1 - saturation);
+        float q = value * (1 - saturation * f);
+        float t = value * (1 - saturation * (1 - f));
+        float r;
+        float g;
+        float b;
+        switch (sector) {
+            case 0:
+                r = value;
+                g = t;
+                b = p;
+                break;
+            case 1:
+                r = q;
+                g = value;
+                b = p;
+                break;
+            case 2:
+                r = p;
+                g = value;
+                b = t;
+                break;
+            case 3:
+                r = p;
+                g = q;
+                b = value;
+                break;
+            case 4:
+                r = t;
+                g = p;
+                b = value;
+                break;
+            default:
+                r = value;
+                g = p;
+                b = q;
+                break;
+        }
+        return (alpha << 24) | (channel(r) << 16) | (channel(g) << 8) | channel(b);
+    }
+
+    private static int channel(float c) {
+        return Math.max(0, Math.min(255, Math.round(c * 255)));
+    }
+}
@@ -0,0 +1,326 @@
+package com.bd.polygon;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按多边形提取图像像素 / 统计, 多线程并行
+ * <p>
+ * Polygons must already be in image coordinates. Each one is rasterized at pixel resolution
+ * (m = n = 1, the same positive-area rule as the cell grid, so partly covered edge pixels count) and
+ * every span is read from the {@link PixelSource} into a per-worker {@code int[]} row buffer. Nothing is
+ * allocated per pixel or per row; row buffers, rasterizers and results are reused between calls.
+ * <p>
+ * With {@link Shape#CIRCLE} every polygon is a two point circle and is rasterized as a disc by
+ * {@link DiscRasterizer}, so its radius must be given in image pixels as well.
+ * <p>
+ * Polygons are spread over a fixed thread pool, the calling thread takes part as well. Workers pull
+ * the next polygon from a shared counter, so one large polygon does not hold back the rest.
+ * Calls are serialized; polygons must not be modified while a call runs.
+ *
+ * @author agent
+ */
+public class PixelMaskEngine {
+
+    private final Worker[] mWorkers;
+    // 只有一个线程时为 null, 全部在调用线程完成
+    private final ExecutorService mExecutor;
+    private final List<Future<?>> mFutures = new ArrayList<Future<?>>();
+
+    public PixelMaskEngine() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param threadCount: 参与计算的线程数, 包括调用线程
+     */
+    public PixelMaskEngine(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("threadCount must be positive: " + threadCount);
+        }
+        mWorkers = new Worker[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            mWorkers[i] = new Worker();
+        }
+        mExecutor = threadCount > 1 ? Executors.newFixedThreadPool(threadCount - 1, new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "PixelMask-" + mCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }) : null;
+    }
+
+    public int getThreadCount() {
+        return mWorkers.length;
+    }
+
+    /**
+     * 统计单个多边形, 在调用线程完成.
+     */
+    public void computeStats(PixelSource source, Polygon polygon, PixelStats out) {
+        computeStats(source, Shape.RECT, polygon, out);
+    }
+
+    /**
+     * @param shape: 为 {@link Shape#CIRCLE} 时按圆栅格化
+     */
+    public synchronized void computeStats(PixelSource source, Shape shape, Polygon polygon, PixelStats out) {
+        out.reset();
+        mWorkers[0].computeStats(source, Shape.CIRCLE == shape, polygon, out);
+    }
+
+    /**
+     * 并行统计所有多边形.
+     *
+     * @param out: 与 polygons 一一对应, 为 null 的元素会被创建
+     */
+    public void computeStats(PixelSource source, List<Polygon> polygons, PixelStats[] out)
+            throws InterruptedException {
+        computeStats(source, Shape.RECT, polygons, out);
+    }
+
+    /**
+     * @param shape: 为 {@link Shape#CIRCLE} 时按圆栅格化
+     */
+    public synchronized void computeStats(PixelSource source, Shape shape, List<Polygon> polygons, PixelStats[] out)
+            throws InterruptedException {
+        if (out.length < polygons.size()) {
+            throw new IllegalArgumentException("out holds " + out.length + " of " + polygons.size() + " polygons");
+        }
+        for (int i = 0; i < polygons.size(); i++) {
+            if (null == out[i]) {
+                out[i] = new PixelStats();
+            } else {
+                out[i].reset();
+            }
+        }
+        run(source, Shape.CIRCLE == shape, polygons, out, null);
+    }
+
+    /**
+     * 提取单个多边形的像素, 在调用线程完成.
+     */
+    public void extract(PixelSource source, Polygon polygon, MaskedPixels out) {
+        extract(source, Shape.RECT, polygon, out);
+    }
+
+    /**
+     * @param shape: 为 {@link Shape#CIRCLE} 时按圆栅格化
+     */
+    public synchronized void extract(PixelSource source, Shape shape, Polygon polygon, MaskedPixels out) {
+        mWorkers[0].extract(source, Shape.CIRCLE == shape, polygon, out);
+    }
+
+    /**
+     * 并行提取所有多边形的像素.
+     *
+     * @param out: 与 polygons 一一对应, 为 null 的元素会被创建
+     */
+    public void extract(PixelSource source, List<Polygon> polygons, MaskedPixels[] out)
+            throws InterruptedException {
+        extract(source, Shape.RECT, polygons, out);
+    }
+
+    /**
+     * @param shape: 为 {@link Shape#CIRCLE} 时按圆栅格化
+     */
+    public synchronized void extract(PixelSource source, Shape shape, List<Polygon> polygons, MaskedPixels[] out)
+            throws InterruptedException {
+        if (out.length < polygons.size()) {
+            throw new IllegalArgumentException("out holds " + out.length + " of " + polygons.size() + " polygons");
+        }
+        for (int i = 0; i < polygons.size(); i++) {
+            if (null == out[i]) {
+                out[i] = new MaskedPixels();
+            }
+        }
+        run(source, Shape.CIRCLE == shape, polygons, null, out);
+    }
+
+    /**
+     * 结束线程池, 之后只能在调用线程单线程运行.
+     */
+    public void shutdown() {
+        if (null != mExecutor) {
+            mExecutor.shutdown();
+        }
+    }
+
+    private void run(PixelSource source, boolean circle, List<Polygon> polygons, PixelStats[] stats,
+                     MaskedPixels[] masks) throws InterruptedException {
+        AtomicInteger next = new AtomicInteger();
+        int tasks = Math.min(mWorkers.length, polygons.size());
+        if (null == mExecutor || mExecutor.isShutdown()) {
+            tasks = Math.min(tasks, 1);
+        }
+        mFutures.clear();
+        try {
+            for (int i = 1; i < tasks; i++) {
+                mFutures.add(mExecutor.submit(new Task(mWorkers[i], next, source, circle, polygons, stats, masks)));
+            }
+            new Task(mWorkers[0], next, source, circle, polygons, stats, masks).run();
+            for (int i = 0; i < mFutures.size(); i++) {
+                mFutures.get(i).get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            // 出错或被中断时不再分配新的多边形, 并等待已开始的任务结束, 避免与下一次调用共用 Worker
+            next.set(polygons.size());
+            boolean interrupted = false;
+            for (int i = 0; i < mFutures.size(); i++) {
+                while (true) {
+                    try {
+                        mFutures.get(i).get();
+                        break;
+                    } catch (ExecutionException ignored) {
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            mFutures.clear();
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static final class Task implements Runnable {
+        private final Worker mWorker;
+        private final AtomicInteger mNext;
+        private final PixelSource mSource;
+        private final boolean mCircle;
+        private final List<Polygon> mPolygons;
+        private final PixelStats[] mStats;
+        private final MaskedPixels[] mMasks;
+
+        Task(Worker worker, AtomicInteger next, PixelSource source, boolean circle, List<Polygon> polygons,
+             PixelStats[] stats, MaskedPixels[] masks) {
+            mWorker = worker;
+            mNext = next;
+            mSource = source;
+            mCircle = circle;
+            mPolygons = polygons;
+            mStats = stats;
+            mMasks = masks;
+        }
+
+        @Override
+        public void run() {
+            int size = mPolygons.size();
+            for (int i = mNext.getAndIncrement(); i < size; i = mNext.getAndIncrement()) {
+                if (null != mStats) {
+                    mWorker.computeStats(mSource, mCircle, mPolygons.get(i), mStats[i]);
+                } else {
+                    mWorker.extract(mSource, mCircle, mPolygons.get(i), mMasks[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * 每个线程一份的栅格化器和行缓冲.
+     */
+    private static final class Worker implements GridRasterizer.SpanSink {
+        private final GridRasterizer mRasterizer = new GridRasterizer();
+        private int[] mRow = new int[0];
+        private final int[] mBounds = new int[4];
+
+        private PixelSource mSource;
+        private PixelStats mStats;
+        private MaskedPixels mMask;
+
+        void computeStats(PixelSource source, boolean circle, Polygon polygon, PixelStats out) {
+            begin(source);
+            mStats = out;
+            try {
+                rasterize(circle, polygon, source.getWidth(), source.getHeight());
+            } finally {
+                end();
+            }
+        }
+
+        void extract(PixelSource source, boolean circle, Polygon polygon, MaskedPixels out) {
+            int width = source.getWidth();
+            int height = source.getHeight();
+            if (0 == polygon.size()) {
+                out.reset(0, 0, 0, 0);
+                return;
+            }
+            // 与栅格化相同的规则: 至少一个像素, 再裁剪到图像内
+            int[] bounds = mBounds;
+            if (circle) {
+                DiscRasterizer.getBounds(polygon, bounds);
+            } else {
+                polygon.getBounds(bounds);
+            }
+            int left = Math.max(bounds[0], 0);
+            int top = Math.max(bounds[1], 0);
+            int right = Math.min(Math.max(bounds[2], bounds[0] + 1), width);
+            int bottom = Math.min(Math.max(bounds[3], bounds[1] + 1), height);
+            if (left >= right || top >= bottom) {
+                out.reset(left, top, 0, 0);
+                return;
+            }
+            out.reset(left, top, right - left, bottom - top);
+            begin(source);
+            mMask = out;
+            try {
+                rasterize(circle, polygon, width, height);
+            } finally {
+                end();
+            }
+        }
+
+        private void rasterize(boolean circle, Polygon polygon, int width, int height) {
+            if (circle) {
+                DiscRasterizer.rasterize(polygon, width, height, 1, 1, this);
+            } else {
+                polygon.rasterize(mRasterizer, width, height, 1, 1, this);
+            }
+        }
+
+        private void begin(PixelSource source) {
+            mSource = source;
+            if (mRow.length < source.getWidth()) {
+                mRow = new int[source.getWidth()];
+            }
+        }
+
+        private void end() {
+            mSource = null;
+            mStats = null;
+            mMask = null;
+        }
+
+        @Override
+        public void span(int row, int fromCol, int toCol) {
+            int width = toCol - fromCol + 1;
+            mSource.getRow(fromCol, row, width, mRow);
+            if (null != mStats) {
+                mStats.add(mRow, 0, width);
+            } else {
+                mMask.copyRow(mRow, fromCol, row, width);
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.bd.polygon;
+
+/**
+ * 按行读取 ARGB 像素的图像源
+ * <p>
+ * Implemented on top of an Android Bitmap in the app and on top of a plain {@code int[]} in
+ * {@link ArgbPixels}. {@link PixelMaskEngine} calls {@link #getRow} from several worker threads at once,
+ * each with its own buffer, so implementations must allow concurrent reads.
+ *
+ * @author agent
+ */
+public interface PixelSource {
+
+    int getWidth();
+
+    int getHeight();
+
+    /**
+     * 读取第 {@code y} 行 [x, x + width) 的像素, 写入 out[0, width).
+     */
+    void getRow(int x, int y, int width, int[] out);
+}
@@ -0,0 +1,150 @@
+package com.bd.polygon;
+
+import java.util.Arrays;
+
+/**
+ * 多边形区域的像素统计
+ * <p>
+ * Pixel count, per channel sums and a 256 bin luminance histogram. Luminance is the integer
+ * approximation {@code (77 R + 150 G + 29 B) >> 8} of Rec. 601, alpha is ignored.
+ *
+ * @author agent
+ */
+public class PixelStats {
+
+    public static final int BINS = 256;
+
+    private long mCount;
+    private long mSumRed;
+    private long mSumGreen;
+    private long mSumBlue;
+    private long mSumLuminance;
+    private final long[] mHistogram = new long[BINS];
+
+    public void reset() {
+        mCount = 0;
+        mSumRed = 0;
+        mSumGreen = 0;
+        mSumBlue = 0;
+        mSumLuminance = 0;
+        Arrays.fill(mHistogram, 0);
+    }
+
+    /**
+     * 累加 argb[offset, offset + length).
+     */
+    public void add(int[] argb, int offset, int length) {
+        long red = 0;
+        long green = 0;
+        long blue = 0;
+        long luminance = 0;
+        long[] histogram = mHistogram;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            int color = argb[i];
+            int r = (color >> 16) & 0xFF;
+            int g = (color >> 8) & 0xFF;
+            int b = color & 0xFF;
+            int l = luminance(r, g, b);
+            red += r;
+            green += g;
+            blue += b;
+            luminance += l;
+            histogram[l]++;
+        }
+        mCount += length;
+        mSumRed += red;
+        mSumGreen += green;
+        mSumBlue += blue;
+        mSumLuminance += luminance;
+    }
+
+    public void add(PixelStats other) {
+        mCount += other.mCount;
+        mSumRed += other.mSumRed;
+        mSumGreen += other.mSumGreen;
+        mSumBlue += other.mSumBlue;
+        mSumLuminance += other.mSumLuminance;
+        for (int i = 0; i < BINS; i++) {
+            mHistogram[i] += other.mHistogram[i];
+        }
+    }
+
+    public long getCount() {
+        return mCount;
+    }
+
+    public double getMeanRed() {
+        return mean(mSumRed);
+    }
+
+    public double getMeanGreen() {
+        return mean(mSumGreen);
+    }
+
+    public double getMeanBlue() {
+        return mean(mSumBlue);
+    }
+
+    public double getMeanLuminance() {
+        return mean(mSumLuminance);
+    }
+
+    /**
+     * @return 不透明的平均颜色, 没有像素时为 0
+     */
+    public int getMeanColor() {
+        if (0 == mCount) {
+            return 0;
+        }
+        int r = (int) ((mSumRed + mCount / 2) / mCount);
+        int g = (int) ((mSumGreen + mCount / 2) / mCount);
+        int b = (int) ((mSumBlue + mCount / 2) / mCount);
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+
+    /**
+     * @param luminance: 0 ~ 255
+     */
+    public long getHistogram(int luminance) {
+        return mHistogram[luminance];
+    }
+
+    public void copyHistogram(long[] out) {
+        System.arraycopy(mHistogram, 0, out, 0, BINS);
+    }
+
+    /**
+     * @param percentile: 0 ~ 100
+     * @return 不小于该比例像素的最小亮度, 没有像素时为 0
+     */
+    public int getLuminanceAtPercentile(double percentile) {
+        if (0 == mCount) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(mCount * Math.min(100, Math.max(0, percentile)) / 100));
+        long seen = 0;
+        for (int i = 0; i < BINS; i++) {
+            seen += mHistogram[i];
+            if (seen >= target) {
+                return i;
+            }
+        }
+        return BINS - 1;
+    }
+
+    static int luminance(int r, int g, int b) {
+        return (77 * r + 150 * g + 29 * b) >> 8;
+    }
+
+    private double mean(long sum) {
+        return 0 == mCount ? 0 : (double) sum / mCount;
+    }
+
+    @Override
+    public String toString() {
+        return "PixelStats{count=" + mCount
+                + ", mean=(" + String.format("%.1f, %.1f, %.1f", getMeanRed(), getMeanGreen(), getMeanBlue()) + ")"
+                + ", luminance=" + String.format("%.1f", getMeanLuminance())
+                + ", median=" + getLuminanceAtPercentile(50) + "}";
+    }
+}
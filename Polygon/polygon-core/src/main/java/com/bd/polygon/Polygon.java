@@ -0,0 +1,468 @@
+package com.bd.polygon;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Description : <Content><br>
+ * CreateTime : 2016/3/22 11:15
+ *
+ * @author KevinLiu
+ * @version <v1.0>
+ * @Editor : KevinLiu
+ * @ModifyTime : 2016/3/22 11:15
+ * @ModifyDescription : <Content>
+ */
+public class Polygon implements ReadablePolygon {
+
+    private State state = State.UN_INIT;
+
+    private int cornerColor;
+
+    private int panelColor;
+
+    public enum State {
+        UN_INIT,
+        INIT,
+        MOVE,
+        DRAG
+
+    }
+
+    @Override
+    public int getCornerColor() {
+        return cornerColor;
+    }
+
+    public void setCornerColor(int cornerColor) {
+        this.cornerColor = cornerColor;
+    }
+
+    @Override
+    public int getPanelColor() {
+        return panelColor;
+    }
+
+    public void setPanelColor(int panelColor) {
+        this.panelColor = panelColor;
+    }
+
+    @Override
+    public State getState() {
+        return state;
+    }
+
+    public synchronized void  setState(State state) {
+        this.state = state;
+    }
+
+    // 顶点坐标, 结构数组存储, 只有前 mSize 个有效
+    private int[] mXs = new int[8];
+    private int[] mYs = new int[8];
+    private int mSize;
+
+    // 修改计数, 每次顶点变化加一
+    private int mVersion;
+
+    // 按版本号惰性重建的几何缓存
+    private final int[] mBounds = new int[4];
+    private int mBoundsVersion = -1;
+    private final int[] mCenter = new int[2];
+    private int mCenterVersion = -1;
+
+    // 调用方附加的数据, 例如绘制用的 Path 缓存
+    private Object mTag;
+
+    // 增量维护的栅格掩码, 为 null 时不维护
+    private GridMask mGridMask;
+
+    // 最近一次的快照, 顶点、状态和颜色都没有变化时复用
+    private PolygonSnapshot mSnapshot;
+
+    public Polygon() {
+    }
+
+    public Polygon(int[] xs, int[] ys, int count) {
+        setPoints(xs, ys, count);
+    }
+
+    public Polygon(int panelColor,int cornerColor) {
+        this.panelColor = panelColor;
+        this.cornerColor = cornerColor;
+    }
+
+    /**
+     * 复制顶点、状态和颜色, 例如把 {@link PolygonSnapshot} 还原为可编辑的多边形.
+     */
+    public Polygon(ReadablePolygon source) {
+        this(source.getPanelColor(), source.getCornerColor());
+        ensureCapacity(source.size());
+        mSize = source.copyPoints(mXs, mYs);
+        state = source.getState();
+        mVersion++;
+    }
+
+    public Polygon addPoint(int x, int y) {
+        if (null != mGridMask && mSize > 0) {
+            // 新顶点插在最后一个与第一个顶点之间
+            invalidateGridMask(mXs[mSize - 1], mYs[mSize - 1], mXs[0], mYs[0], x, y);
+        }
+        ensureCapacity(mSize + 1);
+        mXs[mSize] = x;
+        mYs[mSize] = y;
+        mSize++;
+        mVersion++;
+        return this;
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (mXs.length < capacity) {
+            int newCapacity = Math.max(capacity, mXs.length * 2);
+            mXs = Arrays.copyOf(mXs, newCapacity);
+            mYs = Arrays.copyOf(mYs, newCapacity);
+        }
+    }
+
+    public int opposite(int index) {
+        if (mSize % 2 != 0) {
+            return -1;
+        }
+
+        if (index < mSize / 2) {
+            return index + mSize / 2;
+        } else {
+            return index - mSize / 2;
+        }
+
+    }
+
+    public int next(int index) {
+        return index == mSize - 1 ? 0 : index + 1;
+    }
+
+    public int preview(int index) {
+        return index == 0 ? mSize - 1 : index - 1;
+    }
+
+    /**
+     * index 等于 size() 时追加, 否则覆盖.
+     */
+    public Polygon setPoint(int index, int x, int y) {
+        if (index >= mSize) {
+            if (index > mSize) {
+                throw new IndexOutOfBoundsException("Invalid index " + index + ", size is " + mSize);
+            }
+            return addPoint(x, y);
+        }
+        invalidateGridMask(index);
+        mXs[index] = x;
+        mYs[index] = y;
+        invalidateGridMask(index);
+        mVersion++;
+        return this;
+    }
+
+    /**
+     * 批量设置顶点, 原有顶点被替换.
+     */
+    public void setPoints(int[] xs, int[] ys, int count) {
+        ensureCapacity(count);
+        System.arraycopy(xs, 0, mXs, 0, count);
+        System.arraycopy(ys, 0, mYs, 0, count);
+        mSize = count;
+        mVersion++;
+        if (null != mGridMask) {
+            mGridMask.invalidateAll();
+        }
+    }
+
+    /**
+     * 按 {@link PolygonTemplate} 的单位顶点表写入顶点, 原有顶点被替换; 不分配内存.
+     */
+    void setScaledPoints(int[] unitXs, int[] unitYs, int count, int left, int top, int width, int height) {
+        ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            mXs[i] = left + PolygonTemplate.scale(unitXs[i], width);
+            mYs[i] = top + PolygonTemplate.scale(unitYs[i], height);
+        }
+        mSize = count;
+        mVersion++;
+        if (null != mGridMask) {
+            mGridMask.invalidateAll();
+        }
+    }
+
+    @Override
+    public int getX(int index) {
+        checkIndex(index);
+        return mXs[index];
+    }
+
+    @Override
+    public int getY(int index) {
+        checkIndex(index);
+        return mYs[index];
+    }
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * 复制所有顶点坐标, 数组长度至少为 {@link #size()}.
+     *
+     * @return 顶点个数
+     */
+    @Override
+    public int copyPoints(int[] xs, int[] ys) {
+        System.arraycopy(mXs, 0, xs, 0, mSize);
+        System.arraycopy(mYs, 0, ys, 0, mSize);
+        return mSize;
+    }
+
+    public int indexOf(int x, int y) {
+        for (int i = 0; i < mSize; i++) {
+            if (mXs[i] == x && mYs[i] == y) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 整体平移.
+     */
+    public void updatePoints(int dX, int dY) {
+        if (null != mGridMask && mSize > 0) {
+            mGridMask.translate(dX, dY, getBounds());
+        }
+        for (int i = 0; i < mSize; i++) {
+            mXs[i] += dX;
+            mYs[i] += dY;
+        }
+        mVersion++;
+    }
+
+    public void updatePoint(int index, int dX, int dY) {
+        checkIndex(index);
+        invalidateGridMask(index);
+        mXs[index] += dX;
+        mYs[index] += dY;
+        invalidateGridMask(index);
+        mVersion++;
+    }
+
+    /**
+     * 顶点平均值作为中心点, 结果写入 out[0], out[1]
+     *
+     * @return 没有顶点时返回 false
+     */
+    public boolean averagePolygon(int[] out) {
+        if (0 == mSize) {
+            return false;
+        }
+        out[0] = getCenterX();
+        out[1] = getCenterY();
+        return true;
+    }
+
+    /**
+     * 修改计数, 顶点没有变化时保持不变, 可用来判断缓存是否过期.
+     */
+    @Override
+    public int getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * 外接矩形 left, top, right, bottom. 返回的是内部缓存, 不要修改; 没有顶点时为 0.
+     */
+    public int[] getBounds() {
+        if (mBoundsVersion != mVersion) {
+            if (0 == mSize) {
+                mBounds[0] = mBounds[1] = mBounds[2] = mBounds[3] = 0;
+            } else {
+                MathUtil.getRectPoints(mXs, mYs, mSize, mBounds);
+            }
+            mBoundsVersion = mVersion;
+        }
+        return mBounds;
+    }
+
+    @Override
+    public void getBounds(int[] out) {
+        System.arraycopy(getBounds(), 0, out, 0, 4);
+    }
+
+    /**
+     * 当前顶点、状态和颜色的不可变快照, 可以交给其他线程栅格化或保存.
+     * 自上次调用以来没有任何变化时返回同一个对象, 不复制; 需要在修改多边形的线程调用.
+     */
+    public PolygonSnapshot snapshot() {
+        PolygonSnapshot snapshot = mSnapshot;
+        if (null == snapshot || snapshot.getVersion() != mVersion || snapshot.getState() != state
+                || snapshot.getPanelColor() != panelColor || snapshot.getCornerColor() != cornerColor) {
+            snapshot = new PolygonSnapshot(mXs, mYs, mSize, getBounds(), mVersion, state, panelColor, cornerColor);
+            mSnapshot = snapshot;
+        }
+        return snapshot;
+    }
+
+    public int getCenterX() {
+        updateCenter();
+        return mCenter[0];
+    }
+
+    public int getCenterY() {
+        updateCenter();
+        return mCenter[1];
+    }
+
+    private void updateCenter() {
+        if (mCenterVersion != mVersion) {
+            if (!MathUtil.averagePolygon(mXs, mYs, mSize, mCenter)) {
+                mCenter[0] = mCenter[1] = 0;
+            }
+            mCenterVersion = mVersion;
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Invalid index " + index + ", size is " + mSize);
+        }
+    }
+
+    /**
+     *
+     * @param M:            水平栅格数
+     * @param m:            x 比值
+     * @param n             y 比值
+     * @return 覆盖的栅格下标, 升序
+     */
+    public List<Integer> getDirtyRectGrid(int M, int m, int n) {
+        if (size() < 3) {
+            return MathUtil.getDirtyRectGrid(M, m, n, 0 == mSize ? null : getBounds());
+        }
+        BitSet cells = new BitSet();
+        getDirtyRectGrid(new GridRasterizer(), M, m, n, cells);
+        List<Integer> ret = new ArrayList<Integer>(cells.cardinality());
+        for (int i = cells.nextSetBit(0); i >= 0; i = cells.nextSetBit(i + 1)) {
+            ret.add(i);
+        }
+        return ret;
+    }
+
+    /**
+     * 精确栅格化, 只标记多边形真正覆盖的栅格.
+     *
+     * @param rasterizer: 可复用的栅格化器
+     * @param M:          水平栅格数
+     * @param m:          x 比值
+     * @param n           y 比值
+     * @param out         结果, 调用前清空
+     */
+    public void getDirtyRectGrid(GridRasterizer rasterizer, int M, int m, int n, BitSet out) {
+        out.clear();
+        if (mSize >= 3) {
+            rasterizer.rasterize(mXs, mYs, mSize, M, Integer.MAX_VALUE, m, n, out);
+        } else if (mSize > 0) {
+            rasterizer.rasterizeBounds(getBounds(), M, Integer.MAX_VALUE, m, n, out);
+        }
+    }
+
+    /**
+     * 按行输出覆盖的栅格, 顶点不足三个时退化为外接矩形.
+     *
+     * @param M:    水平栅格数
+     * @param rows: 垂直栅格数
+     * @param m:    x 比值
+     * @param n     y 比值
+     */
+    @Override
+    public void rasterize(GridRasterizer rasterizer, int M, int rows, int m, int n, GridRasterizer.SpanSink sink) {
+        if (mSize >= 3) {
+            rasterizer.rasterize(mXs, mYs, mSize, M, rows, m, n, sink);
+        } else if (mSize > 0) {
+            rasterizer.rasterizeBounds(getBounds(), M, rows, m, n, sink);
+        }
+    }
+
+    public Object getTag() {
+        return mTag;
+    }
+
+    /**
+     * 附加任意数据, 多边形本身不使用. 配合 {@link #getVersion()} 可在外部缓存派生数据.
+     */
+    public void setTag(Object tag) {
+        mTag = tag;
+    }
+
+    public void clear(){
+        mSize = 0;
+        mVersion++;
+        if (null != mGridMask) {
+            mGridMask.invalidateAll();
+        }
+    }
+
+    /**
+     * 开始增量维护 M x rows 栅格上的掩码, 之后顶点的修改只重建受影响的栅格.
+     * 栅格参数不变时保留已有的掩码.
+     *
+     * @param M:    水平栅格数
+     * @param rows: 垂直栅格数
+     * @param m:    x 比值
+     * @param n     y 比值
+     */
+    public void enableGridMask(int M, int rows, int m, int n) {
+        if (null != mGridMask && mGridMask.getColumns() == M && mGridMask.getRows() == rows
+                && mGridMask.getCellWidth() == m && mGridMask.getCellHeight() == n) {
+            return;
+        }
+        mGridMask = new GridMask(M, rows, m, n);
+    }
+
+    public void disableGridMask() {
+        mGridMask = null;
+    }
+
+    public boolean isGridMaskEnabled() {
+        return null != mGridMask;
+    }
+
+    /**
+     * 当前覆盖的栅格, 与 {@link #rasterize} 的结果一致.
+     *
+     * @return 内部对象, 不要修改; 没有调用 {@link #enableGridMask} 时返回 null
+     */
+    public BitSet getGridMask() {
+        if (null == mGridMask) {
+            return null;
+        }
+        return mGridMask.update(mXs, mYs, mSize, getBounds());
+    }
+
+    /**
+     * 顶点 index 与相邻的两条边所在的区域.
+     */
+    private void invalidateGridMask(int index) {
+        if (null == mGridMask) {
+            return;
+        }
+        int prev = preview(index);
+        int next = next(index);
+        invalidateGridMask(mXs[prev], mYs[prev], mXs[index], mYs[index], mXs[next], mYs[next]);
+    }
+
+    private void invalidateGridMask(int x0, int y0, int x1, int y1, int x2, int y2) {
+        mGridMask.invalidateArea(Math.min(x0, Math.min(x1, x2)), Math.min(y0, Math.min(y1, y2)),
+                Math.max(x0, Math.max(x1, x2)), Math.max(y0, Math.max(y1, y2)));
+    }
+
+
+}
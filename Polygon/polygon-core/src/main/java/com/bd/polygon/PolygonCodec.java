@@ -0,0 +1,224 @@
+package com.bd.polygon;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 编辑器状态的二进制格式
+ * <p>
+ * Versioned little endian layout, vertex arrays are stored as int blocks so they are copied in bulk:
+ * <pre>
+ * int   magic 'PLYG'
+ * short version
+ * byte  shape
+ * byte  reserved
+ * float centerX, centerY
+ * int   polygonCount
+ * per polygon:
+ *   byte state, byte reserved[3]
+ *   int  panelColor, cornerColor, vertexCount
+ *   int  xs[vertexCount], ys[vertexCount]
+ * </pre>
+ * Files are written to a temporary file first and renamed, and read through a memory mapped
+ * {@link FileChannel}.
+ *
+ * @author agent
+ */
+public final class PolygonCodec {
+
+    public static final int MAGIC = 0x504C5947;
+    public static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 4 + 2 + 1 + 1 + 4 + 4 + 4;
+    private static final int POLYGON_HEADER_SIZE = 4 + 4 + 4 + 4;
+
+    private PolygonCodec() {
+    }
+
+    public static int encodedSize(List<? extends ReadablePolygon> polygons) {
+        int size = HEADER_SIZE;
+        for (int i = 0; i < polygons.size(); i++) {
+            size += POLYGON_HEADER_SIZE + 8 * polygons.get(i).size();
+        }
+        return size;
+    }
+
+    public static byte[] encode(EditorState state) {
+        ByteBuffer buffer = ByteBuffer.allocate(encodedSize(state.getPolygons()));
+        encode(state, buffer);
+        return buffer.array();
+    }
+
+    /**
+     * 从 out 的当前位置写入, 剩余空间至少为 {@link #encodedSize}.
+     */
+    public static void encode(EditorState state, ByteBuffer out) {
+        encode(state.getShape(), state.getCenterX(), state.getCenterY(), state.getPolygons(), out);
+    }
+
+    /**
+     * 快照不可变, 可以在任意线程编码.
+     */
+    public static byte[] encode(EditorSnapshot snapshot) {
+        ByteBuffer buffer = ByteBuffer.allocate(encodedSize(snapshot.getPolygons()));
+        encode(snapshot, buffer);
+        return buffer.array();
+    }
+
+    public static void encode(EditorSnapshot snapshot, ByteBuffer out) {
+        encode(snapshot.getShape(), 0, 0, snapshot.getPolygons(), out);
+    }
+
+    private static void encode(Shape shape, float centerX, float centerY,
+                               List<? extends ReadablePolygon> polygons, ByteBuffer out) {
+        out.order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(MAGIC);
+        out.putShort((short) VERSION);
+        out.put((byte) shape.value);
+        out.put((byte) 0);
+        out.putFloat(centerX);
+        out.putFloat(centerY);
+        out.putInt(polygons.size());
+        int[] xs = new int[8];
+        int[] ys = new int[8];
+        for (int i = 0; i < polygons.size(); i++) {
+            ReadablePolygon polygon = polygons.get(i);
+            int count = polygon.size();
+            if (xs.length < count) {
+                xs = new int[count];
+                ys = new int[count];
+            }
+            polygon.copyPoints(xs, ys);
+            out.put((byte) polygon.getState().ordinal());
+            out.put((byte) 0);
+            out.put((byte) 0);
+            out.put((byte) 0);
+            out.putInt(polygon.getPanelColor());
+            out.putInt(polygon.getCornerColor());
+            out.putInt(count);
+            IntBuffer ints = out.asIntBuffer();
+            ints.put(xs, 0, count);
+            ints.put(ys, 0, count);
+            out.position(out.position() + 8 * count);
+        }
+    }
+
+    public static EditorState decode(byte[] data) throws IOException {
+        return decode(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * 从 in 的当前位置读取.
+     *
+     * @throws IOException 数据不完整、不是本格式或版本过新
+     */
+    public static EditorState decode(ByteBuffer in) throws IOException {
+        in.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new IOException("Not a polygon file");
+            }
+            int version = in.getShort();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported version " + version);
+            }
+            Shape shape = Shape.getType(in.get());
+            in.get();
+            float centerX = in.getFloat();
+            float centerY = in.getFloat();
+            int polygonCount = in.getInt();
+            if (polygonCount < 0 || polygonCount > in.remaining() / POLYGON_HEADER_SIZE) {
+                throw new IOException("Invalid polygon count " + polygonCount);
+            }
+            Polygon.State[] states = Polygon.State.values();
+            List<Polygon> polygons = new ArrayList<Polygon>(polygonCount);
+            int[] xs = new int[8];
+            int[] ys = new int[8];
+            for (int i = 0; i < polygonCount; i++) {
+                // position() 越界时抛出的是 IllegalArgumentException, 先检查
+                if (in.remaining() < POLYGON_HEADER_SIZE) {
+                    throw new IOException("Truncated polygon " + i);
+                }
+                int state = in.get();
+                in.position(in.position() + 3);
+                Polygon polygon = new Polygon(in.getInt(), in.getInt());
+                int count = in.getInt();
+                if (state < 0 || state >= states.length || count < 0 || count > in.remaining() / 8) {
+                    throw new IOException("Corrupt polygon " + i);
+                }
+                if (xs.length < count) {
+                    xs = new int[count];
+                    ys = new int[count];
+                }
+                IntBuffer ints = in.asIntBuffer();
+                ints.get(xs, 0, count);
+                ints.get(ys, 0, count);
+                in.position(in.position() + 8 * count);
+                polygon.setPoints(xs, ys, count);
+                polygon.setState(states[state]);
+                polygons.add(polygon);
+            }
+            return new EditorState(shape, centerX, centerY, polygons);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated polygon data", e);
+        }
+    }
+
+    /**
+     * 先写临时文件再重命名, 写到一半失败不会破坏旧文件.
+     */
+    public static void write(EditorState state, File file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(encodedSize(state.getPolygons()));
+        encode(state, buffer);
+        buffer.flip();
+        write(buffer, file);
+    }
+
+    /**
+     * 同 {@link #write(EditorState, File)}, 可以在后台线程调用; 同一个文件的写入需要串行.
+     */
+    public static void write(EditorSnapshot snapshot, File file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(encodedSize(snapshot.getPolygons()));
+        encode(snapshot, buffer);
+        buffer.flip();
+        write(buffer, file);
+    }
+
+    private static void write(ByteBuffer buffer, File file) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        RandomAccessFile out = new RandomAccessFile(temp, "rw");
+        try {
+            FileChannel channel = out.getChannel();
+            channel.truncate(0);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Cannot rename " + temp + " to " + file);
+        }
+    }
+
+    public static EditorState read(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            return decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.bd.polygon;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * 多边形顶点 / 区域的命中索引
+ * <p>
+ * Keeps every vertex and the bounding box of every polygon in a {@link SpatialIndex}. Polygons are
+ * re-indexed lazily through {@link #sync(int, Polygon)}, which costs nothing while
+ * {@link Polygon#getVersion()} is unchanged and otherwise only re-buckets the entries that moved.
+ *
+ * @author agent
+ */
+public class PolygonIndex {
+
+    private final SpatialIndex mVertices;
+    private final SpatialIndex mZones;
+
+    // 按多边形下标记录的索引状态
+    private int mCount;
+    private int[] mSyncedVersions = new int[0];
+    private int[] mZoneIds = new int[0];
+    private int[][] mVertexIds = new int[0][];
+    private int[] mVertexCounts = new int[0];
+
+    // 最近一次命中的结果
+    private int mHitPolygon = -1;
+    private int mHitVertex = -1;
+
+    /**
+     * @param vertexCellSize: 顶点索引的桶边长, 取顶点命中半径的两倍
+     * @param zoneCellSize:   区域索引的桶边长, 取区域的典型尺寸
+     */
+    public PolygonIndex(int vertexCellSize, int zoneCellSize) {
+        mVertices = new SpatialIndex(vertexCellSize);
+        mZones = new SpatialIndex(zoneCellSize);
+    }
+
+    /**
+     * 设置索引覆盖的范围, 一般为 View 的大小.
+     */
+    public void setBounds(int width, int height) {
+        mVertices.resize(width, height);
+        mZones.resize(width, height);
+    }
+
+    /**
+     * 删除所有条目, 多边形列表被替换时调用.
+     */
+    public void clear() {
+        mVertices.clear();
+        mZones.clear();
+        mCount = 0;
+        mSyncedVersions = new int[0];
+        mZoneIds = new int[0];
+        mVertexIds = new int[0][];
+        mVertexCounts = new int[0];
+    }
+
+    /**
+     * 同步所有多边形, 多余的条目会被删除.
+     */
+    public void syncAll(List<Polygon> polygons) {
+        for (int i = 0; i < polygons.size(); i++) {
+            sync(i, polygons.get(i));
+        }
+        for (int i = polygons.size(); i < mCount; i++) {
+            removeEntries(i);
+        }
+        mCount = Math.min(mCount, polygons.size());
+    }
+
+    /**
+     * 同步一个多边形; 版本号没有变化时直接返回.
+     */
+    public void sync(int polygonIndex, Polygon polygon) {
+        ensurePolygons(polygonIndex + 1);
+        int version = polygon.getVersion();
+        if (mZoneIds[polygonIndex] != -1 && mSyncedVersions[polygonIndex] == version) {
+            return;
+        }
+        int size = polygon.size();
+        if (0 == size) {
+            removeEntries(polygonIndex);
+            mSyncedVersions[polygonIndex] = version;
+            return;
+        }
+
+        int[] bounds = polygon.getBounds();
+        if (mZoneIds[polygonIndex] == -1) {
+            mZoneIds[polygonIndex] = mZones.insert(polygonIndex, -1, bounds[0], bounds[1], bounds[2], bounds[3]);
+        } else {
+            mZones.update(mZoneIds[polygonIndex], bounds[0], bounds[1], bounds[2], bounds[3]);
+        }
+
+        int[] ids = mVertexIds[polygonIndex];
+        if (null == ids || ids.length < size) {
+            ids = mVertexIds[polygonIndex] = null == ids ? new int[size] : Arrays.copyOf(ids, size);
+        }
+        int indexed = mVertexCounts[polygonIndex];
+        for (int i = 0; i < size; i++) {
+            int x = polygon.getX(i);
+            int y = polygon.getY(i);
+            if (i < indexed) {
+                mVertices.update(ids[i], x, y, x, y);
+            } else {
+                ids[i] = mVertices.insert(polygonIndex, i, x, y, x, y);
+            }
+        }
+        for (int i = size; i < indexed; i++) {
+            mVertices.remove(ids[i]);
+        }
+        mVertexCounts[polygonIndex] = size;
+        mSyncedVersions[polygonIndex] = version;
+    }
+
+    /**
+     * 查找距离 (x, y) 最近且切比雪夫距离小于 radius 的顶点.
+     *
+     * @return 是否命中, 命中时用 {@link #getHitPolygon()} / {@link #getHitVertex()} 读取
+     */
+    public boolean hitVertex(int x, int y, int radius) {
+        mHitPolygon = mHitVertex = -1;
+        int best = radius;
+        int count = mVertices.query(x - radius, y - radius, x + radius, y + radius);
+        for (int i = 0; i < count; i++) {
+            int id = mVertices.getResult(i);
+            int d = Math.max(Math.abs(x - mVertices.getLeft(id)), Math.abs(y - mVertices.getTop(id)));
+            if (d < best || (d == best && mVertices.getOwner(id) < mHitPolygon)) {
+                best = d;
+                mHitPolygon = mVertices.getOwner(id);
+                mHitVertex = mVertices.getSub(id);
+            }
+        }
+        return mHitPolygon != -1;
+    }
+
+    /**
+     * 查找外接矩形严格包含 (x, y) 的多边形, 有多个时取中心最近的.
+     */
+    public boolean hitBounds(List<Polygon> polygons, int x, int y) {
+        mHitPolygon = mHitVertex = -1;
+        long best = Long.MAX_VALUE;
+        int count = mZones.query(x, y, x, y);
+        for (int i = 0; i < count; i++) {
+            int id = mZones.getResult(i);
+            if (mZones.getLeft(id) < x && x < mZones.getRight(id) && mZones.getTop(id) < y && y < mZones.getBottom(id)) {
+                int polygonIndex = mZones.getOwner(id);
+                long d = distanceToCenter(polygons.get(polygonIndex), x, y);
+                if (d < best) {
+                    best = d;
+                    mHitPolygon = polygonIndex;
+                }
+            }
+        }
+        return mHitPolygon != -1;
+    }
+
+    /**
+     * 查找中心点与 (x, y) 的切比雪夫距离小于 radius 的多边形, 有多个时取最近的.
+     */
+    public boolean hitCenter(List<Polygon> polygons, int x, int y, int radius) {
+        mHitPolygon = mHitVertex = -1;
+        long best = Long.MAX_VALUE;
+        // 中心点一定在外接矩形内, 先用外接矩形筛选
+        int count = mZones.query(x - radius, y - radius, x + radius, y + radius);
+        for (int i = 0; i < count; i++) {
+            int polygonIndex = mZones.getOwner(mZones.getResult(i));
+            Polygon polygon = polygons.get(polygonIndex);
+            if (Math.max(Math.abs(x - polygon.getCenterX()), Math.abs(y - polygon.getCenterY())) < radius) {
+                long d = distanceToCenter(polygon, x, y);
+                if (d < best) {
+                    best = d;
+                    mHitPolygon = polygonIndex;
+                }
+            }
+        }
+        return mHitPolygon != -1;
+    }
+
+    /**
+     * 外接矩形与 [left, right] x [top, bottom] 相交 (含边界) 的多边形下标写入 out, 用于绘制时裁剪.
+     * 结果以最近一次同步为准.
+     *
+     * @param out: 调用前清空
+     */
+    public void queryZones(int left, int top, int right, int bottom, BitSet out) {
+        out.clear();
+        int count = mZones.query(left, top, right, bottom);
+        for (int i = 0; i < count; i++) {
+            out.set(mZones.getOwner(mZones.getResult(i)));
+        }
+    }
+
+    public int getHitPolygon() {
+        return mHitPolygon;
+    }
+
+    public int getHitVertex() {
+        return mHitVertex;
+    }
+
+    private static long distanceToCenter(Polygon polygon, int x, int y) {
+        long dx = x - polygon.getCenterX();
+        long dy = y - polygon.getCenterY();
+        return dx * dx + dy * dy;
+    }
+
+    private void removeEntries(int polygonIndex) {
+        if (polygonIndex >= mZoneIds.length) {
+            return;
+        }
+        if (mZoneIds[polygonIndex] != -1) {
+            mZones.remove(mZoneIds[polygonIndex]);
+            mZoneIds[polygonIndex] = -1;
+        }
+        int[] ids = mVertexIds[polygonIndex];
+        for (int i = 0; i < mVertexCounts[polygonIndex]; i++) {
+            mVertices.remove(ids[i]);
+        }
+        mVertexCounts[polygonIndex] = 0;
+    }
+
+    private void ensurePolygons(int count) {
+        if (mZoneIds.length < count) {
+            int capacity = Math.max(count, mZoneIds.length * 2);
+            int old = mZoneIds.length;
+            mSyncedVersions = Arrays.copyOf(mSyncedVersions, capacity);
+            mZoneIds = Arrays.copyOf(mZoneIds, capacity);
+            Arrays.fill(mZoneIds, old, capacity, -1);
+            mVertexIds = Arrays.copyOf(mVertexIds, capacity);
+            mVertexCounts = Arrays.copyOf(mVertexCounts, capacity);
+        }
+        mCount = Math.max(mCount, count);
+    }
+}
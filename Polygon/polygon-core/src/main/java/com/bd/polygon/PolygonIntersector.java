@@ -0,0 +1,356 @@
+package com.bd.polygon;
+
+import java.util.Arrays;
+
+/**
+ * 两个多边形的相交判断
+ * <p>
+ * Two polygons overlap when their interiors share a positive area; polygons that only touch along an
+ * edge or at a vertex do not overlap, so windows may be placed side by side. Polygons with fewer than
+ * three vertices have no area and never overlap.
+ * <p>
+ * The cached bounding boxes are compared first. Two convex polygons are then tested with the
+ * separating axis theorem. Otherwise the edges of both polygons are swept along x and only pairs
+ * from different polygons whose x and y ranges overlap are tested for a proper crossing. Without a
+ * crossing one polygon can still lie inside the other, which is found by testing vertices and edge
+ * midpoints for strict containment (even-odd rule, the same as {@link GridRasterizer}). When the
+ * boundaries coincide, a point strictly inside one polygon, taken from the ear at its top-left
+ * vertex, is tested against the other.
+ * <p>
+ * Scratch buffers are kept between calls, an instance must not be shared between threads.
+ *
+ * @author agent
+ */
+public class PolygonIntersector {
+
+    private static final int OUTSIDE = -1;
+    private static final int BOUNDARY = 0;
+    private static final int INSIDE = 1;
+
+    // interiorPoint 的坐标放大倍数, 三角形重心和线段中点都是整数
+    private static final int INTERIOR_SCALE = 6;
+
+    private int[] mAxs = new int[16];
+    private int[] mAys = new int[16];
+    private int[] mBxs = new int[16];
+    private int[] mBys = new int[16];
+
+    // 扫描线: 高 32 位为边的最小 x, 低 32 位为边编号 (b 的边编号加上 a 的顶点数)
+    private long[] mSortKeys = new long[32];
+    private int[] mActiveA = new int[16];
+    private int[] mActiveB = new int[16];
+    private final long[] mInterior = new long[2];
+
+    public boolean intersects(Polygon a, Polygon b) {
+        if (a.size() < 3 || b.size() < 3 || !boundsOverlap(a.getBounds(), b.getBounds())) {
+            return false;
+        }
+        mAxs = ensure(mAxs, a.size());
+        mAys = ensure(mAys, a.size());
+        mBxs = ensure(mBxs, b.size());
+        mBys = ensure(mBys, b.size());
+        int countA = a.copyPoints(mAxs, mAys);
+        int countB = b.copyPoints(mBxs, mBys);
+        return intersects(mAxs, mAys, countA, mBxs, mBys, countB);
+    }
+
+    /**
+     * 顶点数组版本, 不做外接矩形预判.
+     */
+    public boolean intersects(int[] axs, int[] ays, int countA, int[] bxs, int[] bys, int countB) {
+        if (countA < 3 || countB < 3 || collinear(axs, ays, countA) || collinear(bxs, bys, countB)) {
+            return false;
+        }
+        if (isConvex(axs, ays, countA) && isConvex(bxs, bys, countB)) {
+            return !separated(axs, ays, countA, bxs, bys, countB)
+                    && !separated(bxs, bys, countB, axs, ays, countA);
+        }
+        if (edgesCross(axs, ays, countA, bxs, bys, countB)) {
+            return true;
+        }
+        return containsAnyPoint(bxs, bys, countB, axs, ays, countA)
+                || containsAnyPoint(axs, ays, countA, bxs, bys, countB);
+    }
+
+    /**
+     * 外接矩形有正面积的交集. bounds: left, top, right, bottom
+     */
+    public static boolean boundsOverlap(int[] a, int[] b) {
+        return a[0] < b[2] && b[0] < a[2] && a[1] < b[3] && b[1] < a[3];
+    }
+
+    /**
+     * 简单凸多边形: 转向一致 (共线的顶点忽略), 且 x、y 方向各最多改变两次.
+     */
+    public static boolean isConvex(int[] xs, int[] ys, int count) {
+        int turn = 0;
+        int xFlips = 0;
+        int yFlips = 0;
+        int lastDx = 0;
+        int lastDy = 0;
+        // 从最后一条非零的边开始, 统计方向改变次数
+        for (int i = count - 1; i >= 0 && (0 == lastDx || 0 == lastDy); i--) {
+            int j = i == count - 1 ? 0 : i + 1;
+            if (0 == lastDx) {
+                lastDx = Integer.signum(xs[j] - xs[i]);
+            }
+            if (0 == lastDy) {
+                lastDy = Integer.signum(ys[j] - ys[i]);
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            int j = i == count - 1 ? 0 : i + 1;
+            int k = j == count - 1 ? 0 : j + 1;
+            long cross = cross(xs[i], ys[i], xs[j], ys[j], xs[k], ys[k]);
+            if (0 != cross) {
+                int sign = cross > 0 ? 1 : -1;
+                if (0 != turn && sign != turn) {
+                    return false;
+                }
+                turn = sign;
+            }
+            int dx = Integer.signum(xs[j] - xs[i]);
+            int dy = Integer.signum(ys[j] - ys[i]);
+            if (0 != dx) {
+                if (dx != lastDx) {
+                    xFlips++;
+                }
+                lastDx = dx;
+            }
+            if (0 != dy) {
+                if (dy != lastDy) {
+                    yFlips++;
+                }
+                lastDy = dy;
+            }
+        }
+        return 0 != turn && xFlips <= 2 && yFlips <= 2;
+    }
+
+    // 所有顶点共线, 没有面积
+    private static boolean collinear(int[] xs, int[] ys, int count) {
+        int k = 1;
+        while (k < count && xs[k] == xs[0] && ys[k] == ys[0]) {
+            k++;
+        }
+        for (int i = k + 1; i < count; i++) {
+            if (0 != cross(xs[0], ys[0], xs[k], ys[k], xs[i], ys[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 以 a 的边法线为轴, 投影区间最多只在端点接触则分离
+    private static boolean separated(int[] axs, int[] ays, int countA, int[] bxs, int[] bys, int countB) {
+        for (int i = 0; i < countA; i++) {
+            int j = i == countA - 1 ? 0 : i + 1;
+            long nx = ays[i] - ays[j];
+            long ny = axs[j] - axs[i];
+            if (0 == nx && 0 == ny) {
+                continue;
+            }
+            long minA = Long.MAX_VALUE;
+            long maxA = Long.MIN_VALUE;
+            for (int v = 0; v < countA; v++) {
+                long p = nx * axs[v] + ny * ays[v];
+                minA = Math.min(minA, p);
+                maxA = Math.max(maxA, p);
+            }
+            long minB = Long.MAX_VALUE;
+            long maxB = Long.MIN_VALUE;
+            for (int v = 0; v < countB; v++) {
+                long p = nx * bxs[v] + ny * bys[v];
+                minB = Math.min(minB, p);
+                maxB = Math.max(maxB, p);
+            }
+            if (maxA <= minB || maxB <= minA) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean edgesCross(int[] axs, int[] ays, int countA, int[] bxs, int[] bys, int countB) {
+        int total = countA + countB;
+        mSortKeys = ensure(mSortKeys, total);
+        for (int e = 0; e < total; e++) {
+            mSortKeys[e] = ((long) edgeMinX(e, axs, countA, bxs, countB) << 32) | e;
+        }
+        Arrays.sort(mSortKeys, 0, total);
+
+        mActiveA = ensure(mActiveA, countA);
+        mActiveB = ensure(mActiveB, countB);
+        int activeA = 0;
+        int activeB = 0;
+        for (int s = 0; s < total; s++) {
+            int e = (int) mSortKeys[s];
+            int minX = (int) (mSortKeys[s] >> 32);
+            if (e < countA) {
+                activeB = retire(mActiveB, activeB, minX, bxs, countB);
+                int i = e;
+                int j = i == countA - 1 ? 0 : i + 1;
+                for (int t = 0; t < activeB; t++) {
+                    int k = mActiveB[t];
+                    int l = k == countB - 1 ? 0 : k + 1;
+                    if (properCross(axs[i], ays[i], axs[j], ays[j], bxs[k], bys[k], bxs[l], bys[l])) {
+                        return true;
+                    }
+                }
+                mActiveA[activeA++] = i;
+            } else {
+                activeA = retire(mActiveA, activeA, minX, axs, countA);
+                int k = e - countA;
+                int l = k == countB - 1 ? 0 : k + 1;
+                for (int t = 0; t < activeA; t++) {
+                    int i = mActiveA[t];
+                    int j = i == countA - 1 ? 0 : i + 1;
+                    if (properCross(axs[i], ays[i], axs[j], ays[j], bxs[k], bys[k], bxs[l], bys[l])) {
+                        return true;
+                    }
+                }
+                mActiveB[activeB++] = k;
+            }
+        }
+        return false;
+    }
+
+    private static int edgeMinX(int e, int[] axs, int countA, int[] bxs, int countB) {
+        if (e < countA) {
+            return Math.min(axs[e], axs[e == countA - 1 ? 0 : e + 1]);
+        }
+        e -= countA;
+        return Math.min(bxs[e], bxs[e == countB - 1 ? 0 : e + 1]);
+    }
+
+    // 移除最大 x 小于 minX 的活动边
+    private static int retire(int[] active, int activeCount, int minX, int[] xs, int count) {
+        int kept = 0;
+        for (int t = 0; t < activeCount; t++) {
+            int i = active[t];
+            int j = i == count - 1 ? 0 : i + 1;
+            if (Math.max(xs[i], xs[j]) >= minX) {
+                active[kept++] = i;
+            }
+        }
+        return kept;
+    }
+
+    // 两条线段在各自内部交叉, 端点接触或共线重叠都不算
+    private static boolean properCross(int ax, int ay, int bx, int by, int cx, int cy, int dx, int dy) {
+        if (Math.max(ay, by) < Math.min(cy, dy) || Math.max(cy, dy) < Math.min(ay, by)) {
+            return false;
+        }
+        long d1 = cross(ax, ay, bx, by, cx, cy);
+        long d2 = cross(ax, ay, bx, by, dx, dy);
+        if (d1 == 0 || d2 == 0 || (d1 > 0) == (d2 > 0)) {
+            return false;
+        }
+        long d3 = cross(cx, cy, dx, dy, ax, ay);
+        long d4 = cross(cx, cy, dx, dy, bx, by);
+        return d3 != 0 && d4 != 0 && (d3 > 0) != (d4 > 0);
+    }
+
+    // p 的顶点、边中点或一个内点严格位于 (xs, ys) 内部
+    private boolean containsAnyPoint(int[] xs, int[] ys, int count, int[] pxs, int[] pys, int pointCount) {
+        for (int i = 0; i < pointCount; i++) {
+            int j = i == pointCount - 1 ? 0 : i + 1;
+            // 坐标放大两倍, 中点仍是整数
+            if (INSIDE == locate(2L * pxs[i], 2L * pys[i], 2, xs, ys, count)
+                    || INSIDE == locate((long) pxs[i] + pxs[j], (long) pys[i] + pys[j], 2, xs, ys, count)) {
+                return true;
+            }
+        }
+        // 边界完全重合时只有内部的点能区分; 顶点平均点可能落在凹多边形外, 要用一定在内部的点
+        return interiorPoint(pxs, pys, pointCount, mInterior)
+                && INSIDE == locate(mInterior[0], mInterior[1], INTERIOR_SCALE, xs, ys, count);
+    }
+
+    /**
+     * 取一个严格位于多边形内部的点: 最上最左的顶点 v 一定是凸顶点, 与相邻顶点 u, w 组成三角形.
+     * 三角形内没有其他顶点时取它的重心; 否则取其中离 uw 最远的顶点 q, vq 是对角线, 取它的中点.
+     *
+     * @param out: 放大 {@link #INTERIOR_SCALE} 倍的 x, y
+     * @return 自交等情况下找不到时返回 false
+     */
+    private static boolean interiorPoint(int[] xs, int[] ys, int count, long[] out) {
+        int v = 0;
+        for (int i = 1; i < count; i++) {
+            if (ys[i] < ys[v] || (ys[i] == ys[v] && xs[i] < xs[v])) {
+                v = i;
+            }
+        }
+        // 跳过与 v 重合的相邻顶点
+        int u = v;
+        do {
+            u = u == 0 ? count - 1 : u - 1;
+        } while (u != v && xs[u] == xs[v] && ys[u] == ys[v]);
+        int w = v;
+        do {
+            w = w == count - 1 ? 0 : w + 1;
+        } while (w != v && xs[w] == xs[v] && ys[w] == ys[v]);
+        long area = cross(xs[u], ys[u], xs[v], ys[v], xs[w], ys[w]);
+        if (0 == area) {
+            return false;
+        }
+        int sign = area > 0 ? 1 : -1;
+        int q = -1;
+        long far = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == u || i == w || (xs[i] == xs[v] && ys[i] == ys[v])) {
+                continue;
+            }
+            // uw 上的顶点不影响: 从那里进入三角形的边另一端一定在三角形内
+            long distance = sign * cross(xs[w], ys[w], xs[u], ys[u], xs[i], ys[i]);
+            if (distance > far && sign * cross(xs[u], ys[u], xs[v], ys[v], xs[i], ys[i]) >= 0
+                    && sign * cross(xs[v], ys[v], xs[w], ys[w], xs[i], ys[i]) >= 0) {
+                far = distance;
+                q = i;
+            }
+        }
+        if (-1 == q) {
+            out[0] = 2L * ((long) xs[u] + xs[v] + xs[w]);
+            out[1] = 2L * ((long) ys[u] + ys[v] + ys[w]);
+        } else {
+            out[0] = 3L * ((long) xs[v] + xs[q]);
+            out[1] = 3L * ((long) ys[v] + ys[q]);
+        }
+        // 自交的多边形上述推理不成立, 再验证一次
+        return INSIDE == locate(out[0], out[1], INTERIOR_SCALE, xs, ys, count);
+    }
+
+    /**
+     * 奇偶规则判断点 (px / scale, py / scale) 的位置.
+     */
+    private static int locate(long px, long py, int scale, int[] xs, int[] ys, int count) {
+        boolean inside = false;
+        for (int i = 0; i < count; i++) {
+            int j = i == count - 1 ? 0 : i + 1;
+            long x1 = (long) scale * xs[i];
+            long y1 = (long) scale * ys[i];
+            long x2 = (long) scale * xs[j];
+            long y2 = (long) scale * ys[j];
+            long cross = (x2 - x1) * (py - y1) - (px - x1) * (y2 - y1);
+            if (0 == cross && px >= Math.min(x1, x2) && px <= Math.max(x1, x2)
+                    && py >= Math.min(y1, y2) && py <= Math.max(y1, y2)) {
+                return BOUNDARY;
+            }
+            if ((y1 > py) != (y2 > py) && (cross > 0) == (y2 > y1)) {
+                inside = !inside;
+            }
+        }
+        return inside ? INSIDE : OUTSIDE;
+    }
+
+    private static long cross(int ax, int ay, int bx, int by, int cx, int cy) {
+        return (long) (bx - ax) * (cy - ay) - (long) (by - ay) * (cx - ax);
+    }
+
+    private static int[] ensure(int[] array, int size) {
+        return array.length >= size ? array : Arrays.copyOf(array, Math.max(size, array.length * 2));
+    }
+
+    private static long[] ensure(long[] array, int size) {
+        return array.length >= size ? array : Arrays.copyOf(array, Math.max(size, array.length * 2));
+    }
+}
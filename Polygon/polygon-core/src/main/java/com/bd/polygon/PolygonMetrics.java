@@ -0,0 +1,35 @@
+package com.bd.polygon;
+
+/**
+ * 性能统计接口
+ * <p>
+ * Receives the durations measured on the hot paths. The default {@link #NONE} ignores everything and
+ * callers check for it before reading the clock, so a disabled metrics sink costs one field read.
+ *
+ * @author agent
+ */
+public interface PolygonMetrics {
+
+    // 一帧 onDraw 的耗时
+    int DRAW = 0;
+    // 收到触摸事件到发出 invalidate 的耗时
+    int TOUCH_TO_INVALIDATE = 1;
+    // 按下时查找顶点 / 区域的耗时
+    int HIT_TEST = 2;
+    // 栅格化的耗时
+    int RASTERIZE = 3;
+
+    int METRIC_COUNT = 4;
+
+    /**
+     * @param metric: 上面的常量之一
+     * @param nanos:  耗时 (ns)
+     */
+    void record(int metric, long nanos);
+
+    PolygonMetrics NONE = new PolygonMetrics() {
+        @Override
+        public void record(int metric, long nanos) {
+        }
+    };
+}
@@ -0,0 +1,96 @@
+package com.bd.polygon;
+
+import java.util.Arrays;
+
+/**
+ * 多边形的不可变快照
+ * <p>
+ * Vertices, state and colors of a {@link Polygon} at one {@link Polygon#getVersion() version}, taken
+ * with {@link Polygon#snapshot()}. All fields are final and the arrays are never handed out, so a
+ * snapshot can be passed to any thread while the polygon keeps being edited.
+ *
+ * @author agent
+ */
+public final class PolygonSnapshot implements ReadablePolygon {
+
+    private final int[] mXs;
+    private final int[] mYs;
+    private final int[] mBounds;
+    private final int mVersion;
+    private final Polygon.State mState;
+    private final int mPanelColor;
+    private final int mCornerColor;
+
+    PolygonSnapshot(int[] xs, int[] ys, int count, int[] bounds, int version,
+                    Polygon.State state, int panelColor, int cornerColor) {
+        mXs = Arrays.copyOf(xs, count);
+        mYs = Arrays.copyOf(ys, count);
+        mBounds = Arrays.copyOf(bounds, 4);
+        mVersion = version;
+        mState = state;
+        mPanelColor = panelColor;
+        mCornerColor = cornerColor;
+    }
+
+    @Override
+    public int size() {
+        return mXs.length;
+    }
+
+    @Override
+    public int getX(int index) {
+        return mXs[index];
+    }
+
+    @Override
+    public int getY(int index) {
+        return mYs[index];
+    }
+
+    @Override
+    public int copyPoints(int[] xs, int[] ys) {
+        System.arraycopy(mXs, 0, xs, 0, mXs.length);
+        System.arraycopy(mYs, 0, ys, 0, mYs.length);
+        return mXs.length;
+    }
+
+    @Override
+    public void getBounds(int[] out) {
+        System.arraycopy(mBounds, 0, out, 0, 4);
+    }
+
+    /**
+     * 拍摄快照时多边形的修改计数.
+     */
+    @Override
+    public int getVersion() {
+        return mVersion;
+    }
+
+    @Override
+    public Polygon.State getState() {
+        return mState;
+    }
+
+    @Override
+    public int getPanelColor() {
+        return mPanelColor;
+    }
+
+    @Override
+    public int getCornerColor() {
+        return mCornerColor;
+    }
+
+    /**
+     * 与 {@link Polygon#rasterize} 的结果一致; rasterizer 不能在线程间共享.
+     */
+    @Override
+    public void rasterize(GridRasterizer rasterizer, int M, int rows, int m, int n, GridRasterizer.SpanSink sink) {
+        if (mXs.length >= 3) {
+            rasterizer.rasterize(mXs, mYs, mXs.length, M, rows, m, n, sink);
+        } else if (mXs.length > 0) {
+            rasterizer.rasterizeBounds(mBounds, M, rows, m, n, sink);
+        }
+    }
+}
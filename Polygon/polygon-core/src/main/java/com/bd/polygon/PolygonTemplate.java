@@ -0,0 +1,135 @@
+package com.bd.polygon;
+
+/**
+ * N 边形模板, 把单位顶点表缩放到拖出的矩形
+ * <p>
+ * A template is a table of unit vertices in 16.16 fixed point, (0, 0) being the corner where the drag
+ * started and (1, 1) the opposite corner. {@link #apply} scales the table into the polygon's own
+ * vertex arrays, so creating a window of any vertex count costs one pass and no allocation.
+ * <p>
+ * {@link #regular(int)} tables are built once per vertex count and shared; they start on the left and
+ * run in the same order as {@link #RECT} (down first, then right), and are stretched to fill the whole
+ * rectangle, so the drag always gives the bounding box.
+ *
+ * @author agent
+ */
+public final class PolygonTemplate {
+
+    static final int SHIFT = 16;
+    static final int ONE = 1 << SHIFT;
+
+    // 左上、左下、右下、右上
+    public static final PolygonTemplate RECT = new PolygonTemplate(
+            new float[]{0, 0, 1, 1},
+            new float[]{0, 1, 1, 0});
+
+    // 矩形四角加四条边的中点
+    public static final PolygonTemplate OCTAGON = new PolygonTemplate(
+            new float[]{0, 0, 0, 0.5f, 1, 1, 1, 0.5f},
+            new float[]{0, 0.5f, 1, 1, 1, 0.5f, 0, 0});
+
+    private static final int MAX_CACHED = 64;
+    private static final PolygonTemplate[] sRegular = new PolygonTemplate[MAX_CACHED + 1];
+
+    private final int[] mUnitXs;
+    private final int[] mUnitYs;
+
+    /**
+     * 不规则模板.
+     *
+     * @param unitXs: 0 ~ 1, 相对拖出的矩形
+     * @param unitYs: 0 ~ 1, 相对拖出的矩形
+     */
+    public PolygonTemplate(float[] unitXs, float[] unitYs) {
+        if (unitXs.length != unitYs.length || unitXs.length < 3) {
+            throw new IllegalArgumentException("Need at least 3 vertices, got " + unitXs.length + "/" + unitYs.length);
+        }
+        mUnitXs = new int[unitXs.length];
+        mUnitYs = new int[unitYs.length];
+        for (int i = 0; i < unitXs.length; i++) {
+            mUnitXs[i] = toFixed(unitXs[i]);
+            mUnitYs[i] = toFixed(unitYs[i]);
+        }
+    }
+
+    /**
+     * 正 N 边形, 拉伸到填满拖出的矩形. N 不大于 64 时缓存.
+     */
+    public static PolygonTemplate regular(int vertexCount) {
+        if (vertexCount < 3) {
+            throw new IllegalArgumentException("Need at least 3 vertices, got " + vertexCount);
+        }
+        if (vertexCount > MAX_CACHED) {
+            return buildRegular(vertexCount);
+        }
+        synchronized (sRegular) {
+            if (null == sRegular[vertexCount]) {
+                sRegular[vertexCount] = buildRegular(vertexCount);
+            }
+            return sRegular[vertexCount];
+        }
+    }
+
+    private static PolygonTemplate buildRegular(int vertexCount) {
+        double[] xs = new double[vertexCount];
+        double[] ys = new double[vertexCount];
+        double minX = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+        for (int i = 0; i < vertexCount; i++) {
+            double angle = 2 * Math.PI * i / vertexCount;
+            xs[i] = -Math.cos(angle);
+            ys[i] = Math.sin(angle);
+            minX = Math.min(minX, xs[i]);
+            maxX = Math.max(maxX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+        float[] unitXs = new float[vertexCount];
+        float[] unitYs = new float[vertexCount];
+        for (int i = 0; i < vertexCount; i++) {
+            unitXs[i] = (float) ((xs[i] - minX) / (maxX - minX));
+            unitYs[i] = (float) ((ys[i] - minY) / (maxY - minY));
+        }
+        return new PolygonTemplate(unitXs, unitYs);
+    }
+
+    public int getVertexCount() {
+        return mUnitXs.length;
+    }
+
+    public float getUnitX(int index) {
+        return (float) mUnitXs[index] / ONE;
+    }
+
+    public float getUnitY(int index) {
+        return (float) mUnitYs[index] / ONE;
+    }
+
+    /**
+     * 替换多边形的顶点. dX / dY 可以为负 (向左上拖动).
+     *
+     * @param startX: 拖动起点
+     * @param startY: 拖动起点
+     * @param dX:     拖出的宽度
+     * @param dY      拖出的高度
+     */
+    public void apply(Polygon polygon, int startX, int startY, int dX, int dY) {
+        polygon.setScaledPoints(mUnitXs, mUnitYs, mUnitXs.length, startX, startY, dX, dY);
+    }
+
+    /**
+     * 单位坐标缩放到长度 size, 四舍五入.
+     */
+    static int scale(int unit, int size) {
+        return (int) (((long) unit * size + (ONE >> 1)) >> SHIFT);
+    }
+
+    private static int toFixed(float unit) {
+        if (!(unit >= 0 && unit <= 1)) {
+            throw new IllegalArgumentException("Unit coordinate out of [0, 1]: " + unit);
+        }
+        return Math.round(unit * ONE);
+    }
+}
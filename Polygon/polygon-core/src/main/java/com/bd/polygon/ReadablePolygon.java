@@ -0,0 +1,51 @@
+package com.bd.polygon;
+
+/**
+ * 只读的多边形
+ * <p>
+ * The read side shared by the live {@link Polygon} and its immutable {@link PolygonSnapshot}, so
+ * rasterization and encoding can be written once for both.
+ *
+ * @author agent
+ */
+public interface ReadablePolygon {
+
+    int size();
+
+    int getX(int index);
+
+    int getY(int index);
+
+    /**
+     * 复制所有顶点坐标, 数组长度至少为 {@link #size()}.
+     *
+     * @return 顶点个数
+     */
+    int copyPoints(int[] xs, int[] ys);
+
+    /**
+     * 外接矩形 left, top, right, bottom 写入 out; 没有顶点时为 0.
+     */
+    void getBounds(int[] out);
+
+    /**
+     * 修改计数, 顶点没有变化时保持不变.
+     */
+    int getVersion();
+
+    Polygon.State getState();
+
+    int getPanelColor();
+
+    int getCornerColor();
+
+    /**
+     * 按行输出覆盖的栅格, 顶点不足三个时退化为外接矩形.
+     *
+     * @param M:    水平栅格数
+     * @param rows: 垂直栅格数
+     * @param m:    x 比值
+     * @param n     y 比值
+     */
+    void rasterize(GridRasterizer rasterizer, int M, int rows, int m, int n, GridRasterizer.SpanSink sink);
+}
@@ -0,0 +1,72 @@
+package com.bd.polygon;
+
+/**
+ * 区域亮度统计
+ * <p>
+ * Pixel count, sum and sum of squares of the luminance of one or more rectangles, filled by
+ * {@link IntegralImage}. Adding several rectangles gives the statistics of their union as long as
+ * they do not overlap, which is the case for the cells of a grid.
+ *
+ * @author agent
+ */
+public final class RegionStats {
+
+    private long mCount;
+    private long mSum;
+    private long mSumOfSquares;
+
+    public void reset() {
+        mCount = 0;
+        mSum = 0;
+        mSumOfSquares = 0;
+    }
+
+    public void add(long count, long sum, long sumOfSquares) {
+        mCount += count;
+        mSum += sum;
+        mSumOfSquares += sumOfSquares;
+    }
+
+    public void add(RegionStats other) {
+        add(other.mCount, other.mSum, other.mSumOfSquares);
+    }
+
+    public long getCount() {
+        return mCount;
+    }
+
+    public long getSum() {
+        return mSum;
+    }
+
+    public long getSumOfSquares() {
+        return mSumOfSquares;
+    }
+
+    /**
+     * @return 平均亮度 0 - 255, 没有像素时为 0
+     */
+    public double getMean() {
+        return 0 == mCount ? 0 : (double) mSum / mCount;
+    }
+
+    /**
+     * 总体方差, 没有像素时为 0.
+     */
+    public double getVariance() {
+        if (0 == mCount) {
+            return 0;
+        }
+        double mean = (double) mSum / mCount;
+        return Math.max(0, (double) mSumOfSquares / mCount - mean * mean);
+    }
+
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    @Override
+    public String toString() {
+        return "RegionStats{count=" + mCount + ", mean=" + getMean() + ", variance=" + getVariance() + '}';
+    }
+}
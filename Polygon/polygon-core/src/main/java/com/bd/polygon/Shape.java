@@ -24,6 +24,23 @@ public enum Shape {
         this.value = type;
     }
 
+    /**
+     * @return 拖出窗口时使用的模板; CIRCLE 由圆心和半径描述, 返回 null
+     */
+    public PolygonTemplate getTemplate() {
+        switch (this) {
+            case RECT:
+                return PolygonTemplate.RECT;
+            case OVAL:
+                return PolygonTemplate.regular(24);
+            case HEXAGON:
+                return PolygonTemplate.regular(6);
+            case OCTAGON:
+                return PolygonTemplate.OCTAGON;
+        }
+        return null;
+    }
+
     public static Shape getType(int type){
         switch (type){
             case 0:
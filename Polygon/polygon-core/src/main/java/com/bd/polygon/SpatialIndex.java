@@ -0,0 +1,267 @@
+package com.bd.polygon;
+
+import java.util.Arrays;
+
+/**
+ * 均匀网格空间索引
+ * <p>
+ * Stores axis aligned boxes (a point is a box of size 0) in the buckets of a uniform grid covering
+ * [0, width) x [0, height). Boxes outside that area are clamped into the border buckets, so every box
+ * is always reachable. Entries are identified by the id returned from {@link #insert}, ids are reused
+ * after {@link #remove}.
+ * <p>
+ * Not thread safe.
+ *
+ * @author agent
+ */
+public class SpatialIndex {
+
+    private final int mCellSize;
+
+    private int mColumns = 1;
+    private int mRows = 1;
+
+    // 每个桶内的条目 id
+    private int[][] mBuckets = new int[1][4];
+    private int[] mBucketSizes = new int[1];
+
+    // 条目
+    private int mEntryCount;
+    private int[] mOwners = new int[16];
+    private int[] mSubs = new int[16];
+    private int[] mLefts = new int[16];
+    private int[] mTops = new int[16];
+    private int[] mRights = new int[16];
+    private int[] mBottoms = new int[16];
+    // 所在桶的范围, c0 r0 c1 r1; c0 == -1 表示已删除
+    private int[] mRanges = new int[64];
+    private int[] mFreeIds = new int[16];
+    private int mFreeCount;
+
+    // 查询结果与去重标记
+    private int[] mResults = new int[16];
+    private int[] mStamps = new int[16];
+    private int mStamp;
+
+    /**
+     * @param cellSize: 桶的边长 (px), 取命中半径的两倍左右即可
+     */
+    public SpatialIndex(int cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("cellSize must be positive: " + cellSize);
+        }
+        mCellSize = cellSize;
+    }
+
+    /**
+     * 设置索引覆盖的范围, 已有条目重新分桶.
+     */
+    public void resize(int width, int height) {
+        int columns = Math.max(1, (width + mCellSize - 1) / mCellSize);
+        int rows = Math.max(1, (height + mCellSize - 1) / mCellSize);
+        if (columns == mColumns && rows == mRows) {
+            return;
+        }
+        mColumns = columns;
+        mRows = rows;
+        mBuckets = new int[columns * rows][];
+        mBucketSizes = new int[columns * rows];
+        for (int id = 0; id < mEntryCount; id++) {
+            if (mRanges[id * 4] != -1) {
+                addToBuckets(id);
+            }
+        }
+    }
+
+    /**
+     * @param owner: 调用方自定义, 例如多边形下标
+     * @param sub:   调用方自定义, 例如顶点下标
+     * @return 条目 id
+     */
+    public int insert(int owner, int sub, int left, int top, int right, int bottom) {
+        int id;
+        if (mFreeCount > 0) {
+            id = mFreeIds[--mFreeCount];
+        } else {
+            id = mEntryCount++;
+            ensureEntries(mEntryCount);
+        }
+        mOwners[id] = owner;
+        mSubs[id] = sub;
+        setBox(id, left, top, right, bottom);
+        addToBuckets(id);
+        return id;
+    }
+
+    /**
+     * 移动条目, 所在的桶没有变化时只更新坐标.
+     */
+    public void update(int id, int left, int top, int right, int bottom) {
+        checkId(id);
+        setBox(id, left, top, right, bottom);
+        int r = id * 4;
+        if (column(mLefts[id]) == mRanges[r] && row(mTops[id]) == mRanges[r + 1]
+                && column(mRights[id]) == mRanges[r + 2] && row(mBottoms[id]) == mRanges[r + 3]) {
+            return;
+        }
+        removeFromBuckets(id);
+        addToBuckets(id);
+    }
+
+    public void remove(int id) {
+        checkId(id);
+        removeFromBuckets(id);
+        mRanges[id * 4] = -1;
+        if (mFreeIds.length == mFreeCount) {
+            mFreeIds = Arrays.copyOf(mFreeIds, mFreeCount * 2);
+        }
+        mFreeIds[mFreeCount++] = id;
+    }
+
+    public void clear() {
+        Arrays.fill(mBucketSizes, 0);
+        mEntryCount = 0;
+        mFreeCount = 0;
+    }
+
+    /**
+     * 查询与 [left, right] x [top, bottom] 相交 (含边界) 的条目.
+     *
+     * @return 结果个数, 用 {@link #getResult(int)} 读取
+     */
+    public int query(int left, int top, int right, int bottom) {
+        if (++mStamp == 0) {
+            Arrays.fill(mStamps, 0);
+            mStamp = 1;
+        }
+        int count = 0;
+        int c1 = column(right);
+        int r1 = row(bottom);
+        for (int r = row(top); r <= r1; r++) {
+            for (int c = column(left); c <= c1; c++) {
+                int bucket = c + r * mColumns;
+                int[] ids = mBuckets[bucket];
+                for (int i = 0; i < mBucketSizes[bucket]; i++) {
+                    int id = ids[i];
+                    if (mStamps[id] == mStamp) {
+                        continue;
+                    }
+                    mStamps[id] = mStamp;
+                    if (mLefts[id] <= right && mRights[id] >= left && mTops[id] <= bottom && mBottoms[id] >= top) {
+                        if (mResults.length == count) {
+                            mResults = Arrays.copyOf(mResults, count * 2);
+                        }
+                        mResults[count++] = id;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    public int getResult(int index) {
+        return mResults[index];
+    }
+
+    public int getOwner(int id) {
+        return mOwners[id];
+    }
+
+    public int getSub(int id) {
+        return mSubs[id];
+    }
+
+    public int getLeft(int id) {
+        return mLefts[id];
+    }
+
+    public int getTop(int id) {
+        return mTops[id];
+    }
+
+    public int getRight(int id) {
+        return mRights[id];
+    }
+
+    public int getBottom(int id) {
+        return mBottoms[id];
+    }
+
+    private void setBox(int id, int left, int top, int right, int bottom) {
+        mLefts[id] = Math.min(left, right);
+        mTops[id] = Math.min(top, bottom);
+        mRights[id] = Math.max(left, right);
+        mBottoms[id] = Math.max(top, bottom);
+    }
+
+    private void addToBuckets(int id) {
+        int r = id * 4;
+        mRanges[r] = column(mLefts[id]);
+        mRanges[r + 1] = row(mTops[id]);
+        mRanges[r + 2] = column(mRights[id]);
+        mRanges[r + 3] = row(mBottoms[id]);
+        for (int row = mRanges[r + 1]; row <= mRanges[r + 3]; row++) {
+            for (int c = mRanges[r]; c <= mRanges[r + 2]; c++) {
+                int bucket = c + row * mColumns;
+                int[] ids = mBuckets[bucket];
+                int size = mBucketSizes[bucket];
+                if (null == ids) {
+                    ids = mBuckets[bucket] = new int[4];
+                } else if (ids.length == size) {
+                    ids = mBuckets[bucket] = Arrays.copyOf(ids, size * 2);
+                }
+                ids[size] = id;
+                mBucketSizes[bucket] = size + 1;
+            }
+        }
+    }
+
+    private void removeFromBuckets(int id) {
+        int r = id * 4;
+        for (int row = mRanges[r + 1]; row <= mRanges[r + 3]; row++) {
+            for (int c = mRanges[r]; c <= mRanges[r + 2]; c++) {
+                int bucket = c + row * mColumns;
+                int[] ids = mBuckets[bucket];
+                int size = mBucketSizes[bucket];
+                for (int i = 0; i < size; i++) {
+                    if (ids[i] == id) {
+                        ids[i] = ids[size - 1];
+                        mBucketSizes[bucket] = size - 1;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private int column(int x) {
+        int c = x < 0 ? 0 : x / mCellSize;
+        return c >= mColumns ? mColumns - 1 : c;
+    }
+
+    private int row(int y) {
+        int r = y < 0 ? 0 : y / mCellSize;
+        return r >= mRows ? mRows - 1 : r;
+    }
+
+    private void checkId(int id) {
+        if (id < 0 || id >= mEntryCount || mRanges[id * 4] == -1) {
+            throw new IllegalArgumentException("Unknown entry " + id);
+        }
+    }
+
+    private void ensureEntries(int count) {
+        if (mOwners.length >= count) {
+            return;
+        }
+        int capacity = Math.max(count, mOwners.length * 2);
+        mOwners = Arrays.copyOf(mOwners, capacity);
+        mSubs = Arrays.copyOf(mSubs, capacity);
+        mLefts = Arrays.copyOf(mLefts, capacity);
+        mTops = Arrays.copyOf(mTops, capacity);
+        mRights = Arrays.copyOf(mRights, capacity);
+        mBottoms = Arrays.copyOf(mBottoms, capacity);
+        mRanges = Arrays.copyOf(mRanges, capacity * 4);
+        mStamps = Arrays.copyOf(mStamps, capacity);
+    }
+}
@@ -0,0 +1,130 @@
+package com.bd.polygon;
+
+/**
+ * 触摸采样环形缓冲
+ * <p>
+ * Keeps the most recent pointer samples (x, y, event time in ms) in primitive arrays. When full the
+ * oldest sample is overwritten, so adding never allocates. {@link #predict} extrapolates the pointer
+ * from the velocity over the recent samples.
+ * <p>
+ * Not thread safe.
+ *
+ * @author agent
+ */
+public class TouchSampleBuffer {
+
+    // 计算速度时只看最近这段时间内的采样
+    private static final long VELOCITY_WINDOW_MILLIS = 40;
+
+    private final float[] mXs;
+    private final float[] mYs;
+    private final long[] mTimes;
+    private final int mMask;
+    // 下一个写入位置
+    private int mHead;
+    private int mSize;
+
+    /**
+     * @param capacity: 保留的采样数, 向上取整为 2 的幂
+     */
+    public TouchSampleBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        size = size < capacity ? size << 1 : size;
+        mXs = new float[size];
+        mYs = new float[size];
+        mTimes = new long[size];
+        mMask = size - 1;
+    }
+
+    public void add(float x, float y, long timeMillis) {
+        mXs[mHead] = x;
+        mYs[mHead] = y;
+        mTimes[mHead] = timeMillis;
+        mHead = (mHead + 1) & mMask;
+        mSize = Math.min(mSize + 1, mMask + 1);
+    }
+
+    public void clear() {
+        mHead = 0;
+        mSize = 0;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public boolean isEmpty() {
+        return 0 == mSize;
+    }
+
+    public int capacity() {
+        return mMask + 1;
+    }
+
+    /**
+     * @param index: 0 为最早的采样
+     */
+    public float getX(int index) {
+        return mXs[slot(index)];
+    }
+
+    public float getY(int index) {
+        return mYs[slot(index)];
+    }
+
+    public long getTime(int index) {
+        return mTimes[slot(index)];
+    }
+
+    public float getLatestX() {
+        return getX(mSize - 1);
+    }
+
+    public float getLatestY() {
+        return getY(mSize - 1);
+    }
+
+    public long getLatestTime() {
+        return getTime(mSize - 1);
+    }
+
+    /**
+     * 按最近的平均速度推算 targetTime 时的位置, 写入 out[0], out[1].
+     *
+     * @param maxHorizonMillis: 最多向前推算的时间
+     * @return 采样不足以计算速度时返回 false, 此时 out 为最新的采样
+     */
+    public boolean predict(long targetTime, long maxHorizonMillis, float[] out) {
+        if (0 == mSize) {
+            throw new IllegalStateException("No samples");
+        }
+        int latest = mSize - 1;
+        out[0] = getX(latest);
+        out[1] = getY(latest);
+        long latestTime = getTime(latest);
+        int first = latest;
+        while (first > 0 && latestTime - getTime(first - 1) <= VELOCITY_WINDOW_MILLIS) {
+            first--;
+        }
+        long dt = latestTime - getTime(first);
+        if (dt <= 0) {
+            return false;
+        }
+        long horizon = Math.min(targetTime - latestTime, maxHorizonMillis);
+        if (horizon > 0) {
+            out[0] += (getX(latest) - getX(first)) * horizon / dt;
+            out[1] += (getY(latest) - getY(first)) * horizon / dt;
+        }
+        return true;
+    }
+
+    private int slot(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Invalid index " + index + ", size is " + mSize);
+        }
+        return (mHead - mSize + index) & mMask;
+    }
+}
@@ -0,0 +1,125 @@
+package com.bd.polygon;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ActivityHeatmapTest {
+
+    private static int[] samples(int cells, int cell, int value) {
+        int[] samples = new int[cells];
+        samples[cell] = value;
+        return samples;
+    }
+
+    @Test
+    public void decayHalvesAfterHalfLife() {
+        ActivityHeatmap heatmap = new ActivityHeatmap(4, 3);
+        heatmap.setDecay(10);
+        heatmap.add(samples(12, 5, 100));
+        for (int i = 0; i < 10; i++) {
+            heatmap.add(new int[12]);
+        }
+        assertEquals(50f, heatmap.getValue(5), 0.01f);
+        assertEquals(0f, heatmap.getValue(4), 0f);
+        assertEquals(11, heatmap.getSampleCount());
+    }
+
+    @Test
+    public void decayStaysBounded() {
+        ActivityHeatmap heatmap = new ActivityHeatmap(2, 2);
+        heatmap.setDecay(5);
+        int[] full = {255, 255, 255, 255};
+        for (int i = 0; i < 100000; i++) {
+            heatmap.add(full);
+        }
+        float decay = (float) Math.pow(0.5, 1.0 / 5);
+        assertEquals(255 / (1 - decay), heatmap.getValue(0), 1f);
+    }
+
+    @Test
+    public void windowSumsTheLastSamples() {
+        ActivityHeatmap heatmap = new ActivityHeatmap(3, 1);
+        heatmap.setWindow(3);
+        assertEquals(ActivityHeatmap.MODE_WINDOW, heatmap.getMode());
+        heatmap.add(new int[]{1, 0, 0});
+        heatmap.add(new int[]{2, 5, 0});
+        heatmap.add(new int[]{3, 0, 0});
+        assertEquals(6f, heatmap.getValue(0), 0f);
+        assertEquals(5f, heatmap.getValue(1), 0f);
+        heatmap.add(new int[]{4, 0, 0});
+        assertEquals(9f, heatmap.getValue(0), 0f);
+        heatmap.add(new int[]{0, 0, 0});
+        heatmap.add(new int[]{0, 0, 0});
+        assertEquals(4f, heatmap.getValue(0), 0f);
+        assertEquals(0f, heatmap.getValue(1), 0f);
+    }
+
+    @Test
+    public void windowMatchesBruteForce() {
+        ActivityHeatmap heatmap = new ActivityHeatmap(5, 4);
+        heatmap.setWindow(7);
+        Random random = new Random(3);
+        int[][] history = new int[200][20];
+        for (int t = 0; t < history.length; t++) {
+            for (int cell = 0; cell < 20; cell++) {
+                history[t][cell] = random.nextInt(256);
+            }
+            heatmap.add(history[t]);
+            for (int cell = 0; cell < 20; cell++) {
+                long expected = 0;
+                for (int k = Math.max(0, t - 6); k <= t; k++) {
+                    expected += history[k][cell];
+                }
+                assertEquals(expected, (long) heatmap.getValue(cell));
+            }
+        }
+    }
+
+    @Test
+    public void cellSetSamples() {
+        ActivityHeatmap heatmap = new ActivityHeatmap(10, 10);
+        heatmap.setWindow(4);
+        LabelGrid grid = new LabelGrid();
+        grid.reset(10, 10, LabelGrid.MODE_OWNER);
+        grid.beginPolygon(0);
+        grid.span(0, 7, 7);
+        grid.endPolygons(1);
+        for (int i = 0; i < 6; i++) {
+            heatmap.add(grid.mask(0));
+        }
+        assertEquals(4f, heatmap.getValue(7), 0f);
+        assertEquals(0f, heatmap.getValue(8), 0f);
+    }
+
+    @Test
+    public void copyValuesReturnsMax() {
+        ActivityHeatmap heatmap = new ActivityHeatmap(2, 2);
+        heatmap.add(new int[]{1, 9, 3, 0});
+        float[] out = new float[4];
+        assertEquals(9f, heatmap.copyValues(out), 0f);
+        assertEquals(1f, out[0], 0f);
+        assertEquals(3f, out[2], 0f);
+    }
+
+    @Test
+    public void modeChangeClears() {
+        ActivityHeatmap heatmap = new ActivityHeatmap(2, 2);
+        heatmap.add(new int[]{1, 1, 1, 1});
+        heatmap.setWindow(2);
+        assertEquals(0f, heatmap.getValue(0), 0f);
+        assertEquals(0, heatmap.getSampleCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsShortSamples() {
+        new ActivityHeatmap(2, 2).add(new int[3]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidHalfLife() {
+        new ActivityHeatmap(2, 2).setDecay(0);
+    }
+}
@@ -0,0 +1,210 @@
+package com.bd.polygon;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CellMaskEncoderTest {
+
+    private static final int[] FORMATS = {CellMaskEncoder.FORMAT_PACKED_BITS, CellMaskEncoder.FORMAT_RUN_LENGTH};
+    private static final int[] ORDERS = {CellMaskEncoder.ORDER_ROW_MAJOR, CellMaskEncoder.ORDER_COLUMN_MAJOR};
+    private static final ByteOrder[] BYTE_ORDERS = {ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN};
+
+    private static BitSet randomCells(Random random, int count, double density) {
+        BitSet cells = new BitSet();
+        for (int i = 0; i < count; i++) {
+            if (random.nextDouble() < density) {
+                cells.set(i);
+            }
+        }
+        return cells;
+    }
+
+    // 手写的行优先、小端的游程掩码
+    private static ByteBuffer runLengthMask(int columns, int rows, int length, int... runs) {
+        ByteBuffer buffer = ByteBuffer.allocate(CellMaskEncoder.HEADER_SIZE + Math.max(length, runs.length * 2))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put((byte) CellMaskEncoder.FORMAT_RUN_LENGTH).put((byte) 0);
+        buffer.putShort((short) columns).putShort((short) rows).putShort((short) 0).putInt(length);
+        for (int run : runs) {
+            buffer.putShort((short) run);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    @Test
+    public void roundTripEveryVariant() {
+        Random random = new Random(9);
+        CellMaskView view = new CellMaskView();
+        BitSet decoded = new BitSet();
+        for (int format : FORMATS) {
+            for (int order : ORDERS) {
+                for (ByteOrder byteOrder : BYTE_ORDERS) {
+                    CellMaskEncoder encoder = new CellMaskEncoder(format, byteOrder, order);
+                    for (int t = 0; t < 50; t++) {
+                        int columns = 1 + random.nextInt(40);
+                        int rows = 1 + random.nextInt(40);
+                        BitSet cells = randomCells(random, columns * rows, random.nextDouble());
+                        ByteBuffer buffer = ByteBuffer.allocate(encoder.maxEncodedSize(columns, rows));
+                        encoder.encode(cells, columns, rows, t, buffer);
+                        buffer.flip();
+
+                        view.wrap(buffer);
+                        assertFalse(buffer.hasRemaining());
+                        assertEquals(columns, view.getColumns());
+                        assertEquals(rows, view.getRows());
+                        assertEquals(t, view.getLabel());
+                        assertEquals(format, view.getFormat());
+                        assertEquals(cells.cardinality(), view.count());
+                        view.copyTo(decoded);
+                        assertEquals(cells, decoded);
+                        for (int cell = 0; cell < columns * rows; cell++) {
+                            assertEquals(cells.get(cell), view.contains(cell));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void packedSizeFor22x18() {
+        CellMaskEncoder encoder = new CellMaskEncoder(CellMaskEncoder.FORMAT_PACKED_BITS, ByteOrder.LITTLE_ENDIAN,
+                CellMaskEncoder.ORDER_ROW_MAJOR);
+        ByteBuffer buffer = ByteBuffer.allocate(128);
+        BitSet cells = new BitSet();
+        cells.set(0);
+        cells.set(33);
+        cells.set(395);
+        encoder.encode(cells, 22, 18, 0, buffer);
+        // 396 位 = 13 个 int
+        assertEquals(CellMaskEncoder.HEADER_SIZE + 52, buffer.position());
+        assertEquals(buffer.position(), encoder.maxEncodedSize(22, 18));
+        assertEquals(1, buffer.getInt(CellMaskEncoder.HEADER_SIZE));
+        assertEquals(2, buffer.getInt(CellMaskEncoder.HEADER_SIZE + 4));
+        assertEquals(1 << 11, buffer.getInt(CellMaskEncoder.HEADER_SIZE + 48));
+    }
+
+    @Test
+    public void byteOrderIsApplied() {
+        BitSet cells = new BitSet();
+        cells.set(0);
+        ByteBuffer little = ByteBuffer.allocate(64);
+        ByteBuffer big = ByteBuffer.allocate(64);
+        new CellMaskEncoder(CellMaskEncoder.FORMAT_PACKED_BITS, ByteOrder.LITTLE_ENDIAN, CellMaskEncoder.ORDER_ROW_MAJOR)
+                .encode(cells, 4, 4, 0, little);
+        new CellMaskEncoder(CellMaskEncoder.FORMAT_PACKED_BITS, ByteOrder.BIG_ENDIAN, CellMaskEncoder.ORDER_ROW_MAJOR)
+                .encode(cells, 4, 4, 0, big);
+        assertEquals(1, little.get(CellMaskEncoder.HEADER_SIZE));
+        assertEquals(1, big.get(CellMaskEncoder.HEADER_SIZE + 3));
+        assertEquals(4, little.get(2));
+        assertEquals(4, big.get(3));
+    }
+
+    @Test
+    public void columnMajorTraversal() {
+        // 3 x 2 栅格, 只有 (col 1, row 0), 列优先时是第 2 个
+        BitSet cells = new BitSet();
+        cells.set(1);
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        new CellMaskEncoder(CellMaskEncoder.FORMAT_RUN_LENGTH, ByteOrder.LITTLE_ENDIAN, CellMaskEncoder.ORDER_COLUMN_MAJOR)
+                .encode(cells, 3, 2, 0, buffer);
+        assertEquals(6, buffer.getInt(8));
+        assertEquals(2, buffer.getShort(CellMaskEncoder.HEADER_SIZE));
+        assertEquals(1, buffer.getShort(CellMaskEncoder.HEADER_SIZE + 2));
+        assertEquals(3, buffer.getShort(CellMaskEncoder.HEADER_SIZE + 4));
+    }
+
+    @Test
+    public void longRunsAreSplit() {
+        CellMaskEncoder encoder = new CellMaskEncoder(CellMaskEncoder.FORMAT_RUN_LENGTH, ByteOrder.BIG_ENDIAN,
+                CellMaskEncoder.ORDER_ROW_MAJOR);
+        BitSet cells = new BitSet();
+        cells.set(100000, 300000);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(encoder.maxEncodedSize(1024, 1024));
+        encoder.encode(cells, 1024, 1024, 3, buffer);
+        buffer.flip();
+        CellMaskView view = new CellMaskView().wrap(buffer);
+        assertEquals(200000, view.count());
+        assertTrue(view.contains(299999));
+        assertFalse(view.contains(300000));
+        BitSet decoded = new BitSet();
+        view.copyTo(decoded);
+        assertEquals(cells, decoded);
+    }
+
+    @Test
+    public void encodesEveryLabelGridMask() {
+        LabelGrid grid = new LabelGrid();
+        grid.reset(22, 18, LabelGrid.MODE_OWNER);
+        grid.beginPolygon(0);
+        grid.span(2, 3, 9);
+        grid.beginPolygon(1);
+        grid.span(10, 0, 21);
+        grid.beginPolygon(2);
+        grid.endPolygons(3);
+
+        CellMaskEncoder encoder = new CellMaskEncoder(CellMaskEncoder.FORMAT_RUN_LENGTH, ByteOrder.LITTLE_ENDIAN,
+                CellMaskEncoder.ORDER_ROW_MAJOR);
+        ByteBuffer buffer = ByteBuffer.allocate(3 * encoder.maxEncodedSize(22, 18));
+        encoder.encode(grid, buffer);
+        buffer.flip();
+
+        CellMaskView view = new CellMaskView();
+        BitSet expected = new BitSet();
+        BitSet actual = new BitSet();
+        for (int i = 0; i < 3; i++) {
+            view.wrap(buffer);
+            assertEquals(i, view.getLabel());
+            grid.mask(i).copyTo(expected);
+            view.copyTo(actual);
+            assertEquals(expected, actual);
+        }
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTruncatedPayload() {
+        CellMaskEncoder encoder = new CellMaskEncoder(CellMaskEncoder.FORMAT_PACKED_BITS, ByteOrder.LITTLE_ENDIAN,
+                CellMaskEncoder.ORDER_ROW_MAJOR);
+        ByteBuffer buffer = ByteBuffer.allocate(encoder.maxEncodedSize(22, 18));
+        encoder.encode(new BitSet(), 22, 18, 0, buffer);
+        buffer.flip();
+        buffer.limit(buffer.limit() - 1);
+        new CellMaskView().wrap(buffer);
+    }
+
+    @Test
+    public void acceptsHandWrittenRuns() {
+        CellMaskView view = new CellMaskView().wrap(runLengthMask(2, 2, 4, 1, 3));
+        assertEquals(3, view.count());
+        assertFalse(view.contains(0));
+        assertTrue(view.contains(3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOddRunLengthPayload() {
+        new CellMaskView().wrap(runLengthMask(2, 2, 3, 1, 3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsRunsShorterThanGrid() {
+        new CellMaskView().wrap(runLengthMask(2, 2, 4, 1, 2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsRunsLongerThanGrid() {
+        new CellMaskView().wrap(runLengthMask(2, 2, 6, 1, 3, 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownFormat() {
+        new CellMaskEncoder(5, ByteOrder.LITTLE_ENDIAN, CellMaskEncoder.ORDER_ROW_MAJOR);
+    }
+}
@@ -0,0 +1,101 @@
+package com.bd.polygon;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DiscRasterizerTest {
+
+    private static Polygon circle(int centerX, int centerY, int rimX, int rimY) {
+        return new Polygon(new int[]{centerX, rimX}, new int[]{centerY, rimY}, 2);
+    }
+
+    // 开圆盘与开栅格相交 <=> 圆心到闭栅格的距离小于半径
+    private static boolean covers(int cx, int cy, long r2, int left, int top, int right, int bottom) {
+        long dx = cx < left ? left - cx : cx > right ? cx - right : 0;
+        long dy = cy < top ? top - cy : cy > bottom ? cy - bottom : 0;
+        return dx * dx + dy * dy < r2;
+    }
+
+    @Test
+    public void radiusFromRimPoint() {
+        Polygon circle = circle(10, 10, 13, 14);
+        assertEquals(25, DiscRasterizer.radiusSquared(circle));
+        assertTrue(DiscRasterizer.contains(10, 10, 25, 15, 10));
+        assertFalse(DiscRasterizer.contains(10, 10, 25, 14, 14));
+        int[] bounds = new int[4];
+        DiscRasterizer.getBounds(circle, bounds);
+        assertArrayEquals(new int[]{5, 5, 15, 15}, bounds);
+    }
+
+    @Test
+    public void circleInsideOneCellCoversIt() {
+        BitSet out = new BitSet();
+        DiscRasterizer.rasterize(circle(15, 15, 17, 15), 5, 5, 10, 10, out);
+        assertEquals(1, out.cardinality());
+        assertTrue(out.get(1 + 5));
+    }
+
+    @Test
+    public void touchingGridLineDoesNotCover() {
+        // 圆心 (15, 15), 半径 5: 只接触 x = 10, 20 和 y = 10, 20
+        BitSet out = new BitSet();
+        DiscRasterizer.rasterize(circle(15, 15, 20, 15), 5, 5, 10, 10, out);
+        assertEquals(1, out.cardinality());
+        assertTrue(out.get(1 + 5));
+    }
+
+    @Test
+    public void nonCircleIsIgnored() {
+        BitSet out = new BitSet();
+        DiscRasterizer.rasterize(new Polygon(new int[]{0, 10, 10}, new int[]{0, 0, 10}, 3), 5, 5, 10, 10, out);
+        DiscRasterizer.rasterize(circle(15, 15, 15, 15), 5, 5, 10, 10, out);
+        assertTrue(out.isEmpty());
+    }
+
+    @Test
+    public void matchesExactCoverage() {
+        Random random = new Random(11);
+        for (int round = 0; round < 300; round++) {
+            int m = 1 + random.nextInt(30);
+            int n = 1 + random.nextInt(30);
+            int M = 1 + random.nextInt(25);
+            int rows = 1 + random.nextInt(25);
+            int cx = random.nextInt(M * m + 40) - 20;
+            int cy = random.nextInt(rows * n + 40) - 20;
+            Polygon circle = circle(cx, cy, cx + random.nextInt(120) - 60, cy + random.nextInt(120) - 60);
+            long r2 = DiscRasterizer.radiusSquared(circle);
+            BitSet out = new BitSet();
+            DiscRasterizer.rasterize(circle, M, rows, m, n, out);
+            for (int row = 0; row < rows; row++) {
+                for (int col = 0; col < M; col++) {
+                    boolean expected = covers(cx, cy, r2, col * m, row * n, (col + 1) * m, (row + 1) * n);
+                    assertEquals("round " + round + " cell " + col + "," + row, expected, out.get(col + row * M));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void clippedOutputIsSubsetOfFull() {
+        final BitSet clipped = new BitSet();
+        DiscRasterizer.rasterize(40, 40, 30 * 30, 10, 10, 10, 10, 2, 3, 5, 6, new GridRasterizer.SpanSink() {
+            @Override
+            public void span(int row, int fromCol, int toCol) {
+                clipped.set(row * 10 + fromCol, row * 10 + toCol + 1);
+            }
+        });
+        BitSet full = new BitSet();
+        DiscRasterizer.rasterize(circle(40, 40, 70, 40), 10, 10, 10, 10, full);
+        BitSet expected = new BitSet();
+        for (int i = full.nextSetBit(0); i >= 0; i = full.nextSetBit(i + 1)) {
+            if (i % 10 >= 2 && i % 10 <= 5 && i / 10 >= 3 && i / 10 <= 6) {
+                expected.set(i);
+            }
+        }
+        assertEquals(expected, clipped);
+    }
+}
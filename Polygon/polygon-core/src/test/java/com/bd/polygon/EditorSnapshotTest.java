@@ -0,0 +1,166 @@
+package com.bd.polygon;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class EditorSnapshotTest {
+
+    private static List<Polygon> polygons() {
+        List<Polygon> polygons = new ArrayList<Polygon>();
+        Polygon first = new Polygon(0x7Fd82525, 0xFFd82525).addPoint(10, 10).addPoint(90, 10).addPoint(50, 70);
+        first.setState(Polygon.State.INIT);
+        polygons.add(first);
+        polygons.add(new Polygon(1, 2).addPoint(100, 100).addPoint(180, 100).addPoint(180, 160).addPoint(100, 160));
+        polygons.add(new Polygon(3, 4));
+        return polygons;
+    }
+
+    @Test
+    public void snapshotIsReusedUntilChanged() {
+        Polygon polygon = polygons().get(0);
+        PolygonSnapshot first = polygon.snapshot();
+        assertSame(first, polygon.snapshot());
+
+        polygon.updatePoint(0, 5, 0);
+        PolygonSnapshot moved = polygon.snapshot();
+        assertNotSame(first, moved);
+        assertEquals(polygon.getVersion(), moved.getVersion());
+
+        polygon.setState(Polygon.State.MOVE);
+        assertNotSame(moved, polygon.snapshot());
+        assertEquals(Polygon.State.MOVE, polygon.snapshot().getState());
+
+        polygon.setPanelColor(7);
+        assertEquals(7, polygon.snapshot().getPanelColor());
+    }
+
+    @Test
+    public void snapshotDoesNotSeeLaterEdits() {
+        Polygon polygon = polygons().get(0);
+        PolygonSnapshot snapshot = polygon.snapshot();
+        polygon.updatePoints(1000, 1000);
+        polygon.addPoint(0, 0);
+
+        assertEquals(3, snapshot.size());
+        assertEquals(10, snapshot.getX(0));
+        assertEquals(70, snapshot.getY(2));
+        int[] bounds = new int[4];
+        snapshot.getBounds(bounds);
+        assertArrayEquals(new int[]{10, 10, 90, 70}, bounds);
+        // 返回的坐标是拷贝
+        int[] xs = new int[3];
+        int[] ys = new int[3];
+        snapshot.copyPoints(xs, ys);
+        xs[0] = -1;
+        assertEquals(10, snapshot.getX(0));
+    }
+
+    @Test
+    public void rasterizesLikeThePolygon() {
+        GridRasterizer rasterizer = new GridRasterizer();
+        for (Polygon polygon : polygons()) {
+            BitSet expected = new BitSet();
+            BitSet actual = new BitSet();
+            polygon.rasterize(rasterizer, 20, 20, 10, 10, new BitSetSink(expected, 20));
+            polygon.snapshot().rasterize(rasterizer, 20, 20, 10, 10, new BitSetSink(actual, 20));
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void sceneSharesUnchangedPolygons() {
+        List<Polygon> polygons = polygons();
+        EditorSnapshot before = EditorSnapshot.of(Shape.RECT, polygons);
+        assertTrue(before.isSameAs(EditorSnapshot.of(Shape.RECT, polygons)));
+        assertFalse(before.isSameAs(EditorSnapshot.of(Shape.OCTAGON, polygons)));
+
+        polygons.get(1).updatePoints(1, 1);
+        EditorSnapshot after = EditorSnapshot.of(Shape.RECT, polygons);
+        assertFalse(before.isSameAs(after));
+        assertSame(before.getPolygon(0), after.getPolygon(0));
+        assertNotSame(before.getPolygon(1), after.getPolygon(1));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void polygonListIsUnmodifiable() {
+        EditorSnapshot.of(Shape.RECT, polygons()).getPolygons().clear();
+    }
+
+    @Test
+    public void labelGridMatchesLivePolygons() {
+        List<Polygon> polygons = polygons();
+        EditorSnapshot snapshot = EditorSnapshot.of(Shape.RECT, polygons);
+        LabelGrid grid = new LabelGrid();
+        snapshot.toLabelGrid(new GridRasterizer(), 20, 20, 10, 10, grid);
+        assertEquals(3, grid.getPolygonCount());
+        GridRasterizer rasterizer = new GridRasterizer();
+        for (int i = 0; i < polygons.size(); i++) {
+            BitSet expected = new BitSet();
+            polygons.get(i).rasterize(rasterizer, 20, 20, 10, 10, new BitSetSink(expected, 20));
+            for (int cell = 0; cell < 400; cell++) {
+                assertEquals(expected.get(cell), grid.contains(i, cell));
+            }
+        }
+    }
+
+    @Test
+    public void circlesUseDiscRasterizer() {
+        List<Polygon> circles = new ArrayList<Polygon>();
+        circles.add(new Polygon().addPoint(50, 50).addPoint(80, 50));
+        LabelGrid grid = new LabelGrid();
+        EditorSnapshot.of(Shape.CIRCLE, circles).toLabelGrid(new GridRasterizer(), 10, 10, 10, 10, grid);
+        BitSet expected = new BitSet();
+        DiscRasterizer.rasterize(circles.get(0), 10, 10, 10, 10, expected);
+        for (int cell = 0; cell < 100; cell++) {
+            assertEquals(expected.get(cell), grid.contains(0, cell));
+        }
+    }
+
+    @Test
+    public void codecRoundTrip() throws IOException {
+        List<Polygon> polygons = polygons();
+        EditorSnapshot snapshot = EditorSnapshot.of(Shape.HEXAGON, polygons);
+        byte[] data = PolygonCodec.encode(snapshot);
+        assertArrayEquals(PolygonCodec.encode(new EditorState(Shape.HEXAGON, polygons)), data);
+
+        EditorState decoded = PolygonCodec.decode(data);
+        EditorState restored = snapshot.toEditorState();
+        assertEquals(Shape.HEXAGON, restored.getShape());
+        assertEquals(decoded.getPolygonCount(), restored.getPolygonCount());
+        for (int i = 0; i < restored.getPolygonCount(); i++) {
+            Polygon a = decoded.getPolygon(i);
+            Polygon b = restored.getPolygon(i);
+            assertNotSame(polygons.get(i), b);
+            assertEquals(a.getState(), b.getState());
+            assertEquals(a.getPanelColor(), b.getPanelColor());
+            assertEquals(a.size(), b.size());
+            for (int v = 0; v < a.size(); v++) {
+                assertEquals(a.getX(v), b.getX(v));
+                assertEquals(a.getY(v), b.getY(v));
+            }
+        }
+        assertTrue(Arrays.equals(data, PolygonCodec.encode(restored)));
+    }
+
+    private static class BitSetSink implements GridRasterizer.SpanSink {
+        private final BitSet mOut;
+        private final int mColumns;
+
+        BitSetSink(BitSet out, int columns) {
+            mOut = out;
+            mColumns = columns;
+        }
+
+        @Override
+        public void span(int row, int fromCol, int toCol) {
+            mOut.set(row * mColumns + fromCol, row * mColumns + toCol + 1);
+        }
+    }
+}
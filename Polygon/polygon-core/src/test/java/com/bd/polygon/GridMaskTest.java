@@ -0,0 +1,101 @@
+package com.bd.polygon;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GridMaskTest {
+
+    private static BitSet full(Polygon polygon, int M, int rows, int m, int n) {
+        final BitSet out = new BitSet();
+        final int columns = M;
+        polygon.rasterize(new GridRasterizer(), M, rows, m, n, new GridRasterizer.SpanSink() {
+            @Override
+            public void span(int row, int fromCol, int toCol) {
+                out.set(row * columns + fromCol, row * columns + toCol + 1);
+            }
+        });
+        return out;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyGrid() {
+        new GridMask(0, 4, 10, 10);
+    }
+
+    @Test
+    public void draggingOneVertexUpdatesMask() {
+        Polygon polygon = new Polygon().addPoint(10, 10).addPoint(10, 30).addPoint(30, 30).addPoint(30, 10);
+        polygon.enableGridMask(6, 6, 10, 10);
+        assertEquals(full(polygon, 6, 6, 10, 10), polygon.getGridMask());
+
+        polygon.updatePoint(2, 25, 25);
+        assertEquals(full(polygon, 6, 6, 10, 10), polygon.getGridMask());
+
+        polygon.setPoint(0, 0, 0);
+        assertEquals(full(polygon, 6, 6, 10, 10), polygon.getGridMask());
+    }
+
+    @Test
+    public void cellAlignedTranslationShiftsMask() {
+        Polygon polygon = new Polygon().addPoint(12, 12).addPoint(12, 28).addPoint(28, 28);
+        polygon.enableGridMask(6, 6, 10, 10);
+        BitSet before = (BitSet) polygon.getGridMask().clone();
+
+        polygon.updatePoints(10, 20);
+        BitSet after = polygon.getGridMask();
+        assertEquals(before.cardinality(), after.cardinality());
+        for (int i = before.nextSetBit(0); i >= 0; i = before.nextSetBit(i + 1)) {
+            assertTrue(after.get(i + 1 + 2 * 6));
+        }
+        assertEquals(full(polygon, 6, 6, 10, 10), after);
+    }
+
+    @Test
+    public void translationLeavingGridRebuilds() {
+        Polygon polygon = new Polygon().addPoint(12, 12).addPoint(12, 28).addPoint(28, 28);
+        polygon.enableGridMask(4, 4, 10, 10);
+        polygon.getGridMask();
+        polygon.updatePoints(20, 0);
+        assertEquals(full(polygon, 4, 4, 10, 10), polygon.getGridMask());
+        polygon.updatePoints(-20, 0);
+        assertEquals(full(polygon, 4, 4, 10, 10), polygon.getGridMask());
+    }
+
+    @Test
+    public void randomEditsMatchFullRasterization() {
+        Random random = new Random(5);
+        for (int t = 0; t < 300; t++) {
+            int M = 5 + random.nextInt(20);
+            int rows = 5 + random.nextInt(20);
+            int m = 5 + random.nextInt(30);
+            int n = 5 + random.nextInt(30);
+            int width = M * m;
+            int height = rows * n;
+            Polygon polygon = new Polygon();
+            polygon.enableGridMask(M, rows, m, n);
+            for (int step = 0; step < 40; step++) {
+                int op = random.nextInt(6);
+                if (0 == op || polygon.size() == 0) {
+                    polygon.addPoint(random.nextInt(width + 40) - 20, random.nextInt(height + 40) - 20);
+                } else if (1 == op) {
+                    polygon.setPoint(random.nextInt(polygon.size()), random.nextInt(width), random.nextInt(height));
+                } else if (2 == op) {
+                    polygon.updatePoint(random.nextInt(polygon.size()), random.nextInt(41) - 20, random.nextInt(41) - 20);
+                } else if (3 == op) {
+                    polygon.updatePoints(m * (random.nextInt(3) - 1), n * (random.nextInt(3) - 1));
+                } else if (4 == op) {
+                    polygon.updatePoints(random.nextInt(11) - 5, random.nextInt(11) - 5);
+                } else if (random.nextInt(10) == 0) {
+                    polygon.clear();
+                }
+                if (random.nextBoolean()) {
+                    assertEquals(full(polygon, M, rows, m, n), polygon.getGridMask());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.bd.polygon;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class GridPreviewSchedulerTest {
+
+    // 手动执行的任务队列, 用来控制任务运行的时机
+    private static class QueueExecutor implements Executor {
+        final Queue<Runnable> mTasks = new ArrayDeque<Runnable>();
+
+        @Override
+        public void execute(Runnable command) {
+            mTasks.add(command);
+        }
+
+        void runAll() {
+            while (!mTasks.isEmpty()) {
+                mTasks.poll().run();
+            }
+        }
+    }
+
+    private static class RecordingListener implements GridPreviewScheduler.Listener {
+        final List<Integer> mReady = new ArrayList<Integer>();
+
+        @Override
+        public synchronized void onPreviewReady(int polygonIndex) {
+            mReady.add(polygonIndex);
+        }
+    }
+
+    private static BitSet expected(Polygon polygon) {
+        BitSet out = new BitSet();
+        polygon.getDirtyRectGrid(new GridRasterizer(), 20, 10, 10, out);
+        return out;
+    }
+
+    private static Polygon square() {
+        return new Polygon().addPoint(10, 10).addPoint(60, 10).addPoint(60, 60).addPoint(10, 60);
+    }
+
+    @Test
+    public void computesOnTheExecutor() {
+        QueueExecutor executor = new QueueExecutor();
+        RecordingListener listener = new RecordingListener();
+        GridPreviewScheduler scheduler = new GridPreviewScheduler(executor, listener);
+        scheduler.setGrid(20, 20, 10, 10);
+        Polygon polygon = square();
+        scheduler.request(0, Shape.RECT, polygon.snapshot());
+
+        BitSet mask = new BitSet();
+        assertEquals(-1, scheduler.copyMask(0, mask));
+        assertTrue(scheduler.isBusy(0));
+        executor.runAll();
+        assertFalse(scheduler.isBusy(0));
+        assertEquals(polygon.getVersion(), scheduler.copyMask(0, mask));
+        assertEquals(expected(polygon), mask);
+        assertEquals(1, listener.mReady.size());
+    }
+
+    @Test
+    public void atMostOneJobPerPolygon() {
+        QueueExecutor executor = new QueueExecutor();
+        RecordingListener listener = new RecordingListener();
+        GridPreviewScheduler scheduler = new GridPreviewScheduler(executor, listener);
+        scheduler.setGrid(20, 20, 10, 10);
+        Polygon polygon = square();
+        for (int i = 0; i < 10; i++) {
+            polygon.updatePoints(3, 2);
+            scheduler.request(0, Shape.RECT, polygon.snapshot());
+        }
+        scheduler.request(1, Shape.RECT, square().snapshot());
+        assertEquals(2, executor.mTasks.size());
+
+        executor.runAll();
+        // 中间版本被跳过, 只计算最新的快照
+        assertEquals(2, listener.mReady.size());
+        BitSet mask = new BitSet();
+        assertEquals(polygon.getVersion(), scheduler.copyMask(0, mask));
+        assertEquals(expected(polygon), mask);
+    }
+
+    @Test
+    public void sameSnapshotIsNotRecomputed() {
+        QueueExecutor executor = new QueueExecutor();
+        RecordingListener listener = new RecordingListener();
+        GridPreviewScheduler scheduler = new GridPreviewScheduler(executor, listener);
+        scheduler.setGrid(20, 20, 10, 10);
+        Polygon polygon = square();
+        scheduler.request(0, Shape.RECT, polygon.snapshot());
+        executor.runAll();
+        scheduler.request(0, Shape.RECT, polygon.snapshot());
+        assertTrue(executor.mTasks.isEmpty());
+        assertEquals(1, listener.mReady.size());
+    }
+
+    @Test
+    public void newerRequestWhileRunningIsPickedUpByTheSameJob() {
+        final Polygon polygon = square();
+        final GridPreviewScheduler[] holder = new GridPreviewScheduler[1];
+        final List<Integer> ready = new ArrayList<Integer>();
+        QueueExecutor executor = new QueueExecutor();
+        GridPreviewScheduler scheduler = new GridPreviewScheduler(executor, new GridPreviewScheduler.Listener() {
+            @Override
+            public void onPreviewReady(int polygonIndex) {
+                ready.add(polygonIndex);
+                if (1 == ready.size()) {
+                    // 任务还在运行时拖动
+                    polygon.updatePoints(50, 0);
+                    holder[0].request(0, Shape.RECT, polygon.snapshot());
+                }
+            }
+        });
+        holder[0] = scheduler;
+        scheduler.setGrid(20, 20, 10, 10);
+        scheduler.request(0, Shape.RECT, polygon.snapshot());
+        executor.runAll();
+
+        assertEquals(2, ready.size());
+        BitSet mask = new BitSet();
+        assertEquals(polygon.getVersion(), scheduler.copyMask(0, mask));
+        assertEquals(expected(polygon), mask);
+    }
+
+    @Test
+    public void cancelDropsPendingWorkAndResult() {
+        QueueExecutor executor = new QueueExecutor();
+        RecordingListener listener = new RecordingListener();
+        GridPreviewScheduler scheduler = new GridPreviewScheduler(executor, listener);
+        scheduler.setGrid(20, 20, 10, 10);
+        scheduler.request(0, Shape.RECT, square().snapshot());
+        scheduler.cancel(0);
+        executor.runAll();
+        assertTrue(listener.mReady.isEmpty());
+        assertEquals(-1, scheduler.copyMask(0, new BitSet()));
+        assertFalse(scheduler.isBusy(0));
+    }
+
+    @Test
+    public void gridChangeDiscardsResults() {
+        QueueExecutor executor = new QueueExecutor();
+        GridPreviewScheduler scheduler = new GridPreviewScheduler(executor, new RecordingListener());
+        scheduler.setGrid(20, 20, 10, 10);
+        Polygon polygon = square();
+        scheduler.request(0, Shape.RECT, polygon.snapshot());
+        executor.runAll();
+        scheduler.setGrid(10, 10, 20, 20);
+        assertEquals(-1, scheduler.copyMask(0, new BitSet()));
+        scheduler.request(0, Shape.RECT, polygon.snapshot());
+        executor.runAll();
+        BitSet mask = new BitSet();
+        scheduler.copyMask(0, mask);
+        BitSet expected = new BitSet();
+        polygon.getDirtyRectGrid(new GridRasterizer(), 10, 20, 20, expected);
+        assertEquals(expected, mask);
+    }
+
+    @Test
+    public void circlesUseDiscRasterizer() {
+        QueueExecutor executor = new QueueExecutor();
+        GridPreviewScheduler scheduler = new GridPreviewScheduler(executor, new RecordingListener());
+        scheduler.setGrid(20, 20, 10, 10);
+        Polygon circle = new Polygon().addPoint(100, 100).addPoint(130, 140);
+        scheduler.request(0, Shape.CIRCLE, circle.snapshot());
+        executor.runAll();
+        BitSet mask = new BitSet();
+        scheduler.copyMask(0, mask);
+        BitSet expected = new BitSet();
+        DiscRasterizer.rasterize(circle, 20, 20, 10, 10, expected);
+        assertEquals(expected, mask);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void requiresGrid() {
+        new GridPreviewScheduler(new QueueExecutor(), new RecordingListener()).request(0, Shape.RECT, square().snapshot());
+    }
+
+    @Test
+    public void convergesOnRealThreads() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            final Polygon[] polygons = {square(), square(), square()};
+            final int[] lastVersion = new int[3];
+            GridPreviewScheduler scheduler = new GridPreviewScheduler(executor, new GridPreviewScheduler.Listener() {
+                @Override
+                public void onPreviewReady(int polygonIndex) {
+                }
+            });
+            scheduler.setGrid(100, 100, 4, 4);
+            for (int step = 0; step < 500; step++) {
+                int i = step % 3;
+                polygons[i].updatePoint(step % 4, 1, 1);
+                scheduler.request(i, Shape.RECT, polygons[i].snapshot());
+                lastVersion[i] = polygons[i].getVersion();
+            }
+            long deadline = System.currentTimeMillis() + 5000;
+            while ((scheduler.isBusy(0) || scheduler.isBusy(1) || scheduler.isBusy(2))
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            for (int i = 0; i < 3; i++) {
+                BitSet mask = new BitSet();
+                assertEquals(lastVersion[i], scheduler.copyMask(i, mask));
+                BitSet expected = new BitSet();
+                polygons[i].getDirtyRectGrid(new GridRasterizer(), 100, 4, 4, expected);
+                assertEquals(expected, mask);
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.bd.polygon;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GridRasterizerTest {
+
+    private final GridRasterizer mRasterizer = new GridRasterizer();
+
+    private BitSet rasterize(int[] xs, int[] ys, int M, int rows, int m, int n) {
+        BitSet out = new BitSet();
+        mRasterizer.rasterize(xs, ys, xs.length, M, rows, m, n, out);
+        return out;
+    }
+
+    private static BitSet cells(int M, int... colRows) {
+        BitSet out = new BitSet();
+        for (int i = 0; i < colRows.length; i += 2) {
+            out.set(colRows[i] + colRows[i + 1] * M);
+        }
+        return out;
+    }
+
+    @Test
+    public void rectOnGridLinesCoversEnclosedCellsOnly() {
+        BitSet out = rasterize(new int[]{10, 10, 30, 30}, new int[]{10, 30, 30, 10}, 5, 5, 10, 10);
+        assertEquals(cells(5, 1, 1, 2, 1, 1, 2, 2, 2), out);
+    }
+
+    @Test
+    public void partiallyCoveredCellsAreMarked() {
+        BitSet out = rasterize(new int[]{5, 5, 15, 15}, new int[]{5, 15, 15, 5}, 5, 5, 10, 10);
+        assertEquals(cells(5, 0, 0, 1, 0, 0, 1, 1, 1), out);
+    }
+
+    @Test
+    public void triangleSkipsCornerCell() {
+        // 斜边从 (0,20) 到 (20,0), 右下角的栅格只在顶点处接触
+        BitSet out = rasterize(new int[]{0, 0, 20}, new int[]{0, 20, 0}, 4, 4, 10, 10);
+        assertEquals(cells(4, 0, 0, 1, 0, 0, 1), out);
+    }
+
+    @Test
+    public void orientationDoesNotMatter() {
+        int[] xs = {3, 47, 38, 12};
+        int[] ys = {4, 9, 41, 33};
+        int[] rxs = {12, 38, 47, 3};
+        int[] rys = {33, 41, 9, 4};
+        assertEquals(rasterize(xs, ys, 6, 6, 10, 10), rasterize(rxs, rys, 6, 6, 10, 10));
+    }
+
+    @Test
+    public void cellsOutsideGridAreDropped() {
+        BitSet out = rasterize(new int[]{-15, -15, 25, 25}, new int[]{-15, 100, 100, -15}, 2, 3, 10, 10);
+        // 只剩下 2 x 3 的栅格
+        assertEquals(6, out.cardinality());
+        assertEquals(5, out.length() - 1);
+    }
+
+    @Test
+    public void fewerThanThreeVerticesProduceNothing() {
+        BitSet out = new BitSet();
+        mRasterizer.rasterize(new int[]{1, 30}, new int[]{1, 30}, 2, 5, 5, 10, 10, out);
+        assertTrue(out.isEmpty());
+    }
+
+    @Test
+    public void emptyGridProducesNothing() {
+        assertTrue(rasterize(new int[]{0, 0, 20}, new int[]{0, 20, 0}, 0, 4, 10, 10).isEmpty());
+        assertTrue(rasterize(new int[]{0, 0, 20}, new int[]{0, 20, 0}, 4, 4, 0, 10).isEmpty());
+    }
+
+    @Test
+    public void spansArriveSortedAndDisjoint() {
+        final List<int[]> spans = new ArrayList<int[]>();
+        // U 形, 上面两行各有两段
+        int[] xs = {0, 0, 50, 50, 40, 40, 10, 10};
+        int[] ys = {0, 30, 30, 0, 0, 20, 20, 0};
+        mRasterizer.rasterize(xs, ys, xs.length, 5, 3, 10, 10, new GridRasterizer.SpanSink() {
+            @Override
+            public void span(int row, int fromCol, int toCol) {
+                spans.add(new int[]{row, fromCol, toCol});
+            }
+        });
+        assertEquals(5, spans.size());
+        assertArrayEquals(new int[]{0, 0, 0}, spans.get(0));
+        assertArrayEquals(new int[]{0, 4, 4}, spans.get(1));
+        assertArrayEquals(new int[]{1, 0, 0}, spans.get(2));
+        assertArrayEquals(new int[]{1, 4, 4}, spans.get(3));
+        assertArrayEquals(new int[]{2, 0, 4}, spans.get(4));
+    }
+
+    @Test
+    public void clippedRasterizeMatchesWindowOfFullResult() {
+        Random random = new Random(3);
+        for (int t = 0; t < 200; t++) {
+            int[] xs = new int[6];
+            int[] ys = new int[6];
+            randomStar(random, xs, ys, 200, 200);
+            BitSet full = rasterize(xs, ys, 20, 20, 10, 10);
+            int fromCol = random.nextInt(20);
+            int fromRow = random.nextInt(20);
+            int toCol = fromCol + random.nextInt(20 - fromCol);
+            int toRow = fromRow + random.nextInt(20 - fromRow);
+            final BitSet clipped = new BitSet();
+            mRasterizer.rasterize(xs, ys, xs.length, 20, 20, 10, 10, fromCol, fromRow, toCol, toRow,
+                    new GridRasterizer.SpanSink() {
+                        @Override
+                        public void span(int row, int fromCol, int toCol) {
+                            clipped.set(row * 20 + fromCol, row * 20 + toCol + 1);
+                        }
+                    });
+            BitSet expected = new BitSet();
+            for (int i = full.nextSetBit(0); i >= 0; i = full.nextSetBit(i + 1)) {
+                int col = i % 20;
+                int row = i / 20;
+                if (col >= fromCol && col <= toCol && row >= fromRow && row <= toRow) {
+                    expected.set(i);
+                }
+            }
+            assertEquals(expected, clipped);
+        }
+    }
+
+    @Test
+    public void matchesExactCellOverlap() {
+        Random random = new Random(11);
+        for (int t = 0; t < 300; t++) {
+            int count = 3 + random.nextInt(10);
+            int[] xs = new int[count];
+            int[] ys = new int[count];
+            randomStar(random, xs, ys, 160, 120);
+            int m = 5 + random.nextInt(20);
+            int n = 5 + random.nextInt(20);
+            int M = 160 / m + 1;
+            int rows = 120 / n + 1;
+            BitSet out = rasterize(xs, ys, M, rows, m, n);
+            for (int row = 0; row < rows; row++) {
+                for (int col = 0; col < M; col++) {
+                    double area = clippedArea(xs, ys, col * m, row * n, (col + 1) * m, (row + 1) * n);
+                    assertEquals("cell " + col + "," + row, area > 1e-9, out.get(col + row * M));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void rasterizeBoundsKeepsDegenerateCell() {
+        BitSet out = new BitSet();
+        mRasterizer.rasterizeBounds(new int[]{20, 20, 20, 20}, 5, 5, 10, 10, out);
+        assertEquals(cells(5, 2, 2), out);
+
+        out.clear();
+        mRasterizer.rasterizeBounds(new int[]{5, 5, 25, 15}, 5, 5, 10, 10, out);
+        assertEquals(cells(5, 0, 0, 1, 0, 2, 0, 0, 1, 1, 1, 2, 1), out);
+    }
+
+    @Test
+    public void floorAndCeilDivision() {
+        assertEquals(2, GridRasterizer.floorDiv(25, 10));
+        assertEquals(-3, GridRasterizer.floorDiv(-25, 10));
+        assertEquals(-2, GridRasterizer.floorDiv(-20, 10));
+        assertEquals(3, GridRasterizer.ceilDiv(25, 10));
+        assertEquals(2, GridRasterizer.ceilDiv(20, 10));
+        assertEquals(-2, GridRasterizer.ceilDiv(-25, 10));
+    }
+
+    /**
+     * 以中心为原点、角度递增的星形多边形, 保证是简单多边形.
+     */
+    static void randomStar(Random random, int[] xs, int[] ys, int width, int height) {
+        int count = xs.length;
+        double cx = width / 2.0;
+        double cy = height / 2.0;
+        for (int i = 0; i < count; i++) {
+            double angle = 2 * Math.PI * (i + 0.1 + 0.8 * random.nextDouble()) / count;
+            double radius = (0.1 + 0.9 * random.nextDouble()) * Math.min(cx, cy);
+            xs[i] = (int) Math.round(cx + radius * Math.cos(angle));
+            ys[i] = (int) Math.round(cy + radius * Math.sin(angle));
+        }
+    }
+
+    /**
+     * Sutherland-Hodgman 裁剪后的面积, 作为参考实现.
+     */
+    static double clippedArea(int[] xs, int[] ys, double left, double top, double right, double bottom) {
+        List<double[]> poly = new ArrayList<double[]>();
+        for (int i = 0; i < xs.length; i++) {
+            poly.add(new double[]{xs[i], ys[i]});
+        }
+        poly = clip(poly, 0, left, true);
+        poly = clip(poly, 0, right, false);
+        poly = clip(poly, 1, top, true);
+        poly = clip(poly, 1, bottom, false);
+        double area = 0;
+        for (int i = 0; i < poly.size(); i++) {
+            double[] a = poly.get(i);
+            double[] b = poly.get((i + 1) % poly.size());
+            area += a[0] * b[1] - b[0] * a[1];
+        }
+        return Math.abs(area) / 2;
+    }
+
+    private static List<double[]> clip(List<double[]> poly, int axis, double value, boolean keepGreater) {
+        List<double[]> out = new ArrayList<double[]>();
+        for (int i = 0; i < poly.size(); i++) {
+            double[] a = poly.get(i);
+            double[] b = poly.get((i + 1) % poly.size());
+            boolean aIn = keepGreater ? a[axis] >= value : a[axis] <= value;
+            boolean bIn = keepGreater ? b[axis] >= value : b[axis] <= value;
+            if (aIn) {
+                out.add(a);
+            }
+            if (aIn != bIn) {
+                double t = (value - a[axis]) / (b[axis] - a[axis]);
+                out.add(new double[]{a[0] + t * (b[0] - a[0]), a[1] + t * (b[1] - a[1])});
+            }
+        }
+        return out;
+    }
+}
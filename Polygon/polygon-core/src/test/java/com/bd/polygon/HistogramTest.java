@@ -0,0 +1,90 @@
+package com.bd.polygon;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HistogramTest {
+
+    @Test
+    public void emptyHistogram() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMin());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getMean(), 0);
+        assertEquals(0, histogram.getValueAtPercentile(50));
+    }
+
+    @Test
+    public void bucketsCoverEveryValueOnce() {
+        long[] values = {0, 1, 7, 8, 9, 15, 16, 17, 1000, 123456789L, Long.MAX_VALUE};
+        for (long value : values) {
+            int bucket = Histogram.bucketOf(value);
+            assertTrue(value + " below bucket", Histogram.lowerBound(bucket) <= value);
+            assertTrue(value + " above bucket", Histogram.upperBound(bucket) >= value);
+        }
+        for (int bucket = 0; bucket < Histogram.bucketOf(Long.MAX_VALUE); bucket++) {
+            assertEquals(Histogram.upperBound(bucket) + 1, Histogram.lowerBound(bucket + 1));
+        }
+    }
+
+    @Test
+    public void bucketErrorIsBounded() {
+        for (long value = 8; value < 1L << 40; value = value * 3 / 2 + 1) {
+            int bucket = Histogram.bucketOf(value);
+            long width = Histogram.upperBound(bucket) - Histogram.lowerBound(bucket) + 1;
+            assertTrue(width * 8 <= Histogram.lowerBound(bucket) + 8);
+        }
+    }
+
+    @Test
+    public void statistics() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1000);
+        }
+        histogram.record(-5);
+        assertEquals(101, histogram.getCount());
+        assertEquals(0, histogram.getMin());
+        assertEquals(100000, histogram.getMax());
+        assertEquals(5050000 / 101.0, histogram.getMean(), 1e-6);
+
+        long p50 = histogram.getValueAtPercentile(50);
+        assertTrue(p50 >= 50000 && p50 <= 50000 * 9 / 8);
+        assertEquals(100000, histogram.getValueAtPercentile(100));
+        assertEquals(0, histogram.getValueAtPercentile(0));
+    }
+
+    @Test
+    public void copyAndReset() {
+        Histogram histogram = new Histogram();
+        histogram.record(42);
+        Histogram copy = new Histogram();
+        copy.copyFrom(histogram);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(1, copy.getCount());
+        assertEquals(42, copy.getMax());
+        assertEquals(42, copy.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void metricsKeepOneHistogramPerMetric() {
+        HistogramMetrics metrics = new HistogramMetrics();
+        metrics.record(PolygonMetrics.DRAW, 100);
+        metrics.record(PolygonMetrics.DRAW, 300);
+        metrics.record(PolygonMetrics.RASTERIZE, 7);
+        Histogram out = new Histogram();
+        metrics.copyTo(PolygonMetrics.DRAW, out);
+        assertEquals(2, out.getCount());
+        metrics.copyTo(PolygonMetrics.HIT_TEST, out);
+        assertEquals(0, out.getCount());
+        metrics.copyTo(PolygonMetrics.RASTERIZE, out);
+        assertEquals(7, out.getMax());
+        metrics.reset();
+        metrics.copyTo(PolygonMetrics.DRAW, out);
+        assertEquals(0, out.getCount());
+        PolygonMetrics.NONE.record(PolygonMetrics.DRAW, 1);
+    }
+}
@@ -0,0 +1,162 @@
+package com.bd.polygon;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class IntegralImageTest {
+
+    private static int luminance(int color) {
+        return PixelStats.luminance((color >> 16) & 0xFF, (color >> 8) & 0xFF, color & 0xFF);
+    }
+
+    // 逐像素统计 [left, right) x [top, bottom)
+    private static RegionStats bruteForce(int[] pixels, int width, int height,
+                                          int left, int top, int right, int bottom) {
+        RegionStats stats = new RegionStats();
+        for (int y = Math.max(0, top); y < Math.min(height, bottom); y++) {
+            for (int x = Math.max(0, left); x < Math.min(width, right); x++) {
+                long l = luminance(pixels[x + y * width]);
+                stats.add(1, l, l * l);
+            }
+        }
+        return stats;
+    }
+
+    private static void assertSameStats(RegionStats expected, RegionStats actual) {
+        assertEquals(expected.getCount(), actual.getCount());
+        assertEquals(expected.getSum(), actual.getSum());
+        assertEquals(expected.getSumOfSquares(), actual.getSumOfSquares());
+    }
+
+    @Test
+    public void rectanglesMatchBruteForce() {
+        Random random = new Random(5);
+        int width = 97;
+        int height = 61;
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = random.nextInt();
+        }
+        IntegralImage image = new IntegralImage();
+        image.compute(new ArgbPixels(pixels, width, height));
+        assertEquals(width, image.getWidth());
+        for (int i = 0; i < 500; i++) {
+            int left = random.nextInt(width + 20) - 10;
+            int top = random.nextInt(height + 20) - 10;
+            int right = left + random.nextInt(width);
+            int bottom = top + random.nextInt(height);
+            RegionStats actual = new RegionStats();
+            image.addStats(left, top, right, bottom, actual);
+            assertSameStats(bruteForce(pixels, width, height, left, top, right, bottom), actual);
+        }
+    }
+
+    @Test
+    public void lumaFrameWithStride() {
+        int width = 5;
+        int height = 3;
+        int stride = 8;
+        byte[] luma = new byte[stride * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < stride; x++) {
+                luma[x + y * stride] = (byte) (x < width ? 10 * (x + y) + 200 : 0x7F);
+            }
+        }
+        IntegralImage image = new IntegralImage();
+        image.compute(luma, width, height, stride);
+        // 第 1 行: 210 220 230 240 250
+        assertEquals(210 + 220 + 230 + 240 + 250, image.getSum(0, 1, 5, 2));
+        assertEquals(230L * 230 + 240L * 240, image.getSumOfSquares(2, 1, 4, 2));
+        assertEquals(15, image.getArea(-3, -3, 100, 100));
+        assertEquals(0, image.getSum(3, 1, 3, 3));
+    }
+
+    @Test
+    public void largeSumsDoNotOverflow() {
+        int width = 4096;
+        int height = 4096;
+        byte[] luma = new byte[width * height];
+        Arrays.fill(luma, (byte) 255);
+        IntegralImage image = new IntegralImage();
+        image.compute(luma, width, height, width);
+        assertEquals(255L * width * height, image.getSum(0, 0, width, height));
+        assertEquals(255L * 255 * width * height, image.getSumOfSquares(0, 0, width, height));
+        RegionStats stats = new RegionStats();
+        image.addStats(0, 0, width, height, stats);
+        assertEquals(255, stats.getMean(), 0);
+        assertEquals(0, stats.getVariance(), 0);
+    }
+
+    @Test
+    public void buffersAreReusedForSmallerImages() {
+        IntegralImage image = new IntegralImage();
+        byte[] big = new byte[64 * 64];
+        Arrays.fill(big, (byte) 9);
+        image.compute(big, 64, 64, 64);
+        byte[] small = {1, 2, 3, 4, 5, 6};
+        image.compute(small, 3, 2, 3);
+        assertEquals(21, image.getSum(0, 0, 3, 2));
+        assertEquals(4 + 5 + 6, image.getSum(0, 1, 3, 2));
+        assertEquals(2 + 5, image.getSum(1, 0, 2, 2));
+    }
+
+    @Test
+    public void zoneStatsAddTheirCells() {
+        int width = 40;
+        int height = 30;
+        int[] pixels = new int[width * height];
+        Random random = new Random(8);
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = random.nextInt();
+        }
+        IntegralImage image = new IntegralImage();
+        image.compute(new ArgbPixels(pixels, width, height));
+
+        // 4 x 3 栅格, 格线不等距
+        int[] xEdges = {0, 9, 21, 30, 40};
+        int[] yEdges = {0, 10, 19, 30};
+        final BitSet cells = new BitSet();
+        cells.set(0);
+        cells.set(5);
+        cells.set(11);
+        RegionStats actual = new RegionStats();
+        image.addZoneStats(new CellSet() {
+            @Override
+            public boolean contains(int cell) {
+                return cells.get(cell);
+            }
+        }, xEdges, yEdges, actual);
+
+        RegionStats expected = new RegionStats();
+        expected.add(bruteForce(pixels, width, height, 0, 0, 9, 10));
+        expected.add(bruteForce(pixels, width, height, 9, 10, 21, 19));
+        expected.add(bruteForce(pixels, width, height, 30, 19, 40, 30));
+        assertSameStats(expected, actual);
+    }
+
+    @Test
+    public void uniformEdges() {
+        int[] edges = new int[4];
+        IntegralImage.uniformEdges(2.5f, 10.25f, edges);
+        assertArrayEquals(new int[]{3, 13, 23, 33}, edges);
+    }
+
+    @Test
+    public void varianceOfTwoValues() {
+        RegionStats stats = new RegionStats();
+        stats.add(2, 10 + 30, 100 + 900);
+        assertEquals(20, stats.getMean(), 0);
+        assertEquals(100, stats.getVariance(), 1e-9);
+        assertEquals(10, stats.getStandardDeviation(), 1e-9);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsShortFrame() {
+        new IntegralImage().compute(new byte[10], 4, 3, 4);
+    }
+}
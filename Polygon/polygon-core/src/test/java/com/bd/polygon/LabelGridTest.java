@@ -0,0 +1,130 @@
+package com.bd.polygon;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+
+import static org.junit.Assert.*;
+
+public class LabelGridTest {
+
+    @Test
+    public void ownerModeLaterPolygonWins() {
+        LabelGrid grid = new LabelGrid();
+        grid.reset(4, 3, LabelGrid.MODE_OWNER);
+        grid.beginPolygon(0);
+        grid.span(0, 0, 2);
+        grid.span(1, 0, 2);
+        grid.beginPolygon(1);
+        grid.span(1, 2, 3);
+        grid.endPolygons(2);
+
+        assertEquals(1, grid.get(0, 0));
+        assertEquals(2, grid.get(2, 1));
+        assertEquals(0, grid.get(3, 2));
+        assertFalse(grid.contains(0, 6));
+        assertTrue(grid.contains(1, 6));
+        assertEquals("[0, 1, 2, 4, 5]", grid.mask(0).toString());
+        assertEquals("[6, 7]", grid.mask(1).toString());
+    }
+
+    @Test
+    public void bitmaskModeKeepsOverlaps() {
+        LabelGrid grid = new LabelGrid(LabelGrid.MODE_BITMASK);
+        grid.reset(4, 3, LabelGrid.MODE_BITMASK);
+        grid.beginPolygon(0);
+        grid.span(1, 0, 2);
+        grid.beginPolygon(1);
+        grid.span(1, 2, 3);
+        grid.endPolygons(2);
+
+        assertEquals(3, grid.get(6));
+        assertTrue(grid.contains(0, 6));
+        assertTrue(grid.contains(1, 6));
+        assertEquals(3, grid.mask(0).count());
+        assertEquals(2, grid.mask(1).count());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void bitmaskModeLimitsPolygonCount() {
+        LabelGrid grid = new LabelGrid(LabelGrid.MODE_BITMASK);
+        grid.reset(4, 4, LabelGrid.MODE_BITMASK);
+        grid.beginPolygon(LabelGrid.MAX_BITMASK_POLYGONS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownModeThrows() {
+        new LabelGrid(7);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void maskOutOfRangeThrows() {
+        LabelGrid grid = new LabelGrid();
+        grid.reset(4, 4, LabelGrid.MODE_OWNER);
+        grid.endPolygons(1);
+        grid.mask(1);
+    }
+
+    @Test
+    public void resetClearsPreviousLabels() {
+        LabelGrid grid = new LabelGrid();
+        grid.reset(4, 4, LabelGrid.MODE_OWNER);
+        grid.beginPolygon(0);
+        grid.span(3, 0, 3);
+        grid.endPolygons(1);
+        grid.reset(2, 2, LabelGrid.MODE_OWNER);
+        grid.beginPolygon(0);
+        grid.endPolygons(1);
+        for (int i = 0; i < 4; i++) {
+            assertEquals(0, grid.get(i));
+        }
+        assertTrue(grid.mask(0).isEmpty());
+        assertEquals(0, grid.mask(0).count());
+    }
+
+    @Test
+    public void maskCopies() {
+        LabelGrid grid = new LabelGrid();
+        grid.reset(5, 5, LabelGrid.MODE_OWNER);
+        grid.beginPolygon(0);
+        grid.span(1, 1, 3);
+        grid.span(2, 2, 2);
+        grid.endPolygons(1);
+        LabelGrid.Mask mask = grid.mask(0);
+
+        int[] cells = new int[8];
+        assertEquals(4, mask.copyTo(cells));
+        assertArrayEquals(new int[]{6, 7, 8, 12, 0, 0, 0, 0}, cells);
+        assertEquals(2, mask.copyTo(new int[2]));
+
+        BitSet bits = new BitSet();
+        bits.set(0);
+        mask.copyTo(bits);
+        assertEquals("{6, 7, 8, 12}", bits.toString());
+    }
+
+    @Test
+    public void matchesPerPolygonRasterization() {
+        GridRasterizer rasterizer = new GridRasterizer();
+        Polygon[] polygons = {
+                new Polygon().addPoint(0, 0).addPoint(0, 45).addPoint(45, 45).addPoint(45, 0),
+                new Polygon().addPoint(30, 30).addPoint(30, 90).addPoint(95, 60),
+                new Polygon().addPoint(5, 70).addPoint(50, 99).addPoint(20, 99)
+        };
+        LabelGrid grid = new LabelGrid(LabelGrid.MODE_BITMASK);
+        grid.reset(10, 10, LabelGrid.MODE_BITMASK);
+        for (int i = 0; i < polygons.length; i++) {
+            grid.beginPolygon(i);
+            polygons[i].rasterize(rasterizer, 10, 10, 10, 10, grid);
+        }
+        grid.endPolygons(polygons.length);
+
+        BitSet expected = new BitSet();
+        BitSet actual = new BitSet();
+        for (int i = 0; i < polygons.length; i++) {
+            polygons[i].getDirtyRectGrid(rasterizer, 10, 10, 10, expected);
+            grid.mask(i).copyTo(actual);
+            assertEquals(expected, actual);
+        }
+    }
+}
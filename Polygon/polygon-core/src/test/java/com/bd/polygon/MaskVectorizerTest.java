@@ -0,0 +1,190 @@
+package com.bd.polygon;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MaskVectorizerTest {
+
+    private static CellSet cells(final BitSet bits) {
+        return new CellSet() {
+            @Override
+            public boolean contains(int cell) {
+                return bits.get(cell);
+            }
+        };
+    }
+
+    private static BitSet rasterize(Polygon polygon, int M, int N, int m, int n) {
+        BitSet out = new BitSet();
+        polygon.getDirtyRectGrid(new GridRasterizer(), M, m, n, out);
+        out.clear(M * N, Integer.MAX_VALUE);
+        return out;
+    }
+
+    @Test
+    public void singleCellIsASquare() {
+        BitSet bits = new BitSet();
+        bits.set(3 + 2 * 5);
+        List<Polygon> out = new ArrayList<Polygon>();
+        assertEquals(1, new MaskVectorizer().vectorize(cells(bits), 5, 4, 10, 20, out));
+        Polygon square = out.get(0);
+        assertEquals(4, square.size());
+        // 顺时针, 从左上角开始
+        assertEquals(30, square.getX(0));
+        assertEquals(40, square.getY(0));
+        assertEquals(40, square.getX(1));
+        assertEquals(40, square.getY(1));
+        assertEquals(40, square.getX(2));
+        assertEquals(60, square.getY(2));
+        assertEquals(30, square.getX(3));
+        assertEquals(60, square.getY(3));
+        assertEquals(Polygon.State.INIT, square.getState());
+    }
+
+    @Test
+    public void roundTripsRasterizedPolygons() {
+        Random random = new Random(5);
+        MaskVectorizer vectorizer = new MaskVectorizer();
+        for (int t = 0; t < 50; t++) {
+            Polygon polygon = new Polygon();
+            for (int i = 0; i < 3 + random.nextInt(6); i++) {
+                polygon.addPoint(random.nextInt(400), random.nextInt(300));
+            }
+            BitSet mask = rasterize(polygon, 40, 30, 10, 10);
+            List<Polygon> out = new ArrayList<Polygon>();
+            vectorizer.vectorize(cells(mask), 40, 30, 10, 10, out);
+            BitSet traced = new BitSet();
+            for (Polygon contour : out) {
+                traced.or(rasterize(contour, 40, 30, 10, 10));
+            }
+            // 洞会被填上, 所以只要求包含原有栅格, 多出来的必须是被包围的洞
+            BitSet missing = (BitSet) mask.clone();
+            missing.andNot(traced);
+            assertTrue(missing.isEmpty());
+            if (1 == out.size()) {
+                BitSet extra = (BitSet) traced.clone();
+                extra.andNot(mask);
+                for (int cell = extra.nextSetBit(0); cell >= 0; cell = extra.nextSetBit(cell + 1)) {
+                    assertTrue(cell % 40 > 0 && cell % 40 < 39 && cell >= 40 && cell < 40 * 29);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void convexShapesRoundTripExactly() {
+        Polygon octagon = new Polygon().addPoint(100, 20).addPoint(200, 20).addPoint(260, 80).addPoint(260, 180)
+                .addPoint(200, 240).addPoint(100, 240).addPoint(40, 180).addPoint(40, 80);
+        BitSet mask = rasterize(octagon, 30, 30, 10, 10);
+        List<Polygon> out = new ArrayList<Polygon>();
+        new MaskVectorizer().vectorize(cells(mask), 30, 30, 10, 10, out);
+        assertEquals(1, out.size());
+        assertEquals(mask, rasterize(out.get(0), 30, 30, 10, 10));
+    }
+
+    @Test
+    public void diagonalCellsAreSeparate() {
+        BitSet bits = new BitSet();
+        bits.set(0);
+        bits.set(1 + 3);
+        bits.set(2 + 2 * 3);
+        List<Polygon> out = new ArrayList<Polygon>();
+        assertEquals(3, new MaskVectorizer().vectorize(cells(bits), 3, 3, 1, 1, out));
+        for (Polygon polygon : out) {
+            assertEquals(4, polygon.size());
+        }
+    }
+
+    @Test
+    public void largestComponentFirstAndHolesDropped() {
+        // 5x5 的环, 中间一个洞, 另有一个单独的栅格
+        BitSet bits = new BitSet();
+        for (int row = 0; row < 5; row++) {
+            for (int col = 0; col < 5; col++) {
+                if (row != 2 || col != 2) {
+                    bits.set(col + row * 8);
+                }
+            }
+        }
+        bits.set(7 + 7 * 8);
+        List<Polygon> out = new ArrayList<Polygon>();
+        assertEquals(2, new MaskVectorizer().vectorize(cells(bits), 8, 8, 10, 10, out));
+        assertEquals(4, out.get(0).size());
+        assertArrayEquals(new int[]{0, 0, 50, 50}, out.get(0).getBounds());
+        assertArrayEquals(new int[]{70, 70, 80, 80}, out.get(1).getBounds());
+    }
+
+    @Test
+    public void simplificationReducesStaircases() {
+        Polygon triangle = new Polygon().addPoint(0, 0).addPoint(1000, 0).addPoint(0, 1000);
+        BitSet mask = rasterize(triangle, 100, 100, 10, 10);
+        MaskVectorizer vectorizer = new MaskVectorizer();
+        List<Polygon> exact = new ArrayList<Polygon>();
+        vectorizer.vectorize(cells(mask), 100, 100, 10, 10, exact);
+        assertTrue(exact.get(0).size() > 100);
+
+        vectorizer.setTolerance(15);
+        List<Polygon> simplified = new ArrayList<Polygon>();
+        vectorizer.vectorize(cells(mask), 100, 100, 10, 10, simplified);
+        Polygon polygon = simplified.get(0);
+        assertTrue(polygon.size() <= 6);
+        // 简化后的顶点都是原有的拐点
+        for (int i = 0; i < polygon.size(); i++) {
+            assertTrue(exact.get(0).indexOf(polygon.getX(i), polygon.getY(i)) >= 0);
+        }
+    }
+
+    @Test
+    public void zoneMatchesWholeGrid() {
+        LabelGrid grid = new LabelGrid();
+        grid.reset(40, 30, LabelGrid.MODE_OWNER);
+        GridRasterizer rasterizer = new GridRasterizer();
+        Polygon[] zones = {
+                new Polygon().addPoint(15, 15).addPoint(120, 30).addPoint(60, 140),
+                new Polygon().addPoint(200, 100).addPoint(380, 100).addPoint(380, 280).addPoint(200, 280),
+        };
+        for (int i = 0; i < zones.length; i++) {
+            grid.beginPolygon(i);
+            zones[i].rasterize(rasterizer, 40, 30, 10, 10, grid);
+        }
+        grid.endPolygons(zones.length);
+
+        MaskVectorizer vectorizer = new MaskVectorizer();
+        for (int i = 0; i < zones.length; i++) {
+            List<Polygon> byZone = new ArrayList<Polygon>();
+            List<Polygon> whole = new ArrayList<Polygon>();
+            vectorizer.vectorize(grid, i, 10, 10, byZone);
+            vectorizer.vectorize(grid.mask(i), 40, 30, 10, 10, whole);
+            assertEquals(whole.size(), byZone.size());
+            for (int p = 0; p < whole.size(); p++) {
+                assertEquals(whole.get(p).size(), byZone.get(p).size());
+                for (int v = 0; v < whole.get(p).size(); v++) {
+                    assertEquals(whole.get(p).getX(v), byZone.get(p).getX(v));
+                    assertEquals(whole.get(p).getY(v), byZone.get(p).getY(v));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void emptyZoneGivesNothing() {
+        LabelGrid grid = new LabelGrid();
+        grid.reset(4, 4, LabelGrid.MODE_OWNER);
+        grid.beginPolygon(0);
+        grid.endPolygons(1);
+        List<Polygon> out = new ArrayList<Polygon>();
+        assertEquals(0, new MaskVectorizer().vectorize(grid, 0, 10, 10, out));
+        assertTrue(out.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeTolerance() {
+        new MaskVectorizer().setTolerance(-1);
+    }
+}
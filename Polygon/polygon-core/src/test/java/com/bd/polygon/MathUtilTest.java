@@ -0,0 +1,42 @@
+package com.bd.polygon;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class MathUtilTest {
+
+    @Test
+    public void distanceAndChord() {
+        assertEquals(5f, MathUtil.calculateDistance(0, 0, 3, 4), 1e-6f);
+        assertEquals(8.0, MathUtil.calculateChord(5, 3), 1e-9);
+    }
+
+    @Test
+    public void averagePolygon() {
+        int[] out = new int[2];
+        assertTrue(MathUtil.averagePolygon(new int[]{0, 10, 20}, new int[]{3, 6, 9}, 3, out));
+        assertArrayEquals(new int[]{10, 6}, out);
+        assertFalse(MathUtil.averagePolygon(new int[0], new int[0], 0, out));
+    }
+
+    @Test
+    public void rectPoints() {
+        int[] xs = {5, -2, 9, 0};
+        int[] ys = {1, 7, 3, -4};
+        assertArrayEquals(new int[]{-2, -4, 9, 7}, MathUtil.getRectPoints(xs, ys, 4));
+        assertArrayEquals(new int[]{-2, 1, 5, 7}, MathUtil.getRectPoints(xs, ys, 2));
+        assertNull(MathUtil.getRectPoints(xs, ys, 0));
+    }
+
+    @Test
+    public void dirtyRectGrid() {
+        assertEquals(Arrays.asList(5, 6, 9, 10), MathUtil.getDirtyRectGrid(4, 10, 10, new int[]{10, 10, 30, 30}));
+        assertEquals(Arrays.asList(0, 1, 4, 5), MathUtil.getDirtyRectGrid(4, 10, 10, new int[]{5, 5, 15, 15}));
+        // 退化为点时保留所在的栅格
+        assertEquals(Arrays.asList(5), MathUtil.getDirtyRectGrid(4, 10, 10, new int[]{10, 10, 10, 10}));
+        assertNull(MathUtil.getDirtyRectGrid(4, 10, 10, null));
+    }
+}
@@ -0,0 +1,137 @@
+package com.bd.polygon;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MotionDetectorTest {
+
+    // 4 x 3 栅格, 窗口 0 为左上 2 x 2, 窗口 1 为右下角一格
+    private LabelGrid mZones;
+    private MotionDetector mDetector;
+
+    @Before
+    public void setUp() {
+        mZones = new LabelGrid();
+        mZones.reset(4, 3, LabelGrid.MODE_OWNER);
+        mZones.beginPolygon(0);
+        mZones.span(0, 0, 1);
+        mZones.span(1, 0, 1);
+        mZones.beginPolygon(1);
+        mZones.span(2, 3, 3);
+        mZones.endPolygons(2);
+        mDetector = new MotionDetector();
+        mDetector.setZones(mZones);
+    }
+
+    private static byte[] frame(int width, int height, int stride, int value) {
+        byte[] luma = new byte[stride * height];
+        Arrays.fill(luma, (byte) value);
+        return luma;
+    }
+
+    // 把像素块 [x0, x1) x [y0, y1) 设为 value
+    private static void fill(byte[] luma, int stride, int x0, int y0, int x1, int y1, int value) {
+        for (int y = y0; y < y1; y++) {
+            Arrays.fill(luma, y * stride + x0, y * stride + x1, (byte) value);
+        }
+    }
+
+    @Test
+    public void firstFrameHasNoMotion() {
+        assertFalse(mDetector.process(frame(40, 30, 40, 200), 40, 30, 40));
+        assertEquals(200, mDetector.getCellMean(0));
+        assertEquals(0, mDetector.getCellDiff(0));
+        assertFalse(mDetector.isZoneActive(0));
+    }
+
+    @Test
+    public void motionOnlyCountsInsideZones() {
+        mDetector.setThresholds(10, 0.25f);
+        mDetector.process(frame(40, 30, 48, 100), 40, 30, 48);
+
+        // 变化落在不属于任何窗口的栅格 (2, 0)
+        byte[] luma = frame(40, 30, 48, 100);
+        fill(luma, 48, 20, 0, 30, 10, 255);
+        assertFalse(mDetector.process(luma, 40, 30, 48));
+        assertEquals(155, mDetector.getCellDiff(2));
+
+        // 窗口 0 中的一格, 正好达到 25%
+        luma = frame(40, 30, 48, 100);
+        fill(luma, 48, 10, 10, 20, 20, 0);
+        assertTrue(mDetector.process(luma, 40, 30, 48));
+        assertTrue(mDetector.isZoneActive(0));
+        assertEquals(0.25f, mDetector.getZoneActivity(0), 0);
+        assertEquals(25f, mDetector.getZoneMeanDiff(0), 0);
+        assertFalse(mDetector.isZoneActive(1));
+        assertEquals(0, mDetector.getZoneActivity(1), 0);
+    }
+
+    @Test
+    public void smallChangesStayBelowThreshold() {
+        mDetector.process(frame(40, 30, 40, 100), 40, 30, 40);
+        assertFalse(mDetector.process(frame(40, 30, 40, 100 + MotionDetector.DEFAULT_CELL_THRESHOLD - 1), 40, 30, 40));
+        assertTrue(mDetector.process(frame(40, 30, 40, 100 + 2 * MotionDetector.DEFAULT_CELL_THRESHOLD), 40, 30, 40));
+        assertTrue(mDetector.isZoneActive(1));
+    }
+
+    @Test
+    public void unevenFrameMatchesBruteForce() {
+        int width = 1001;
+        int height = 577;
+        int stride = 1024;
+        Random random = new Random(3);
+        byte[] luma = new byte[stride * height];
+        random.nextBytes(luma);
+        mDetector.process(luma, width, height, stride);
+        for (int row = 0; row < 3; row++) {
+            for (int col = 0; col < 4; col++) {
+                long sum = 0;
+                int area = 0;
+                for (int y = row * height / 3; y < (row + 1) * height / 3; y++) {
+                    for (int x = col * width / 4; x < (col + 1) * width / 4; x++) {
+                        sum += luma[y * stride + x] & 0xFF;
+                        area++;
+                    }
+                }
+                assertEquals((sum + area / 2) / area, mDetector.getCellMean(col + row * 4));
+            }
+        }
+    }
+
+    @Test
+    public void frameSizeChangeRestartsComparison() {
+        mDetector.process(frame(40, 30, 40, 0), 40, 30, 40);
+        assertFalse(mDetector.process(frame(80, 60, 80, 255), 80, 60, 80));
+        assertTrue(mDetector.process(frame(80, 60, 80, 0), 80, 60, 80));
+    }
+
+    @Test
+    public void zonesCanBeReplaced() {
+        mDetector.process(frame(40, 30, 40, 0), 40, 30, 40);
+        mZones.reset(4, 3, LabelGrid.MODE_OWNER);
+        mZones.beginPolygon(0);
+        mZones.span(2, 0, 0);
+        mZones.endPolygons(1);
+        mDetector.setZones(mZones);
+        assertEquals(1, mDetector.getZoneCount());
+        byte[] luma = frame(40, 30, 40, 0);
+        fill(luma, 40, 0, 20, 10, 30, 255);
+        assertTrue(mDetector.process(luma, 40, 30, 40));
+        assertEquals(1f, mDetector.getZoneActivity(0), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsShortBuffer() {
+        mDetector.process(new byte[40 * 30 - 1], 40, 30, 40);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void requiresZones() {
+        new MotionDetector().process(new byte[100], 10, 10, 10);
+    }
+}
@@ -0,0 +1,68 @@
+package com.bd.polygon;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OverlapDetectorTest {
+
+    private final OverlapDetector mDetector = new OverlapDetector();
+    private final List<Polygon> mPolygons = new ArrayList<Polygon>();
+
+    private static Polygon rect(int left, int top, int right, int bottom) {
+        return new Polygon(new int[]{left, left, right, right}, new int[]{top, bottom, bottom, top}, 4);
+    }
+
+    @Before
+    public void setUp() {
+        mPolygons.add(rect(0, 0, 10, 10));
+        mPolygons.add(rect(20, 0, 30, 10));
+        mPolygons.add(rect(40, 0, 50, 10));
+        mPolygons.add(new Polygon());
+    }
+
+    @Test
+    public void separatedWindowsDoNotOverlap() {
+        assertTrue(mDetector.update(mPolygons));
+        assertFalse(mDetector.hasAnyOverlap());
+        // 没有变化时不重新检测
+        assertFalse(mDetector.update(mPolygons));
+    }
+
+    @Test
+    public void dragIntoNeighbourIsDetectedBothWays() {
+        mDetector.update(mPolygons);
+        mPolygons.get(0).updatePoints(15, 0);
+        assertTrue(mDetector.update(mPolygons));
+        assertTrue(mDetector.hasOverlap(0));
+        assertTrue(mDetector.hasOverlap(1));
+        assertFalse(mDetector.hasOverlap(2));
+        BitSet out = new BitSet();
+        mDetector.getOverlaps(1, out);
+        assertEquals(1, out.cardinality());
+        assertTrue(out.get(0));
+
+        mPolygons.get(0).updatePoints(-15, 0);
+        mDetector.update(mPolygons);
+        assertFalse(mDetector.hasAnyOverlap());
+    }
+
+    @Test
+    public void replacedAndRemovedPolygonsAreForgotten() {
+        mDetector.update(mPolygons);
+        mPolygons.set(3, rect(45, 5, 60, 20));
+        mDetector.update(mPolygons);
+        assertTrue(mDetector.hasOverlap(2));
+        assertTrue(mDetector.hasOverlap(3));
+
+        mPolygons.remove(3);
+        assertTrue(mDetector.update(mPolygons));
+        assertFalse(mDetector.hasOverlap(2));
+        assertFalse(mDetector.hasOverlap(3));
+    }
+}
@@ -0,0 +1,53 @@
+package com.bd.polygon;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class PaletteTest {
+
+    @Test
+    public void hsvPrimaries() {
+        assertEquals(0xFFFF0000, Palette.hsvToArgb(255, 0, 1, 1));
+        assertEquals(0xFF00FF00, Palette.hsvToArgb(255, 120, 1, 1));
+        assertEquals(0xFF0000FF, Palette.hsvToArgb(255, 240, 1, 1));
+        assertEquals(0x80FFFFFF, Palette.hsvToArgb(0x80, 77, 0, 1));
+        assertEquals(0xFF000000, Palette.hsvToArgb(255, 300, 1, 0));
+        assertEquals(Palette.hsvToArgb(255, 30, 1, 1), Palette.hsvToArgb(255, 390, 1, 1));
+    }
+
+    @Test
+    public void colorsAreDistinctAndRepeatBySlot() {
+        Palette palette = new Palette(64, 0x7F);
+        Set<Integer> colors = new HashSet<Integer>();
+        for (int i = 0; i < palette.getSize(); i++) {
+            assertTrue(colors.add(palette.getPanelColor(i)));
+            assertEquals(0x7F, palette.getPanelColor(i) >>> 24);
+            assertEquals(0xFF, palette.getCornerColor(i) >>> 24);
+            assertEquals(palette.getCornerColor(i) & 0xFFFFFF, palette.getPanelColor(i) & 0xFFFFFF);
+        }
+        assertEquals(5, palette.getSlot(10000 * 64 + 5));
+        assertEquals(palette.getPanelColor(5), palette.getPanelColor(10000 * 64 + 5));
+    }
+
+    @Test
+    public void neighboursDifferInHue() {
+        Palette palette = new Palette();
+        for (int i = 0; i + 1 < palette.getSize(); i++) {
+            int a = palette.getCornerColor(i);
+            int b = palette.getCornerColor(i + 1);
+            int distance = Math.abs(((a >> 16) & 0xFF) - ((b >> 16) & 0xFF))
+                    + Math.abs(((a >> 8) & 0xFF) - ((b >> 8) & 0xFF))
+                    + Math.abs((a & 0xFF) - (b & 0xFF));
+            assertTrue("slots " + i + " and " + (i + 1) + " look alike", distance > 100);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyPalette() {
+        new Palette(0, 0x7F);
+    }
+}
@@ -0,0 +1,178 @@
+package com.bd.polygon;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PixelMaskEngineTest {
+
+    private static ArgbPixels image(int width, int height, Random random) {
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        return new ArgbPixels(pixels, width, height);
+    }
+
+    private static Polygon randomPolygon(Random random, int width, int height) {
+        int count = 3 + random.nextInt(8);
+        int cx = random.nextInt(width);
+        int cy = random.nextInt(height);
+        Polygon polygon = new Polygon();
+        for (int i = 0; i < count; i++) {
+            double angle = 2 * Math.PI * i / count;
+            double radius = 5 + random.nextInt(width / 2);
+            polygon.addPoint(cx + (int) (radius * Math.cos(angle)), cy + (int) (radius * Math.sin(angle)));
+        }
+        return polygon;
+    }
+
+    @Test
+    public void rectStatsMatchPixels() {
+        int[] pixels = new int[10 * 10];
+        for (int y = 0; y < 10; y++) {
+            for (int x = 0; x < 10; x++) {
+                pixels[x + y * 10] = x < 5 ? 0xFF000000 : 0xFFFFFFFF;
+            }
+        }
+        Polygon rect = new Polygon(new int[]{2, 2, 8, 8}, new int[]{1, 5, 5, 1}, 4);
+        PixelStats stats = new PixelStats();
+        PixelMaskEngine engine = new PixelMaskEngine(1);
+        engine.computeStats(new ArgbPixels(pixels, 10, 10), rect, stats);
+
+        assertEquals(6 * 4, stats.getCount());
+        assertEquals(127.5, stats.getMeanRed(), 1e-9);
+        assertEquals(12, stats.getHistogram(0));
+        assertEquals(12, stats.getHistogram(255));
+        assertEquals(0, stats.getLuminanceAtPercentile(50));
+        assertEquals(255, stats.getLuminanceAtPercentile(51));
+    }
+
+    @Test
+    public void extractClearsPixelsOutsidePolygon() {
+        ArgbPixels source = image(40, 30, new Random(1));
+        Polygon triangle = new Polygon(new int[]{5, 35, 5}, new int[]{2, 2, 28}, 3);
+        BitSet covered = new BitSet();
+        new GridRasterizer().rasterize(new int[]{5, 35, 5}, new int[]{2, 2, 28}, 3, 40, 30, 1, 1, covered);
+
+        MaskedPixels out = new MaskedPixels();
+        new PixelMaskEngine(1).extract(source, triangle, out);
+
+        assertEquals(5, out.getLeft());
+        assertEquals(2, out.getTop());
+        assertEquals(30, out.getWidth());
+        assertEquals(26, out.getHeight());
+        assertEquals(covered.cardinality(), out.getCount());
+        for (int y = 0; y < 30; y++) {
+            for (int x = 0; x < 40; x++) {
+                int expected = covered.get(x + y * 40) ? source.getPixels()[x + y * 40] : 0;
+                assertEquals(x + "," + y, expected, out.getPixel(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void polygonIsClippedToImage() {
+        ArgbPixels source = image(20, 20, new Random(2));
+        Polygon polygon = new Polygon(new int[]{-10, -10, 10, 10}, new int[]{-10, 30, 30, -10}, 4);
+        PixelStats stats = new PixelStats();
+        PixelMaskEngine engine = new PixelMaskEngine(1);
+        engine.computeStats(source, polygon, stats);
+        assertEquals(10 * 20, stats.getCount());
+
+        MaskedPixels out = new MaskedPixels();
+        engine.extract(source, polygon, out);
+        assertEquals(0, out.getLeft());
+        assertEquals(10, out.getWidth());
+        assertEquals(20, out.getHeight());
+
+        engine.computeStats(source, new Polygon(new int[]{30, 40, 40}, new int[]{0, 0, 10}, 3), stats);
+        assertEquals(0, stats.getCount());
+        assertEquals(0, stats.getMeanColor());
+    }
+
+    @Test
+    public void parallelMatchesSerial() throws InterruptedException {
+        Random random = new Random(3);
+        ArgbPixels source = image(300, 200, random);
+        List<Polygon> polygons = new ArrayList<Polygon>();
+        for (int i = 0; i < 25; i++) {
+            polygons.add(randomPolygon(random, 300, 200));
+        }
+        PixelMaskEngine serial = new PixelMaskEngine(1);
+        PixelMaskEngine parallel = new PixelMaskEngine(4);
+        PixelStats[] stats = new PixelStats[polygons.size()];
+        MaskedPixels[] masks = new MaskedPixels[polygons.size()];
+        // 两次调用, 第二次复用结果和行缓冲
+        for (int round = 0; round < 2; round++) {
+            parallel.computeStats(source, polygons, stats);
+            parallel.extract(source, polygons, masks);
+            for (int i = 0; i < polygons.size(); i++) {
+                PixelStats expected = new PixelStats();
+                serial.computeStats(source, polygons.get(i), expected);
+                assertEquals(expected.toString(), stats[i].toString());
+                for (int l = 0; l < PixelStats.BINS; l++) {
+                    assertEquals(expected.getHistogram(l), stats[i].getHistogram(l));
+                }
+                assertEquals(expected.getCount(), masks[i].getCount());
+            }
+        }
+        parallel.shutdown();
+        // 关闭后退化为单线程
+        parallel.computeStats(source, polygons, stats);
+        assertEquals(polygons.size(), stats.length);
+    }
+
+    // 正面积规则: 像素方格内离圆心最近的点在开圆盘内
+    private static boolean discCovers(int cx, int cy, long r2, int x, int y) {
+        long dx = Math.max(0, Math.max(x - cx, cx - (x + 1)));
+        long dy = Math.max(0, Math.max(y - cy, cy - (y + 1)));
+        return dx * dx + dy * dy < r2;
+    }
+
+    @Test
+    public void circleIsRasterizedAsDisc() throws InterruptedException {
+        ArgbPixels source = image(60, 50, new Random(5));
+        List<Polygon> circles = new ArrayList<Polygon>();
+        circles.add(new Polygon(new int[]{30, 30}, new int[]{25, 10}, 2));
+        circles.add(new Polygon(new int[]{3, 10}, new int[]{45, 49}, 2));
+        PixelMaskEngine engine = new PixelMaskEngine(2);
+        PixelStats[] stats = new PixelStats[circles.size()];
+        MaskedPixels[] masks = new MaskedPixels[circles.size()];
+        engine.computeStats(source, Shape.CIRCLE, circles, stats);
+        engine.extract(source, Shape.CIRCLE, circles, masks);
+
+        for (int i = 0; i < circles.size(); i++) {
+            Polygon circle = circles.get(i);
+            int cx = circle.getX(0);
+            int cy = circle.getY(0);
+            long r2 = DiscRasterizer.radiusSquared(circle);
+            MaskedPixels mask = masks[i];
+            int count = 0;
+            for (int y = 0; y < 50; y++) {
+                for (int x = 0; x < 60; x++) {
+                    boolean covered = discCovers(cx, cy, r2, x, y);
+                    if (covered) {
+                        count++;
+                    }
+                    assertEquals(covered ? source.getPixels()[x + y * 60] : 0, mask.getPixel(x, y));
+                }
+            }
+            assertEquals(count, stats[i].getCount());
+            assertEquals(count, mask.getCount());
+        }
+        engine.shutdown();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shortOutputIsRejected() throws InterruptedException {
+        List<Polygon> polygons = new ArrayList<Polygon>();
+        polygons.add(new Polygon(new int[]{0, 0, 5}, new int[]{0, 5, 5}, 3));
+        new PixelMaskEngine(1).computeStats(image(10, 10, new Random(4)), polygons, new PixelStats[0]);
+    }
+}
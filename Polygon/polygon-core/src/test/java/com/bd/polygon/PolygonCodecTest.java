@@ -0,0 +1,131 @@
+package com.bd.polygon;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PolygonCodecTest {
+
+    private static EditorState sample() {
+        List<Polygon> polygons = new ArrayList<Polygon>();
+        Polygon first = new Polygon(0x7Fd82525, 0xFFd82525).addPoint(10, 20).addPoint(-30, 40).addPoint(50, 60);
+        first.setState(Polygon.State.INIT);
+        polygons.add(first);
+        polygons.add(new Polygon(1, 2));
+        Polygon big = new Polygon(3, 4);
+        for (int i = 0; i < 1000; i++) {
+            big.addPoint(i, Integer.MAX_VALUE - i);
+        }
+        big.setState(Polygon.State.DRAG);
+        polygons.add(big);
+        return new EditorState(Shape.OCTAGON, 12.5f, -3f, polygons);
+    }
+
+    private static void assertSameState(EditorState expected, EditorState actual) {
+        assertEquals(expected.getShape(), actual.getShape());
+        assertEquals(expected.getCenterX(), actual.getCenterX(), 0);
+        assertEquals(expected.getCenterY(), actual.getCenterY(), 0);
+        assertEquals(expected.getPolygonCount(), actual.getPolygonCount());
+        for (int i = 0; i < expected.getPolygonCount(); i++) {
+            Polygon a = expected.getPolygon(i);
+            Polygon b = actual.getPolygon(i);
+            assertEquals(a.getState(), b.getState());
+            assertEquals(a.getPanelColor(), b.getPanelColor());
+            assertEquals(a.getCornerColor(), b.getCornerColor());
+            assertEquals(a.size(), b.size());
+            for (int v = 0; v < a.size(); v++) {
+                assertEquals(a.getX(v), b.getX(v));
+                assertEquals(a.getY(v), b.getY(v));
+            }
+        }
+    }
+
+    @Test
+    public void roundTripBytes() throws IOException {
+        EditorState state = sample();
+        byte[] data = PolygonCodec.encode(state);
+        assertEquals(PolygonCodec.encodedSize(state.getPolygons()), data.length);
+        assertSameState(state, PolygonCodec.decode(data));
+    }
+
+    @Test
+    public void roundTripAtOffset() throws IOException {
+        EditorState state = sample();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(7 + PolygonCodec.encodedSize(state.getPolygons()));
+        buffer.position(7);
+        PolygonCodec.encode(state, buffer);
+        assertFalse(buffer.hasRemaining());
+        buffer.position(7);
+        assertSameState(state, PolygonCodec.decode(buffer));
+    }
+
+    @Test
+    public void roundTripFile() throws IOException {
+        File file = File.createTempFile("polygons", ".bin");
+        try {
+            EditorState state = sample();
+            PolygonCodec.write(state, file);
+            assertEquals(PolygonCodec.encodedSize(state.getPolygons()), file.length());
+            assertSameState(state, PolygonCodec.read(file));
+
+            // 覆盖写入更小的内容
+            EditorState empty = new EditorState(Shape.CIRCLE, 0, 0, new ArrayList<Polygon>());
+            PolygonCodec.write(empty, file);
+            assertSameState(empty, PolygonCodec.read(file));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsWrongMagic() throws IOException {
+        byte[] data = PolygonCodec.encode(sample());
+        data[0] ^= 1;
+        PolygonCodec.decode(data);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsNewerVersion() throws IOException {
+        byte[] data = PolygonCodec.encode(sample());
+        data[4] = (byte) (PolygonCodec.VERSION + 1);
+        PolygonCodec.decode(data);
+    }
+
+    @Test
+    public void rejectsEveryTruncation() {
+        // 每个窗口头之后都有 3 字节的填充, 截在任何位置都只能抛出 IOException
+        List<Polygon> polygons = new ArrayList<Polygon>();
+        polygons.add(new Polygon(1, 2).addPoint(1, 2).addPoint(3, 4).addPoint(5, 6));
+        polygons.add(new Polygon(3, 4));
+        polygons.add(new Polygon(5, 6).addPoint(7, 8));
+        byte[] data = PolygonCodec.encode(new EditorState(Shape.RECT, polygons));
+        for (int length = 0; length < data.length; length++) {
+            try {
+                PolygonCodec.decode(Arrays.copyOf(data, length));
+                fail("decoded " + length + " of " + data.length + " bytes");
+            } catch (IOException expected) {
+                // 不完整的数据只能抛出 IOException
+            }
+        }
+    }
+
+    @Test
+    public void rejectsTruncatedData() {
+        byte[] data = PolygonCodec.encode(sample());
+        for (int length = 0; length < data.length; length += 97) {
+            try {
+                PolygonCodec.decode(Arrays.copyOf(data, length));
+                fail("decoded " + length + " bytes");
+            } catch (IOException expected) {
+                // 不完整的数据只能抛出 IOException
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.bd.polygon;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PolygonIndexTest {
+
+    private List<Polygon> mPolygons;
+    private PolygonIndex mIndex;
+
+    @Before
+    public void setUp() {
+        mPolygons = new ArrayList<Polygon>();
+        mPolygons.add(new Polygon().addPoint(100, 100).addPoint(100, 300).addPoint(300, 300).addPoint(300, 100));
+        mPolygons.add(new Polygon().addPoint(250, 250).addPoint(250, 450).addPoint(450, 450).addPoint(450, 250));
+        mIndex = new PolygonIndex(48, 96);
+        mIndex.setBounds(800, 600);
+        mIndex.syncAll(mPolygons);
+    }
+
+    @Test
+    public void queryZonesCullsByBounds() {
+        BitSet visible = new BitSet();
+        mIndex.queryZones(0, 0, 200, 200, visible);
+        assertEquals(1, visible.cardinality());
+        assertTrue(visible.get(0));
+        mIndex.queryZones(260, 260, 800, 600, visible);
+        assertTrue(visible.get(0));
+        assertTrue(visible.get(1));
+        mIndex.queryZones(500, 0, 800, 200, visible);
+        assertTrue(visible.isEmpty());
+
+        mPolygons.get(1).updatePoints(-240, -240);
+        mIndex.sync(1, mPolygons.get(1));
+        mIndex.queryZones(0, 0, 50, 50, visible);
+        assertTrue(visible.get(1));
+        assertFalse(visible.get(0));
+    }
+
+    @Test
+    public void hitVertexPicksNearest() {
+        assertTrue(mIndex.hitVertex(105, 290, 24));
+        assertEquals(0, mIndex.getHitPolygon());
+        assertEquals(1, mIndex.getHitVertex());
+
+        assertTrue(mIndex.hitVertex(445, 255, 24));
+        assertEquals(1, mIndex.getHitPolygon());
+        assertEquals(3, mIndex.getHitVertex());
+
+        assertFalse(mIndex.hitVertex(200, 200, 24));
+        assertEquals(-1, mIndex.getHitPolygon());
+        assertEquals(-1, mIndex.getHitVertex());
+    }
+
+    @Test
+    public void hitVertexRadiusIsExclusive() {
+        assertFalse(mIndex.hitVertex(124, 100, 24));
+        assertTrue(mIndex.hitVertex(123, 100, 24));
+    }
+
+    @Test
+    public void hitBoundsPrefersNearestCenter() {
+        assertTrue(mIndex.hitBounds(mPolygons, 150, 150));
+        assertEquals(0, mIndex.getHitPolygon());
+        // 重叠区域内, 离第二个中心更近
+        assertTrue(mIndex.hitBounds(mPolygons, 295, 295));
+        assertEquals(1, mIndex.getHitPolygon());
+        assertFalse(mIndex.hitBounds(mPolygons, 100, 200));
+        assertFalse(mIndex.hitBounds(mPolygons, 600, 500));
+    }
+
+    @Test
+    public void hitCenter() {
+        assertTrue(mIndex.hitCenter(mPolygons, 210, 190, 48));
+        assertEquals(0, mIndex.getHitPolygon());
+        assertFalse(mIndex.hitCenter(mPolygons, 260, 200, 48));
+    }
+
+    @Test
+    public void syncFollowsMovedPolygon() {
+        mPolygons.get(0).updatePoints(400, 0);
+        assertTrue(mIndex.hitVertex(100, 100, 24));
+        mIndex.sync(0, mPolygons.get(0));
+        assertFalse(mIndex.hitVertex(100, 100, 24));
+        assertTrue(mIndex.hitVertex(500, 100, 24));
+        assertEquals(0, mIndex.getHitPolygon());
+    }
+
+    @Test
+    public void syncHandlesVertexCountChanges() {
+        mPolygons.get(0).addPoint(200, 50);
+        mIndex.sync(0, mPolygons.get(0));
+        assertTrue(mIndex.hitVertex(200, 50, 24));
+        assertEquals(4, mIndex.getHitVertex());
+
+        mPolygons.get(0).clear();
+        mIndex.sync(0, mPolygons.get(0));
+        assertFalse(mIndex.hitVertex(200, 50, 24));
+        assertFalse(mIndex.hitBounds(mPolygons, 150, 150));
+    }
+
+    @Test
+    public void syncAllDropsRemovedPolygons() {
+        mPolygons.remove(1);
+        mIndex.syncAll(mPolygons);
+        assertFalse(mIndex.hitVertex(450, 450, 24));
+        assertTrue(mIndex.hitVertex(300, 300, 24));
+    }
+
+    @Test
+    public void clearForgetsEverything() {
+        mIndex.clear();
+        assertFalse(mIndex.hitVertex(100, 100, 24));
+        mIndex.syncAll(mPolygons);
+        assertTrue(mIndex.hitVertex(100, 100, 24));
+    }
+}
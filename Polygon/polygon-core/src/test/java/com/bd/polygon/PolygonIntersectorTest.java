@@ -0,0 +1,137 @@
+package com.bd.polygon;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PolygonIntersectorTest {
+
+    private final PolygonIntersector mIntersector = new PolygonIntersector();
+
+    private static Polygon rect(int left, int top, int right, int bottom) {
+        return new Polygon(new int[]{left, left, right, right}, new int[]{top, bottom, bottom, top}, 4);
+    }
+
+    private boolean intersects(Polygon a, Polygon b) {
+        boolean ab = mIntersector.intersects(a, b);
+        assertEquals("not symmetric", ab, mIntersector.intersects(b, a));
+        return ab;
+    }
+
+    @Test
+    public void convexDetection() {
+        assertTrue(PolygonIntersector.isConvex(new int[]{0, 0, 10, 10}, new int[]{0, 10, 10, 0}, 4));
+        // 共线的中点
+        assertTrue(PolygonIntersector.isConvex(new int[]{0, 0, 0, 5, 10, 10}, new int[]{0, 5, 10, 10, 10, 0}, 6));
+        // 凹四边形
+        assertFalse(PolygonIntersector.isConvex(new int[]{0, 5, 10, 5}, new int[]{0, 3, 0, 10}, 4));
+        // 五角星: 转向一致但自交
+        int[] xs = new int[5];
+        int[] ys = new int[5];
+        for (int i = 0; i < 5; i++) {
+            double angle = 4 * Math.PI * i / 5;
+            xs[i] = (int) Math.round(100 * Math.cos(angle));
+            ys[i] = (int) Math.round(100 * Math.sin(angle));
+        }
+        assertFalse(PolygonIntersector.isConvex(xs, ys, 5));
+    }
+
+    @Test
+    public void touchingRectsDoNotOverlap() {
+        assertFalse(intersects(rect(0, 0, 10, 10), rect(10, 0, 20, 10)));
+        assertFalse(intersects(rect(0, 0, 10, 10), rect(10, 10, 20, 20)));
+        assertTrue(intersects(rect(0, 0, 10, 10), rect(9, 9, 20, 20)));
+        assertTrue(intersects(rect(0, 0, 10, 10), rect(0, 0, 10, 10)));
+    }
+
+    @Test
+    public void containedPolygonOverlaps() {
+        Polygon concave = new Polygon(new int[]{0, 50, 100, 100, 0}, new int[]{0, 40, 0, 100, 100}, 5);
+        assertTrue(intersects(concave, rect(40, 60, 60, 80)));
+        assertTrue(intersects(rect(-10, -10, 110, 110), concave));
+        // 凹口里的矩形
+        assertFalse(intersects(concave, rect(40, 0, 60, 10)));
+    }
+
+    @Test
+    public void concaveCrossingAndTouching() {
+        // U 形
+        Polygon u = new Polygon(new int[]{0, 0, 30, 30, 20, 20, 10, 10}, new int[]{0, 30, 30, 0, 0, 20, 20, 0}, 8);
+        // 放在 U 的开口里, 只接触边
+        assertFalse(intersects(u, rect(10, 0, 20, 20)));
+        // 伸进 U 的一条臂
+        assertTrue(intersects(u, rect(15, 5, 25, 10)));
+        // 对角线经过顶点进入
+        Polygon triangle = new Polygon(new int[]{-5, 25, 25}, new int[]{-5, 25, -5}, 3);
+        assertTrue(intersects(rect(0, 0, 10, 10), triangle));
+    }
+
+    @Test
+    public void coincidentConcavePolygonsOverlap() {
+        // C 形, 顶点平均点落在开口里
+        int[] xs = {0, 0, 30, 30, 5, 5, 30, 30};
+        int[] ys = {0, 30, 30, 25, 25, 5, 5, 0};
+        assertTrue(intersects(new Polygon(xs, ys, 8), new Polygon(xs, ys, 8)));
+        // 起点不同、方向相反
+        int[] rxs = {5, 30, 30, 0, 0, 30, 30, 5};
+        int[] rys = {25, 25, 30, 30, 0, 0, 5, 5};
+        assertTrue(intersects(new Polygon(xs, ys, 8), new Polygon(rxs, rys, 8)));
+        // 最上最左的顶点处的三角形里还有顶点 (10, 10), 三角形的重心和顶点平均点都在边界上
+        int[] nxs = {0, 40, 40, 10, 0};
+        int[] nys = {0, 0, 40, 10, 40};
+        assertTrue(intersects(new Polygon(nxs, nys, 5), new Polygon(nxs, nys, 5)));
+    }
+
+    @Test
+    public void degeneratePolygonsNeverOverlap() {
+        assertFalse(intersects(new Polygon(new int[]{5, 6}, new int[]{5, 6}, 2), rect(0, 0, 10, 10)));
+        assertFalse(intersects(new Polygon(new int[]{0, 5, 10}, new int[]{5, 5, 5}, 3), rect(0, 0, 10, 10)));
+    }
+
+    @Test
+    public void commonInteriorPointImpliesOverlap() {
+        Random random = new Random(7);
+        for (int round = 0; round < 300; round++) {
+            Polygon a = randomPolygon(random);
+            Polygon b = randomPolygon(random);
+            boolean sampled = false;
+            for (double y = 0.3; y < 40 && !sampled; y += 0.5) {
+                for (double x = 0.2; x < 40 && !sampled; x += 0.5) {
+                    sampled = contains(a, x, y) && contains(b, x, y);
+                }
+            }
+            if (sampled) {
+                assertTrue("round " + round, intersects(a, b));
+            }
+        }
+    }
+
+    private static Polygon randomPolygon(Random random) {
+        int count = 3 + random.nextInt(6);
+        int cx = 5 + random.nextInt(30);
+        int cy = 5 + random.nextInt(30);
+        Polygon polygon = new Polygon();
+        for (int i = 0; i < count; i++) {
+            double angle = 2 * Math.PI * i / count;
+            int radius = 2 + random.nextInt(15);
+            polygon.addPoint(cx + (int) (radius * Math.cos(angle)), cy + (int) (radius * Math.sin(angle)));
+        }
+        return polygon;
+    }
+
+    private static boolean contains(Polygon polygon, double x, double y) {
+        boolean inside = false;
+        for (int i = 0, j = polygon.size() - 1; i < polygon.size(); j = i++) {
+            double xi = polygon.getX(i);
+            double yi = polygon.getY(i);
+            double xj = polygon.getX(j);
+            double yj = polygon.getY(j);
+            if ((yi > y) != (yj > y) && x < (xj - xi) * (y - yi) / (yj - yi) + xi) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+}
@@ -0,0 +1,85 @@
+package com.bd.polygon;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+
+import static org.junit.Assert.*;
+
+public class PolygonTemplateTest {
+
+    @Test
+    public void rectMatchesDraggedBox() {
+        Polygon polygon = new Polygon();
+        PolygonTemplate.RECT.apply(polygon, 10, 20, 30, 40);
+        assertEquals(4, polygon.size());
+        int[] xs = new int[4];
+        int[] ys = new int[4];
+        polygon.copyPoints(xs, ys);
+        assertArrayEquals(new int[]{10, 10, 40, 40}, xs);
+        assertArrayEquals(new int[]{20, 60, 60, 20}, ys);
+    }
+
+    @Test
+    public void octagonHasEdgeMidpoints() {
+        Polygon polygon = new Polygon();
+        PolygonTemplate.OCTAGON.apply(polygon, 0, 0, 100, -50);
+        int[] xs = new int[8];
+        int[] ys = new int[8];
+        assertEquals(8, polygon.copyPoints(xs, ys));
+        assertArrayEquals(new int[]{0, 0, 0, 50, 100, 100, 100, 50}, xs);
+        assertArrayEquals(new int[]{0, -25, -50, -50, -50, -25, 0, 0}, ys);
+    }
+
+    @Test
+    public void regularFillsBoxAndIsCached() {
+        PolygonTemplate hexagon = PolygonTemplate.regular(6);
+        assertSame(hexagon, PolygonTemplate.regular(6));
+        assertSame(hexagon, Shape.HEXAGON.getTemplate());
+        assertNull(Shape.CIRCLE.getTemplate());
+        for (int n = 3; n <= 30; n++) {
+            Polygon polygon = new Polygon();
+            PolygonTemplate.regular(n).apply(polygon, 100, 200, 300, 150);
+            assertEquals(n, polygon.size());
+            assertArrayEquals("n = " + n, new int[]{100, 200, 400, 350}, polygon.getBounds());
+            assertTrue(PolygonIntersector.isConvex(copyXs(polygon), copyYs(polygon), n));
+        }
+    }
+
+    @Test
+    public void applyReplacesPointsAndRebuildsMask() {
+        Polygon polygon = new Polygon(new int[]{0, 0, 5}, new int[]{0, 5, 5}, 3);
+        polygon.enableGridMask(20, 20, 10, 10);
+        polygon.getGridMask();
+        int version = polygon.getVersion();
+        PolygonTemplate.regular(24).apply(polygon, 20, 20, 120, 80);
+        assertEquals(version + 1, polygon.getVersion());
+        BitSet expected = new BitSet();
+        new GridRasterizer().rasterize(copyXs(polygon), copyYs(polygon), 24, 20, 20, 10, 10, expected);
+        assertEquals(expected, polygon.getGridMask());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unitCoordinatesOutsideBoxAreRejected() {
+        new PolygonTemplate(new float[]{0, 1, 1.5f}, new float[]{0, 0, 1});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooFewVerticesAreRejected() {
+        PolygonTemplate.regular(2);
+    }
+
+    private static int[] copyXs(Polygon polygon) {
+        int[] xs = new int[polygon.size()];
+        int[] ys = new int[polygon.size()];
+        polygon.copyPoints(xs, ys);
+        return xs;
+    }
+
+    private static int[] copyYs(Polygon polygon) {
+        int[] xs = new int[polygon.size()];
+        int[] ys = new int[polygon.size()];
+        polygon.copyPoints(xs, ys);
+        return ys;
+    }
+}
@@ -0,0 +1,156 @@
+package com.bd.polygon;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PolygonTest {
+
+    private static Polygon square() {
+        return new Polygon().addPoint(10, 10).addPoint(10, 30).addPoint(30, 30).addPoint(30, 10);
+    }
+
+    @Test
+    public void addAndReadVertices() {
+        Polygon polygon = new Polygon();
+        for (int i = 0; i < 20; i++) {
+            polygon.addPoint(i, -i);
+        }
+        assertEquals(20, polygon.size());
+        assertEquals(7, polygon.getX(7));
+        assertEquals(-7, polygon.getY(7));
+        assertEquals(7, polygon.indexOf(7, -7));
+        assertEquals(-1, polygon.indexOf(7, 7));
+    }
+
+    @Test
+    public void setPointAppendsAtSize() {
+        Polygon polygon = new Polygon();
+        polygon.setPoint(0, 1, 2).setPoint(1, 3, 4).setPoint(0, 5, 6);
+        assertEquals(2, polygon.size());
+        assertEquals(5, polygon.getX(0));
+        assertEquals(4, polygon.getY(1));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void setPointBeyondSizeThrows() {
+        new Polygon().setPoint(1, 0, 0);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getBeyondSizeThrows() {
+        square().getX(4);
+    }
+
+    @Test
+    public void neighbours() {
+        Polygon polygon = square();
+        assertEquals(1, polygon.next(0));
+        assertEquals(0, polygon.next(3));
+        assertEquals(3, polygon.preview(0));
+        assertEquals(2, polygon.opposite(0));
+        assertEquals(1, polygon.opposite(3));
+        assertEquals(-1, polygon.addPoint(0, 0).opposite(0));
+    }
+
+    @Test
+    public void everyMutationBumpsVersion() {
+        Polygon polygon = new Polygon();
+        int version = polygon.getVersion();
+        polygon.addPoint(0, 0);
+        assertTrue(polygon.getVersion() != version);
+        version = polygon.getVersion();
+        polygon.setPoint(0, 1, 1);
+        assertTrue(polygon.getVersion() != version);
+        version = polygon.getVersion();
+        polygon.updatePoint(0, 1, 1);
+        assertTrue(polygon.getVersion() != version);
+        version = polygon.getVersion();
+        polygon.updatePoints(1, 1);
+        assertTrue(polygon.getVersion() != version);
+        version = polygon.getVersion();
+        polygon.setPoints(new int[]{1, 2}, new int[]{3, 4}, 2);
+        assertTrue(polygon.getVersion() != version);
+        version = polygon.getVersion();
+        polygon.clear();
+        assertTrue(polygon.getVersion() != version);
+        assertEquals(0, polygon.size());
+    }
+
+    @Test
+    public void boundsAndCenterFollowVertices() {
+        Polygon polygon = square();
+        assertArrayEquals(new int[]{10, 10, 30, 30}, polygon.getBounds());
+        assertEquals(20, polygon.getCenterX());
+        assertEquals(20, polygon.getCenterY());
+
+        polygon.updatePoints(5, -5);
+        assertArrayEquals(new int[]{15, 5, 35, 25}, polygon.getBounds());
+        assertEquals(25, polygon.getCenterX());
+        assertEquals(15, polygon.getCenterY());
+
+        polygon.updatePoint(2, 20, 20);
+        assertArrayEquals(new int[]{15, 5, 55, 45}, polygon.getBounds());
+
+        int[] center = new int[2];
+        assertTrue(polygon.averagePolygon(center));
+        assertEquals(polygon.getCenterX(), center[0]);
+        polygon.clear();
+        assertFalse(polygon.averagePolygon(center));
+        assertArrayEquals(new int[4], polygon.getBounds());
+    }
+
+    @Test
+    public void dirtyRectGridUsesExactCoverage() {
+        // 直角三角形, 斜边另一侧的栅格不应出现
+        Polygon polygon = new Polygon().addPoint(0, 0).addPoint(0, 20).addPoint(20, 0);
+        assertEquals(Arrays.asList(0, 1, 4), polygon.getDirtyRectGrid(4, 10, 10));
+
+        BitSet out = new BitSet();
+        out.set(15);
+        polygon.getDirtyRectGrid(new GridRasterizer(), 4, 10, 10, out);
+        assertEquals("{0, 1, 4}", out.toString());
+    }
+
+    @Test
+    public void dirtyRectGridFallsBackToBounds() {
+        Polygon polygon = new Polygon().addPoint(5, 5).addPoint(15, 5);
+        List<Integer> cells = polygon.getDirtyRectGrid(4, 10, 10);
+        assertEquals(Arrays.asList(0, 1), cells);
+        assertNull(new Polygon().getDirtyRectGrid(4, 10, 10));
+    }
+
+    @Test
+    public void setPointsCopiesInput() {
+        int[] xs = {0, 10, 10};
+        int[] ys = {0, 0, 10};
+        Polygon polygon = new Polygon(xs, ys, 3);
+        xs[0] = 99;
+        assertEquals(0, polygon.getX(0));
+        assertEquals(3, polygon.size());
+    }
+
+    @Test
+    public void tagIsKept() {
+        Polygon polygon = square();
+        Object tag = new Object();
+        polygon.setTag(tag);
+        polygon.updatePoints(1, 1);
+        assertSame(tag, polygon.getTag());
+    }
+
+    @Test
+    public void gridMaskIsOptional() {
+        Polygon polygon = square();
+        assertFalse(polygon.isGridMaskEnabled());
+        assertNull(polygon.getGridMask());
+        polygon.enableGridMask(5, 5, 10, 10);
+        assertEquals("{6, 7, 11, 12}", polygon.getGridMask().toString());
+        polygon.disableGridMask();
+        assertNull(polygon.getGridMask());
+    }
+}
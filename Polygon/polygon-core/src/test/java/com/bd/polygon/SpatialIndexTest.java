@@ -0,0 +1,127 @@
+package com.bd.polygon;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SpatialIndexTest {
+
+    private static int[] query(SpatialIndex index, int left, int top, int right, int bottom) {
+        int count = index.query(left, top, right, bottom);
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = index.getResult(i);
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveCellSize() {
+        new SpatialIndex(0);
+    }
+
+    @Test
+    public void queryIncludesBorders() {
+        SpatialIndex index = new SpatialIndex(10);
+        index.resize(100, 100);
+        int a = index.insert(0, 0, 5, 5, 5, 5);
+        int b = index.insert(1, 2, 20, 20, 40, 40);
+        assertArrayEquals(new int[]{a}, query(index, 0, 0, 5, 5));
+        assertArrayEquals(new int[]{b}, query(index, 40, 40, 50, 50));
+        assertArrayEquals(new int[]{a, b}, query(index, 0, 0, 100, 100));
+        assertArrayEquals(new int[0], query(index, 6, 6, 19, 19));
+        assertEquals(1, index.getOwner(b));
+        assertEquals(2, index.getSub(b));
+    }
+
+    @Test
+    public void boxIsNormalized() {
+        SpatialIndex index = new SpatialIndex(10);
+        index.resize(100, 100);
+        int id = index.insert(0, 0, 40, 40, 20, 20);
+        assertEquals(20, index.getLeft(id));
+        assertEquals(20, index.getTop(id));
+        assertEquals(40, index.getRight(id));
+        assertEquals(40, index.getBottom(id));
+    }
+
+    @Test
+    public void entriesOutsideAreClamped() {
+        SpatialIndex index = new SpatialIndex(10);
+        index.resize(50, 50);
+        int id = index.insert(0, 0, -30, 200, -30, 200);
+        assertArrayEquals(new int[]{id}, query(index, -40, 190, -20, 210));
+        assertArrayEquals(new int[0], query(index, 0, 40, 10, 50));
+    }
+
+    @Test
+    public void updateRemoveAndReuse() {
+        SpatialIndex index = new SpatialIndex(10);
+        index.resize(100, 100);
+        int id = index.insert(0, 0, 5, 5, 5, 5);
+        index.update(id, 85, 85, 85, 85);
+        assertArrayEquals(new int[0], query(index, 0, 0, 10, 10));
+        assertArrayEquals(new int[]{id}, query(index, 80, 80, 90, 90));
+
+        index.remove(id);
+        assertArrayEquals(new int[0], query(index, 0, 0, 100, 100));
+        assertEquals(id, index.insert(3, 0, 1, 1, 1, 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void removedIdIsRejected() {
+        SpatialIndex index = new SpatialIndex(10);
+        int id = index.insert(0, 0, 5, 5, 5, 5);
+        index.remove(id);
+        index.update(id, 0, 0, 0, 0);
+    }
+
+    @Test
+    public void resizeKeepsEntries() {
+        SpatialIndex index = new SpatialIndex(10);
+        int id = index.insert(0, 0, 75, 75, 80, 80);
+        index.resize(100, 100);
+        assertArrayEquals(new int[]{id}, query(index, 70, 70, 76, 76));
+        index.clear();
+        assertArrayEquals(new int[0], query(index, 0, 0, 100, 100));
+    }
+
+    @Test
+    public void matchesBruteForce() {
+        Random random = new Random(1);
+        SpatialIndex index = new SpatialIndex(16);
+        index.resize(300, 200);
+        int[][] boxes = new int[200][];
+        for (int step = 0; step < 2000; step++) {
+            int slot = random.nextInt(boxes.length);
+            int[] box = {random.nextInt(340) - 20, random.nextInt(240) - 20, 0, 0};
+            box[2] = box[0] + random.nextInt(40);
+            box[3] = box[1] + random.nextInt(40);
+            if (null == boxes[slot]) {
+                boxes[slot] = new int[]{index.insert(slot, 0, box[0], box[1], box[2], box[3]), box[0], box[1], box[2], box[3]};
+            } else if (random.nextInt(4) == 0) {
+                index.remove(boxes[slot][0]);
+                boxes[slot] = null;
+            } else {
+                index.update(boxes[slot][0], box[0], box[1], box[2], box[3]);
+                System.arraycopy(box, 0, boxes[slot], 1, 4);
+            }
+
+            int left = random.nextInt(300);
+            int top = random.nextInt(200);
+            int right = left + random.nextInt(60);
+            int bottom = top + random.nextInt(60);
+            int expected = 0;
+            for (int[] b : boxes) {
+                if (null != b && b[1] <= right && b[3] >= left && b[2] <= bottom && b[4] >= top) {
+                    expected++;
+                }
+            }
+            assertEquals(expected, query(index, left, top, right, bottom).length);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.bd.polygon;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TouchSampleBufferTest {
+
+    @Test
+    public void capacityRoundsUpToPowerOfTwo() {
+        assertEquals(8, new TouchSampleBuffer(5).capacity());
+        assertEquals(8, new TouchSampleBuffer(8).capacity());
+        assertEquals(1, new TouchSampleBuffer(1).capacity());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsZeroCapacity() {
+        new TouchSampleBuffer(0);
+    }
+
+    @Test
+    public void keepsSamplesInOrder() {
+        TouchSampleBuffer buffer = new TouchSampleBuffer(4);
+        assertTrue(buffer.isEmpty());
+        buffer.add(1, 2, 10);
+        buffer.add(3, 4, 20);
+        assertEquals(2, buffer.size());
+        assertEquals(1f, buffer.getX(0), 0);
+        assertEquals(4f, buffer.getY(1), 0);
+        assertEquals(20, buffer.getLatestTime());
+    }
+
+    @Test
+    public void overwritesOldestWhenFull() {
+        TouchSampleBuffer buffer = new TouchSampleBuffer(4);
+        for (int i = 0; i < 10; i++) {
+            buffer.add(i, -i, i);
+        }
+        assertEquals(4, buffer.size());
+        assertEquals(6f, buffer.getX(0), 0);
+        assertEquals(9f, buffer.getLatestX(), 0);
+        assertEquals(-9f, buffer.getLatestY(), 0);
+        buffer.clear();
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void indexBeyondSizeThrows() {
+        TouchSampleBuffer buffer = new TouchSampleBuffer(4);
+        buffer.add(0, 0, 0);
+        buffer.getX(1);
+    }
+
+    @Test
+    public void predictExtrapolatesLinearMotion() {
+        TouchSampleBuffer buffer = new TouchSampleBuffer(16);
+        // 每 4ms 向右 2px, 向下 1px
+        for (int i = 0; i <= 10; i++) {
+            buffer.add(100 + 2 * i, 50 + i, 1000 + 4 * i);
+        }
+        float[] out = new float[2];
+        assertTrue(buffer.predict(1048, 100, out));
+        assertEquals(124f, out[0], 1e-3);
+        assertEquals(62f, out[1], 1e-3);
+    }
+
+    @Test
+    public void predictionHorizonIsCapped() {
+        TouchSampleBuffer buffer = new TouchSampleBuffer(16);
+        buffer.add(0, 0, 0);
+        buffer.add(10, 0, 10);
+        float[] out = new float[2];
+        assertTrue(buffer.predict(1000, 5, out));
+        assertEquals(15f, out[0], 1e-3);
+        // 目标时间早于最新采样时不推算
+        assertTrue(buffer.predict(5, 5, out));
+        assertEquals(10f, out[0], 1e-3);
+    }
+
+    @Test
+    public void predictIgnoresStaleSamples() {
+        TouchSampleBuffer buffer = new TouchSampleBuffer(16);
+        buffer.add(500, 500, 0);
+        buffer.add(10, 10, 1000);
+        float[] out = new float[2];
+        assertFalse(buffer.predict(1010, 16, out));
+        assertEquals(10f, out[0], 0);
+        assertEquals(10f, out[1], 0);
+    }
+}